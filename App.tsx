@@ -9,7 +9,6 @@ import {
   View,
   Text,
   ActivityIndicator,
-  NativeModules,
   Platform,
   PermissionsAndroid,
 } from 'react-native';
@@ -18,9 +17,11 @@ import PhoneLoginScreen from './src/screens/PhoneLoginScreen';
 import OTPVerificationScreen from './src/screens/OTPVerificationScreen';
 import { RootStackParamList } from './src/types/navigation';
 import FallDetectionPopup from './src/components/FallDetectionPopup';
+import FallDetectionModule from './src/specs/NativeFallDetectionModule';
 
 import HomeScreen from './src/screens/HomeScreen';
 import ServiceScreen from './src/screens/ServiceScreen';
+import DetectorDebugScreen from './src/screens/DetectorDebugScreen';
 import SafeVaultScreen from './src/screens/SafeVaultScreen';
 import ProfileScreen from './src/screens/ProfileScreen';
 import MyPolicyScreen from './src/screens/MyPolicyScreen';
@@ -89,6 +90,7 @@ const Navigation = () => {
           <Stack.Screen name="FirstConnect" component={FirstConnectScreen} />
           <Stack.Screen name="Tutorials" component={TutorialsScreen} />
           <Stack.Screen name="Service" component={ServiceScreen} />
+          <Stack.Screen name="DetectorDebug" component={DetectorDebugScreen} />
           <Stack.Screen name="SafeVault" component={SafeVaultScreen} />
           <Stack.Screen
             name="NomineeDetails"
@@ -136,7 +138,7 @@ function App() {
           }
 
           console.log('[FallDetection] Starting fall detection service...');
-          NativeModules.FallDetectionModule?.startService();
+          FallDetectionModule?.startService();
           console.log('[FallDetection] Service started successfully');
         } catch (e) {
           console.log('Fall detection service init failed', e);
@@ -1,5 +1,6 @@
 package com.nomisafe
 
+import android.os.Bundle
 import com.facebook.react.ReactActivity
 import com.facebook.react.ReactActivityDelegate
 import com.facebook.react.defaults.DefaultNewArchitectureEntryPoint.fabricEnabled
@@ -13,6 +14,12 @@ class MainActivity : ReactActivity() {
    */
   override fun getMainComponentName(): String = "Nomisafe"
 
+  override fun onCreate(savedInstanceState: Bundle?) {
+    // React Native is loaded lazily; it must be ready before the delegate starts
+    (application as MainApplication).ensureReactNative()
+    super.onCreate(savedInstanceState)
+  }
+
   /**
    * Returns the instance of the [ReactActivityDelegate]. We use [DefaultReactActivityDelegate]
    * which allows you to enable New Architecture with a single boolean flags [fabricEnabled]
@@ -1,6 +1,8 @@
 package com.nomisafe
 
 import android.app.Application
+import android.os.Build
+import android.os.SystemClock
 import com.facebook.react.PackageList
 import com.facebook.react.ReactApplication
 import com.facebook.react.ReactHost
@@ -9,6 +11,8 @@ import com.facebook.react.ReactNativeHost
 import com.facebook.react.ReactPackage
 import com.facebook.react.defaults.DefaultReactHost.getDefaultReactHost
 import com.facebook.react.defaults.DefaultReactNativeHost
+import com.nomisafe.falldetection.StartupTiming
+import java.io.File
 
 class MainApplication : Application(), ReactApplication {
 
@@ -30,10 +34,53 @@ class MainApplication : Application(), ReactApplication {
       }
 
   override val reactHost: ReactHost
-    get() = getDefaultReactHost(applicationContext, reactNativeHost)
+    get() {
+      ensureReactNative()
+      return getDefaultReactHost(applicationContext, reactNativeHost)
+    }
+
+  private var reactNativeLoaded = false
 
   override fun onCreate() {
     super.onCreate()
+    if (isDetectorProcess()) {
+      // FallDetectionService and its alert UI run here; they never touch React Native
+      StartupTiming.markApplicationCreated(StartupTiming.RN_NONE)
+      return
+    }
+    if (BuildConfig.EAGER_REACT_NATIVE) {
+      StartupTiming.markApplicationCreated(StartupTiming.RN_EAGER)
+      ensureReactNative()
+    } else {
+      // Deferred until an Activity or the bridge needs it, so a process started only for
+      // ShakeDetectionService or a receiver does not pay for Hermes and package registration
+      StartupTiming.markApplicationCreated(StartupTiming.RN_LAZY)
+    }
+  }
+
+  /**
+   * Loads React Native once. Called by MainActivity before its delegate is created and by the
+   * [reactHost] getter.
+   */
+  @Synchronized
+  fun ensureReactNative() {
+    if (reactNativeLoaded) return
+    reactNativeLoaded = true
+    val start = SystemClock.elapsedRealtime()
     loadReactNative(this)
+    StartupTiming.markReactNativeLoaded(SystemClock.elapsedRealtime() - start)
+  }
+
+  private fun isDetectorProcess(): Boolean {
+    val processName = if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.P) {
+      Application.getProcessName()
+    } else {
+      File("/proc/self/cmdline").readText().trimEnd('\u0000')
+    }
+    return processName.endsWith(DETECTOR_PROCESS_SUFFIX)
+  }
+
+  companion object {
+    const val DETECTOR_PROCESS_SUFFIX = ":detector"
   }
 }
@@ -11,6 +11,10 @@ import android.os.Build
 import android.os.IBinder
 import android.util.Log
 import androidx.core.app.NotificationCompat
+import com.nomisafe.falldetection.CountingHandler
+import com.nomisafe.falldetection.DetectorConfigStore
+import com.nomisafe.falldetection.EnergyAccounting
+import com.nomisafe.falldetection.StartupTiming
 import android.hardware.Sensor
 import android.hardware.SensorEvent
 import android.hardware.SensorEventListener
@@ -27,7 +31,8 @@ class ShakeDetectionService : Service(), SensorEventListener {
   private var fallCount: Int = 0
   private val gravity = FloatArray(3)
   private val linearAcceleration = FloatArray(3)
-  private val alpha: Float = 0.8f
+  private val energy = EnergyAccounting.SHAKE
+  private lateinit var handler: CountingHandler
 
   private val TAG = "ShakeService"
   private val FOREGROUND_CHANNEL_ID = "shake_service_channel"
@@ -40,6 +45,8 @@ class ShakeDetectionService : Service(), SensorEventListener {
   override fun onCreate() {
     super.onCreate()
     Log.d(TAG, "ShakeDetectionService onCreate() called")
+    energy.attach(this)
+    handler = CountingHandler(mainLooper, energy)
     sensorManager = getSystemService(Context.SENSOR_SERVICE) as SensorManager
     accelerometer = sensorManager.getDefaultSensor(Sensor.TYPE_ACCELEROMETER)
     registerListener()
@@ -54,17 +61,23 @@ class ShakeDetectionService : Service(), SensorEventListener {
 
   private fun registerListener() {
     accelerometer?.let {
-      sensorManager.registerListener(this, it, SensorManager.SENSOR_DELAY_GAME)
+      if (sensorManager.registerListener(this, it, SensorManager.SENSOR_DELAY_GAME)) {
+        energy.sensorRegistered()
+        StartupTiming.markSensorRegistered(this, "shake")
+      }
     }
   }
 
   private fun unregisterListener() {
     sensorManager.unregisterListener(this)
+    energy.sensorUnregistered()
   }
 
   override fun onDestroy() {
     super.onDestroy()
+    handler.removeCallbacksAndMessages(null)
     unregisterListener()
+    energy.detach()
   }
 
   override fun onStartCommand(intent: Intent?, flags: Int, startId: Int): Int {
@@ -136,8 +149,8 @@ class ShakeDetectionService : Service(), SensorEventListener {
 
   private fun triggerAlert() {
     val now = System.currentTimeMillis()
-    // Cooldown 30s
-    if (now - lastAlertTimestamp < 30_000) {
+    // Cooldown (30s by default)
+    if (now - lastAlertTimestamp < DetectorConfigStore.get(this).shakeCooldownMs) {
       Log.d(TAG, "Alert on cooldown, ignoring")
       return
     }
@@ -163,8 +176,12 @@ class ShakeDetectionService : Service(), SensorEventListener {
   }
 
   override fun onSensorChanged(event: SensorEvent?) {
+    energy.onSensorEvent()
     if (event?.sensor?.type != Sensor.TYPE_ACCELEROMETER) return
-    
+    // One read per sample, so a config update never mixes old and new thresholds
+    val config = DetectorConfigStore.get(this)
+    val alpha = config.shakeLowPassAlpha
+
     // Apply low-pass filter to isolate gravity
     gravity[0] = alpha * gravity[0] + (1 - alpha) * event.values[0]
     gravity[1] = alpha * gravity[1] + (1 - alpha) * event.values[1]
@@ -190,9 +207,9 @@ class ShakeDetectionService : Service(), SensorEventListener {
     
     // Fall detection logic
     // A fall is characterized by a sudden spike in linear acceleration followed by a period of low movement
-    if (magnitude > 15f) { // High acceleration threshold for impact
+    if (magnitude > config.shakeImpactThreshold) { // High acceleration threshold for impact
         Log.d(TAG, "High impact detected! magnitude=$magnitude")
-        if (now - lastFallTimestamp > 1000) { // Reset if last detection was more than 1 second ago
+        if (now - lastFallTimestamp > config.shakeBurstResetMs) { // Reset if last detection was more than 1 second ago
             fallCount = 0
         }
         fallCount++
@@ -200,18 +217,18 @@ class ShakeDetectionService : Service(), SensorEventListener {
         
         // Check for subsequent low movement (person may be on ground)
         // We'll use a delayed check
-        android.os.Handler(mainLooper).postDelayed({
-            // Check current acceleration after 1 second
+        handler.postDelayed({
+            // Check current acceleration after the delay (1 second by default)
             val currentMagnitude = sqrt(
                 linearAcceleration[0] * linearAcceleration[0] +
                 linearAcceleration[1] * linearAcceleration[1] +
                 linearAcceleration[2] * linearAcceleration[2]
             )
-            if (currentMagnitude < 2f) { // Very low movement
+            if (currentMagnitude < config.shakeStillThreshold) { // Very low movement
                 Log.d(TAG, "Low movement after impact - possible fall detected!")
                 triggerAlert()
             }
-        }, 1000)
+        }, config.shakeCheckDelayMs)
     }
   }
 
@@ -0,0 +1,278 @@
+package com.nomisafe.falldetection;
+
+import android.content.Context;
+import android.content.res.AssetFileDescriptor;
+import android.media.AudioAttributes;
+import android.media.AudioFormat;
+import android.media.AudioTrack;
+import android.media.MediaExtractor;
+import android.media.MediaFormat;
+import android.media.RingtoneManager;
+import android.media.SoundPool;
+import android.net.Uri;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
+
+/**
+ * Alarm sound for the SOS countdown, decoded ahead of time.
+ *
+ * The user's alarm ringtone is loaded into a SoundPool when the service starts, and a
+ * synthesized two-tone siren is kept in a static AudioTrack buffer as a fallback. Both are
+ * prepared on a background thread, so start() only has to kick off playback and never waits
+ * on the ringtone provider or a decoder. A ringtone too long for SoundPool, which would cut it
+ * off, is skipped in favour of the siren.
+ */
+class AlarmPlayer {
+    private static final String TAG = "AlarmPlayer";
+
+    // Synthesized siren: alternating tones, looped from a static buffer
+    private static final int SAMPLE_RATE = 22050;
+    private static final int HIGH_TONE_HZ = 960;
+    private static final int LOW_TONE_HZ = 770;
+    private static final int TONE_MS = 500;
+    private static final int RAMP_MS = 5;
+
+    // SoundPool's decode buffer; longer sounds are silently truncated
+    private static final long SOUNDPOOL_MAX_DECODED_BYTES = 1024 * 1024;
+
+    private final Context context;
+    private final AudioAttributes audioAttributes;
+
+    private SoundPool soundPool;
+    private int soundId = 0;
+    private volatile boolean soundLoaded = false;
+    private int streamId = 0;
+
+    private AudioTrack toneTrack;
+    private int toneFrames = 0;
+
+    private boolean playing = false;
+    private boolean released = false;
+
+    AlarmPlayer(Context context) {
+        this.context = context.getApplicationContext();
+        this.audioAttributes = new AudioAttributes.Builder()
+            .setUsage(AudioAttributes.USAGE_ALARM)
+            .setContentType(AudioAttributes.CONTENT_TYPE_SONIFICATION)
+            .build();
+    }
+
+    /**
+     * Prepares the alarm sounds on a background thread.
+     */
+    void preload() {
+        Thread thread = new Thread(this::loadSounds, "AlarmPreload");
+        thread.start();
+    }
+
+    private void loadSounds() {
+        long startNanos = SystemClock.elapsedRealtimeNanos();
+
+        // The synthesized tone first - it cannot fail on a slow provider
+        AudioTrack track = buildToneTrack();
+        synchronized (this) {
+            if (released) {
+                if (track != null) track.release();
+                return;
+            }
+            toneTrack = track;
+        }
+
+        SoundPool pool = new SoundPool.Builder()
+            .setMaxStreams(1)
+            .setAudioAttributes(audioAttributes)
+            .build();
+        pool.setOnLoadCompleteListener((loadedPool, sampleId, status) -> {
+            soundLoaded = status == 0;
+            Log.i(TAG, "Ringtone decoded (status=" + status + ") "
+                + AlertLatency.formatMillis(SystemClock.elapsedRealtimeNanos() - startNanos) + " ms after preload start");
+        });
+
+        int id = 0;
+        Uri alarmUri = getAlarmUri();
+        long decodedBytes = alarmUri != null ? decodedSize(alarmUri) : -1;
+        if (decodedBytes > SOUNDPOOL_MAX_DECODED_BYTES) {
+            Log.i(TAG, "Alarm ringtone decodes to " + decodedBytes + " bytes, too long for SoundPool; synthesized tone will be used");
+            alarmUri = null;
+        }
+        if (alarmUri != null) {
+            try (AssetFileDescriptor afd = context.getContentResolver().openAssetFileDescriptor(alarmUri, "r")) {
+                if (afd != null) {
+                    id = pool.load(afd, 1);
+                }
+            } catch (Exception e) {
+                Log.w(TAG, "Could not load alarm ringtone, synthesized tone will be used", e);
+            }
+        }
+
+        synchronized (this) {
+            if (released) {
+                pool.release();
+                return;
+            }
+            soundPool = pool;
+            soundId = id;
+        }
+    }
+
+    private Uri getAlarmUri() {
+        Uri alarmUri = RingtoneManager.getDefaultUri(RingtoneManager.TYPE_ALARM);
+        if (alarmUri == null) {
+            alarmUri = RingtoneManager.getDefaultUri(RingtoneManager.TYPE_RINGTONE);
+        }
+        if (alarmUri == null) {
+            alarmUri = RingtoneManager.getDefaultUri(RingtoneManager.TYPE_NOTIFICATION);
+        }
+        return alarmUri;
+    }
+
+    /**
+     * Decoded 16-bit PCM size of the first audio track, or -1 if the container does not say.
+     */
+    private long decodedSize(Uri uri) {
+        MediaExtractor extractor = new MediaExtractor();
+        try (AssetFileDescriptor afd = context.getContentResolver().openAssetFileDescriptor(uri, "r")) {
+            if (afd == null) return -1;
+            extractor.setDataSource(afd);
+            for (int i = 0; i < extractor.getTrackCount(); i++) {
+                MediaFormat format = extractor.getTrackFormat(i);
+                String mime = format.getString(MediaFormat.KEY_MIME);
+                if (mime == null || !mime.startsWith("audio/")) continue;
+                if (!format.containsKey(MediaFormat.KEY_DURATION)) return -1;
+                long frames = format.getLong(MediaFormat.KEY_DURATION)
+                    * format.getInteger(MediaFormat.KEY_SAMPLE_RATE) / 1_000_000;
+                return frames * format.getInteger(MediaFormat.KEY_CHANNEL_COUNT) * 2;
+            }
+            return -1;
+        } catch (Exception e) {
+            // Let SoundPool try; at worst the ringtone is cut short
+            Log.w(TAG, "Could not read alarm ringtone format", e);
+            return -1;
+        } finally {
+            extractor.release();
+        }
+    }
+
+    private AudioTrack buildToneTrack() {
+        try {
+            short[] pcm = synthesizeSiren();
+            AudioTrack track = new AudioTrack.Builder()
+                .setAudioAttributes(audioAttributes)
+                .setAudioFormat(new AudioFormat.Builder()
+                    .setEncoding(AudioFormat.ENCODING_PCM_16BIT)
+                    .setSampleRate(SAMPLE_RATE)
+                    .setChannelMask(AudioFormat.CHANNEL_OUT_MONO)
+                    .build())
+                .setTransferMode(AudioTrack.MODE_STATIC)
+                .setBufferSizeInBytes(pcm.length * 2)
+                .build();
+            track.write(pcm, 0, pcm.length);
+            if (track.getState() != AudioTrack.STATE_INITIALIZED) {
+                track.release();
+                return null;
+            }
+            toneFrames = pcm.length;
+            // Fires when the first frame has actually been rendered
+            track.setPlaybackPositionUpdateListener(new AudioTrack.OnPlaybackPositionUpdateListener() {
+                @Override
+                public void onMarkerReached(AudioTrack t) {
+                    AlertLatency.markAudible("audiotrack");
+                }
+
+                @Override
+                public void onPeriodicNotification(AudioTrack t) {}
+            }, new Handler(Looper.getMainLooper()));
+            return track;
+        } catch (Exception e) {
+            Log.e(TAG, "Failed to build synthesized alarm tone", e);
+            return null;
+        }
+    }
+
+    private static short[] synthesizeSiren() {
+        int toneSamples = SAMPLE_RATE * TONE_MS / 1000;
+        int rampSamples = SAMPLE_RATE * RAMP_MS / 1000;
+        short[] pcm = new short[toneSamples * 2];
+        for (int i = 0; i < pcm.length; i++) {
+            int inTone = i % toneSamples;
+            int frequency = i < toneSamples ? HIGH_TONE_HZ : LOW_TONE_HZ;
+            double amplitude = 1.0;
+            // Short ramps at each tone edge avoid audible clicks
+            if (inTone < rampSamples) {
+                amplitude = (double) inTone / rampSamples;
+            } else if (inTone >= toneSamples - rampSamples) {
+                amplitude = (double) (toneSamples - inTone) / rampSamples;
+            }
+            double sample = Math.sin(2 * Math.PI * frequency * i / SAMPLE_RATE);
+            pcm[i] = (short) (sample * amplitude * Short.MAX_VALUE * 0.9);
+        }
+        return pcm;
+    }
+
+    /**
+     * Starts the looping alarm. Returns false if nothing was ready to play, so the caller can
+     * fall back to another sound source.
+     */
+    synchronized boolean start() {
+        if (released) return false;
+        if (playing) return true;
+
+        if (soundPool != null && soundLoaded) {
+            streamId = soundPool.play(soundId, 1.0f, 1.0f, 1, -1, 1.0f);
+            if (streamId != 0) {
+                playing = true;
+                AlertLatency.markPlayRequested("soundpool");
+                Log.i(TAG, "Started ringtone alarm");
+                return true;
+            }
+        }
+
+        if (toneTrack != null) {
+            try {
+                toneTrack.setPlaybackHeadPosition(0);
+                toneTrack.setLoopPoints(0, toneFrames, -1);
+                toneTrack.setNotificationMarkerPosition(1);
+                toneTrack.play();
+                playing = true;
+                Log.i(TAG, "Started synthesized alarm tone");
+                return true;
+            } catch (Exception e) {
+                Log.e(TAG, "Failed to start synthesized alarm tone", e);
+            }
+        }
+        return false;
+    }
+
+    synchronized void stop() {
+        if (!playing) return;
+        playing = false;
+        try {
+            if (soundPool != null && streamId != 0) {
+                soundPool.stop(streamId);
+                streamId = 0;
+            }
+            if (toneTrack != null && toneTrack.getPlayState() != AudioTrack.PLAYSTATE_STOPPED) {
+                // Paused rather than stopped so the static buffer can be rewound and replayed
+                toneTrack.pause();
+            }
+            Log.i(TAG, "Stopped alarm");
+        } catch (Exception e) {
+            Log.e(TAG, "Error stopping alarm", e);
+        }
+    }
+
+    synchronized void release() {
+        stop();
+        released = true;
+        if (soundPool != null) {
+            soundPool.release();
+            soundPool = null;
+        }
+        if (toneTrack != null) {
+            toneTrack.release();
+            toneTrack = null;
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package com.nomisafe.falldetection;
+
+import android.os.SystemClock;
+import android.util.Log;
+
+import java.util.Locale;
+
+/**
+ * Timestamps of the stages between a confirmed fall and the user being alerted.
+ * All values come from SystemClock.elapsedRealtimeNanos() so they can be compared
+ * across threads and components.
+ */
+public final class AlertLatency {
+    private static final String TAG = "AlertLatency";
+
+    private static volatile long detectedAtNanos = 0;
+    private static volatile long audibleAtNanos = 0;
+    private static volatile long playRequestedAtNanos = 0;
+    private static volatile long activityCreatedAtNanos = 0;
+    private static volatile long firstFrameAtNanos = 0;
+
+    private AlertLatency() {}
+
+    /**
+     * Called when a fall is confirmed. Resets the marks of the previous alert.
+     */
+    public static void markDetected() {
+        audibleAtNanos = 0;
+        playRequestedAtNanos = 0;
+        activityCreatedAtNanos = 0;
+        firstFrameAtNanos = 0;
+        detectedAtNanos = SystemClock.elapsedRealtimeNanos();
+    }
+
+    /**
+     * Called once the alarm sound is actually playing. Only the first call per alert counts.
+     */
+    public static void markAudible(String source) {
+        long detected = detectedAtNanos;
+        if (detected == 0 || audibleAtNanos != 0) {
+            return;
+        }
+        long now = SystemClock.elapsedRealtimeNanos();
+        audibleAtNanos = now;
+        FallDetectionMetrics.DETECTION_TO_AUDIBLE_MS.record((now - detected) / 1_000_000);
+        Log.i(TAG, "Alarm audible " + formatMillis(now - detected) + " ms after detection (" + source + ")");
+    }
+
+    /**
+     * Called when a player without a playback-start callback has accepted the play request.
+     * Sound may follow some time later, so this is kept apart from the audible mark.
+     */
+    public static void markPlayRequested(String source) {
+        long detected = detectedAtNanos;
+        if (detected == 0 || playRequestedAtNanos != 0) {
+            return;
+        }
+        long now = SystemClock.elapsedRealtimeNanos();
+        playRequestedAtNanos = now;
+        FallDetectionMetrics.DETECTION_TO_PLAY_REQUESTED_MS.record((now - detected) / 1_000_000);
+        Log.i(TAG, "Alarm play requested " + formatMillis(now - detected) + " ms after detection (" + source + ")");
+    }
+
+    /**
+     * Called at the top of SOSAlertActivity.onCreate. The detection time travels with the launch
+     * intent as well, so the mark still works if this class was reset in between.
+     */
+    public static void markActivityCreated(long detectedAtFromIntent) {
+        if (detectedAtNanos == 0 && detectedAtFromIntent > 0) {
+            detectedAtNanos = detectedAtFromIntent;
+        }
+        long detected = detectedAtNanos;
+        long now = SystemClock.elapsedRealtimeNanos();
+        activityCreatedAtNanos = now;
+        firstFrameAtNanos = 0;
+        if (detected > 0) {
+            Log.i(TAG, "SOS activity created " + formatMillis(now - detected) + " ms after detection");
+        }
+    }
+
+    /**
+     * Called once the alert activity has drawn its first frame, i.e. the cancel button is visible.
+     */
+    public static void markFirstFrame() {
+        long created = activityCreatedAtNanos;
+        if (created == 0 || firstFrameAtNanos != 0) {
+            return;
+        }
+        long now = SystemClock.elapsedRealtimeNanos();
+        firstFrameAtNanos = now;
+        long detected = detectedAtNanos;
+        if (detected > 0) {
+            FallDetectionMetrics.DETECTION_TO_ALERT_MS.record((now - detected) / 1_000_000);
+        }
+        Log.i(TAG, "SOS first frame " + formatMillis(now - created) + " ms after onCreate"
+            + (detected > 0 ? ", " + formatMillis(now - detected) + " ms after detection" : ""));
+    }
+
+    public static long getDetectedAtNanos() {
+        return detectedAtNanos;
+    }
+
+    /**
+     * Trigger-to-audible latency of the last alert in nanoseconds, or -1 if not known yet.
+     */
+    public static long getTriggerToAudibleNanos() {
+        long detected = detectedAtNanos;
+        long audible = audibleAtNanos;
+        if (detected == 0 || audible == 0) {
+            return -1;
+        }
+        return audible - detected;
+    }
+
+    /**
+     * Detection-to-first-frame latency of the last alert in nanoseconds, or -1 if not known yet.
+     * This is how long the user waited before they could cancel.
+     */
+    public static long getDetectionToFirstFrameNanos() {
+        long detected = detectedAtNanos;
+        long frame = firstFrameAtNanos;
+        if (detected == 0 || frame == 0) {
+            return -1;
+        }
+        return frame - detected;
+    }
+
+    static String formatMillis(long nanos) {
+        return String.format(Locale.US, "%.1f", nanos / 1_000_000.0);
+    }
+}
@@ -0,0 +1,142 @@
+package com.nomisafe.falldetection;
+
+import android.Manifest;
+import android.app.Activity;
+import android.app.PendingIntent;
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.content.pm.PackageManager;
+import android.os.Build;
+import android.telephony.SmsManager;
+import android.util.Log;
+import androidx.core.content.ContextCompat;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * {@link SmsChannel} over SmsManager. Long texts go out multipart; a message counts as sent
+ * once the radio has reported every part, through one sent-status PendingIntent per part
+ * that comes back to a receiver registered for this process only.
+ */
+final class AndroidSmsChannel implements SmsChannel {
+    private static final String TAG = "AndroidSmsChannel";
+    private static final String ACTION_SENT = "com.nomisafe.falldetection.SMS_SENT";
+    private static final String EXTRA_MESSAGE_ID = "messageId";
+
+    private static final class Pending {
+        final String destination;
+        final Callback callback;
+        int partsLeft;
+        int errorCode = 0;
+
+        Pending(String destination, Callback callback, int parts) {
+            this.destination = destination;
+            this.callback = callback;
+            this.partsLeft = parts;
+        }
+    }
+
+    private final Context context;
+    private final Map<Integer, Pending> pending = new HashMap<>();
+    private int nextMessageId = 0;
+    private boolean registered = false;
+
+    private final BroadcastReceiver receiver = new BroadcastReceiver() {
+        @Override
+        public void onReceive(Context context, Intent intent) {
+            int messageId = intent.getIntExtra(EXTRA_MESSAGE_ID, -1);
+            int resultCode = getResultCode();
+            Pending message;
+            synchronized (AndroidSmsChannel.this) {
+                message = pending.get(messageId);
+                if (message == null) return;
+                if (resultCode != Activity.RESULT_OK && message.errorCode == 0) {
+                    message.errorCode = resultCode;
+                }
+                if (--message.partsLeft > 0) return;
+                pending.remove(messageId);
+            }
+            message.callback.onSent(message.destination, message.errorCode == 0, message.errorCode);
+        }
+    };
+
+    AndroidSmsChannel(Context context) {
+        this.context = context.getApplicationContext();
+    }
+
+    @Override
+    public boolean isAvailable() {
+        return context.getPackageManager().hasSystemFeature(PackageManager.FEATURE_TELEPHONY)
+            && ContextCompat.checkSelfPermission(context, Manifest.permission.SEND_SMS)
+                == PackageManager.PERMISSION_GRANTED;
+    }
+
+    @Override
+    public boolean send(String destination, String text, Callback callback) {
+        if (!isAvailable()) return false;
+        SmsManager sms = smsManager();
+        if (sms == null) return false;
+        ArrayList<String> parts = sms.divideMessage(text);
+        int messageId;
+        synchronized (this) {
+            registerIfNeeded();
+            messageId = nextMessageId++;
+            pending.put(messageId, new Pending(destination, callback, parts.size()));
+        }
+        ArrayList<PendingIntent> sentIntents = new ArrayList<>(parts.size());
+        for (int i = 0; i < parts.size(); i++) {
+            Intent intent = new Intent(ACTION_SENT)
+                .setPackage(context.getPackageName())
+                .putExtra(EXTRA_MESSAGE_ID, messageId);
+            // Unique request code per part, or the system would hand back one shared intent
+            sentIntents.add(PendingIntent.getBroadcast(context, messageId * 16 + (i & 15), intent,
+                PendingIntent.FLAG_ONE_SHOT | PendingIntent.FLAG_IMMUTABLE));
+        }
+        try {
+            if (parts.size() == 1) {
+                sms.sendTextMessage(destination, null, text, sentIntents.get(0), null);
+            } else {
+                sms.sendMultipartTextMessage(destination, null, parts, sentIntents, null);
+            }
+            return true;
+        } catch (RuntimeException e) {
+            // Bad number, no SIM, or the permission was revoked in between
+            Log.e(TAG, "SMS to contact not queued", e);
+            synchronized (this) {
+                pending.remove(messageId);
+            }
+            return false;
+        }
+    }
+
+    /** Unregisters the receiver; messages still in flight never report. */
+    synchronized void close() {
+        pending.clear();
+        if (!registered) return;
+        registered = false;
+        try {
+            context.unregisterReceiver(receiver);
+        } catch (IllegalArgumentException e) {
+            // Not registered
+        }
+    }
+
+    private void registerIfNeeded() {
+        if (registered) return;
+        registered = true;
+        ContextCompat.registerReceiver(context, receiver, new IntentFilter(ACTION_SENT),
+            ContextCompat.RECEIVER_NOT_EXPORTED);
+    }
+
+    @SuppressWarnings("deprecation")
+    private SmsManager smsManager() {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.S) {
+            return context.getSystemService(SmsManager.class);
+        }
+        return SmsManager.getDefault();
+    }
+}
@@ -0,0 +1,90 @@
+package com.nomisafe.falldetection;
+
+import android.os.Bundle;
+import android.os.Debug;
+import android.os.SystemClock;
+
+import java.util.Arrays;
+
+/**
+ * Per-inference latency and allocation of feature extraction plus scoring, on a synthetic
+ * fall trace in a private window so the live detector is not disturbed.
+ *
+ * Allocation is read from ART's process-wide allocated-bytes counter around the timed loop,
+ * so other threads allocating at the same time inflate it; a result near zero per inference
+ * is what the pipeline is built for.
+ */
+final class ClassifierBenchmark {
+    private static final int SAMPLE_RATE_HZ = 50;
+    private static final int WARMUP = 200;
+
+    private ClassifierBenchmark() {}
+
+    static Bundle run(int iterations, FallClassifier classifier) {
+        if (iterations <= 0) iterations = 1000;
+        SampleWindow window = new SampleWindow();
+        fillSyntheticFall(window);
+        FeatureExtractor extractor = new FeatureExtractor();
+
+        float sink = 0;
+        for (int i = 0; i < WARMUP; i++) {
+            sink += classifier.score(extractor.extract(window));
+        }
+
+        long[] latencies = new long[iterations];
+        long allocatedBefore = allocatedBytes();
+        for (int i = 0; i < iterations; i++) {
+            long start = SystemClock.elapsedRealtimeNanos();
+            float[] features = extractor.extract(window);
+            sink += classifier.score(features);
+            latencies[i] = SystemClock.elapsedRealtimeNanos() - start;
+        }
+        long allocatedAfter = allocatedBytes();
+        Arrays.sort(latencies);
+
+        Bundle result = new Bundle();
+        result.putDouble("iterations", iterations);
+        result.putDouble("windowSamples", window.size());
+        result.putDouble("p50Us", latencies[iterations / 2] / 1000.0);
+        result.putDouble("p99Us", latencies[Math.min(iterations - 1, (int) (iterations * 0.99))] / 1000.0);
+        result.putDouble("maxUs", latencies[iterations - 1] / 1000.0);
+        result.putDouble("allocatedBytesPerInference",
+            allocatedBefore < 0 ? -1 : (double) (allocatedAfter - allocatedBefore) / iterations);
+        // Keeps the scoring from being optimised away
+        result.putDouble("meanScore", sink / (iterations + WARMUP));
+        return result;
+    }
+
+    private static long allocatedBytes() {
+        String value = Debug.getRuntimeStat("art.gc.bytes-allocated");
+        try {
+            return value != null ? Long.parseLong(value) : -1;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * 1 s upright, 300 ms free-fall, a 4 g impact, then lying on the side.
+     */
+    private static void fillSyntheticFall(SampleWindow w) {
+        long periodNanos = 1_000_000_000L / SAMPLE_RATE_HZ;
+        long t = 1_000_000_000L;
+        for (int i = 0; i < SAMPLE_RATE_HZ; i++, t += periodNanos) {
+            w.add(t, 0.2f, 9.7f, 0.5f, 9.72f);
+        }
+        w.add(t, 0.1f, 1.0f, 0.2f, 1.03f);
+        w.markFreeFall();
+        t += periodNanos;
+        for (int i = 1; i < SAMPLE_RATE_HZ * 3 / 10; i++, t += periodNanos) {
+            w.add(t, 0.1f, 1.0f, 0.2f, 1.03f);
+        }
+        w.add(t, 20f, 30f, 10f, 37.4f);
+        w.markImpact();
+        t += periodNanos;
+        for (int i = 0; i < SAMPLE_RATE_HZ * 3; i++, t += periodNanos) {
+            float noise = (i % 3 - 1) * 0.05f;
+            w.add(t, 9.7f + noise, 0.3f, 0.4f, 9.72f + noise);
+        }
+    }
+}
@@ -0,0 +1,178 @@
+package com.nomisafe.falldetection;
+
+import android.Manifest;
+import android.content.Context;
+import android.content.pm.PackageManager;
+import android.hardware.Sensor;
+import android.hardware.SensorEvent;
+import android.hardware.SensorEventListener;
+import android.hardware.SensorManager;
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.core.content.ContextCompat;
+
+/**
+ * Classifies the user as still, walking, running or in a vehicle from the hardware step
+ * detector (or step counter) plus the variance of the accelerometer samples the detector
+ * already keeps, and tells the host when the context changes.
+ *
+ * Step events are batched by the sensor hub and classification runs on a slow timer, so
+ * nothing here touches the per-sample accelerometer path.
+ */
+class ContextClassifier implements SensorEventListener {
+    private static final String TAG = "ContextClassifier";
+
+    private static final long EVAL_INTERVAL_MS = 5000;
+    private static final int STEP_BATCH_LATENCY_US = 5_000_000;
+    private static final float RUNNING_CADENCE = 2.5f;    // steps/s
+    private static final float WALKING_CADENCE = 0.6f;    // steps/s
+    private static final float STILL_VARIANCE_MAX = 0.02f;
+    private static final float VEHICLE_VARIANCE_MAX = 3.0f;
+    private static final long VEHICLE_NO_STEPS_MS = 30000;
+    private static final int CONFIRMATIONS = 2;
+
+    interface Host {
+        /** Variance of the detector's recent accelerometer magnitudes. */
+        float recentVariance();
+
+        /** False while a detection is in progress; the switch is retried on the next evaluation. */
+        boolean canSwitchProfile();
+
+        void onContextChanged(int context);
+    }
+
+    private final Context context;
+    private final Host host;
+    private final Handler handler = new CountingHandler(Looper.getMainLooper(), EnergyAccounting.FALL);
+    private SensorManager sensorManager;
+    private Sensor stepSensor;
+    private boolean running = false;
+
+    // Step input, written by the step sensor callback on the main thread
+    private int stepsSinceEval = 0;
+    private float lastStepCounterValue = -1;
+    private long lastStepElapsedMs = 0;
+
+    private int currentContext = DetectionProfile.CONTEXT_WALKING;
+    private int candidateContext = DetectionProfile.CONTEXT_WALKING;
+    private int candidateCount = 0;
+
+    private final Runnable evaluate = new Runnable() {
+        @Override
+        public void run() {
+            classify();
+            if (running) {
+                handler.postDelayed(this, EVAL_INTERVAL_MS);
+            }
+        }
+    };
+
+    ContextClassifier(Context context, Host host) {
+        this.context = context;
+        this.host = host;
+    }
+
+    void start() {
+        if (running) return;
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q
+                && ContextCompat.checkSelfPermission(context, Manifest.permission.ACTIVITY_RECOGNITION)
+                    != PackageManager.PERMISSION_GRANTED) {
+            Log.w(TAG, "ACTIVITY_RECOGNITION not granted - staying on the default profile");
+            return;
+        }
+        sensorManager = (SensorManager) context.getSystemService(Context.SENSOR_SERVICE);
+        if (sensorManager == null) return;
+        stepSensor = sensorManager.getDefaultSensor(Sensor.TYPE_STEP_DETECTOR);
+        if (stepSensor == null) {
+            stepSensor = sensorManager.getDefaultSensor(Sensor.TYPE_STEP_COUNTER);
+        }
+        if (stepSensor == null) {
+            Log.w(TAG, "No step sensor - staying on the default profile");
+            return;
+        }
+        if (!sensorManager.registerListener(this, stepSensor, SensorManager.SENSOR_DELAY_NORMAL, STEP_BATCH_LATENCY_US)) {
+            Log.w(TAG, "Could not register step sensor");
+            return;
+        }
+        running = true;
+        lastStepElapsedMs = SystemClock.elapsedRealtime();
+        handler.postDelayed(evaluate, EVAL_INTERVAL_MS);
+        Log.i(TAG, "Context classification started with " + stepSensor.getName());
+    }
+
+    void stop() {
+        running = false;
+        handler.removeCallbacks(evaluate);
+        if (sensorManager != null) {
+            sensorManager.unregisterListener(this);
+        }
+    }
+
+    int getCurrentContext() {
+        return currentContext;
+    }
+
+    @Override
+    public void onSensorChanged(SensorEvent event) {
+        EnergyAccounting.FALL.onSensorEvent();
+        if (event.sensor.getType() == Sensor.TYPE_STEP_DETECTOR) {
+            stepsSinceEval++;
+        } else {
+            float total = event.values[0];
+            if (lastStepCounterValue >= 0 && total > lastStepCounterValue) {
+                stepsSinceEval += (int) (total - lastStepCounterValue);
+            }
+            lastStepCounterValue = total;
+        }
+        // Batched events carry their own timestamps (elapsedRealtimeNanos)
+        lastStepElapsedMs = Math.max(lastStepElapsedMs, event.timestamp / 1_000_000);
+    }
+
+    @Override
+    public void onAccuracyChanged(Sensor sensor, int accuracy) {}
+
+    private void classify() {
+        float cadence = stepsSinceEval * 1000f / EVAL_INTERVAL_MS;
+        stepsSinceEval = 0;
+
+        int detected;
+        if (cadence >= RUNNING_CADENCE) {
+            detected = DetectionProfile.CONTEXT_RUNNING;
+        } else if (cadence >= WALKING_CADENCE) {
+            detected = DetectionProfile.CONTEXT_WALKING;
+        } else {
+            float variance = host.recentVariance();
+            long noStepsMs = SystemClock.elapsedRealtime() - lastStepElapsedMs;
+            if (variance < STILL_VARIANCE_MAX) {
+                detected = DetectionProfile.CONTEXT_STILL;
+            } else if (noStepsMs >= VEHICLE_NO_STEPS_MS && variance < VEHICLE_VARIANCE_MAX) {
+                // Sustained vibration without a single step
+                detected = DetectionProfile.CONTEXT_VEHICLE;
+            } else {
+                detected = DetectionProfile.CONTEXT_WALKING;
+            }
+        }
+
+        // Hysteresis: a new context must be seen on consecutive evaluations
+        if (detected != candidateContext) {
+            candidateContext = detected;
+            candidateCount = 1;
+        } else if (candidateCount < CONFIRMATIONS) {
+            candidateCount++;
+        }
+        if (candidateContext == currentContext || candidateCount < CONFIRMATIONS) {
+            return;
+        }
+        if (!host.canSwitchProfile()) {
+            return;
+        }
+        currentContext = candidateContext;
+        Log.i(TAG, "Context changed to " + DetectionProfile.forContext(currentContext).name
+            + " (cadence " + cadence + " steps/s)");
+        host.onContextChanged(currentContext);
+    }
+}
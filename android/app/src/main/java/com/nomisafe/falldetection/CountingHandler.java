@@ -0,0 +1,32 @@
+package com.nomisafe.falldetection;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Message;
+
+/**
+ * Handler that reports posted and dispatched messages to an {@link EnergyAccounting.Source}.
+ * Every post/postDelayed/sendMessage variant ends in sendMessageAtTime, so all are counted.
+ */
+public class CountingHandler extends Handler {
+    private final EnergyAccounting.Source source;
+
+    public CountingHandler(Looper looper, EnergyAccounting.Source source) {
+        super(looper);
+        this.source = source;
+    }
+
+    @Override
+    public boolean sendMessageAtTime(Message msg, long uptimeMillis) {
+        source.onHandlerPost();
+        return super.sendMessageAtTime(msg, uptimeMillis);
+    }
+
+    @Override
+    public void dispatchMessage(Message msg) {
+        if (getLooper() == Looper.getMainLooper()) {
+            source.onMainThreadWakeup();
+        }
+        super.dispatchMessage(msg);
+    }
+}
@@ -0,0 +1,106 @@
+package com.nomisafe.falldetection;
+
+import android.os.Bundle;
+
+/**
+ * Immutable threshold set and sampling rate for one motion context. The detector reads the
+ * current profile through a single field, so switching profiles costs nothing per sample.
+ */
+public final class DetectionProfile {
+    public static final int CONTEXT_STILL = 0;
+    public static final int CONTEXT_WALKING = 1;
+    public static final int CONTEXT_RUNNING = 2;
+    public static final int CONTEXT_VEHICLE = 3;
+
+    public final int context;
+    public final String name;
+
+    // Free-fall then impact
+    public final float freeFallThreshold;   // m/s², below this counts as free-fall
+    public final long freeFallDurationMs;   // minimum free-fall before an impact counts
+    public final float impactThreshold;     // m/s²
+    public final long impactWindowMs;       // impact may follow the end of free-fall by this much
+
+    // Post-impact stillness
+    public final long stillnessCheckDelayMs;
+    public final long stillnessDurationMs;
+    public final float stillnessVarianceMax;
+    public final float stillnessRangeMax;
+
+    // Accelerometer registration
+    public final int samplingPeriodUs;
+    public final int maxReportLatencyUs;
+
+    public DetectionProfile(int context, String name,
+                            float freeFallThreshold, long freeFallDurationMs,
+                            float impactThreshold, long impactWindowMs,
+                            long stillnessCheckDelayMs, long stillnessDurationMs,
+                            float stillnessVarianceMax, float stillnessRangeMax,
+                            int samplingPeriodUs, int maxReportLatencyUs) {
+        this.context = context;
+        this.name = name;
+        this.freeFallThreshold = freeFallThreshold;
+        this.freeFallDurationMs = freeFallDurationMs;
+        this.impactThreshold = impactThreshold;
+        this.impactWindowMs = impactWindowMs;
+        this.stillnessCheckDelayMs = stillnessCheckDelayMs;
+        this.stillnessDurationMs = stillnessDurationMs;
+        this.stillnessVarianceMax = stillnessVarianceMax;
+        this.stillnessRangeMax = stillnessRangeMax;
+        this.samplingPeriodUs = samplingPeriodUs;
+        this.maxReportLatencyUs = maxReportLatencyUs;
+    }
+
+    /**
+     * The original single threshold set, tuned for ordinary movement at SENSOR_DELAY_GAME.
+     */
+    public static final DetectionProfile WALKING = new DetectionProfile(CONTEXT_WALKING, "walking",
+        4.0f, 50, 28.0f, 500, 1500, 1500, 1.0f, 2.5f, 20000, 0);
+
+    /**
+     * Phone lying still: same thresholds and rate as walking. Free-fall is timed between samples,
+     * so a 50 ms minimum needs samples no more than about 20 ms apart; any slower and a real
+     * 50 ms drop measures as one sample interval short and never counts.
+     */
+    public static final DetectionProfile STILL = new DetectionProfile(CONTEXT_STILL, "still",
+        4.0f, 50, 28.0f, 500, 1500, 1500, 1.0f, 2.5f, 20000, 0);
+
+    /**
+     * Running strides have a flight phase near 0 g and heel strikes well above 25 m/s², so
+     * free-fall must last longer and the impact must be harder. Sampled faster to catch the peak.
+     */
+    public static final DetectionProfile RUNNING = new DetectionProfile(CONTEXT_RUNNING, "running",
+        3.0f, 120, 35.0f, 400, 1500, 2000, 1.0f, 2.5f, 10000, 0);
+
+    /**
+     * In a vehicle, road vibration and potholes produce short spikes; require a longer, cleaner
+     * free-fall and a tighter stillness check afterwards.
+     */
+    public static final DetectionProfile VEHICLE = new DetectionProfile(CONTEXT_VEHICLE, "vehicle",
+        3.0f, 100, 32.0f, 400, 2000, 2500, 0.5f, 1.5f, 20000, 0);
+
+    public static DetectionProfile forContext(int context) {
+        switch (context) {
+            case CONTEXT_STILL: return STILL;
+            case CONTEXT_RUNNING: return RUNNING;
+            case CONTEXT_VEHICLE: return VEHICLE;
+            default: return WALKING;
+        }
+    }
+
+    public Bundle toBundle() {
+        Bundle bundle = new Bundle();
+        bundle.putString("name", name);
+        bundle.putDouble("freeFallThreshold", freeFallThreshold);
+        bundle.putDouble("freeFallDurationMs", freeFallDurationMs);
+        bundle.putDouble("impactThreshold", impactThreshold);
+        bundle.putDouble("impactWindowMs", impactWindowMs);
+        bundle.putDouble("stillnessCheckDelayMs", stillnessCheckDelayMs);
+        bundle.putDouble("stillnessDurationMs", stillnessDurationMs);
+        bundle.putDouble("stillnessVarianceMax", stillnessVarianceMax);
+        bundle.putDouble("stillnessRangeMax", stillnessRangeMax);
+        bundle.putDouble("samplingPeriodUs", samplingPeriodUs);
+        bundle.putDouble("maxReportLatencyUs", maxReportLatencyUs);
+        return bundle;
+    }
+}
@@ -0,0 +1,49 @@
+package com.nomisafe.falldetection;
+
+/**
+ * A fall detector fed from the shared accelerometer pipeline of {@link FallDetectionService}.
+ *
+ * Detectors are driven on the sensor thread. Parameters arrive as immutable objects through
+ * {@link #applyConfig} between two samples; an implementation keeps them in a field it reads
+ * once per sample, so a swap never mixes two parameter sets and never touches the sensor
+ * registration.
+ */
+interface Detector {
+    int RESULT_NONE = 0;
+    int RESULT_FALL = 1;
+
+    /**
+     * Candidate lifecycle, for the side effects the service hangs on it (fusion sensors,
+     * location warm-up, classifier scoring).
+     */
+    interface Listener {
+        void onFreeFall();
+
+        void onImpact();
+
+        /** The candidate ended without a confirmed fall. */
+        void onCandidateDropped(boolean hadImpact);
+    }
+
+    String getName();
+
+    void applyConfig(DetectorConfig config, DetectionProfile profile);
+
+    /**
+     * Consumes the newest sample, already appended to the window.
+     *
+     * @param nowMs when the sample was taken, elapsedRealtime clock; batched samples arrive
+     *              late, so this is the only time to measure durations from
+     * @return {@link #RESULT_FALL} when this sample confirms a fall
+     */
+    int onSample(SampleWindow window, long nowMs, float magnitude);
+
+    /** No candidate in progress; safe to switch profiles. */
+    boolean isIdle();
+
+    /** One of the SensorStreamer.PHASE_* values. */
+    int getPhase();
+
+    /** Drops any candidate in progress without reporting it. */
+    void reset();
+}
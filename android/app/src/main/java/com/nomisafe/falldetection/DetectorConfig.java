@@ -0,0 +1,311 @@
+package com.nomisafe.falldetection;
+
+import android.os.Bundle;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * Immutable set of every tunable detection parameter, for the fall and shake detectors.
+ *
+ * Parsed from a versioned JSON document; any field left out keeps its built-in default, so a
+ * config only needs to carry what it changes. Detectors read the current config once per
+ * sample, so replacing it swaps every parameter at once between two samples.
+ *
+ * <pre>
+ * { "schema": 1, "version": 12, "variant": "B",
+ *   "fall": { "cooldownMs": 30000, "impactTimeoutMs": 6000,
+ *             "stillGravityMin": 8.5, "stillGravityMax": 11.0,
+ *             "profiles": { "running": { "impactThreshold": 36 } } },
+ *   "classifier": { "mean": [...7], "scale": [...7], "weights": [...7], "bias": 0.5, "threshold": 0.5 },
+ *   "shake": { "impactThreshold": 15, "stillThreshold": 2, "checkDelayMs": 1000,
+ *              "burstResetMs": 1000, "cooldownMs": 30000, "lowPassAlpha": 0.8 },
+ *   "ensemble": { "policy": "any|quorum|priority", "quorum": 2, "voteWindowMs": 3000, "budgetUs": 300,
+ *                 "members": { "linear": { "mode": "off|shadow|vote", "priority": 1, "budgetUs": 50 } } } }
+ * </pre>
+ */
+public final class DetectorConfig {
+    public static final int SCHEMA = 1;
+
+    // Outer bounds of the tunables that size the shared sample window
+    static final long MAX_IMPACT_TIMEOUT_MS = 30000;
+    static final long MAX_FREE_FALL_DURATION_MS = 1000;
+    static final long MAX_IMPACT_WINDOW_MS = 2000;
+    static final int MIN_SAMPLING_PERIOD_US = 5000;
+
+    private static final String[] CONTEXT_NAMES = { "still", "walking", "running", "vehicle" };
+
+    // Ensemble policy: which member results raise an alert
+    public static final int POLICY_ANY = 0;       // any voting member
+    public static final int POLICY_QUORUM = 1;    // `quorum` voting members within the vote window
+    public static final int POLICY_PRIORITY = 2;  // the highest-priority voting member still running
+    private static final String[] POLICY_NAMES = { "any", "quorum", "priority" };
+
+    public static final int MODE_OFF = 0;
+    public static final int MODE_SHADOW = 1;      // runs and is counted, never alerts
+    public static final int MODE_VOTE = 2;
+    private static final String[] MODE_NAMES = { "off", "shadow", "vote" };
+
+    /**
+     * How one ensemble member runs. Priority 0 is the highest and is never shed.
+     */
+    static final class Member {
+        final String name;
+        final int mode;
+        final int priority;
+        final long budgetUs; // mean processing time per sample before the member is shed
+
+        Member(String name, int mode, int priority, long budgetUs) {
+            this.name = name;
+            this.mode = mode;
+            this.priority = priority;
+            this.budgetUs = budgetUs;
+        }
+    }
+
+    public final int version;
+    public final String variant;
+
+    // Fall detector
+    private final DetectionProfile[] profiles; // indexed by DetectionProfile.CONTEXT_*
+    public final long fallCooldownMs;
+    public final long impactTimeoutMs;
+    public final float stillGravityMin;
+    public final float stillGravityMax;
+    final FallClassifier classifier;
+
+    // Shake detector
+    public final float shakeImpactThreshold;   // linear acceleration, m/s²
+    public final float shakeStillThreshold;
+    public final long shakeCheckDelayMs;
+    public final long shakeBurstResetMs;
+    public final long shakeCooldownMs;
+    public final float shakeLowPassAlpha;
+
+    // Ensemble
+    public final int ensemblePolicy;
+    public final int quorum;
+    public final long voteWindowMs;
+    public final long ensembleBudgetUs;
+    private final Member[] members;
+
+    private DetectorConfig(int version, String variant, DetectionProfile[] profiles,
+                           long fallCooldownMs, long impactTimeoutMs, float stillGravityMin, float stillGravityMax,
+                           FallClassifier classifier,
+                           float shakeImpactThreshold, float shakeStillThreshold, long shakeCheckDelayMs,
+                           long shakeBurstResetMs, long shakeCooldownMs, float shakeLowPassAlpha,
+                           int ensemblePolicy, int quorum, long voteWindowMs, long ensembleBudgetUs, Member[] members) {
+        this.version = version;
+        this.variant = variant;
+        this.profiles = profiles;
+        this.fallCooldownMs = fallCooldownMs;
+        this.impactTimeoutMs = impactTimeoutMs;
+        this.stillGravityMin = stillGravityMin;
+        this.stillGravityMax = stillGravityMax;
+        this.classifier = classifier;
+        this.shakeImpactThreshold = shakeImpactThreshold;
+        this.shakeStillThreshold = shakeStillThreshold;
+        this.shakeCheckDelayMs = shakeCheckDelayMs;
+        this.shakeBurstResetMs = shakeBurstResetMs;
+        this.shakeCooldownMs = shakeCooldownMs;
+        this.shakeLowPassAlpha = shakeLowPassAlpha;
+        this.ensemblePolicy = ensemblePolicy;
+        this.quorum = quorum;
+        this.voteWindowMs = voteWindowMs;
+        this.ensembleBudgetUs = ensembleBudgetUs;
+        this.members = members;
+    }
+
+    /**
+     * The values that were compiled-in constants before configs existed.
+     */
+    public static final DetectorConfig DEFAULT = new DetectorConfig(0, "default",
+        new DetectionProfile[] { DetectionProfile.STILL, DetectionProfile.WALKING,
+            DetectionProfile.RUNNING, DetectionProfile.VEHICLE },
+        30000, 6000, 8.5f, 11.0f, FallClassifier.DEFAULT,
+        15f, 2f, 1000, 1000, 30000, 0.8f,
+        POLICY_ANY, 2, 3000, 300,
+        new Member[] {
+            new Member("threshold", MODE_VOTE, 0, 500),
+            // The shake logic alerts on hard shakes, so it only votes when a config says so
+            new Member("linear", MODE_SHADOW, 1, 50),
+        });
+
+    /**
+     * Settings of the named ensemble member; members missing from the config are off.
+     */
+    Member member(String name) {
+        for (Member member : members) {
+            if (member.name.equals(name)) return member;
+        }
+        return new Member(name, MODE_OFF, Integer.MAX_VALUE, 0);
+    }
+
+    static String policyName(int policy) {
+        return POLICY_NAMES[policy];
+    }
+
+    static String modeName(int mode) {
+        return MODE_NAMES[mode];
+    }
+
+    public DetectionProfile profileFor(int context) {
+        if (context < 0 || context >= profiles.length) {
+            return profiles[DetectionProfile.CONTEXT_WALKING];
+        }
+        return profiles[context];
+    }
+
+    /**
+     * Parses and validates a config document on top of {@link #DEFAULT}.
+     *
+     * @throws IllegalArgumentException if the document is malformed, from another schema or
+     *                                  has a value outside its sane range
+     */
+    public static DetectorConfig parse(String json) {
+        try {
+            JSONObject root = new JSONObject(json);
+            int schema = root.optInt("schema", -1);
+            if (schema != SCHEMA) {
+                throw new IllegalArgumentException("Unsupported schema " + schema + ", expected " + SCHEMA);
+            }
+            int version = root.getInt("version");
+            if (version < 1) {
+                throw new IllegalArgumentException("version must be >= 1");
+            }
+            String variant = root.optString("variant", "default");
+            DetectorConfig d = DEFAULT;
+
+            JSONObject fall = root.optJSONObject("fall");
+            if (fall == null) fall = new JSONObject();
+            DetectionProfile[] profiles = new DetectionProfile[CONTEXT_NAMES.length];
+            JSONObject profilesJson = fall.optJSONObject("profiles");
+            for (int i = 0; i < CONTEXT_NAMES.length; i++) {
+                JSONObject overrides = profilesJson != null ? profilesJson.optJSONObject(CONTEXT_NAMES[i]) : null;
+                profiles[i] = overrides != null ? parseProfile(d.profiles[i], overrides) : d.profiles[i];
+            }
+            long cooldownMs = range(fall, "cooldownMs", d.fallCooldownMs, 5000, 600000);
+            long impactTimeoutMs = range(fall, "impactTimeoutMs", d.impactTimeoutMs, 2000, MAX_IMPACT_TIMEOUT_MS);
+            float stillMin = range(fall, "stillGravityMin", d.stillGravityMin, 5f, 9.8f);
+            float stillMax = range(fall, "stillGravityMax", d.stillGravityMax, 9.8f, 15f);
+
+            FallClassifier classifier = d.classifier;
+            JSONObject classifierJson = root.optJSONObject("classifier");
+            if (classifierJson != null) {
+                classifier = new FallClassifier(
+                    floats(classifierJson.getJSONArray("mean")),
+                    floats(classifierJson.getJSONArray("scale")),
+                    bytes(classifierJson.getJSONArray("weights")),
+                    (float) classifierJson.optDouble("bias", 0),
+                    range(classifierJson, "threshold", 0.5f, 0f, 1f));
+            }
+
+            JSONObject shake = root.optJSONObject("shake");
+            if (shake == null) shake = new JSONObject();
+
+            JSONObject ensemble = root.optJSONObject("ensemble");
+            if (ensemble == null) ensemble = new JSONObject();
+            int policy = d.ensemblePolicy;
+            if (ensemble.has("policy")) {
+                policy = indexOf(POLICY_NAMES, ensemble.getString("policy"), "policy");
+            }
+            JSONObject membersJson = ensemble.optJSONObject("members");
+            Member[] members = new Member[d.members.length];
+            for (int i = 0; i < members.length; i++) {
+                Member base = d.members[i];
+                JSONObject o = membersJson != null ? membersJson.optJSONObject(base.name) : null;
+                members[i] = o == null ? base : new Member(base.name,
+                    o.has("mode") ? indexOf(MODE_NAMES, o.getString("mode"), base.name + ".mode") : base.mode,
+                    (int) range(o, "priority", base.priority, 0, 100),
+                    range(o, "budgetUs", base.budgetUs, 1, 10000));
+            }
+
+            return new DetectorConfig(version, variant, profiles, cooldownMs, impactTimeoutMs, stillMin, stillMax,
+                classifier,
+                range(shake, "impactThreshold", d.shakeImpactThreshold, 5f, 60f),
+                range(shake, "stillThreshold", d.shakeStillThreshold, 0.1f, 10f),
+                range(shake, "checkDelayMs", d.shakeCheckDelayMs, 100, 10000),
+                range(shake, "burstResetMs", d.shakeBurstResetMs, 100, 10000),
+                range(shake, "cooldownMs", d.shakeCooldownMs, 1000, 600000),
+                range(shake, "lowPassAlpha", d.shakeLowPassAlpha, 0.1f, 0.99f),
+                policy,
+                (int) range(ensemble, "quorum", d.quorum, 1, members.length),
+                range(ensemble, "voteWindowMs", d.voteWindowMs, 100, 30000),
+                range(ensemble, "budgetUs", d.ensembleBudgetUs, 1, 20000),
+                members);
+        } catch (JSONException e) {
+            throw new IllegalArgumentException("Malformed detector config: " + e.getMessage(), e);
+        }
+    }
+
+    private static int indexOf(String[] names, String value, String key) {
+        for (int i = 0; i < names.length; i++) {
+            if (names[i].equals(value)) return i;
+        }
+        throw new IllegalArgumentException(key + "=" + value + " is not one of " + String.join("|", names));
+    }
+
+    private static DetectionProfile parseProfile(DetectionProfile base, JSONObject o) throws JSONException {
+        float freeFall = range(o, "freeFallThreshold", base.freeFallThreshold, 0.5f, 8f);
+        float impact = range(o, "impactThreshold", base.impactThreshold, 12f, 80f);
+        return new DetectionProfile(base.context, base.name,
+            freeFall,
+            range(o, "freeFallDurationMs", base.freeFallDurationMs, 20, MAX_FREE_FALL_DURATION_MS),
+            impact,
+            range(o, "impactWindowMs", base.impactWindowMs, 50, MAX_IMPACT_WINDOW_MS),
+            range(o, "stillnessCheckDelayMs", base.stillnessCheckDelayMs, 0, 5000),
+            range(o, "stillnessDurationMs", base.stillnessDurationMs, 500, 5000),
+            range(o, "stillnessVarianceMax", base.stillnessVarianceMax, 0.05f, 5f),
+            range(o, "stillnessRangeMax", base.stillnessRangeMax, 0.1f, 10f),
+            (int) range(o, "samplingPeriodUs", base.samplingPeriodUs, MIN_SAMPLING_PERIOD_US, 100000),
+            (int) range(o, "maxReportLatencyUs", base.maxReportLatencyUs, 0, 1_000_000));
+    }
+
+    private static long range(JSONObject o, String key, long fallback, long min, long max) throws JSONException {
+        if (!o.has(key)) return fallback;
+        long value = o.getLong(key);
+        if (value < min || value > max) {
+            throw new IllegalArgumentException(key + "=" + value + " outside [" + min + ", " + max + "]");
+        }
+        return value;
+    }
+
+    private static float range(JSONObject o, String key, float fallback, float min, float max) throws JSONException {
+        if (!o.has(key)) return fallback;
+        float value = (float) o.getDouble(key);
+        if (!(value >= min && value <= max)) {
+            throw new IllegalArgumentException(key + "=" + value + " outside [" + min + ", " + max + "]");
+        }
+        return value;
+    }
+
+    private static float[] floats(JSONArray array) throws JSONException {
+        float[] values = new float[array.length()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = (float) array.getDouble(i);
+        }
+        return values;
+    }
+
+    private static byte[] bytes(JSONArray array) throws JSONException {
+        byte[] values = new byte[array.length()];
+        for (int i = 0; i < values.length; i++) {
+            int value = array.getInt(i);
+            if (value < -128 || value > 127) {
+                throw new IllegalArgumentException("classifier weight " + value + " is not int8");
+            }
+            values[i] = (byte) value;
+        }
+        return values;
+    }
+
+    public Bundle toBundle() {
+        Bundle bundle = new Bundle();
+        bundle.putDouble("schema", SCHEMA);
+        bundle.putDouble("version", version);
+        bundle.putString("variant", variant);
+        bundle.putString("ensemblePolicy", POLICY_NAMES[ensemblePolicy]);
+        return bundle;
+    }
+}
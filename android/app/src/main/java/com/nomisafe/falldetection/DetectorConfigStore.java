@@ -0,0 +1,93 @@
+package com.nomisafe.falldetection;
+
+import android.content.Context;
+import android.util.AtomicFile;
+import android.util.Log;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * The current {@link DetectorConfig} of this process, backed by a local file shared by the
+ * UI and :detector processes.
+ *
+ * Readers take {@link #get} once per sample; {@link #update} validates a new document,
+ * writes it atomically and swaps the in-memory config in one volatile write. A config older
+ * than the installed one is refused so a stale push cannot roll back an experiment.
+ */
+public final class DetectorConfigStore {
+    private static final String TAG = "DetectorConfigStore";
+    private static final String FILE_NAME = "detector_config.json";
+
+    private static volatile DetectorConfig current;
+
+    private DetectorConfigStore() {}
+
+    public static DetectorConfig get(Context context) {
+        DetectorConfig config = current;
+        if (config == null) {
+            synchronized (DetectorConfigStore.class) {
+                if (current == null) {
+                    current = load(context);
+                }
+                config = current;
+            }
+        }
+        return config;
+    }
+
+    /**
+     * Re-reads the file, e.g. after the other process installed a new config.
+     */
+    public static DetectorConfig reload(Context context) {
+        DetectorConfig config = load(context);
+        current = config;
+        return config;
+    }
+
+    /**
+     * Validates, persists and installs a config document.
+     *
+     * @throws IllegalArgumentException if the document is invalid or older than the installed one
+     * @throws IOException              if it could not be written
+     */
+    public static synchronized DetectorConfig update(Context context, String json) throws IOException {
+        DetectorConfig config = DetectorConfig.parse(json);
+        DetectorConfig installed = get(context);
+        if (config.version < installed.version) {
+            throw new IllegalArgumentException("Config version " + config.version
+                + " is older than installed version " + installed.version);
+        }
+        AtomicFile file = file(context);
+        FileOutputStream out = file.startWrite();
+        try {
+            out.write(json.getBytes(StandardCharsets.UTF_8));
+            file.finishWrite(out);
+        } catch (IOException e) {
+            file.failWrite(out);
+            throw e;
+        }
+        current = config;
+        Log.i(TAG, "Installed detector config v" + config.version + " (" + config.variant + ")");
+        return config;
+    }
+
+    private static AtomicFile file(Context context) {
+        return new AtomicFile(new File(context.getFilesDir(), FILE_NAME));
+    }
+
+    private static DetectorConfig load(Context context) {
+        try {
+            byte[] bytes = file(context).readFully();
+            return DetectorConfig.parse(new String(bytes, StandardCharsets.UTF_8));
+        } catch (FileNotFoundException e) {
+            return DetectorConfig.DEFAULT;
+        } catch (IOException | IllegalArgumentException e) {
+            Log.e(TAG, "Could not load detector config, using defaults", e);
+            return DetectorConfig.DEFAULT;
+        }
+    }
+}
@@ -0,0 +1,256 @@
+package com.nomisafe.falldetection;
+
+import android.os.Bundle;
+import android.os.SystemClock;
+
+/**
+ * Runs several detectors over the one shared {@link SampleWindow} and combines their results
+ * with the voting policy of the current {@link DetectorConfig}.
+ *
+ * Each member has a mode (off, shadow, vote), a priority and a CPU budget. The cost of every
+ * member is tracked as a moving average of its per-sample time; a member over its own budget,
+ * or the least important members while the ensemble as a whole is over budget, are shed for a
+ * while, most expensive first among equal priority. Priority 0 is never shed, so the primary
+ * detector keeps running under any load.
+ *
+ * The first member is the primary: it drives the candidate {@link Detector.Listener}
+ * callbacks and the streamed phase. When it reports a fall the policy does not turn into an
+ * alert, the ensemble reports the candidate as dropped so the service can release what it
+ * started for it.
+ *
+ * Single-threaded like the detectors it runs.
+ */
+final class DetectorEnsemble implements Detector {
+    // A shed member is readmitted with a fresh cost estimate after this long
+    private static final long SHED_BACKOFF_MS = 60_000;
+    // Moving-average weight of a new cost measurement is 1/2^COST_SHIFT
+    private static final int COST_SHIFT = 5;
+
+    private static final class Slot {
+        final Detector detector;
+        int mode = DetectorConfig.MODE_OFF;
+        int priority;
+        long budgetNs;
+        long costNs;          // moving average per sample
+        long shedUntilMs = 0; // 0 while running
+        long lastVoteMs = 0;  // 0 when no fall reported within the vote window
+        long falls = 0;
+        long sheds = 0;
+
+        Slot(Detector detector) {
+            this.detector = detector;
+        }
+
+        boolean running(long now) {
+            return mode != DetectorConfig.MODE_OFF && (shedUntilMs == 0 || now >= shedUntilMs);
+        }
+    }
+
+    private final SampleWindow window;
+    private final Listener listener;
+    private final Slot[] slots;
+    private volatile DetectorConfig config = DetectorConfig.DEFAULT;
+
+    // When the primary's fall is waiting for a quorum, 0 otherwise
+    private long primaryPendingMs = 0;
+
+    DetectorEnsemble(SampleWindow window, Listener listener, Detector... members) {
+        this.window = window;
+        this.listener = listener;
+        slots = new Slot[members.length];
+        for (int i = 0; i < members.length; i++) {
+            slots[i] = new Slot(members[i]);
+        }
+        applyMembers(config);
+    }
+
+    @Override
+    public String getName() {
+        return "ensemble";
+    }
+
+    @Override
+    public void applyConfig(DetectorConfig config, DetectionProfile profile) {
+        this.config = config;
+        window.setLowPassAlpha(config.shakeLowPassAlpha);
+        applyMembers(config);
+        for (Slot slot : slots) {
+            slot.detector.applyConfig(config, profile);
+        }
+    }
+
+    private void applyMembers(DetectorConfig config) {
+        for (Slot slot : slots) {
+            DetectorConfig.Member member = config.member(slot.detector.getName());
+            if (member.mode == DetectorConfig.MODE_OFF && slot.mode != DetectorConfig.MODE_OFF) {
+                slot.detector.reset();
+            }
+            slot.mode = member.mode;
+            slot.priority = member.priority;
+            slot.budgetNs = member.budgetUs * 1000;
+        }
+    }
+
+    @Override
+    public int onSample(SampleWindow window, long now, float magnitude) {
+        DetectorConfig c = config;
+        boolean primaryFell = false;
+        boolean fallThisSample = false;
+        int decidingPriority = Integer.MAX_VALUE;
+        boolean decidingFell = false;
+
+        for (int i = 0; i < slots.length; i++) {
+            Slot slot = slots[i];
+            if (!slot.running(now)) continue;
+            if (slot.shedUntilMs != 0) {
+                // Back from being shed
+                slot.shedUntilMs = 0;
+                slot.costNs = 0;
+            }
+
+            long start = System.nanoTime();
+            int result = slot.detector.onSample(window, now, magnitude);
+            long cost = System.nanoTime() - start;
+            slot.costNs += (cost - slot.costNs) >> COST_SHIFT;
+
+            boolean fell = result == RESULT_FALL;
+            if (fell) {
+                slot.falls++;
+                FallDetectionMetrics.ENSEMBLE_VOTES.increment();
+                if (i == 0) primaryFell = true;
+            }
+            if (slot.mode != DetectorConfig.MODE_VOTE) continue;
+            if (fell) {
+                slot.lastVoteMs = now;
+                fallThisSample = true;
+            }
+            if (slot.priority < decidingPriority) {
+                decidingPriority = slot.priority;
+                decidingFell = fell;
+            }
+        }
+
+        boolean alert;
+        switch (c.ensemblePolicy) {
+            case DetectorConfig.POLICY_PRIORITY:
+                alert = decidingFell;
+                break;
+            case DetectorConfig.POLICY_QUORUM:
+                alert = fallThisSample && quorumReached(c, now);
+                break;
+            default:
+                alert = fallThisSample;
+                break;
+        }
+
+        if (alert) {
+            primaryPendingMs = 0;
+            reset();
+            return RESULT_FALL;
+        }
+
+        if (primaryFell) {
+            if (c.ensemblePolicy == DetectorConfig.POLICY_QUORUM && slots[0].mode == DetectorConfig.MODE_VOTE) {
+                primaryPendingMs = now;
+            } else {
+                outvoted();
+            }
+        } else if (primaryPendingMs != 0 && now - primaryPendingMs > c.voteWindowMs) {
+            primaryPendingMs = 0;
+            outvoted();
+        }
+
+        shedOverBudget(c, now);
+        return RESULT_NONE;
+    }
+
+    private boolean quorumReached(DetectorConfig c, long now) {
+        int votes = 0;
+        int voters = 0;
+        for (Slot slot : slots) {
+            if (slot.mode != DetectorConfig.MODE_VOTE || !slot.running(now)) continue;
+            voters++;
+            if (slot.lastVoteMs != 0 && now - slot.lastVoteMs <= c.voteWindowMs) votes++;
+        }
+        // Shed members cannot vote, so the quorum shrinks with them
+        return votes >= Math.min(c.quorum, voters);
+    }
+
+    private void outvoted() {
+        FallDetectionMetrics.ENSEMBLE_OUTVOTED.increment();
+        listener.onCandidateDropped(true);
+    }
+
+    private void shedOverBudget(DetectorConfig c, long now) {
+        long totalNs = 0;
+        Slot victim = null;
+        for (Slot slot : slots) {
+            if (!slot.running(now)) continue;
+            totalNs += slot.costNs;
+            if (slot.priority == 0) continue;
+            if (slot.costNs > slot.budgetNs) {
+                shed(slot, now);
+                return;
+            }
+            if (victim == null || slot.priority > victim.priority
+                    || (slot.priority == victim.priority && slot.costNs > victim.costNs)) {
+                victim = slot;
+            }
+        }
+        if (victim != null && totalNs > c.ensembleBudgetUs * 1000) {
+            shed(victim, now);
+        }
+    }
+
+    private void shed(Slot slot, long now) {
+        slot.shedUntilMs = now + SHED_BACKOFF_MS;
+        slot.lastVoteMs = 0;
+        slot.sheds++;
+        slot.detector.reset();
+        FallDetectionMetrics.ENSEMBLE_SHED.increment();
+    }
+
+    @Override
+    public boolean isIdle() {
+        for (Slot slot : slots) {
+            if (!slot.detector.isIdle()) return false;
+        }
+        return primaryPendingMs == 0;
+    }
+
+    @Override
+    public int getPhase() {
+        return slots[0].detector.getPhase();
+    }
+
+    @Override
+    public void reset() {
+        for (Slot slot : slots) {
+            slot.detector.reset();
+            slot.lastVoteMs = 0;
+        }
+        primaryPendingMs = 0;
+    }
+
+    /**
+     * Per-member mode, cost and shedding state, for the health metrics.
+     */
+    Bundle snapshot() {
+        Bundle bundle = new Bundle();
+        bundle.putString("policy", DetectorConfig.policyName(config.ensemblePolicy));
+        // Same clock as the sample times the shedding deadlines were set from
+        long now = SystemClock.elapsedRealtime();
+        for (Slot slot : slots) {
+            Bundle member = new Bundle();
+            member.putString("mode", DetectorConfig.modeName(slot.mode));
+            member.putInt("priority", slot.priority);
+            member.putDouble("costUs", slot.costNs / 1000.0);
+            member.putDouble("budgetUs", slot.budgetNs / 1000.0);
+            member.putBoolean("shed", slot.mode != DetectorConfig.MODE_OFF && !slot.running(now));
+            member.putDouble("sheds", slot.sheds);
+            member.putDouble("falls", slot.falls);
+            bundle.putBundle(slot.detector.getName(), member);
+        }
+        return bundle;
+    }
+}
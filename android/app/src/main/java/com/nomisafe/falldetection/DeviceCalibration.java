@@ -0,0 +1,174 @@
+package com.nomisafe.falldetection;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.os.Bundle;
+import android.util.Log;
+
+/**
+ * Per-device estimate of the accelerometer's gravity bias and noise floor, learned from quiet
+ * periods of the normal sample stream.
+ *
+ * Samples are summed in blocks of about a second, and blocks are grouped into rounds of about
+ * twenty seconds. Quiet is judged relative to the device, not by a fixed limit a noisy sensor
+ * could never meet: the lowest-variance block of each round (phone on a table, in a still
+ * pocket) is a candidate, and once the device is calibrated it is folded in only if it is
+ * close to the noise floor already learned. A loose absolute limit keeps walking out. The
+ * fold is a running mean for the first blocks and a slow moving average after, so a bad block
+ * cannot move the estimate much and the estimate follows slow drift. Per sample this is a
+ * handful of float operations and no allocation.
+ *
+ * The stillness test then uses thresholds shifted by the device's bias and widened by its
+ * noise, instead of the ones tuned on a reference phone. Estimates are kept in preferences
+ * and loaded at service start, so a restart does not relearn them.
+ *
+ * Written on the sensor (main) thread; the published estimates are volatile for health reads.
+ */
+final class DeviceCalibration {
+    private static final String TAG = "DeviceCalibration";
+    private static final String PREFS = "nomisafe_detector";
+    private static final String KEY_GRAVITY = "calibration_gravity";
+    private static final String KEY_NOISE_VARIANCE = "calibration_noise_variance";
+    private static final String KEY_BLOCKS = "calibration_blocks";
+
+    static final float STANDARD_GRAVITY = 9.80665f;
+
+    private static final int BLOCK_SAMPLES = 50;
+    // The quietest block of each round of this many is the candidate
+    private static final int ROUND_BLOCKS = 20;
+    // A candidate block: magnitude stays within this range, around a plausible gravity. The
+    // range only excludes motion; even a noisy sensor at rest stays well inside it
+    private static final float QUIET_RANGE_MAX = 3.0f;
+    // Once calibrated, a candidate must be within this factor of the learned noise variance
+    private static final float RELATIVE_VARIANCE_MAX = 4f;
+    private static final float VARIANCE_SLACK = 0.0025f;
+    private static final float QUIET_GRAVITY_MIN = 8.0f;
+    private static final float QUIET_GRAVITY_MAX = 11.6f;
+    // Running mean up to this many blocks, then a moving average of that weight
+    private static final int SMOOTHING_BLOCKS = 64;
+    // Estimates are trusted, and the thresholds adjusted, after this many folded blocks (~3 min of quiet rounds)
+    private static final int MIN_BLOCKS = 10;
+    private static final int PERSIST_EVERY_BLOCKS = 30;
+    // Largest bias corrected for; beyond it the sensor is broken rather than biased
+    private static final float MAX_BIAS = 1.5f;
+    // Range of ~20 samples of Gaussian noise is about four standard deviations
+    private static final float RANGE_SIGMAS = 4f;
+
+    private final SharedPreferences prefs;
+
+    // Current block, as deviations from the current gravity estimate to keep float precision
+    private int blockCount = 0;
+    private float blockSum = 0;
+    private float blockSumSquares = 0;
+    private float blockMin = Float.MAX_VALUE;
+    private float blockMax = -Float.MAX_VALUE;
+
+    // Quietest candidate of the current round
+    private int roundBlocks = 0;
+    private float roundMean = 0;
+    private float roundVariance = Float.MAX_VALUE;
+
+    private volatile float gravity;
+    private volatile float noiseVariance;
+    private volatile int quietBlocks;
+
+    DeviceCalibration(Context context) {
+        prefs = context.getSharedPreferences(PREFS, Context.MODE_PRIVATE);
+        gravity = prefs.getFloat(KEY_GRAVITY, STANDARD_GRAVITY);
+        noiseVariance = prefs.getFloat(KEY_NOISE_VARIANCE, 0f);
+        quietBlocks = prefs.getInt(KEY_BLOCKS, 0);
+        if (quietBlocks > 0) {
+            Log.i(TAG, "Loaded gravity=" + gravity + " noiseVariance=" + noiseVariance + " from " + quietBlocks + " blocks");
+        }
+    }
+
+    void onSample(float magnitude) {
+        float d = magnitude - gravity;
+        blockSum += d;
+        blockSumSquares += d * d;
+        if (magnitude < blockMin) blockMin = magnitude;
+        if (magnitude > blockMax) blockMax = magnitude;
+        if (++blockCount == BLOCK_SAMPLES) {
+            endBlock();
+        }
+    }
+
+    private void endBlock() {
+        float meanDeviation = blockSum / BLOCK_SAMPLES;
+        float mean = gravity + meanDeviation;
+        boolean candidate = blockMax - blockMin < QUIET_RANGE_MAX
+            && mean > QUIET_GRAVITY_MIN && mean < QUIET_GRAVITY_MAX;
+        if (candidate) {
+            float variance = Math.max(0f, blockSumSquares / BLOCK_SAMPLES - meanDeviation * meanDeviation);
+            if (variance < roundVariance) {
+                roundVariance = variance;
+                roundMean = mean;
+            }
+        }
+        blockCount = 0;
+        blockSum = 0;
+        blockSumSquares = 0;
+        blockMin = Float.MAX_VALUE;
+        blockMax = -Float.MAX_VALUE;
+        if (++roundBlocks == ROUND_BLOCKS) {
+            endRound();
+        }
+    }
+
+    private void endRound() {
+        // A round spent moving has no block near the floor; until calibrated any candidate counts
+        boolean quiet = roundVariance != Float.MAX_VALUE
+            && (!isCalibrated() || roundVariance <= noiseVariance * RELATIVE_VARIANCE_MAX + VARIANCE_SLACK);
+        if (quiet) {
+            int blocks = quietBlocks + 1;
+            float weight = 1f / Math.min(blocks, SMOOTHING_BLOCKS);
+            gravity += (roundMean - gravity) * weight;
+            noiseVariance += (roundVariance - noiseVariance) * weight;
+            quietBlocks = blocks;
+            if (blocks % PERSIST_EVERY_BLOCKS == 0) {
+                persist();
+            }
+        }
+        roundBlocks = 0;
+        roundMean = 0;
+        roundVariance = Float.MAX_VALUE;
+    }
+
+    boolean isCalibrated() {
+        return quietBlocks >= MIN_BLOCKS;
+    }
+
+    /** Measured minus standard gravity, 0 until calibrated. */
+    float gravityOffset() {
+        if (!isCalibrated()) return 0f;
+        return Math.max(-MAX_BIAS, Math.min(MAX_BIAS, gravity - STANDARD_GRAVITY));
+    }
+
+    /** Added to the stillness variance limit: noise alone has this much variance. */
+    float varianceAllowance() {
+        return isCalibrated() ? noiseVariance : 0f;
+    }
+
+    /** Added to the stillness range limit. */
+    float rangeAllowance() {
+        return isCalibrated() ? RANGE_SIGMAS * (float) Math.sqrt(noiseVariance) : 0f;
+    }
+
+    void persist() {
+        prefs.edit()
+            .putFloat(KEY_GRAVITY, gravity)
+            .putFloat(KEY_NOISE_VARIANCE, noiseVariance)
+            .putInt(KEY_BLOCKS, quietBlocks)
+            .apply();
+    }
+
+    Bundle snapshot() {
+        Bundle bundle = new Bundle();
+        bundle.putBoolean("calibrated", isCalibrated());
+        bundle.putDouble("gravity", gravity);
+        bundle.putDouble("noiseVariance", noiseVariance);
+        bundle.putDouble("quietBlocks", quietBlocks);
+        bundle.putDouble("gravityOffset", gravityOffset());
+        return bundle;
+    }
+}
@@ -0,0 +1,280 @@
+package com.nomisafe.falldetection;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.os.Bundle;
+import android.os.SystemClock;
+import android.util.Log;
+
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Per-day accounting of what the background services cost: sensor events delivered, main-thread
+ * wake-ups, Handler messages posted, location-provider active time, wake-lock hold time and
+ * network payload bytes.
+ *
+ * Each service records into its own {@link Source}. Live counters are lock-free; every
+ * {@link #FLUSH_INTERVAL_MINUTES} they are drained into a per-day record in SharedPreferences,
+ * so a day's totals are attributed with flush-interval granularity and survive restarts.
+ */
+public final class EnergyAccounting {
+    private static final String TAG = "EnergyAccounting";
+    private static final long FLUSH_INTERVAL_MINUTES = 15;
+    private static final int MAX_DAYS = 14;
+
+    // Field order of the stored day record
+    private static final String[] FIELDS = {
+        "sensorEvents", "mainThreadWakeups", "handlerPosts", "sensorActiveMs",
+        "locationActiveMs", "wakeLockHeldMs", "networkTxBytes", "networkRxBytes"
+    };
+
+    public static final Source FALL = new Source("fall");
+    public static final Source SHAKE = new Source("shake");
+
+    private EnergyAccounting() {}
+
+    /**
+     * Time spent in an on/off state, e.g. a registered sensor listener or active location updates.
+     */
+    static final class Interval {
+        private long startedAt;
+        private long accumulatedMs;
+
+        synchronized void start() {
+            if (startedAt == 0) {
+                startedAt = SystemClock.elapsedRealtime();
+            }
+        }
+
+        synchronized void stop() {
+            if (startedAt != 0) {
+                accumulatedMs += SystemClock.elapsedRealtime() - startedAt;
+                startedAt = 0;
+            }
+        }
+
+        /** Returns the time accumulated so far and resets it, keeping a running interval open. */
+        synchronized long drain() {
+            long total = peek();
+            accumulatedMs = 0;
+            if (startedAt != 0) {
+                startedAt = SystemClock.elapsedRealtime();
+            }
+            return total;
+        }
+
+        synchronized long peek() {
+            long total = accumulatedMs;
+            if (startedAt != 0) {
+                total += SystemClock.elapsedRealtime() - startedAt;
+            }
+            return total;
+        }
+    }
+
+    /**
+     * Accounting for one service.
+     */
+    public static final class Source {
+        final String name;
+        private final AtomicLong sensorEvents = new AtomicLong();
+        private final AtomicLong mainThreadWakeups = new AtomicLong();
+        private final AtomicLong handlerPosts = new AtomicLong();
+        private final AtomicLong wakeLockHeldMs = new AtomicLong();
+        private final AtomicLong networkTxBytes = new AtomicLong();
+        private final AtomicLong networkRxBytes = new AtomicLong();
+        private final Interval sensorActive = new Interval();
+        private final Interval locationActive = new Interval();
+
+        private SharedPreferences prefs;
+        private ScheduledExecutorService flusher;
+
+        Source(String name) {
+            this.name = name;
+        }
+
+        /**
+         * Starts periodic flushing into this source's day records. Called from the service's onCreate.
+         */
+        public synchronized void attach(Context context) {
+            prefs = context.getApplicationContext()
+                .getSharedPreferences("nomisafe_energy_" + name, Context.MODE_PRIVATE);
+            if (flusher != null) return;
+            flusher = Executors.newSingleThreadScheduledExecutor(r -> new Thread(r, "EnergyFlush-" + name));
+            flusher.scheduleWithFixedDelay(this::flush, FLUSH_INTERVAL_MINUTES, FLUSH_INTERVAL_MINUTES, TimeUnit.MINUTES);
+        }
+
+        /**
+         * Stops the schedule and flushes what has been recorded since the last flush.
+         */
+        public synchronized void detach() {
+            if (flusher == null) return;
+            flusher.shutdownNow();
+            flusher = null;
+            new Thread(this::flush, "EnergyFlush-" + name).start();
+        }
+
+        /**
+         * One sensor event. Listeners are registered without a handler, so every delivery
+         * also runs on (and wakes) the main looper.
+         */
+        public void onSensorEvent() {
+            sensorEvents.incrementAndGet();
+            mainThreadWakeups.incrementAndGet();
+        }
+
+        /** Any other callback the service runs on the main looper (Handler message, location fix). */
+        public void onMainThreadWakeup() {
+            mainThreadWakeups.incrementAndGet();
+        }
+
+        public void onHandlerPost() {
+            handlerPosts.incrementAndGet();
+        }
+
+        public void sensorRegistered() {
+            sensorActive.start();
+        }
+
+        public void sensorUnregistered() {
+            sensorActive.stop();
+        }
+
+        public void locationStarted() {
+            locationActive.start();
+        }
+
+        public void locationStopped() {
+            locationActive.stop();
+        }
+
+        /**
+         * Wake-lock hold time. Locks acquired with a timeout may expire before release, so the
+         * hold is capped at the timeout.
+         */
+        public void wakeLockReleased(long acquiredAtElapsedMs, long timeoutMs) {
+            long held = SystemClock.elapsedRealtime() - acquiredAtElapsedMs;
+            wakeLockHeldMs.addAndGet(Math.max(0, Math.min(held, timeoutMs)));
+        }
+
+        /** Request and response payload bytes; HTTP headers are not included. */
+        public void networkBytes(long txBytes, long rxBytes) {
+            networkTxBytes.addAndGet(txBytes);
+            networkRxBytes.addAndGet(rxBytes);
+        }
+
+        private long[] drainLive() {
+            return new long[] {
+                sensorEvents.getAndSet(0), mainThreadWakeups.getAndSet(0), handlerPosts.getAndSet(0),
+                sensorActive.drain(), locationActive.drain(), wakeLockHeldMs.getAndSet(0),
+                networkTxBytes.getAndSet(0), networkRxBytes.getAndSet(0)
+            };
+        }
+
+        private long[] peekLive() {
+            return new long[] {
+                sensorEvents.get(), mainThreadWakeups.get(), handlerPosts.get(),
+                sensorActive.peek(), locationActive.peek(), wakeLockHeldMs.get(),
+                networkTxBytes.get(), networkRxBytes.get()
+            };
+        }
+
+        /**
+         * Adds everything recorded since the last flush to today's record and prunes old days.
+         */
+        synchronized void flush() {
+            if (prefs == null) return;
+            String today = dayKey(System.currentTimeMillis());
+            long[] day = parse(prefs.getString(today, null));
+            long[] live = drainLive();
+            for (int i = 0; i < FIELDS.length; i++) {
+                day[i] += live[i];
+            }
+            SharedPreferences.Editor editor = prefs.edit().putString(today, format(day));
+            List<String> days = new ArrayList<>(prefs.getAll().keySet());
+            if (!days.contains(today)) days.add(today);
+            Collections.sort(days);
+            for (int i = 0; i < days.size() - MAX_DAYS; i++) {
+                editor.remove(days.get(i));
+            }
+            if (!editor.commit()) {
+                Log.w(TAG, "Failed to persist energy accounting for " + name);
+            }
+        }
+
+        /**
+         * Day records for this source; today includes the unflushed live counters. Must be
+         * called in the process that records this source, which owns its preferences file.
+         */
+        public synchronized Bundle snapshot(Context context) {
+            if (prefs == null) {
+                prefs = context.getApplicationContext()
+                    .getSharedPreferences("nomisafe_energy_" + name, Context.MODE_PRIVATE);
+            }
+            Bundle days = new Bundle();
+            String today = dayKey(System.currentTimeMillis());
+            for (Map.Entry<String, ?> entry : prefs.getAll().entrySet()) {
+                if (entry.getValue() instanceof String && !entry.getKey().equals(today)) {
+                    days.putBundle(entry.getKey(), toBundle(parse((String) entry.getValue())));
+                }
+            }
+            long[] current = parse(prefs.getString(today, null));
+            long[] live = peekLive();
+            for (int i = 0; i < FIELDS.length; i++) {
+                current[i] += live[i];
+            }
+            days.putBundle(today, toBundle(current));
+            return days;
+        }
+    }
+
+    private static String dayKey(long wallTimeMs) {
+        return new SimpleDateFormat("yyyy-MM-dd", Locale.US).format(new Date(wallTimeMs));
+    }
+
+    private static long[] parse(String record) {
+        long[] values = new long[FIELDS.length];
+        if (record == null) return values;
+        String[] parts = record.split(",");
+        for (int i = 0; i < parts.length && i < values.length; i++) {
+            try {
+                values[i] = Long.parseLong(parts[i]);
+            } catch (NumberFormatException e) {
+                Log.w(TAG, "Corrupt energy record: " + record);
+                return new long[FIELDS.length];
+            }
+        }
+        return values;
+    }
+
+    private static String format(long[] values) {
+        StringBuilder out = new StringBuilder(96);
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) out.append(',');
+            out.append(values[i]);
+        }
+        return out.toString();
+    }
+
+    private static Bundle toBundle(long[] values) {
+        Bundle bundle = new Bundle();
+        for (int i = 0; i < FIELDS.length; i++) {
+            bundle.putDouble(FIELDS[i], values[i]);
+        }
+        // Normalized by the time the sensor was actually registered, so partial days compare fairly
+        double sensorHours = values[3] / 3_600_000.0;
+        bundle.putDouble("sensorEventsPerHour", sensorHours > 0 ? values[0] / sensorHours : 0);
+        bundle.putDouble("wakeupsPerHour", sensorHours > 0 ? values[1] / sensorHours : 0);
+        return bundle;
+    }
+}
@@ -0,0 +1,63 @@
+package com.nomisafe.falldetection;
+
+/**
+ * Quantized logistic regression over the {@link FeatureExtractor} features.
+ *
+ * Each feature is standardised and quantized to int8 in units of 1/32, weights are int8 in
+ * units of 1/16, and the dot product is a plain int accumulation; only the final sigmoid is
+ * floating point. Scoring does not allocate.
+ */
+final class FallClassifier {
+    private static final int FEATURE_Q = 32;
+    private static final int WEIGHT_Q = 16;
+
+    private final float[] mean;
+    private final float[] invScale;
+    private final byte[] weights;
+    private final float bias;
+    final float threshold;
+
+    FallClassifier(float[] mean, float[] scale, byte[] weights, float bias, float threshold) {
+        if (mean.length != FeatureExtractor.FEATURE_COUNT || scale.length != FeatureExtractor.FEATURE_COUNT
+                || weights.length != FeatureExtractor.FEATURE_COUNT) {
+            throw new IllegalArgumentException("Expected " + FeatureExtractor.FEATURE_COUNT + " features");
+        }
+        this.mean = mean.clone();
+        this.invScale = new float[scale.length];
+        for (int i = 0; i < scale.length; i++) {
+            if (!(scale[i] > 0)) {
+                throw new IllegalArgumentException("Feature scale must be positive");
+            }
+            invScale[i] = 1f / scale[i];
+        }
+        this.weights = weights.clone();
+        this.bias = bias;
+        this.threshold = threshold;
+    }
+
+    /**
+     * Hand-set prior until weights trained on labelled traces ship: favours a real free-fall,
+     * a hard impact, a change of orientation and lying still afterwards.
+     */
+    static final FallClassifier DEFAULT = new FallClassifier(
+        //            peak  min    jerk  p2p   orient post  ffMs
+        new float[] { 3.0f, 0.4f, 40f,  3.0f, 0.8f, 0.3f, 200f },
+        new float[] { 1.5f, 0.2f, 20f,  1.5f, 0.5f, 0.3f, 100f },
+        new byte[]  { 12,   -10,  6,    4,    16,   -12,  8 },
+        0.5f, 0.5f);
+
+    /**
+     * Probability (0..1) that the features describe a human fall.
+     */
+    float score(float[] features) {
+        int acc = 0;
+        for (int i = 0; i < weights.length; i++) {
+            int q = Math.round((features[i] - mean[i]) * invScale[i] * FEATURE_Q);
+            if (q > 127) q = 127;
+            if (q < -127) q = -127;
+            acc += q * weights[i];
+        }
+        float logit = bias + acc / (float) (FEATURE_Q * WEIGHT_Q);
+        return (float) (1.0 / (1.0 + Math.exp(-logit)));
+    }
+}
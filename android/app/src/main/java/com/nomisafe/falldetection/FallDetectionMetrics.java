@@ -0,0 +1,246 @@
+package com.nomisafe.falldetection;
+
+import android.os.Bundle;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * In-process metrics for the fall detection pipeline.
+ *
+ * Counters and histograms are lock-free and recording never allocates, so they can be used on
+ * the sensor path. Histograms have fixed bucket bounds; percentiles in snapshots are reported
+ * as the upper bound of the bucket they fall in.
+ */
+public final class FallDetectionMetrics {
+
+    /**
+     * Monotonic counter.
+     */
+    public static final class Counter {
+        final String name;
+        private final AtomicLong value = new AtomicLong();
+
+        Counter(String name) {
+            this.name = name;
+        }
+
+        public void increment() {
+            value.incrementAndGet();
+        }
+
+        public void add(long delta) {
+            value.addAndGet(delta);
+        }
+
+        public long get() {
+            return value.get();
+        }
+    }
+
+    /**
+     * Histogram with fixed, ascending bucket upper bounds plus an overflow bucket.
+     */
+    public static final class Histogram {
+        final String name;
+        final String unit;
+        private final long[] bounds;
+        private final AtomicLongArray buckets;
+        private final AtomicLong count = new AtomicLong();
+        private final AtomicLong sum = new AtomicLong();
+        private final AtomicLong max = new AtomicLong();
+
+        Histogram(String name, String unit, long... bounds) {
+            this.name = name;
+            this.unit = unit;
+            this.bounds = bounds;
+            this.buckets = new AtomicLongArray(bounds.length + 1);
+        }
+
+        public void record(long value) {
+            if (value < 0) value = 0;
+            int index = 0;
+            while (index < bounds.length && value > bounds[index]) {
+                index++;
+            }
+            buckets.incrementAndGet(index);
+            count.incrementAndGet();
+            sum.addAndGet(value);
+            long currentMax;
+            while (value > (currentMax = max.get())) {
+                if (max.compareAndSet(currentMax, value)) break;
+            }
+        }
+
+        public long getCount() {
+            return count.get();
+        }
+
+        /**
+         * Upper bound of the bucket holding the given percentile (0-100), or max for the overflow bucket.
+         */
+        public long percentile(double percentile) {
+            long total = count.get();
+            if (total == 0) return 0;
+            long rank = (long) Math.ceil(total * percentile / 100.0);
+            long seen = 0;
+            for (int i = 0; i < bounds.length; i++) {
+                seen += buckets.get(i);
+                if (seen >= rank) return bounds[i];
+            }
+            return max.get();
+        }
+
+        Bundle snapshot() {
+            Bundle bundle = new Bundle();
+            long total = count.get();
+            bundle.putString("unit", unit);
+            bundle.putDouble("count", total);
+            bundle.putDouble("mean", total == 0 ? 0 : (double) sum.get() / total);
+            bundle.putDouble("max", max.get());
+            bundle.putDouble("p50", percentile(50));
+            bundle.putDouble("p95", percentile(95));
+            bundle.putDouble("p99", percentile(99));
+            double[] boundsCopy = new double[bounds.length];
+            double[] countsCopy = new double[bounds.length + 1];
+            for (int i = 0; i < bounds.length; i++) boundsCopy[i] = bounds[i];
+            for (int i = 0; i <= bounds.length; i++) countsCopy[i] = buckets.get(i);
+            bundle.putDoubleArray("bounds", boundsCopy);
+            bundle.putDoubleArray("buckets", countsCopy);
+            return bundle;
+        }
+
+        void appendCompact(StringBuilder out) {
+            out.append(name).append('[')
+                .append("n=").append(count.get())
+                .append(",p50=").append(percentile(50))
+                .append(",p99=").append(percentile(99))
+                .append(",max=").append(max.get())
+                .append(']');
+        }
+    }
+
+    // Sensor path
+    public static final Counter SAMPLES = new Counter("samples");
+    public static final Histogram SENSOR_PROCESSING_US = new Histogram("sensorProcessingUs", "us",
+        5, 10, 20, 50, 100, 200, 500, 1000, 5000);
+    public static final Histogram SAMPLE_JITTER_US = new Histogram("sampleJitterUs", "us",
+        500, 1000, 2000, 5000, 10000, 20000, 50000, 100000, 1000000);
+    public static final Counter SENSOR_STALLS = new Counter("sensorStalls");
+    public static final Counter SENSOR_PIPELINE_RESTARTS = new Counter("sensorPipelineRestarts");
+    public static final Histogram SENSOR_RECOVERY_MS = new Histogram("sensorRecoveryMs", "ms",
+        5000, 7500, 10000, 15000, 30000, 60000, 300000);
+
+    // Detector phase transitions
+    public static final Counter FREE_FALL_ENTERED = new Counter("freeFallEntered");
+    public static final Counter IMPACTS = new Counter("impacts");
+    public static final Counter STILLNESS_STARTED = new Counter("stillnessStarted");
+    public static final Counter FALLS_CONFIRMED = new Counter("fallsConfirmed");
+    public static final Counter IMPACT_WITHOUT_CONFIRMATION = new Counter("impactWithoutConfirmation");
+    public static final Counter PROFILE_SWITCHES = new Counter("profileSwitches");
+    public static final Counter POLICY_CHANGES = new Counter("policyChanges");
+
+    // Detector ensemble
+    public static final Counter ENSEMBLE_VOTES = new Counter("ensembleVotes");
+    public static final Counter ENSEMBLE_OUTVOTED = new Counter("ensembleOutvoted");
+    public static final Counter ENSEMBLE_SHED = new Counter("ensembleShed");
+    
+    // Gyroscope/barometer fusion, per stage
+    public static final Counter FUSION_WINDOWS = new Counter("fusionWindows");
+    public static final Counter FUSION_CONFIRMED = new Counter("fusionConfirmed");
+    public static final Counter FUSION_REJECTED = new Counter("fusionRejected");
+    public static final Counter FUSION_INCONCLUSIVE = new Counter("fusionInconclusive");
+    public static final Histogram FUSION_SENSOR_US = new Histogram("fusionSensorUs", "us",
+        5, 10, 20, 50, 100, 200, 500, 1000, 5000);
+    public static final Histogram FUSION_VERDICT_US = new Histogram("fusionVerdictUs", "us",
+        5, 10, 20, 50, 100, 200, 500, 1000, 5000);
+    public static final Histogram FUSION_WINDOW_MS = new Histogram("fusionWindowMs", "ms",
+        100, 250, 500, 1000, 2000, 3000, 5000, 8000, 10000);
+    
+    // Feature extraction + classifier, on impact candidates only
+    public static final Counter CLASSIFIER_RUNS = new Counter("classifierRuns");
+    public static final Counter CLASSIFIER_BELOW_THRESHOLD = new Counter("classifierBelowThreshold");
+
+    // Near-miss journal
+    public static final Counter NEAR_MISSES = new Counter("nearMisses");
+    public static final Counter NEAR_MISS_FILES_EVICTED = new Counter("nearMissFilesEvicted");
+    public static final Counter NEAR_MISS_UPLOADED = new Counter("nearMissUploaded");
+    public static final Histogram CLASSIFIER_US = new Histogram("classifierUs", "us",
+        10, 20, 50, 100, 200, 500, 1000, 2000, 5000);
+    public static final Histogram CLASSIFIER_SCORE = new Histogram("classifierScore", "permille",
+        100, 200, 300, 400, 500, 600, 700, 800, 900, 1000);
+
+    // Alert and SOS
+    public static final Counter ALERTS_CANCELLED = new Counter("alertsCancelled");
+    public static final Counter SOS_ATTEMPTS = new Counter("sosAttempts");
+    public static final Counter SOS_SUCCESS = new Counter("sosSuccess");
+    public static final Counter SOS_FAILURE = new Counter("sosFailure");
+    public static final Counter SOS_SMS_FALLBACKS = new Counter("sosSmsFallbacks");
+    public static final Counter SOS_SMS_SENT = new Counter("sosSmsSent");
+    public static final Counter SOS_SMS_FAILED = new Counter("sosSmsFailed");
+    public static final Counter SOS_DELIVERED_BY_SMS = new Counter("sosDeliveredBySms");
+    public static final Histogram DETECTION_TO_AUDIBLE_MS = new Histogram("detectionToAudibleMs", "ms",
+        5, 10, 20, 50, 100, 200, 500, 1000, 2000);
+    // SoundPool reports no playback start, so its path only records when play() was accepted
+    public static final Histogram DETECTION_TO_PLAY_REQUESTED_MS = new Histogram("detectionToPlayRequestedMs", "ms",
+        5, 10, 20, 50, 100, 200, 500, 1000, 2000);
+    public static final Histogram DETECTION_TO_ALERT_MS = new Histogram("detectionToAlertMs", "ms",
+        50, 100, 200, 300, 500, 750, 1000, 2000, 5000);
+    public static final Histogram SOS_SEND_MS = new Histogram("sosSendMs", "ms",
+        100, 250, 500, 1000, 2000, 5000, 10000, 30000, 60000);
+
+    // Process startup
+    public static final Histogram SNAPSHOT_RESTORE_US = new Histogram("snapshotRestoreUs", "us",
+        50, 100, 200, 500, 1000, 2000, 5000, 10000);
+    public static final Histogram COLD_START_TO_SENSOR_MS = new Histogram("coldStartToSensorMs", "ms",
+        100, 200, 300, 500, 750, 1000, 1500, 2000, 5000);
+
+    private static final Counter[] COUNTERS = {
+        SAMPLES, SENSOR_STALLS, SENSOR_PIPELINE_RESTARTS, FREE_FALL_ENTERED, IMPACTS, STILLNESS_STARTED, FALLS_CONFIRMED,
+        IMPACT_WITHOUT_CONFIRMATION, PROFILE_SWITCHES, POLICY_CHANGES, ENSEMBLE_VOTES, ENSEMBLE_OUTVOTED,
+        ENSEMBLE_SHED, FUSION_WINDOWS, FUSION_CONFIRMED, FUSION_REJECTED, FUSION_INCONCLUSIVE,
+        CLASSIFIER_RUNS, CLASSIFIER_BELOW_THRESHOLD, NEAR_MISSES, NEAR_MISS_FILES_EVICTED,
+        NEAR_MISS_UPLOADED, ALERTS_CANCELLED, SOS_ATTEMPTS, SOS_SUCCESS, SOS_FAILURE, SOS_SMS_FALLBACKS,
+        SOS_SMS_SENT, SOS_SMS_FAILED, SOS_DELIVERED_BY_SMS
+    };
+    private static final Histogram[] HISTOGRAMS = {
+        SENSOR_PROCESSING_US, SAMPLE_JITTER_US, SENSOR_RECOVERY_MS, DETECTION_TO_AUDIBLE_MS, DETECTION_TO_PLAY_REQUESTED_MS, DETECTION_TO_ALERT_MS, SOS_SEND_MS,
+        FUSION_SENSOR_US, FUSION_VERDICT_US, FUSION_WINDOW_MS, CLASSIFIER_US, CLASSIFIER_SCORE, SNAPSHOT_RESTORE_US, COLD_START_TO_SENSOR_MS
+    };
+
+    private FallDetectionMetrics() {}
+
+    /**
+     * Full snapshot for FallDetectionModule.getMetrics().
+     */
+    public static Bundle snapshot() {
+        Bundle counters = new Bundle();
+        for (Counter counter : COUNTERS) {
+            counters.putDouble(counter.name, counter.get());
+        }
+        Bundle histograms = new Bundle();
+        for (Histogram histogram : HISTOGRAMS) {
+            histograms.putBundle(histogram.name, histogram.snapshot());
+        }
+        Bundle snapshot = new Bundle();
+        snapshot.putBundle("counters", counters);
+        snapshot.putBundle("histograms", histograms);
+        return snapshot;
+    }
+
+    /**
+     * One-line summary used for the periodic on-disk dump.
+     */
+    public static String compactLine(long wallTimeMs) {
+        StringBuilder out = new StringBuilder(512);
+        out.append(wallTimeMs);
+        for (Counter counter : COUNTERS) {
+            out.append(' ').append(counter.name).append('=').append(counter.get());
+        }
+        for (Histogram histogram : HISTOGRAMS) {
+            out.append(' ');
+            histogram.appendCompact(out);
+        }
+        return out.toString();
+    }
+}
@@ -4,46 +4,73 @@ import android.Manifest;
 import android.content.Intent;
 import android.content.pm.PackageManager;
 import android.os.Build;
+import android.os.Bundle;
+import android.os.RemoteException;
+import android.util.Log;
 import androidx.core.content.ContextCompat;
+import com.facebook.react.bridge.Arguments;
 import com.facebook.react.bridge.Promise;
 import com.facebook.react.bridge.ReactApplicationContext;
-import com.facebook.react.bridge.ReactContextBaseJavaModule;
-import com.facebook.react.bridge.ReactMethod;
+import com.facebook.react.bridge.ReadableArray;
+import com.facebook.react.bridge.ReadableMap;
+import com.facebook.react.bridge.WritableMap;
+import com.facebook.react.module.annotations.ReactModule;
 import com.facebook.react.modules.core.PermissionAwareActivity;
 import com.facebook.react.modules.core.PermissionListener;
 
-public class FallDetectionModule extends ReactContextBaseJavaModule implements PermissionListener {
+
+/**
+ * TurboModule implementation of src/specs/NativeFallDetectionModule.ts.
+ * The state getters are synchronous JSI calls, so screens can render the real SOS state on mount.
+ */
+@ReactModule(name = FallDetectionModule.NAME)
+public class FallDetectionModule extends NativeFallDetectionModuleSpec implements PermissionListener {
+    public static final String NAME = "FallDetectionModule";
+    private static final String TAG = "FallDetectionModule";
     private static ReactApplicationContext reactContext;
     private int listenerCount = 0;
     private Promise permissionPromise;
     private static final int LOCATION_PERMISSION_REQUEST_CODE = 1001;
+    private static final int SMS_PERMISSION_REQUEST_CODE = 1002;
 
     FallDetectionModule(ReactApplicationContext context) {
         super(context);
         reactContext = context;
-        // Set the React context for the service to send events
-        FallDetectionService.setReactContext(context);
+        // Let the service's events reach JS through this context
+        ReactEventChannel.getInstance().attach(context);
+        // Connects now if the service is already running, otherwise as soon as it starts
+        FallDetectorClient.getInstance().connect(context);
     }
 
     @Override
     public String getName() {
-        return "FallDetectionModule";
+        return NAME;
     }
 
     // Required for NativeEventEmitter
-    @ReactMethod
+    @Override
     public void addListener(String eventName) {
         listenerCount++;
     }
 
     // Required for NativeEventEmitter
-    @ReactMethod
-    public void removeListeners(int count) {
-        listenerCount -= count;
+    @Override
+    public void removeListeners(double count) {
+        listenerCount -= (int) count;
         if (listenerCount < 0) listenerCount = 0;
     }
 
-    @ReactMethod
+    /**
+     * Called by JS once its event listeners are registered; replays events buffered while JS was absent.
+     */
+    @Override
+    public void attachEventChannel() {
+        ReactEventChannel channel = ReactEventChannel.getInstance();
+        channel.attach(reactContext);
+        channel.markJsReady();
+    }
+
+    @Override
     public void requestLocationPermission(Promise promise) {
         permissionPromise = promise;
         
@@ -69,16 +96,36 @@ public class FallDetectionModule extends ReactContextBaseJavaModule implements P
         activity.requestPermissions(permissions, LOCATION_PERMISSION_REQUEST_CODE, this);
     }
     
-    @ReactMethod
+    @Override
     public void checkLocationPermission(Promise promise) {
         boolean granted = ContextCompat.checkSelfPermission(reactContext, Manifest.permission.ACCESS_FINE_LOCATION) 
                 == PackageManager.PERMISSION_GRANTED;
         promise.resolve(granted);
     }
 
+    /**
+     * SEND_SMS lets the service text FirstConnect contacts directly when the backend is unreachable.
+     */
+    @Override
+    public void requestSmsPermission(Promise promise) {
+        if (ContextCompat.checkSelfPermission(reactContext, Manifest.permission.SEND_SMS)
+                == PackageManager.PERMISSION_GRANTED) {
+            promise.resolve(true);
+            return;
+        }
+        PermissionAwareActivity activity = (PermissionAwareActivity) getCurrentActivity();
+        if (activity == null) {
+            promise.reject("NO_ACTIVITY", "Activity is null");
+            return;
+        }
+        permissionPromise = promise;
+        activity.requestPermissions(new String[] { Manifest.permission.SEND_SMS }, SMS_PERMISSION_REQUEST_CODE, this);
+    }
+
     @Override
     public boolean onRequestPermissionsResult(int requestCode, String[] permissions, int[] grantResults) {
-        if (requestCode == LOCATION_PERMISSION_REQUEST_CODE && permissionPromise != null) {
+        if ((requestCode == LOCATION_PERMISSION_REQUEST_CODE || requestCode == SMS_PERMISSION_REQUEST_CODE)
+                && permissionPromise != null) {
             boolean granted = grantResults.length > 0 && grantResults[0] == PackageManager.PERMISSION_GRANTED;
             permissionPromise.resolve(granted);
             permissionPromise = null;
@@ -87,45 +134,304 @@ public class FallDetectionModule extends ReactContextBaseJavaModule implements P
         return false;
     }
 
-    @ReactMethod
+    @Override
     public void startService() {
         // Update React context in case it changed
-        FallDetectionService.setReactContext(reactContext);
+        ReactEventChannel.getInstance().attach(reactContext);
         Intent serviceIntent = new Intent(reactContext, FallDetectionService.class);
         reactContext.startService(serviceIntent);
+        FallDetectorClient client = FallDetectorClient.getInstance();
+        client.connect(reactContext);
         
         // Check for any pending SOS that failed to send
-        FallDetectionService service = FallDetectionService.getInstance();
-        if (service != null) {
-            service.retryPendingSOS();
-        }
+        client.retryPendingSOS();
     }
 
-    @ReactMethod
+    @Override
     public void stopService() {
         Intent serviceIntent = new Intent(reactContext, FallDetectionService.class);
         reactContext.stopService(serviceIntent);
     }
 
-    @ReactMethod
+    @Override
     public void cancelSOS() {
-        // Cancel the SOS from React Native by calling the service's cancelSOS method
-        FallDetectionService service = FallDetectionService.getInstance();
-        if (service != null) {
-            service.cancelSOS();
-        } else {
-            // Fallback: set flags directly if service instance not available
-            FallDetectionService.sosCancelled = true;
-            FallDetectionService.sosTimerActive = false;
+        // Cancel the SOS in the detector process, which owns the alarm and the countdown
+        IFallDetector detector = FallDetectorClient.getInstance().get();
+        if (detector != null) {
+            try {
+                detector.cancelSOS();
+                return;
+            } catch (RemoteException e) {
+                Log.w(TAG, "cancelSOS over binder failed, falling back to broadcast", e);
+            }
         }
+        // Fallback: the cancel receiver runs in the detector process too
+        Intent cancelIntent = new Intent(FallDetectionService.ACTION_CANCEL_SOS);
+        cancelIntent.setPackage(reactContext.getPackageName());
+        cancelIntent.putExtra(FallDetectionService.EXTRA_CANCEL_SOURCE, SosJournal.SOURCE_APP);
+        reactContext.sendBroadcast(cancelIntent);
+        SosState.transition(SosState.CANCELLED);
     }
     
-    @ReactMethod
+    @Override
     public void retryPendingSOS() {
-        FallDetectionService service = FallDetectionService.getInstance();
-        if (service != null) {
-            service.retryPendingSOS();
+        FallDetectorClient.getInstance().retryPendingSOS();
+    }
+
+    // Served from this process's copy of the state, which the service pushes on every change
+
+    @Override
+    public String getSosState() {
+        return SosState.getPhaseName();
+    }
+
+    @Override
+    public double getCountdownRemaining() {
+        return SosState.getCountdownRemainingSeconds();
+    }
+
+    // Binder calls; as promise methods they run on the native modules thread, not the JS thread
+
+    @Override
+    public void getDetectorHealth(Promise promise) {
+        promise.resolve(detectorHealth());
+    }
+
+    private WritableMap detectorHealth() {
+        IFallDetector detector = FallDetectorClient.getInstance().get();
+        if (detector != null) {
+            try {
+                return Arguments.fromBundle(detector.getHealth());
+            } catch (RemoteException e) {
+                Log.w(TAG, "getHealth failed", e);
+            }
+        }
+        WritableMap health = Arguments.createMap();
+        health.putBoolean("running", false);
+        health.putBoolean("sensorAvailable", false);
+        health.putBoolean("sensorRegistered", false);
+        health.putDouble("lastSampleAgeMs", -1);
+        health.putBoolean("inCooldown", false);
+        health.putDouble("sensorStalls", 0);
+        health.putDouble("stallThresholdMs", 0);
+        health.putString("profile", DetectionProfile.WALKING.name);
+        health.putBoolean("fusionEnabled", false);
+        DetectorConfig config = DetectorConfigStore.get(reactContext);
+        health.putDouble("configVersion", config.version);
+        health.putString("configVariant", config.variant);
+        return health;
+    }
+
+    @Override
+    public void getMetrics(Promise promise) {
+        IFallDetector detector = FallDetectorClient.getInstance().get();
+        if (detector == null) {
+            promise.resolve(Arguments.createMap());
+            return;
+        }
+        try {
+            Bundle metrics = detector.getMetrics();
+            metrics.putBundle("uiEventChannel", ReactEventChannel.getInstance().getStats());
+            metrics.putBundle("uiStartup", StartupTiming.snapshot());
+            promise.resolve(Arguments.fromBundle(metrics));
+        } catch (RemoteException e) {
+            Log.w(TAG, "getMetrics failed", e);
+            promise.resolve(Arguments.createMap());
         }
     }
-}
 
+    @Override
+    public WritableMap getEnergyReport() {
+        Bundle report = null;
+        IFallDetector detector = FallDetectorClient.getInstance().get();
+        if (detector != null) {
+            try {
+                report = detector.getEnergyReport();
+            } catch (RemoteException e) {
+                Log.w(TAG, "getEnergyReport failed", e);
+            }
+        }
+        if (report == null) {
+            report = new Bundle();
+        }
+        // ShakeDetectionService runs in this process
+        report.putBundle("shake", EnergyAccounting.SHAKE.snapshot(reactContext));
+        return Arguments.fromBundle(report);
+    }
+
+    @Override
+    public void startSensorStream(double decimation, double batchSize) {
+        IFallDetector detector = FallDetectorClient.getInstance().get();
+        if (detector == null) return;
+        try {
+            detector.setSensorStream(true, (int) decimation, (int) batchSize);
+        } catch (RemoteException e) {
+            Log.w(TAG, "startSensorStream failed", e);
+        }
+    }
+
+    @Override
+    public void stopSensorStream() {
+        IFallDetector detector = FallDetectorClient.getInstance().get();
+        if (detector == null) return;
+        try {
+            detector.setSensorStream(false, 0, 0);
+        } catch (RemoteException e) {
+            Log.w(TAG, "stopSensorStream failed", e);
+        }
+    }
+
+    @Override
+    public void ackSensorBatch(double seq) {
+        IFallDetector detector = FallDetectorClient.getInstance().get();
+        if (detector == null) return;
+        try {
+            detector.ackSensorBatch((int) seq);
+        } catch (RemoteException e) {
+            Log.w(TAG, "ackSensorBatch failed", e);
+        }
+    }
+
+    @Override
+    public void setSensorStallThreshold(double thresholdMs) {
+        IFallDetector detector = FallDetectorClient.getInstance().get();
+        if (detector == null || thresholdMs <= 0) return;
+        try {
+            detector.setSensorStallThreshold((long) thresholdMs);
+        } catch (RemoteException e) {
+            Log.w(TAG, "setSensorStallThreshold failed", e);
+        }
+    }
+
+    @Override
+    public void setTracingEnabled(boolean enabled) {
+        // Both processes emit trace sections
+        FallTrace.setEnabled(enabled);
+        IFallDetector detector = FallDetectorClient.getInstance().get();
+        if (detector == null) return;
+        try {
+            detector.setTracingEnabled(enabled);
+        } catch (RemoteException e) {
+            Log.w(TAG, "setTracingEnabled failed", e);
+        }
+    }
+
+    @Override
+    public WritableMap getDetectorConfig() {
+        IFallDetector detector = FallDetectorClient.getInstance().get();
+        if (detector != null) {
+            try {
+                return Arguments.fromBundle(detector.getDetectorConfig());
+            } catch (RemoteException e) {
+                Log.w(TAG, "getDetectorConfig failed", e);
+            }
+        }
+        return Arguments.fromBundle(DetectorConfigStore.get(reactContext).toBundle());
+    }
+
+    @Override
+    public WritableMap getSosJournal(double sinceSeq, double limit) {
+        IFallDetector detector = FallDetectorClient.getInstance().get();
+        if (detector != null) {
+            try {
+                return Arguments.fromBundle(detector.getSosJournal((long) sinceSeq, (int) limit));
+            } catch (RemoteException e) {
+                Log.w(TAG, "getSosJournal failed", e);
+            }
+        }
+        // The journal file is mapped shared, so it can be read here while the service is down
+        return Arguments.fromBundle(SosJournal.get(reactContext).query((long) sinceSeq, (int) limit));
+    }
+
+    @Override
+    public void updateDetectorConfig(String json, Promise promise) {
+        IFallDetector detector = FallDetectorClient.getInstance().get();
+        if (detector == null) {
+            promise.reject("E_NOT_CONNECTED", "Fall detection service is not running");
+            return;
+        }
+        new Thread(() -> {
+            try {
+                Bundle result = detector.updateDetectorConfig(json);
+                if (result.getBoolean("accepted")) {
+                    // ShakeDetectionService runs in this process and reads the same file
+                    DetectorConfigStore.reload(reactContext);
+                }
+                promise.resolve(Arguments.fromBundle(result));
+            } catch (RemoteException e) {
+                promise.reject("E_REMOTE", e);
+            }
+        }, "DetectorConfigUpdate").start();
+    }
+
+    @Override
+    public void runClassifierBenchmark(double iterations, Promise promise) {
+        IFallDetector detector = FallDetectorClient.getInstance().get();
+        if (detector == null) {
+            promise.reject("E_NOT_CONNECTED", "Fall detection service is not running");
+            return;
+        }
+        // The benchmark takes a while; keep it off the JS thread
+        new Thread(() -> {
+            try {
+                promise.resolve(Arguments.fromBundle(detector.runClassifierBenchmark((int) iterations)));
+            } catch (RemoteException e) {
+                promise.reject("E_REMOTE", e);
+            }
+        }, "ClassifierBenchmark").start();
+    }
+
+    @Override
+    public void runTraceBenchmark(double samples, Promise promise) {
+        IFallDetector detector = FallDetectorClient.getInstance().get();
+        if (detector == null) {
+            promise.reject("E_NOT_CONNECTED", "Fall detection service is not running");
+            return;
+        }
+        new Thread(() -> {
+            try {
+                promise.resolve(Arguments.fromBundle(detector.runTraceBenchmark((int) samples)));
+            } catch (RemoteException e) {
+                promise.reject("E_REMOTE", e);
+            }
+        }, "TraceBenchmark").start();
+    }
+
+    @Override
+    public void syncFirstConnects(ReadableMap changes) {
+        Bundle bundle = new Bundle();
+        bundle.putBoolean("replaceAll", changes.hasKey("replaceAll") && changes.getBoolean("replaceAll"));
+        ReadableArray upserts = changes.hasKey("upserts") ? changes.getArray("upserts") : null;
+        int n = upserts != null ? upserts.size() : 0;
+        int[] ids = new int[n];
+        String[] names = new String[n];
+        String[] phoneNumbers = new String[n];
+        for (int i = 0; i < n; i++) {
+            ReadableMap contact = upserts.getMap(i);
+            ids[i] = contact.getInt("id");
+            names[i] = contact.hasKey("name") ? contact.getString("name") : "";
+            phoneNumbers[i] = contact.getString("phone_number");
+        }
+        bundle.putIntArray("ids", ids);
+        bundle.putStringArray("names", names);
+        bundle.putStringArray("phoneNumbers", phoneNumbers);
+        ReadableArray removed = changes.hasKey("removedIds") ? changes.getArray("removedIds") : null;
+        int[] removedIds = new int[removed != null ? removed.size() : 0];
+        for (int i = 0; i < removedIds.length; i++) {
+            removedIds[i] = removed.getInt(i);
+        }
+        bundle.putIntArray("removedIds", removedIds);
+        FallDetectorClient.getInstance().syncFirstConnects(bundle);
+    }
+
+    @Override
+    public void setFusionEnabled(boolean enabled) {
+        IFallDetector detector = FallDetectorClient.getInstance().get();
+        if (detector == null) return;
+        try {
+            detector.setFusionEnabled(enabled);
+        } catch (RemoteException e) {
+            Log.w(TAG, "setFusionEnabled failed", e);
+        }
+    }
+}
@@ -7,6 +7,8 @@ import android.database.Cursor;
 import android.database.sqlite.SQLiteDatabase;
 import android.os.Handler;
 import android.os.Looper;
+import android.os.SystemClock;
+import android.provider.Settings;
 
 import android.app.Service;
 import android.app.Notification;
@@ -23,11 +25,7 @@ import android.hardware.SensorEventListener;
 import android.hardware.SensorManager;
 import android.os.IBinder;
 import android.media.AudioManager;
-import android.media.AudioAttributes;
-import android.media.MediaPlayer;
-import android.media.RingtoneManager;
 import android.media.ToneGenerator;
-import android.net.Uri;
 import android.os.Vibrator;
 import android.os.VibrationEffect;
 import android.location.Location;
@@ -37,66 +35,98 @@ import android.os.Bundle;
 import androidx.core.content.ContextCompat;
 import android.util.Log;
 import androidx.annotation.Nullable;
-import com.facebook.react.bridge.ReactContext;
-import com.facebook.react.modules.core.DeviceEventManagerModule;
-import com.facebook.react.bridge.WritableMap;
-import com.facebook.react.bridge.Arguments;
 
-import java.io.BufferedReader;
 import java.io.File;
-import java.io.InputStreamReader;
-import java.io.OutputStream;
+import java.io.IOException;
 import java.net.HttpURLConnection;
-import java.net.URL;
+import java.util.Locale;
+import java.util.UUID;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
-
-import org.json.JSONObject;
+import java.util.concurrent.ScheduledExecutorService;
 
 public class FallDetectionService extends Service implements SensorEventListener {
     public static final String ACTION_CANCEL_SOS = "com.nomisafe.falldetection.ACTION_CANCEL_SOS";
+    // Who cancelled, one of the SosJournal.SOURCE_* values
+    public static final String EXTRA_CANCEL_SOURCE = "cancelSource";
     public static volatile boolean sosCancelled = false;
     public static volatile boolean sosTimerActive = false;
     private static FallDetectionService instance;
     private ExecutorService networkExecutor = Executors.newSingleThreadExecutor();
-    private Handler sosHandler = new Handler();
+    // Runs the SMS fallback deadline of SOS deliveries
+    private final ScheduledExecutorService deliveryScheduler = Executors.newSingleThreadScheduledExecutor();
+    private Handler sosHandler = new CountingHandler(Looper.getMainLooper(), EnergyAccounting.FALL);
     private Runnable sosTimeoutRunnable;
     private BroadcastReceiver sosCancelReceiver;
     private SensorManager sensorManager;
     private Sensor accelerometer;
     
-    // BALANCED fall detection parameters
-    // Key insight: True falls have free-fall (low-g) followed by high impact
-    // Shakes have HIGH acceleration throughout - no true low-g period
-    private static final float FREE_FALL_THRESHOLD = 4.0f;  // Below normal gravity (9.8) indicates falling
-    private static final float IMPACT_THRESHOLD = 28.0f;    // Strong impact (shakes rarely exceed 25)
-    private static final float POST_FALL_STILLNESS_THRESHOLD = 11.0f;
-    private static final long FREE_FALL_DURATION_MS = 50;   // 50ms minimum free-fall (realistic for drops)
-    private static final long IMPACT_WINDOW_MS = 500;       // Window after free-fall to detect impact
-    private static final long STILLNESS_CHECK_DELAY_MS = 1500;
-    private static final long STILLNESS_DURATION_MS = 1500; // Must stay still for 1.5 seconds
-    private static final long FALL_COOLDOWN_MS = 30000;     // 30 seconds cooldown
-    
-    private long freeFallStartTime = 0;
-    private boolean inFreeFall = false;
-    private long impactTime = 0;
-    private boolean impactDetected = false;
-    private long lastFallTime = 0;
-    private long stillnessStartTime = 0;
-    private boolean checkingStillness = false;
-    private long lastFreeFallEndTime = 0;  // Track when free-fall ended for impact window
-    
-    // For stillness detection - use more samples for accuracy
-    private float[] recentAccelerations = new float[20];
-    private int accelIndex = 0;
-    
-    // Reference to React context for sending events
-    private static ReactContext reactContext;
+    // Every detection parameter comes from the installed DetectorConfig; the profile within it
+    // is switched by the context classifier (still/walking/running/vehicle)
+    private volatile DetectorConfig config = DetectorConfig.DEFAULT;
+    // Received mid-candidate, installed once the detector is idle; main thread
+    private DetectorConfig pendingConfig;
+    private int motionContext = DetectionProfile.CONTEXT_WALKING;
+    private volatile DetectionProfile profile = DetectionProfile.WALKING;
+    private ContextClassifier contextClassifier;
+    
+    // Battery/thermal policy; caps the profile's sampling rate and drives location and retries
+    private PowerPolicy powerPolicy;
+    private int registeredPeriodUs = 0;
+    private int registeredLatencyUs = 0;
+    
+    // Optional gyroscope/barometer check, with sensors on only around a candidate
+    private FusionDetector fusion;
+    
+    // Last seconds of samples, shared by every detector and by feature extraction
+    private final SampleWindow sampleWindow = new SampleWindow();
+    private final FeatureExtractor featureExtractor = new FeatureExtractor();
+    
+    private DetectorEnsemble detector;
+    // Gravity bias and noise floor of this accelerometer, refined from quiet periods
+    private DeviceCalibration calibration;
+    // Timestamped SOS lifecycle events, for reconstructing an incident afterwards
+    private SosJournal sosJournal;
+    private SosClient sosClient;
+    private AndroidSmsChannel smsChannel;
+    private SosDelivery sosDelivery;
+    private final Handler outboxHandler = new CountingHandler(Looper.getMainLooper(), EnergyAccounting.FALL);
+    private final Runnable outboxRetry = this::retryPendingSOS;
+    
+    private long lastFallTime = 0;   // sample time, elapsedRealtime clock
+    private long sampleTimeMs = 0;   // time of the accelerometer sample being processed
+    
+    // Detector health, readable synchronously from JS
+    private volatile boolean sensorRegistered = false;
+    private volatile long lastSampleElapsedMs = 0;
+    private long lastEventTimestampNanos = 0;
+    private long meanIntervalNanos = 0;
+    private MetricsDumper metricsDumper;
+    
+    // Re-registers the listener if samples stop arriving (seen on some OEM builds after doze)
+    private static final long SENSOR_STALL_THRESHOLD_MS = 5000;
+    private final SensorWatchdog sensorWatchdog = new SensorWatchdog(SENSOR_STALL_THRESHOLD_MS, this::recoverSensor);
+    
+    // Opt-in live sample stream for the detector debugging view
+    private final SensorStreamer sensorStreamer = new SensorStreamer();
+    
+    // Events to React Native are buffered/coalesced by the channel while JS is absent
+    private final ReactEventChannel eventChannel = ReactEventChannel.getInstance();
+    
+    // Binder for the UI process; this service runs alone in the :detector process
+    private FallDetectorBinder binder;
+    
+    // Written on every SOS state change so a START_STICKY restart resumes where it was
+    private static final String STATE_SNAPSHOT_FILE = "falldetection_state.bin";
+    private StateSnapshot stateSnapshot;
     
     // Sound and vibration for SOS alert
     private static final String TAG = "FallDetectionService";
     private static final int COUNTDOWN_SECONDS = 30;
-    private MediaPlayer mediaPlayer;
+    private static final String SOS_DELIVERY_PREFS = "nomisafe_sos_delivery";
+    // Oldest saved fix a restarted alert still sends
+    private static final long MAX_SNAPSHOT_FIX_AGE_MS = 10 * 60 * 1000;
+    private AlarmPlayer alarmPlayer;
     private ToneGenerator toneGenerator;
     private Vibrator vibrator;
     private int countdownSecondsRemaining = COUNTDOWN_SECONDS;
@@ -107,11 +137,16 @@ public class FallDetectionService extends Service implements SensorEventListener
     // Location tracking
     private LocationManager locationManager;
     private Location currentLocation;
+    private boolean locationActive = false;
     private LocationListener locationListener = new LocationListener() {
         @Override
         public void onLocationChanged(Location location) {
             Log.i(TAG, "Location updated: lat=" + location.getLatitude() + ", lng=" + location.getLongitude() + ", accuracy=" + location.getAccuracy());
             currentLocation = location;
+            if (stateSnapshot != null) {
+                stateSnapshot.setLocation(location);
+            }
+            EnergyAccounting.FALL.onMainThreadWakeup();
         }
         
         @Override
@@ -124,10 +159,6 @@ public class FallDetectionService extends Service implements SensorEventListener
         public void onProviderDisabled(String provider) {}
     };
     
-    public static void setReactContext(ReactContext context) {
-        reactContext = context;
-    }
-    
     public static FallDetectionService getInstance() {
         return instance;
     }
@@ -136,6 +167,29 @@ public class FallDetectionService extends Service implements SensorEventListener
     public void onCreate() {
         super.onCreate();
         instance = this;
+        // Parameters first: the cooldown is restored from them and the profile sets the sampling rate
+        config = DetectorConfigStore.get(this);
+        profile = config.profileFor(motionContext);
+        calibration = new DeviceCalibration(this);
+        sosJournal = SosJournal.get(this);
+        // Decrypted off the main thread; ready long before a countdown can end
+        networkExecutor.execute(() -> FirstConnectContacts.get(this));
+        sosClient = new SosClient(SosClient.DEFAULT_ENDPOINT, 30000, 30000,
+            () -> powerDecision().sendRetryDelayMs, Thread::sleep, sosClientListener);
+        smsChannel = new AndroidSmsChannel(this);
+        // Delivered keys and confirmed texts, so a restart neither resends nor re-texts. Its own
+        // file, since clearPendingSOS clears nomisafe_sos; apply() is flushed when the service stops
+        SharedPreferences deliveryPrefs = getSharedPreferences(SOS_DELIVERY_PREFS, Context.MODE_PRIVATE);
+        sosDelivery = new SosDelivery(sosClient, smsChannel, deliveryScheduler,
+            SosDelivery.DEFAULT_SMS_DEADLINE_MS, sosDeliveryListener,
+            state -> deliveryPrefs.edit().putString("state", state).apply());
+        sosDelivery.restoreState(deliveryPrefs.getString("state", null));
+        detector = new DetectorEnsemble(sampleWindow, detectorListener,
+            new ThresholdDetector(detectorListener, calibration), new LinearAccelerationDetector());
+        detector.applyConfig(config, profile);
+        binder = new FallDetectorBinder(this, new CountingHandler(Looper.getMainLooper(), EnergyAccounting.FALL));
+        eventChannel.setTarget(binder);
+        restoreState();
         // Start as foreground service with notification FIRST
         String channelId = "fall_detection_channel";
         Notification notification;
@@ -165,15 +219,205 @@ public class FallDetectionService extends Service implements SensorEventListener
         }
         startForeground(1, notification);
 
+        // Decode the alarm sound now so it can start instantly when a fall is confirmed
+        alarmPlayer = new AlarmPlayer(this);
+        alarmPlayer.preload();
+
+        metricsDumper = new MetricsDumper(this);
+        metricsDumper.start();
+        EnergyAccounting.FALL.attach(this);
+
         // Initialize location manager
         locationManager = (LocationManager) getSystemService(Context.LOCATION_SERVICE);
 
+        fusion = new FusionDetector(this);
+        
+        // The policy decides the rate cap before the first registration
+        powerPolicy = new PowerPolicy(this, this::applyPowerPolicy);
+        powerPolicy.start();
+        
         // Now register sensors with faster sampling for better detection
+        registerSensorListener();
+        if (sensorRegistered) {
+            StartupTiming.markSensorRegistered(this, "fall");
+        }
+        sensorWatchdog.start();
+        contextClassifier = new ContextClassifier(this, contextHost);
+        contextClassifier.start();
+    }
+
+    private void registerSensorListener() {
         sensorManager = (SensorManager) getSystemService(SENSOR_SERVICE);
         if (sensorManager != null) {
             accelerometer = sensorManager.getDefaultSensor(Sensor.TYPE_ACCELEROMETER);
-            sensorManager.registerListener(this, accelerometer, SensorManager.SENSOR_DELAY_GAME);
+            sensorRegistered = accelerometer != null && registerAccelerometer();
+            if (sensorRegistered) {
+                EnergyAccounting.FALL.sensorRegistered();
+            }
+        }
+    }
+
+    private void unregisterSensorListener() {
+        if (sensorManager != null) {
+            sensorManager.unregisterListener(this);
+            sensorRegistered = false;
+            EnergyAccounting.FALL.sensorUnregistered();
+        }
+    }
+
+    private PowerPolicy.Decision powerDecision() {
+        return powerPolicy != null ? powerPolicy.getDecision() : PowerPolicy.NORMAL;
+    }
+    
+    private int targetPeriodUs() {
+        return Math.max(profile.samplingPeriodUs, powerDecision().minSamplingPeriodUs);
+    }
+    
+    private int targetLatencyUs() {
+        return Math.max(profile.maxReportLatencyUs, powerDecision().maxReportLatencyUs);
+    }
+    
+    /**
+     * Registers at the profile's rate, slowed and batched as far as the power policy requires.
+     */
+    private boolean registerAccelerometer() {
+        registeredPeriodUs = targetPeriodUs();
+        registeredLatencyUs = targetLatencyUs();
+        return sensorManager.registerListener(this, accelerometer, registeredPeriodUs, registeredLatencyUs);
+    }
+    
+    /**
+     * Re-registers the accelerometer if the profile or policy changed the effective rate.
+     */
+    private void updateSensorRate() {
+        if (!sensorRegistered) return;
+        if (targetPeriodUs() == registeredPeriodUs && targetLatencyUs() == registeredLatencyUs) return;
+        unregisterSensorListener();
+        // The rate change is not sampling jitter
+        lastEventTimestampNanos = 0;
+        sensorRegistered = registerAccelerometer();
+        if (sensorRegistered) {
+            EnergyAccounting.FALL.sensorRegistered();
+        }
+        Log.i(TAG, "Accelerometer at " + registeredPeriodUs + "us, latency " + registeredLatencyUs + "us");
+    }
+    
+    private void applyPowerPolicy(PowerPolicy.Decision decision) {
+        updateSensorRate();
+        // A saved SOS is retried on the new cadence
+        if (stateSnapshot != null && stateSnapshot.outboxHead != stateSnapshot.outboxTail) {
+            scheduleOutboxRetry();
+        }
+    }
+    
+    private final ContextClassifier.Host contextHost = new ContextClassifier.Host() {
+        @Override
+        public float recentVariance() {
+            int count = Math.min(20, sampleWindow.size());
+            if (count == 0) return 0;
+            int first = sampleWindow.size() - count;
+            float mean = 0;
+            for (int i = first; i < first + count; i++) mean += sampleWindow.magnitude[sampleWindow.index(i)];
+            mean /= count;
+            float variance = 0;
+            for (int i = first; i < first + count; i++) {
+                float d = sampleWindow.magnitude[sampleWindow.index(i)] - mean;
+                variance += d * d;
+            }
+            return variance / count;
+        }
+        
+        @Override
+        public boolean canSwitchProfile() {
+            return canSwapParameters();
+        }
+        
+        @Override
+        public void onContextChanged(int context) {
+            motionContext = context;
+            FallDetectionMetrics.PROFILE_SWITCHES.increment();
+            applyParameters();
+        }
+    };
+    
+    /**
+     * Swaps in the profile for the current motion context from the installed config and, if the
+     * sampling rate differs, re-registers the accelerometer. Runs on the main thread between
+     * samples, so the detector sees either the old parameters or the new ones, never a mix.
+     */
+    private void applyParameters() {
+        DetectorConfig activeConfig = config;
+        DetectionProfile previous = profile;
+        profile = activeConfig.profileFor(motionContext);
+        detector.applyConfig(activeConfig, profile);
+        if (previous != profile) {
+            Log.i(TAG, "Detection profile " + previous.name + " -> " + profile.name + " (config v" + activeConfig.version + ")");
+        }
+        updateSensorRate();
+    }
+    
+    /** No candidate or alert in progress, so new thresholds cannot split one. */
+    private boolean canSwapParameters() {
+        return !sosTimerActive && detector.isIdle();
+    }
+    
+    /**
+     * Installs a config received while a candidate or alert was in progress, once it is over.
+     * Main thread.
+     */
+    private void installPendingConfig() {
+        if (pendingConfig == null || !canSwapParameters()) return;
+        config = pendingConfig;
+        pendingConfig = null;
+        applyParameters();
+    }
+    
+    /**
+     * Validates and persists a new config on the calling (binder) thread, then installs it on
+     * the main thread as soon as the detector is idle. The sensor stream keeps running; only a
+     * changed sampling rate re-registers.
+     */
+    Bundle updateDetectorConfig(String json, Handler mainHandler) {
+        Bundle result = new Bundle();
+        try {
+            DetectorConfig updated = DetectorConfigStore.update(this, json);
+            mainHandler.post(() -> {
+                pendingConfig = updated;
+                installPendingConfig();
+            });
+            result.putBoolean("accepted", true);
+            result.putDouble("version", updated.version);
+            result.putString("variant", updated.variant);
+        } catch (IllegalArgumentException | IOException e) {
+            Log.w(TAG, "Rejected detector config", e);
+            result.putBoolean("accepted", false);
+            result.putString("error", e.getMessage());
+        }
+        return result;
+    }
+    
+    /**
+     * Called by the watchdog on the main thread when samples have stopped arriving.
+     */
+    private boolean recoverSensor(int attempt) {
+        if (instance != this) return false;
+        unregisterSensorListener();
+        // The gap is not sampling jitter
+        lastEventTimestampNanos = 0;
+        if (attempt == 1) {
+            sensorRegistered = accelerometer != null && registerAccelerometer();
+            if (sensorRegistered) {
+                EnergyAccounting.FALL.sensorRegistered();
+            }
+        } else {
+            // Fresh SensorManager and Sensor handles in case the old ones went stale
+            registerSensorListener();
         }
+        return sensorRegistered;
+    }
+
+    void setSensorStallThresholdMs(long thresholdMs) {
+        sensorWatchdog.setStallThresholdMs(thresholdMs);
     }
 
     @Override
@@ -184,191 +428,365 @@ public class FallDetectionService extends Service implements SensorEventListener
     @Override
     public void onDestroy() {
         sosHandler.removeCallbacksAndMessages(null);
+        sensorStreamer.disable();
+        if (metricsDumper != null) {
+            metricsDumper.stop();
+        }
         stopAlertSound();
+        if (alarmPlayer != null) {
+            alarmPlayer.release();
+            alarmPlayer = null;
+        }
         stopLocationUpdates();
         if (networkExecutor != null) {
             networkExecutor.shutdownNow();
         }
+        deliveryScheduler.shutdownNow();
+        smsChannel.close();
+        sensorWatchdog.stop();
+        if (contextClassifier != null) {
+            contextClassifier.stop();
+        }
+        if (powerPolicy != null) {
+            powerPolicy.stop();
+        }
+        outboxHandler.removeCallbacks(outboxRetry);
+        if (fusion != null) {
+            fusion.close();
+        }
+        calibration.persist();
+        binder.close();
+        // An explicit stop abandons the countdown; it must not resume on the next start
+        if (SosState.getPhase() == SosState.COUNTDOWN) {
+            SosState.transition(SosState.IDLE);
+        }
+        SosState.setListener(null);
         instance = null;
         super.onDestroy();
-        if (sensorManager != null) {
-            sensorManager.unregisterListener(this);
-        }
+        unregisterSensorListener();
+        EnergyAccounting.FALL.detach();
     }
 
     @Nullable
     @Override
     public IBinder onBind(Intent intent) {
-        return null;
+        return binder;
     }
 
-    private void sendEventToReactNative(String eventName, WritableMap params) {
-        Log.i(TAG, "Sending event to React Native: " + eventName);
-        if (reactContext == null) {
-            Log.w(TAG, "Cannot send event - reactContext is null");
+    @Override
+    public void onSensorChanged(SensorEvent event) {
+        EnergyAccounting.FALL.onSensorEvent();
+        if (event.sensor.getType() == Sensor.TYPE_ACCELEROMETER) {
+            long startNanos = SystemClock.elapsedRealtimeNanos();
+            sensorWatchdog.onSample();
+            recordSampleArrival(event.timestamp);
+            processAccelerometerSample(event);
+            FallDetectionMetrics.SENSOR_PROCESSING_US.record((SystemClock.elapsedRealtimeNanos() - startNanos) / 1000);
+        }
+    }
+    
+    private void recordSampleArrival(long timestampNanos) {
+        FallDetectionMetrics.SAMPLES.increment();
+        lastSampleElapsedMs = SystemClock.elapsedRealtime();
+        if (lastEventTimestampNanos != 0) {
+            long interval = timestampNanos - lastEventTimestampNanos;
+            // Jitter = deviation from the running mean interval
+            meanIntervalNanos = meanIntervalNanos == 0 ? interval : meanIntervalNanos + (interval - meanIntervalNanos) / 16;
+            FallDetectionMetrics.SAMPLE_JITTER_US.record(Math.abs(interval - meanIntervalNanos) / 1000);
+        }
+        lastEventTimestampNanos = timestampNanos;
+    }
+    
+    private void processAccelerometerSample(SensorEvent event) {
+        float x = event.values[0];
+        float y = event.values[1];
+        float z = event.values[2];
+        float acceleration = (float) Math.sqrt(x * x + y * y + z * z);
+        // When the sample was taken (elapsedRealtime clock), not when it arrived: batched
+        // samples arrive together, and timing them by arrival squashes free-fall to nothing
+        long now = event.timestamp / 1_000_000;
+        sampleTimeMs = now;
+        
+        // Shared window of recent samples, used for stillness and feature extraction
+        sampleWindow.add(event.timestamp, x, y, z, acceleration);
+        calibration.onSample(acceleration);
+        if (pendingConfig != null) {
+            installPendingConfig();
+        }
+        
+        if (sensorStreamer.isEnabled()) {
+            sensorStreamer.offer(now + System.currentTimeMillis() - SystemClock.elapsedRealtime(),
+                x, y, z, acceleration, detector.getPhase());
+        }
+        
+        // Skip if we're in cooldown or already processing an alert
+        if (sosTimerActive || (now - lastFallTime < config.fallCooldownMs)) {
             return;
         }
-        if (!reactContext.hasActiveCatalystInstance()) {
-            Log.w(TAG, "Cannot send event - no active catalyst instance");
+        
+        if (detector.onSample(sampleWindow, now, acceleration) == Detector.RESULT_FALL) {
+            onFallConfirmed(now);
+        }
+    }
+    
+    private void onFallConfirmed(long now) {
+        scoreCandidate(true);
+        if (fusion.verdict() == FusionDetector.VERDICT_REJECT) {
+            // Tumbled like a dropped phone; inconclusive evidence leaves the accelerometer's call
+            if (locationActive) {
+                stopLocationUpdates();
+            }
             return;
         }
-        try {
-            reactContext
-                .getJSModule(DeviceEventManagerModule.RCTDeviceEventEmitter.class)
-                .emit(eventName, params);
-            Log.i(TAG, "Event sent successfully: " + eventName);
-        } catch (Exception e) {
-            Log.e(TAG, "Failed to send event: " + eventName, e);
+        // Person has been still for required duration - CONFIRMED FALL
+        lastFallTime = now;
+        FallDetectionMetrics.FALLS_CONFIRMED.increment();
+        SosState.setCooldown(config.fallCooldownMs);
+        sosJournal.startIncident();
+        if (stateSnapshot != null) {
+            stateSnapshot.clearLocation();
         }
+        triggerFallAlert();
     }
-
-    @Override
-    public void onSensorChanged(SensorEvent event) {
-        if (event.sensor.getType() == Sensor.TYPE_ACCELEROMETER) {
-            float x = event.values[0];
-            float y = event.values[1];
-            float z = event.values[2];
-            float acceleration = (float) Math.sqrt(x * x + y * y + z * z);
-            long now = System.currentTimeMillis();
-            
-            // Store recent accelerations for stillness check
-            recentAccelerations[accelIndex] = acceleration;
-            accelIndex = (accelIndex + 1) % recentAccelerations.length;
-            
-            // Skip if we're in cooldown or already processing an alert
-            if (sosTimerActive || (now - lastFallTime < FALL_COOLDOWN_MS)) {
-                return;
+    
+    private final Detector.Listener detectorListener = new Detector.Listener() {
+        @Override
+        public void onFreeFall() {
+            sampleWindow.markFreeFall();
+            fusion.open();
+        }
+        
+        @Override
+        public void onImpact() {
+            sampleWindow.markImpact();
+            fusion.onImpact(sampleTimeMs);
+            if (powerDecision().locationStrategy == PowerPolicy.LOCATION_WARM_ON_IMPACT) {
+                // On the charger a GPS fix can start 1.5-2 s before the fall is confirmed
+                startLocationUpdates();
             }
-            
-            // Phase 1: Detect free-fall (acceleration significantly below gravity)
-            // Normal gravity = ~9.8 m/s², free-fall = near 0
-            // Shaking produces HIGH values (15-30+), not low values
-            if (acceleration < FREE_FALL_THRESHOLD) {
-                if (!inFreeFall) {
-                    freeFallStartTime = now;
-                    inFreeFall = true;
-                }
+        }
+        
+        @Override
+        public void onCandidateDropped(boolean hadImpact) {
+            if (hadImpact) {
+                scoreCandidate(false);
             } else {
-                if (inFreeFall) {
-                    long freeFallDuration = now - freeFallStartTime;
-                    lastFreeFallEndTime = now;
-                    inFreeFall = false;
-                    
-                    // If free-fall was long enough AND we have high impact immediately
-                    if (freeFallDuration >= FREE_FALL_DURATION_MS && acceleration > IMPACT_THRESHOLD) {
-                        impactDetected = true;
-                        impactTime = now;
-                        checkingStillness = false;
-                        stillnessStartTime = 0;
-                    }
-                }
+                sampleWindow.clearMarks();
             }
-            
-            // Phase 2: Check for impact within window after free-fall ended
-            // (impact may come a few ms after free-fall detection ends)
-            if (!impactDetected && !inFreeFall && lastFreeFallEndTime > 0) {
-                long timeSinceFreeFall = now - lastFreeFallEndTime;
-                if (timeSinceFreeFall < IMPACT_WINDOW_MS && acceleration > IMPACT_THRESHOLD) {
-                    impactDetected = true;
-                    impactTime = now;
-                    checkingStillness = false;
-                    stillnessStartTime = 0;
-                } else if (timeSinceFreeFall >= IMPACT_WINDOW_MS) {
-                    // Reset free-fall tracking if window expired
-                    lastFreeFallEndTime = 0;
-                }
+            fusion.close();
+            if (locationActive) {
+                // Warmed at impact for a fall that did not happen
+                stopLocationUpdates();
             }
-            
-            // Phase 3: After impact, check for SUSTAINED stillness (person lying on ground)
-            if (impactDetected && (now - impactTime > STILLNESS_CHECK_DELAY_MS)) {
-                float avgAccel = 0;
-                float minAccel = Float.MAX_VALUE;
-                float maxAccel = Float.MIN_VALUE;
-                
-                for (float a : recentAccelerations) {
-                    avgAccel += a;
-                    if (a < minAccel) minAccel = a;
-                    if (a > maxAccel) maxAccel = a;
-                }
-                avgAccel /= recentAccelerations.length;
-                
-                // Check variance (stillness = very low variance)
-                float variance = 0;
-                for (float a : recentAccelerations) {
-                    variance += (a - avgAccel) * (a - avgAccel);
-                }
-                variance /= recentAccelerations.length;
-                
-                // Range should be small for true stillness
-                float range = maxAccel - minAccel;
-                
-                // Stillness criteria:
-                // 1. Low variance (< 1.0)
-                // 2. Average acceleration close to gravity (8.5-11.0)
-                // 3. Reasonable range (< 2.5)
-                boolean isStill = variance < 1.0f && 
-                                  avgAccel > 8.5f && avgAccel < 11.0f && 
-                                  range < 2.5f;
-                
-                if (isStill) {
-                    if (!checkingStillness) {
-                        // Start tracking stillness duration
-                        checkingStillness = true;
-                        stillnessStartTime = now;
-                    } else if (now - stillnessStartTime >= STILLNESS_DURATION_MS) {
-                        // Person has been still for required duration - CONFIRMED FALL
-                        lastFallTime = now;
-                        impactDetected = false;
-                        checkingStillness = false;
-                        lastFreeFallEndTime = 0;
-                        triggerFallAlert();
-                    }
+        }
+    };
+    
+    /**
+     * Scores an impact candidate once it is decided. The score is recorded alongside the
+     * threshold pipeline's outcome and does not change it yet.
+     */
+    private void scoreCandidate(boolean confirmed) {
+        long start = SystemClock.elapsedRealtimeNanos();
+        float[] features = featureExtractor.extract(sampleWindow);
+        if (features == null) {
+            sampleWindow.clearMarks();
+            return;
+        }
+        FallClassifier activeClassifier = config.classifier;
+        float score = activeClassifier.score(features);
+        FallDetectionMetrics.CLASSIFIER_US.record((SystemClock.elapsedRealtimeNanos() - start) / 1000);
+        FallDetectionMetrics.CLASSIFIER_RUNS.increment();
+        FallDetectionMetrics.CLASSIFIER_SCORE.record(Math.round(score * 1000));
+        if (score < activeClassifier.threshold) {
+            FallDetectionMetrics.CLASSIFIER_BELOW_THRESHOLD.increment();
+        }
+        if (!confirmed) {
+            // An impact that never reached stillness: the case threshold tuning needs most
+            NearMissJournal.get(this).record(sampleWindow, features, score, profile.name, config.version);
+        }
+        sampleWindow.clearMarks();
+        Log.i(TAG, "Classifier score " + score + " for " + (confirmed ? "confirmed" : "unconfirmed") + " impact");
+    }
+    
+    Bundle getDetectorConfig() {
+        Bundle bundle = config.toBundle();
+        bundle.putString("detector", detector.getName());
+        bundle.putBundle("profile", profile.toBundle());
+        return bundle;
+    }
+    
+    Bundle runClassifierBenchmark(int iterations) {
+        return ClassifierBenchmark.run(iterations, config.classifier);
+    }
+    
+    Bundle getSosJournal(long sinceSeq, int limit) {
+        return sosJournal.query(sinceSeq, limit);
+    }
+    
+    Bundle runTraceBenchmark(int samples) {
+        try {
+            return SensorTraceBenchmark.run(getCacheDir(), samples);
+        } catch (IOException e) {
+            Log.e(TAG, "Trace benchmark failed", e);
+            Bundle result = new Bundle();
+            result.putString("error", e.getMessage());
+            return result;
+        }
+    }
+    
+    /**
+     * Turns the live sample stream on or off. Posted to the main looper, which also delivers
+     * the sensor events, so the streamer needs no locking.
+     */
+    public void setSensorStreamEnabled(boolean enable, int decimation, int batchSize) {
+        sosHandler.post(() -> {
+            if (enable) {
+                sensorStreamer.enable(decimation, batchSize);
+            } else {
+                sensorStreamer.disable();
+            }
+        });
+    }
+    
+    public void acknowledgeSensorBatch(int seq) {
+        sensorStreamer.acknowledge(seq);
+    }
+    
+    /**
+     * Restores the SOS state saved before a restart and resumes whatever was in progress.
+     */
+    private void restoreState() {
+        long startNanos = SystemClock.elapsedRealtimeNanos();
+        stateSnapshot = StateSnapshot.open(new File(getFilesDir(), STATE_SNAPSHOT_FILE),
+            Settings.Global.getInt(getContentResolver(), Settings.Global.BOOT_COUNT, -1));
+        if (stateSnapshot == null) {
+            SosState.setListener(binder::pushSosState);
+            return;
+        }
+        boolean restored = stateSnapshot.restore();
+        if (restored) {
+            SosState.restore(stateSnapshot.phase, stateSnapshot.countdownDeadlineMs,
+                stateSnapshot.cooldownUntilMs, stateSnapshot.lastTransitionMs);
+            long cooldownLeftMs = stateSnapshot.cooldownUntilMs - SystemClock.elapsedRealtime();
+            if (cooldownLeftMs > 0) {
+                lastFallTime = SystemClock.elapsedRealtime() - (config.fallCooldownMs - cooldownLeftMs);
+            }
+        }
+        FallDetectionMetrics.SNAPSHOT_RESTORE_US.record((SystemClock.elapsedRealtimeNanos() - startNanos) / 1000);
+        SosState.setListener(() -> {
+            stateSnapshot.commit();
+            binder.pushSosState();
+        });
+        if (restored) {
+            resumeFromSnapshot();
+        }
+    }
+    
+    private void resumeFromSnapshot() {
+        int phase = SosState.getPhase();
+        if (phase == SosState.COUNTDOWN || phase == SosState.SENDING) {
+            sosJournal.log(SosJournal.RESTORED, SosJournal.DETAIL_NONE, phase);
+        }
+        // A fix older than the alert could be anywhere; getBestLocation finds a current one instead
+        boolean fixUsable = stateSnapshot.hasLocation
+            && System.currentTimeMillis() - stateSnapshot.locationTimeMs <= MAX_SNAPSHOT_FIX_AGE_MS;
+        if ((phase == SosState.COUNTDOWN || phase == SosState.SENDING) && fixUsable) {
+            Location location = new Location("snapshot");
+            location.setLatitude(stateSnapshot.latitude);
+            location.setLongitude(stateSnapshot.longitude);
+            location.setAccuracy(stateSnapshot.accuracy);
+            location.setTime(stateSnapshot.locationTimeMs);
+            currentLocation = location;
+        }
+        switch (phase) {
+            case SosState.COUNTDOWN: {
+                int remaining = SosState.getCountdownRemainingSeconds();
+                Log.i(TAG, "Restarted mid-countdown, " + remaining + "s remaining");
+                if (remaining > 0) {
+                    sosHandler.post(() -> triggerFallAlert(remaining));
                 } else {
-                    // Movement detected - reset stillness tracking
-                    if (checkingStillness) {
-                        checkingStillness = false;
-                        stillnessStartTime = 0;
-                    }
-                }
-                
-                // Timeout: if no confirmed fall within 6 seconds of impact, reset
-                if (now - impactTime > 6000) {
-                    impactDetected = false;
-                    checkingStillness = false;
-                    lastFreeFallEndTime = 0;
+                    // The countdown ran out while the service was dead
+                    sosHandler.post(this::sendSOS);
                 }
+                return;
             }
+            case SosState.SENDING:
+                // The send may not have completed before the kill
+                Log.i(TAG, "Restarted while sending SOS, resending");
+                if (fixUsable) {
+                    sendSOSToBackend(sendingKey(), stateSnapshot.latitude, stateSnapshot.longitude, stateSnapshot.accuracy);
+                } else {
+                    // No usable saved fix: go through the whole send again with a fresh location
+                    String key = sendingKey();
+                    sosHandler.post(() -> sendSOS(key));
+                }
+                return;
+            default:
+                break;
+        }
+        if (stateSnapshot.outboxHead != stateSnapshot.outboxTail) {
+            Log.i(TAG, "Restarted with an unsent SOS in the outbox");
+            retryPendingSOS();
         }
     }
     
     private void triggerFallAlert() {
+        triggerFallAlert(COUNTDOWN_SECONDS);
+    }
+    
+    private void triggerFallAlert(int countdownSeconds) {
+        int cookie = FallTrace.newAlertCookie();
+        FallTrace.beginAsync(FallTrace.SLICE_ALERT, cookie);
+        FallTrace.beginAsync(FallTrace.SLICE_COUNTDOWN, cookie);
+        boolean trace = FallTrace.begin("triggerFallAlert");
+        try {
+            startFallAlert(countdownSeconds);
+        } finally {
+            FallTrace.end(trace);
+        }
+    }
+    
+    private void startFallAlert(int countdownSeconds) {
+        AlertLatency.markDetected();
         sosCancelled = false;
         sosTimerActive = true;
-        countdownSecondsRemaining = COUNTDOWN_SECONDS;
+        countdownSecondsRemaining = countdownSeconds;
+        SosState.startCountdown(countdownSeconds);
         sosHandler.removeCallbacksAndMessages(null);
         
+        // Start alarm sound IMMEDIATELY - it is preloaded, so this does not block
+        boolean trace = FallTrace.begin("playAlertSound");
+        playAlertSound();
+        FallTrace.end(trace);
+        sosJournal.log(SosJournal.ALARM_AUDIBLE);
+        
+        // Start vibration IMMEDIATELY
+        trace = FallTrace.begin("startVibration");
+        startVibration();
+        FallTrace.end(trace);
+        
         // Start requesting location updates immediately so we have fresh location by the time SOS is sent
+        trace = FallTrace.begin("startLocationUpdates");
         startLocationUpdates();
+        FallTrace.end(trace);
         
         // Get notification manager
         notificationManager = (NotificationManager) getSystemService(NOTIFICATION_SERVICE);
         
-        // Start vibration IMMEDIATELY
-        startVibration();
-        
-        // Start alarm sound IMMEDIATELY
-        playAlertSound();
-        
         // Send event to React Native (for when app is in foreground)
-        WritableMap params = Arguments.createMap();
-        params.putInt("countdown", COUNTDOWN_SECONDS);
-        sendEventToReactNative("FallDetected", params);
+        Bundle params = new Bundle();
+        params.putInt("countdown", countdownSeconds);
+        trace = FallTrace.begin("emitFallDetected");
+        eventChannel.emit("FallDetected", params);
+        FallTrace.end(trace);
         
         // Create the full-screen intent for SOSAlertActivity
         Intent fullScreenIntent = new Intent(this, SOSAlertActivity.class);
         fullScreenIntent.setFlags(Intent.FLAG_ACTIVITY_NEW_TASK | 
                                   Intent.FLAG_ACTIVITY_CLEAR_TOP |
                                   Intent.FLAG_ACTIVITY_SINGLE_TOP);
+        fullScreenIntent.putExtra(SOSAlertActivity.EXTRA_DETECTED_AT_NANOS, AlertLatency.getDetectedAtNanos());
+        fullScreenIntent.putExtra(SOSAlertActivity.EXTRA_COUNTDOWN_DEADLINE_MS, SosState.getCountdownDeadlineMs());
         
         PendingIntent fullScreenPendingIntent = PendingIntent.getActivity(
             this, 0, fullScreenIntent, 
@@ -377,6 +795,7 @@ public class FallDetectionService extends Service implements SensorEventListener
         
         // Cancel intent for notification action
         Intent cancelIntent = new Intent(ACTION_CANCEL_SOS);
+        cancelIntent.putExtra(EXTRA_CANCEL_SOURCE, SosJournal.SOURCE_NOTIFICATION);
         cancelIntent.setPackage(getPackageName());
         PendingIntent cancelPendingIntent = PendingIntent.getBroadcast(
             getApplicationContext(), 0, cancelIntent, 
@@ -386,6 +805,7 @@ public class FallDetectionService extends Service implements SensorEventListener
         // Create high-priority notification channel for SOS alerts
         String channelId = "sos_alert_channel";
         
+        trace = FallTrace.begin("postAlertNotification");
         if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O && notificationManager != null) {
             NotificationChannel channel = new NotificationChannel(
                 channelId,
@@ -401,6 +821,8 @@ public class FallDetectionService extends Service implements SensorEventListener
         
         // Show initial notification and start countdown
         updateNotification(channelId, fullScreenPendingIntent, cancelPendingIntent, countdownSecondsRemaining);
+        FallTrace.end(trace);
+        sosJournal.log(SosJournal.NOTIFICATION_POSTED);
         
         // Start countdown timer that updates notification every second
         countdownRunnable = new Runnable() {
@@ -412,19 +834,21 @@ public class FallDetectionService extends Service implements SensorEventListener
                 
                 if (countdownSecondsRemaining > 0) {
                     countdownSecondsRemaining--;
+                    boolean tickTrace = FallTrace.begin("countdownTick");
                     
                     // Update notification with countdown
                     updateNotification(channelId, fullScreenPendingIntent, cancelPendingIntent, countdownSecondsRemaining);
                     
-                    // Send countdown event to React Native
-                    WritableMap countdownParams = Arguments.createMap();
-                    countdownParams.putInt("secondsRemaining", countdownSecondsRemaining);
-                    sendEventToReactNative("SOSCountdown", countdownParams);
+                    // Send countdown event to React Native (coalesced while JS is absent)
+                    eventChannel.emitCoalesced("SOSCountdown", "secondsRemaining", countdownSecondsRemaining);
+                    FallTrace.end(tickTrace);
+                    FallTrace.counter("SOS countdown", countdownSecondsRemaining);
                     
                     // Schedule next tick
                     sosHandler.postDelayed(this, 1000);
                 } else {
                     // Time's up - send SOS
+                    sosJournal.log(SosJournal.COUNTDOWN_EXPIRED, SosJournal.SOURCE_SERVICE, 0);
                     sendSOS();
                 }
             }
@@ -432,10 +856,13 @@ public class FallDetectionService extends Service implements SensorEventListener
         sosHandler.postDelayed(countdownRunnable, 1000);
         
         // Also try to launch activity directly (for when notification doesn't trigger it)
+        trace = FallTrace.begin("startActivity");
         try {
             startActivity(fullScreenIntent);
         } catch (Exception e) {
             Log.e(TAG, "Activity launch failed - notification will serve as fallback", e);
+        } finally {
+            FallTrace.end(trace);
         }
     }
     
@@ -473,43 +900,11 @@ public class FallDetectionService extends Service implements SensorEventListener
     }
     
     private void playAlertSound() {
-        try {
-            // Get the default alarm sound URI
-            Uri alarmUri = RingtoneManager.getDefaultUri(RingtoneManager.TYPE_ALARM);
-            if (alarmUri == null) {
-                alarmUri = RingtoneManager.getDefaultUri(RingtoneManager.TYPE_RINGTONE);
-            }
-            if (alarmUri == null) {
-                alarmUri = RingtoneManager.getDefaultUri(RingtoneManager.TYPE_NOTIFICATION);
-            }
-            
-            if (alarmUri != null) {
-                mediaPlayer = new MediaPlayer();
-                mediaPlayer.setDataSource(this, alarmUri);
-                
-                // Set audio attributes for alarm stream
-                if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
-                    AudioAttributes audioAttributes = new AudioAttributes.Builder()
-                        .setUsage(AudioAttributes.USAGE_ALARM)
-                        .setContentType(AudioAttributes.CONTENT_TYPE_SONIFICATION)
-                        .build();
-                    mediaPlayer.setAudioAttributes(audioAttributes);
-                } else {
-                    mediaPlayer.setAudioStreamType(AudioManager.STREAM_ALARM);
-                }
-                
-                mediaPlayer.setLooping(true);
-                mediaPlayer.setVolume(1.0f, 1.0f);
-                mediaPlayer.prepare();
-                mediaPlayer.start();
-                Log.i(TAG, "Started alarm sound with MediaPlayer");
-            } else {
-                startToneGeneratorLoop();
-            }
-        } catch (Exception e) {
-            Log.e(TAG, "Failed to start MediaPlayer alarm, falling back to ToneGenerator", e);
-            startToneGeneratorLoop();
+        if (alarmPlayer != null && alarmPlayer.start()) {
+            return;
         }
+        Log.w(TAG, "Preloaded alarm not ready, falling back to ToneGenerator");
+        startToneGeneratorLoop();
     }
     
     private void startToneGeneratorLoop() {
@@ -520,6 +915,7 @@ public class FallDetectionService extends Service implements SensorEventListener
                 public void run() {
                     if (!sosCancelled && sosTimerActive && toneGenerator != null) {
                         toneGenerator.startTone(ToneGenerator.TONE_CDMA_EMERGENCY_RINGBACK, 1000);
+                        AlertLatency.markAudible("tonegenerator");
                         sosHandler.postDelayed(this, 1500);
                     }
                 }
@@ -531,17 +927,8 @@ public class FallDetectionService extends Service implements SensorEventListener
     }
     
     private void stopAlertSound() {
-        if (mediaPlayer != null) {
-            try {
-                if (mediaPlayer.isPlaying()) {
-                    mediaPlayer.stop();
-                }
-                mediaPlayer.release();
-                mediaPlayer = null;
-                Log.i(TAG, "Stopped MediaPlayer alarm");
-            } catch (Exception e) {
-                Log.e(TAG, "Error stopping MediaPlayer", e);
-            }
+        if (alarmPlayer != null) {
+            alarmPlayer.stop();
         }
         
         if (toneGenerator != null) {
@@ -563,28 +950,57 @@ public class FallDetectionService extends Service implements SensorEventListener
     
     /**
      * Called from SOSAlertActivity when its countdown finishes.
-     * Stops the service's countdown and triggers SOS.
+     * Stops the service's countdown and triggers SOS, unless the service already sent it or the
+     * alert was cancelled: only a running countdown may start a send.
      */
     public void sendSOSFromActivity() {
         Log.i(TAG, "sendSOSFromActivity called from Activity");
+        if (SosState.getPhase() != SosState.COUNTDOWN) {
+            Log.i(TAG, "No countdown running (" + SosState.getPhaseName() + "), not sending again");
+            return;
+        }
         // Stop the service's countdown to prevent duplicate calls
         sosHandler.removeCallbacksAndMessages(null);
+        sosJournal.log(SosJournal.COUNTDOWN_EXPIRED, SosJournal.SOURCE_ACTIVITY, 0);
         sendSOS();
     }
     
     private void sendSOS() {
+        sendSOS(null);
+    }
+    
+    /**
+     * @param idempotencyKey key of an SOS already being sent before a restart, or null for a new one
+     */
+    private void sendSOS(@Nullable String idempotencyKey) {
+        FallTrace.endAsync(FallTrace.SLICE_COUNTDOWN, FallTrace.currentAlertCookie());
+        boolean trace = FallTrace.begin("sendSOS");
+        try {
+            sendSOSNow(idempotencyKey);
+        } finally {
+            FallTrace.end(trace);
+        }
+    }
+    
+    private void sendSOSNow(@Nullable String resumedKey) {
         Log.i(TAG, "SOS sent to emergency contacts");
         sosTimerActive = false;
+        String idempotencyKey = resumedKey != null ? resumedKey : newSendingKey();
+        SosState.transition(SosState.SENDING);
         stopAlertSound();
         
         // Get location (use best available - fresh from updates or cached)
+        boolean trace = FallTrace.begin("getBestLocation");
         Location location = getBestLocation();
+        FallTrace.end(trace);
         
         // Stop location updates now that we have the location
         stopLocationUpdates();
+        sosJournal.log(SosJournal.LOCATION, SosJournal.DETAIL_NONE,
+            location != null ? Math.round(location.getAccuracy()) : -1);
         
         // Send event to React Native with location data
-        WritableMap params = Arguments.createMap();
+        Bundle params = new Bundle();
         if (location != null) {
             params.putDouble("latitude", location.getLatitude());
             params.putDouble("longitude", location.getLongitude());
@@ -592,14 +1008,18 @@ public class FallDetectionService extends Service implements SensorEventListener
             Log.i(TAG, "SOS Location: lat=" + location.getLatitude() + ", lng=" + location.getLongitude());
             
             // Make API call to notify emergency contacts (runs on background thread)
-            sendSOSToBackend(location.getLatitude(), location.getLongitude(), (float) location.getAccuracy());
+            sendSOSToBackend(idempotencyKey,
+                location.getLatitude(), location.getLongitude(), (float) location.getAccuracy());
         } else {
-            params.putNull("latitude");
-            params.putNull("longitude");
-            params.putNull("accuracy");
-            Log.w(TAG, "SOS Location: Could not get location");
+            params.putString("latitude", null);
+            params.putString("longitude", null);
+            params.putString("accuracy", null);
+            Log.w(TAG, "SOS Location: Could not get location, sending without it");
+            
+            // Contacts still need to hear about the fall - NaN coordinates go out as "location unavailable"
+            sendSOSToBackend(idempotencyKey, Double.NaN, Double.NaN, Float.NaN);
         }
-        sendEventToReactNative("SOSSent", params);
+        eventChannel.emit("SOSSent", params);
         
         // Update notification to show SOS was sent
         if (notificationManager != null) {
@@ -608,10 +1028,10 @@ public class FallDetectionService extends Service implements SensorEventListener
                 ? String.format("Location: %.4f, %.4f", location.getLatitude(), location.getLongitude())
                 : "Location unavailable";
             NotificationCompat.Builder builder = new NotificationCompat.Builder(this, channelId)
-                .setContentTitle("📤 SOS Alert Sent")
-                .setContentText("Your emergency contacts have been notified")
+                .setContentTitle("📤 Sending SOS Alert")
+                .setContentText("Notifying your emergency contacts")
                 .setStyle(new NotificationCompat.BigTextStyle()
-                    .bigText("Your emergency contacts have been notified.\n" + locationText))
+                    .bigText("Notifying your emergency contacts.\n" + locationText))
                 .setSmallIcon(android.R.drawable.ic_dialog_alert)
                 .setPriority(NotificationCompat.PRIORITY_HIGH)
                 .setAutoCancel(true);
@@ -619,134 +1039,195 @@ public class FallDetectionService extends Service implements SensorEventListener
         }
     }
     
+    /**
+     * A fresh idempotency key for the SOS about to be sent, written before the SENDING state so a
+     * restart mid-send resends under the same key and neither backend nor contacts see it twice.
+     */
+    private String newSendingKey() {
+        String key = UUID.randomUUID().toString();
+        getSharedPreferences("nomisafe_sos", Context.MODE_PRIVATE).edit()
+            .putString("sending_key", key)
+            .commit();
+        return key;
+    }
+    
+    /**
+     * The key of the SOS that was being sent, or a fresh one if it was never written.
+     */
+    private String sendingKey() {
+        String key = getSharedPreferences("nomisafe_sos", Context.MODE_PRIVATE).getString("sending_key", null);
+        return key != null ? key : UUID.randomUUID().toString();
+    }
+    
     /**
      * Send SOS alert to backend API (runs on background thread)
-     * Includes retry logic for reliability
+     * Includes retry logic for reliability, and direct SMS to the contacts as a fallback
      */
-    private void sendSOSToBackend(double latitude, double longitude, float accuracy) {
+    private void sendSOSToBackend(String idempotencyKey, double latitude, double longitude, float accuracy) {
+        int cookie = FallTrace.currentAlertCookie();
         networkExecutor.execute(() -> {
-            sendSOSWithRetry(latitude, longitude, accuracy, 3);  // Max 3 retries
+            long startMs = SystemClock.elapsedRealtime();
+            FallTrace.beginAsync(FallTrace.SLICE_SEND, cookie);
+            sendSOSWithRetry(idempotencyKey, latitude, longitude, accuracy, 3);  // Max 3 retries
+            FallTrace.endAsync(FallTrace.SLICE_SEND, cookie);
+            FallTrace.endAsync(FallTrace.SLICE_ALERT, cookie);
+            FallDetectionMetrics.SOS_SEND_MS.record(SystemClock.elapsedRealtime() - startMs);
         });
     }
     
-    private void sendSOSWithRetry(double latitude, double longitude, float accuracy, int retriesLeft) {
+    private void sendSOSWithRetry(String idempotencyKey, double latitude, double longitude, float accuracy, int retries) {
+        boolean trace = FallTrace.begin("readAccessToken");
+        String accessToken = getAccessTokenFromStorage();
+        FallTrace.end(trace);
+        if (accessToken == null || accessToken.isEmpty()) {
+            // SosDelivery goes straight to SMS
+            Log.e(TAG, "Cannot send SOS to backend - no access token found");
+            sosJournal.log(SosJournal.SEND_FAILED, SosJournal.DETAIL_NONE, 0);
+        }
+        
+        SosDelivery.Outcome outcome;
         try {
-            String accessToken = getAccessTokenFromStorage();
-            if (accessToken == null || accessToken.isEmpty()) {
-                Log.e(TAG, "Cannot send SOS to backend - no access token found");
-                // Save to pending so it can be retried when app opens
-                savePendingSOS(latitude, longitude, accuracy);
-                updateNotificationWithAPIResult(false, 0);
-                return;
-            }
-            
-            // Get API base URL - match the React Native production config
-            String apiBaseUrl = "http://15.207.247.24/api";
-            String sosEndpoint = apiBaseUrl + "/sos/";
-            
-            Log.i(TAG, "Sending SOS to backend: " + sosEndpoint + " (retries left: " + retriesLeft + ")");
-            
-            URL url = new URL(sosEndpoint);
-            HttpURLConnection conn = (HttpURLConnection) url.openConnection();
-            conn.setRequestMethod("POST");
-            conn.setRequestProperty("Content-Type", "application/json");
-            conn.setRequestProperty("Authorization", "Bearer " + accessToken);
-            conn.setDoOutput(true);
-            conn.setConnectTimeout(30000);
-            conn.setReadTimeout(30000);
-            
-            // Create request body
-            JSONObject jsonBody = new JSONObject();
-            jsonBody.put("latitude", latitude);
-            jsonBody.put("longitude", longitude);
-            jsonBody.put("accuracy", accuracy);
-            
-            // Write request body
-            OutputStream os = conn.getOutputStream();
-            os.write(jsonBody.toString().getBytes("UTF-8"));
-            os.close();
-            
-            // Get response
-            int responseCode = conn.getResponseCode();
-            Log.i(TAG, "SOS API response code: " + responseCode);
-            
-            if (responseCode == HttpURLConnection.HTTP_OK) {
-                BufferedReader br = new BufferedReader(new InputStreamReader(conn.getInputStream()));
-                StringBuilder response = new StringBuilder();
-                String line;
-                while ((line = br.readLine()) != null) {
-                    response.append(line);
-                }
-                br.close();
-                
-                JSONObject responseJson = new JSONObject(response.toString());
-                int contactsNotified = responseJson.optInt("contacts_notified", 0);
-                Log.i(TAG, "SOS API success - contacts notified: " + contactsNotified);
-                
-                // Clear any pending SOS
-                clearPendingSOS();
-                
-                // Update notification with success
-                updateNotificationWithAPIResult(true, contactsNotified);
+            outcome = sosDelivery.deliver(idempotencyKey, accessToken, latitude, longitude, accuracy, retries,
+                FirstConnectContacts.get(this).phoneNumbers(), smsText(idempotencyKey, latitude, longitude, accuracy));
+        } catch (InterruptedException e) {
+            // Service shutting down; the pending copy lets the next start resend
+            Thread.currentThread().interrupt();
+            savePendingSOS(idempotencyKey, latitude, longitude, accuracy);
+            return;
+        }
+        
+        if (outcome.duplicate) {
+            Log.i(TAG, "SOS " + idempotencyKey + " already delivered; not resending");
+            clearPendingSOS();
+        } else if (outcome.channel == SosDelivery.CHANNEL_HTTP) {
+            int contactsNotified = outcome.http.contactsNotified;
+            Log.i(TAG, "SOS API success - contacts notified: " + contactsNotified);
+            sosJournal.log(SosJournal.SEND_SUCCEEDED, SosJournal.CHANNEL_HTTP, contactsNotified);
+            // Clear any pending SOS
+            clearPendingSOS();
+            SosState.transition(SosState.SENT);
+            FallDetectionMetrics.SOS_SUCCESS.increment();
+            updateNotificationWithAPIResult(true, contactsNotified);
+        } else if (outcome.channel == SosDelivery.CHANNEL_SMS) {
+            Log.i(TAG, "SOS delivered by SMS - contacts texted: " + outcome.smsConfirmed);
+            sosJournal.log(SosJournal.SEND_SUCCEEDED, SosJournal.CHANNEL_SMS, outcome.smsConfirmed);
+            clearPendingSOS();
+            SosState.transition(SosState.SENT);
+            FallDetectionMetrics.SOS_SUCCESS.increment();
+            FallDetectionMetrics.SOS_DELIVERED_BY_SMS.increment();
+            updateNotificationWithSmsResult(outcome.smsConfirmed);
+        } else {
+            Log.e(TAG, "SOS not delivered: " + (outcome.http != null
+                ? outcome.http.attempts + " HTTP attempt(s), last status " + outcome.http.httpStatus
+                : "no access token") + ", " + outcome.smsQueued + " SMS queued");
+            savePendingSOS(idempotencyKey, latitude, longitude, accuracy);
+            updateNotificationWithAPIResult(false, 0);
+            FallDetectionMetrics.SOS_FAILURE.increment();
+        }
+    }
+    
+    /**
+     * The fallback text: where the user is, and a short reference so a contact who gets it
+     * twice, or also hears from the backend, can tell it is the same SOS.
+     */
+    private static String smsText(String idempotencyKey, double latitude, double longitude, float accuracy) {
+        String ref = idempotencyKey.substring(0, Math.min(8, idempotencyKey.length()));
+        if (Double.isNaN(latitude) || Double.isNaN(longitude)) {
+            return "NomiSafe SOS: a fall was detected and not cancelled. Location unavailable. Ref " + ref;
+        }
+        return String.format(Locale.US,
+            "NomiSafe SOS: a fall was detected and not cancelled. Location: https://maps.google.com/?q=%.6f,%.6f (+/-%d m). Ref %s",
+            latitude, longitude, Math.round(accuracy), ref);
+    }
+    
+    private final SosDelivery.Listener sosDeliveryListener = new SosDelivery.Listener() {
+        @Override
+        public void onSmsFallback(String reason, int contacts) {
+            Log.w(TAG, "SOS SMS fallback (" + reason + "): texting " + contacts + " contact(s)");
+            FallDetectionMetrics.SOS_SMS_FALLBACKS.increment();
+            sosJournal.log(SosJournal.SMS_FALLBACK, SosJournal.DETAIL_NONE, contacts);
+        }
+        
+        @Override
+        public void onSmsResult(String destination, boolean ok, int errorCode) {
+            if (ok) {
+                FallDetectionMetrics.SOS_SMS_SENT.increment();
+                sosJournal.log(SosJournal.SMS_SENT);
             } else {
-                BufferedReader br = new BufferedReader(new InputStreamReader(conn.getErrorStream()));
-                StringBuilder error = new StringBuilder();
-                String line;
-                while ((line = br.readLine()) != null) {
-                    error.append(line);
-                }
-                br.close();
-                Log.e(TAG, "SOS API error: " + error.toString());
-                
-                // Retry on server errors (5xx) or timeout
-                if (retriesLeft > 0 && responseCode >= 500) {
-                    Log.i(TAG, "Retrying SOS API call in 2 seconds...");
-                    Thread.sleep(2000);
-                    sendSOSWithRetry(latitude, longitude, accuracy, retriesLeft - 1);
-                } else {
-                    savePendingSOS(latitude, longitude, accuracy);
-                    updateNotificationWithAPIResult(false, 0);
-                }
+                Log.w(TAG, "SOS SMS to a contact failed, error " + errorCode);
+                FallDetectionMetrics.SOS_SMS_FAILED.increment();
+                sosJournal.log(SosJournal.SMS_FAILED, SosJournal.DETAIL_NONE, errorCode);
             }
-            
-            conn.disconnect();
-        } catch (Exception e) {
-            Log.e(TAG, "Failed to send SOS to backend", e);
-            
-            // Retry on network errors
-            if (retriesLeft > 0) {
-                try {
-                    Log.i(TAG, "Retrying SOS API call in 2 seconds...");
-                    Thread.sleep(2000);
-                    sendSOSWithRetry(latitude, longitude, accuracy, retriesLeft - 1);
-                } catch (InterruptedException ie) {
-                    Thread.currentThread().interrupt();
-                }
+        }
+    };
+    
+    private final SosClient.Listener sosClientListener = new SosClient.Listener() {
+        @Override
+        public void onAttempt(int retriesLeft) {
+            Log.i(TAG, "Sending SOS to backend (retries left: " + retriesLeft + ")");
+            FallDetectionMetrics.SOS_ATTEMPTS.increment();
+            sosJournal.log(SosJournal.SEND_ATTEMPT, SosJournal.DETAIL_NONE, retriesLeft);
+        }
+        
+        @Override
+        public boolean beginPhase(String name) {
+            return FallTrace.begin(name);
+        }
+        
+        @Override
+        public void endPhase(boolean token) {
+            FallTrace.end(token);
+        }
+        
+        @Override
+        public void onResponse(int httpStatus, long bytesSent, long bytesReceived, Exception error) {
+            EnergyAccounting.FALL.networkBytes(bytesSent, bytesReceived);
+            if (error != null) {
+                Log.e(TAG, "Failed to send SOS to backend", error);
             } else {
-                savePendingSOS(latitude, longitude, accuracy);
-                updateNotificationWithAPIResult(false, 0);
+                Log.i(TAG, "SOS API response code: " + httpStatus);
+            }
+            if (httpStatus != HttpURLConnection.HTTP_OK) {
+                sosJournal.log(SosJournal.SEND_FAILED, SosJournal.DETAIL_NONE, httpStatus);
             }
         }
-    }
+    };
     
     /**
      * Save pending SOS to SharedPreferences for retry when app opens
      */
-    private void savePendingSOS(double latitude, double longitude, float accuracy) {
+    private void savePendingSOS(String idempotencyKey, double latitude, double longitude, float accuracy) {
         try {
             SharedPreferences prefs = getSharedPreferences("nomisafe_sos", Context.MODE_PRIVATE);
             SharedPreferences.Editor editor = prefs.edit();
+            // Same key on every retry, so neither the backend nor the contacts see it twice
+            editor.putString("pending_key", idempotencyKey);
             editor.putFloat("pending_latitude", (float) latitude);
             editor.putFloat("pending_longitude", (float) longitude);
             editor.putFloat("pending_accuracy", accuracy);
             editor.putLong("pending_timestamp", System.currentTimeMillis());
             editor.apply();
+            if (stateSnapshot != null) {
+                stateSnapshot.outboxAppended();
+            }
+            SosState.transition(SosState.PENDING);
+            sosJournal.log(SosJournal.SAVED_PENDING);
+            scheduleOutboxRetry();
             Log.i(TAG, "Saved pending SOS for retry");
         } catch (Exception e) {
             Log.e(TAG, "Failed to save pending SOS", e);
         }
     }
     
+    /**
+     * Retry the saved SOS on the power policy's upload cadence rather than only when the app opens
+     */
+    private void scheduleOutboxRetry() {
+        long intervalMs = powerDecision().outboxRetryIntervalMs;
+        outboxHandler.removeCallbacks(outboxRetry);
+        outboxHandler.postDelayed(outboxRetry, intervalMs);
+    }
+    
     /**
      * Clear pending SOS after successful send
      */
@@ -754,6 +1235,10 @@ public class FallDetectionService extends Service implements SensorEventListener
         try {
             SharedPreferences prefs = getSharedPreferences("nomisafe_sos", Context.MODE_PRIVATE);
             prefs.edit().clear().apply();
+            if (stateSnapshot != null) {
+                stateSnapshot.outboxDrained();
+            }
+            outboxHandler.removeCallbacks(outboxRetry);
             Log.i(TAG, "Cleared pending SOS");
         } catch (Exception e) {
             Log.e(TAG, "Failed to clear pending SOS", e);
@@ -770,14 +1255,15 @@ public class FallDetectionService extends Service implements SensorEventListener
             
             // Only retry if pending SOS is less than 1 hour old
             if (timestamp > 0 && (System.currentTimeMillis() - timestamp) < 3600000) {
-                float latitude = prefs.getFloat("pending_latitude", 0);
-                float longitude = prefs.getFloat("pending_longitude", 0);
-                float accuracy = prefs.getFloat("pending_accuracy", 0);
+                // NaN when the SOS was saved without a location fix; it is still resent
+                float latitude = prefs.getFloat("pending_latitude", Float.NaN);
+                float longitude = prefs.getFloat("pending_longitude", Float.NaN);
+                float accuracy = prefs.getFloat("pending_accuracy", Float.NaN);
+                String key = prefs.getString("pending_key", null);
                 
-                if (latitude != 0 && longitude != 0) {
-                    Log.i(TAG, "Found pending SOS, retrying...");
-                    sendSOSToBackend(latitude, longitude, accuracy);
-                }
+                Log.i(TAG, "Found pending SOS, retrying...");
+                sosJournal.log(SosJournal.PENDING_RETRY);
+                sendSOSToBackend(key != null ? key : UUID.randomUUID().toString(), latitude, longitude, accuracy);
             } else if (timestamp > 0) {
                 // Clear old pending SOS
                 clearPendingSOS();
@@ -791,9 +1277,17 @@ public class FallDetectionService extends Service implements SensorEventListener
      * Get access token from AsyncStorage (stored by React Native)
      */
     private String getAccessTokenFromStorage() {
+        return readAccessToken(this);
+    }
+    
+    /**
+     * Reads the JS session's access token straight from AsyncStorage, so the detector process
+     * and background jobs can authenticate without React Native.
+     */
+    static String readAccessToken(Context context) {
         try {
             // AsyncStorage on Android uses SQLite database
-            File dbDir = new File(getApplicationInfo().dataDir + "/databases");
+            File dbDir = new File(context.getApplicationInfo().dataDir + "/databases");
             File dbFile = new File(dbDir, "RKStorage");
             
             if (!dbFile.exists()) {
@@ -825,7 +1319,7 @@ public class FallDetectionService extends Service implements SensorEventListener
      * Update notification with API call result
      */
     private void updateNotificationWithAPIResult(boolean success, int contactsNotified) {
-        new Handler(Looper.getMainLooper()).post(() -> {
+        sosHandler.post(() -> {
             if (notificationManager != null) {
                 String channelId = "sos_alert_channel";
                 String title, text;
@@ -850,7 +1344,27 @@ public class FallDetectionService extends Service implements SensorEventListener
         });
     }
     
+    /**
+     * Update notification after the SMS fallback delivered the SOS
+     */
+    private void updateNotificationWithSmsResult(int contactsTexted) {
+        sosHandler.post(() -> {
+            if (notificationManager != null) {
+                NotificationCompat.Builder builder = new NotificationCompat.Builder(this, "sos_alert_channel")
+                    .setContentTitle("✅ Emergency Contacts Texted")
+                    .setContentText(contactsTexted + " contact(s) were sent your location by SMS")
+                    .setSmallIcon(android.R.drawable.ic_dialog_alert)
+                    .setPriority(NotificationCompat.PRIORITY_HIGH)
+                    .setAutoCancel(true);
+                notificationManager.notify(SOS_NOTIFICATION_ID, builder.build());
+            }
+        });
+    }
+    
     private void startLocationUpdates() {
+        if (locationActive) {
+            return;
+        }
         if (locationManager == null) {
             locationManager = (LocationManager) getSystemService(Context.LOCATION_SERVICE);
         }
@@ -869,19 +1383,24 @@ public class FallDetectionService extends Service implements SensorEventListener
             return;
         }
         
+        PowerPolicy.Decision decision = powerDecision();
         try {
-            // Try GPS first (most accurate)
-            if (locationManager.isProviderEnabled(LocationManager.GPS_PROVIDER)) {
-                locationManager.requestLocationUpdates(LocationManager.GPS_PROVIDER, 1000, 0, locationListener);
+            // Try GPS first (most accurate), unless the policy has ruled it out
+            if (decision.locationStrategy != PowerPolicy.LOCATION_NETWORK_ONLY
+                    && locationManager.isProviderEnabled(LocationManager.GPS_PROVIDER)) {
+                locationManager.requestLocationUpdates(LocationManager.GPS_PROVIDER, decision.locationIntervalMs, 0, locationListener);
                 Log.i(TAG, "Started GPS location updates");
             }
             
             // Also try Network provider (faster initial fix)
             if (locationManager.isProviderEnabled(LocationManager.NETWORK_PROVIDER)) {
-                locationManager.requestLocationUpdates(LocationManager.NETWORK_PROVIDER, 1000, 0, locationListener);
+                locationManager.requestLocationUpdates(LocationManager.NETWORK_PROVIDER, decision.locationIntervalMs, 0, locationListener);
                 Log.i(TAG, "Started Network location updates");
             }
             
+            locationActive = true;
+            EnergyAccounting.FALL.locationStarted();
+            
             // Also get last known location as initial value
             Location cachedLocation = getLastKnownLocation();
             if (cachedLocation != null && currentLocation == null) {
@@ -898,10 +1417,14 @@ public class FallDetectionService extends Service implements SensorEventListener
             try {
                 locationManager.removeUpdates(locationListener);
                 Log.i(TAG, "Stopped location updates");
+                if (locationActive) {
+                    EnergyAccounting.FALL.locationStopped();
+                }
             } catch (Exception e) {
                 Log.e(TAG, "Error stopping location updates", e);
             }
         }
+        locationActive = false;
         currentLocation = null;
     }
     
@@ -979,17 +1502,78 @@ public class FallDetectionService extends Service implements SensorEventListener
         }
     }
     
+    /**
+     * Snapshot of the detector's health for synchronous queries from JS.
+     */
+    public Bundle getHealthSnapshot() {
+        Bundle health = new Bundle();
+        health.putBoolean("running", true);
+        health.putBoolean("sensorAvailable", accelerometer != null);
+        health.putBoolean("sensorRegistered", sensorRegistered);
+        long last = lastSampleElapsedMs;
+        health.putDouble("lastSampleAgeMs", last == 0 ? -1 : SystemClock.elapsedRealtime() - last);
+        health.putBoolean("inCooldown", SystemClock.elapsedRealtime() < SosState.getCooldownUntilMs());
+        health.putDouble("sensorStalls", FallDetectionMetrics.SENSOR_STALLS.get());
+        health.putDouble("stallThresholdMs", sensorWatchdog.getStallThresholdMs());
+        health.putString("profile", profile.name);
+        health.putDouble("configVersion", config.version);
+        health.putString("configVariant", config.variant);
+        health.putBoolean("fusionEnabled", fusion != null && fusion.isEnabled());
+        return health;
+    }
+
+    /**
+     * Counters and latencies for synchronous queries from JS.
+     */
+    public Bundle getMetricsSnapshot() {
+        Bundle metrics = FallDetectionMetrics.snapshot();
+        metrics.putDouble("triggerToAudibleMs", AlertLatency.getTriggerToAudibleNanos() / 1_000_000.0);
+        metrics.putDouble("detectionToFirstFrameMs", AlertLatency.getDetectionToFirstFrameNanos() / 1_000_000.0);
+        metrics.putBundle("eventChannel", eventChannel.getStats());
+        metrics.putBundle("energy", EnergyAccounting.FALL.snapshot(this));
+        metrics.putBundle("startup", StartupTiming.snapshot());
+        if (powerPolicy != null) {
+            metrics.putBundle("power", powerPolicy.snapshot());
+        }
+        if (detector != null) {
+            metrics.putBundle("ensemble", detector.snapshot());
+            metrics.putBundle("calibration", calibration.snapshot());
+        }
+        return metrics;
+    }
+    
+    /**
+     * Turns the gyroscope/barometer check on or off; persisted across restarts.
+     */
+    public void setFusionEnabled(boolean enabled) {
+        if (fusion != null) {
+            fusion.setEnabled(enabled);
+        }
+    }
+    
     public void cancelSOS() {
+        cancelSOS(SosJournal.SOURCE_APP);
+    }
+    
+    /**
+     * @param source who cancelled, one of the SosJournal.SOURCE_* values
+     */
+    public void cancelSOS(int source) {
         Log.i(TAG, "SOS cancelled");
+        sosJournal.log(SosJournal.CANCELLED, source, 0);
         sosCancelled = true;
         sosTimerActive = false;
+        SosState.transition(SosState.CANCELLED);
+        FallDetectionMetrics.ALERTS_CANCELLED.increment();
+        int cookie = FallTrace.currentAlertCookie();
+        FallTrace.endAsync(FallTrace.SLICE_COUNTDOWN, cookie);
+        FallTrace.endAsync(FallTrace.SLICE_ALERT, cookie);
         sosHandler.removeCallbacksAndMessages(null);
         stopAlertSound();
         stopLocationUpdates();
         
         // Send event to React Native
-        WritableMap params = Arguments.createMap();
-        sendEventToReactNative("SOSCancelled", params);
+        eventChannel.emit("SOSCancelled", new Bundle());
         
         // Cancel notification
         if (notificationManager != null) {
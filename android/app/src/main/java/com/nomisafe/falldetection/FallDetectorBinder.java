@@ -0,0 +1,194 @@
+package com.nomisafe.falldetection;
+
+import android.os.Bundle;
+import android.os.Handler;
+import android.os.RemoteCallbackList;
+import android.os.RemoteException;
+import android.util.Log;
+
+import androidx.annotation.Nullable;
+
+/**
+ * Service side of {@link IFallDetector}. Queries read volatile state directly on the binder
+ * thread; commands are posted to the service's main-thread handler.
+ *
+ * It is also the event channel's target in the :detector process: events go to every
+ * registered UI-process listener, and are buffered by the channel while none is registered.
+ */
+class FallDetectorBinder extends IFallDetector.Stub implements ReactEventChannel.Target {
+    private static final String TAG = "FallDetectorBinder";
+
+    private final FallDetectionService service;
+    private final Handler mainHandler;
+    private final RemoteCallbackList<IFallDetectorListener> listeners = new RemoteCallbackList<>();
+
+    FallDetectorBinder(FallDetectionService service, Handler mainHandler) {
+        this.service = service;
+        this.mainHandler = mainHandler;
+    }
+
+    void close() {
+        listeners.kill();
+    }
+
+    @Override
+    public void registerListener(IFallDetectorListener listener) {
+        if (listener != null && listeners.register(listener)) {
+            ReactEventChannel.getInstance().onTargetReady();
+        }
+    }
+
+    @Override
+    public void unregisterListener(IFallDetectorListener listener) {
+        if (listener != null) {
+            listeners.unregister(listener);
+        }
+    }
+
+    @Override
+    public Bundle getSosState() {
+        return SosState.toBundle();
+    }
+
+    @Override
+    public Bundle getHealth() {
+        return service.getHealthSnapshot();
+    }
+
+    @Override
+    public Bundle getMetrics() {
+        return service.getMetricsSnapshot();
+    }
+
+    @Override
+    public Bundle getEnergyReport() {
+        Bundle report = new Bundle();
+        report.putBundle("fall", EnergyAccounting.FALL.snapshot(service));
+        return report;
+    }
+
+    @Override
+    public Bundle updateDetectorConfig(String json) {
+        // Parsed and written here, installed on the main thread between samples
+        return service.updateDetectorConfig(json, mainHandler);
+    }
+
+    @Override
+    public Bundle getDetectorConfig() {
+        return service.getDetectorConfig();
+    }
+
+    @Override
+    public Bundle getSosJournal(long sinceSeq, int limit) {
+        // Lock-free read of the mapped journal, safe on the binder thread
+        return service.getSosJournal(sinceSeq, limit);
+    }
+
+    @Override
+    public Bundle runClassifierBenchmark(int iterations) {
+        // Runs on the binder thread against a private window
+        return service.runClassifierBenchmark(iterations);
+    }
+
+    @Override
+    public Bundle runTraceBenchmark(int samples) {
+        // Runs on the binder thread with its own cache file
+        return service.runTraceBenchmark(samples);
+    }
+
+    @Override
+    public void cancelSOS() {
+        mainHandler.post(service::cancelSOS);
+    }
+
+    @Override
+    public void retryPendingSOS() {
+        mainHandler.post(service::retryPendingSOS);
+    }
+
+    @Override
+    public void setSensorStream(boolean enabled, int decimation, int batchSize) {
+        service.setSensorStreamEnabled(enabled, decimation, batchSize);
+    }
+
+    @Override
+    public void ackSensorBatch(int seq) {
+        service.acknowledgeSensorBatch(seq);
+    }
+
+    @Override
+    public void setSensorStallThreshold(long thresholdMs) {
+        if (thresholdMs > 0) {
+            service.setSensorStallThresholdMs(thresholdMs);
+        }
+    }
+
+    @Override
+    public void setTracingEnabled(boolean enabled) {
+        FallTrace.setEnabled(enabled);
+    }
+
+    @Override
+    public void setFusionEnabled(boolean enabled) {
+        mainHandler.post(() -> service.setFusionEnabled(enabled));
+    }
+
+    @Override
+    public void syncFirstConnects(Bundle changes) {
+        if (changes != null) {
+            FirstConnectContacts.get(service).sync(changes);
+        }
+    }
+
+    /**
+     * Pushes the current {@link SosState} to every listener. Called on the thread that changed
+     * it; the state is read under the broadcast lock, so listeners receive changes in order.
+     */
+    void pushSosState() {
+        synchronized (listeners) {
+            Bundle state = SosState.toBundle();
+            int count = listeners.beginBroadcast();
+            try {
+                for (int i = 0; i < count; i++) {
+                    try {
+                        listeners.getBroadcastItem(i).onSosStateChanged(state);
+                    } catch (RemoteException e) {
+                        Log.w(TAG, "Listener gone while sending SOS state");
+                    }
+                }
+            } finally {
+                listeners.finishBroadcast();
+            }
+        }
+    }
+
+    // ReactEventChannel.Target - called with the channel's lock held
+
+    @Override
+    public boolean isReady() {
+        return listeners.getRegisteredCallbackCount() > 0;
+    }
+
+    @Override
+    public boolean deliver(String eventName, Bundle payload, @Nullable String coalesceKey, boolean isTransient) {
+        int delivered = 0;
+        // Broadcasts do not nest, and SOS state pushes come from other threads
+        synchronized (listeners) {
+            int count = listeners.beginBroadcast();
+            try {
+                for (int i = 0; i < count; i++) {
+                    try {
+                        listeners.getBroadcastItem(i).onEvent(eventName, payload, coalesceKey, isTransient);
+                        delivered++;
+                    } catch (RemoteException e) {
+                        // The UI process died; RemoteCallbackList drops the listener
+                        Log.w(TAG, "Listener gone while sending " + eventName);
+                    }
+                }
+            } finally {
+                listeners.finishBroadcast();
+            }
+        }
+        return delivered > 0;
+    }
+}
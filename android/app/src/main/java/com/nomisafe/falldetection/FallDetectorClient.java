@@ -0,0 +1,155 @@
+package com.nomisafe.falldetection;
+
+import android.content.ComponentName;
+import android.content.Context;
+import android.content.Intent;
+import android.content.ServiceConnection;
+import android.os.Bundle;
+import android.os.IBinder;
+import android.os.RemoteException;
+import android.util.Log;
+
+import androidx.annotation.Nullable;
+
+import java.util.ArrayList;
+
+/**
+ * UI-process connection to {@link FallDetectionService}, which runs in the :detector process.
+ *
+ * The binding does not create the service (it is started separately), it only connects while
+ * the service is running and reconnects whenever it comes back. Events from the service are
+ * handed to this process's {@link ReactEventChannel}, which buffers them until JS is attached.
+ * This process's copy of {@link SosState} is read once on connect and then kept current by the
+ * service pushing every change; while disconnected it keeps the last known state.
+ */
+final class FallDetectorClient {
+    private static final String TAG = "FallDetectorClient";
+    private static final FallDetectorClient INSTANCE = new FallDetectorClient();
+
+    private volatile IFallDetector remote;
+    private Context appContext;
+    private boolean bound = false;
+    private boolean retryPendingOnConnect = false;
+    // Contact changes not yet handed to the service, oldest first
+    private final ArrayList<Bundle> firstConnectChangesOnConnect = new ArrayList<>();
+
+    private final IFallDetectorListener.Stub listener = new IFallDetectorListener.Stub() {
+        @Override
+        public void onEvent(String eventName, Bundle payload, String coalesceKey, boolean isTransient) {
+            ReactEventChannel.getInstance().forward(eventName, payload, coalesceKey, isTransient);
+        }
+
+        @Override
+        public void onSosStateChanged(Bundle state) {
+            SosState.apply(state);
+        }
+    };
+
+    private final ServiceConnection connection = new ServiceConnection() {
+        @Override
+        public void onServiceConnected(ComponentName name, IBinder binder) {
+            IFallDetector detector = IFallDetector.Stub.asInterface(binder);
+            boolean retry;
+            Bundle[] firstConnectChanges;
+            synchronized (FallDetectorClient.this) {
+                remote = detector;
+                retry = retryPendingOnConnect;
+                retryPendingOnConnect = false;
+                firstConnectChanges = firstConnectChangesOnConnect.toArray(new Bundle[0]);
+                firstConnectChangesOnConnect.clear();
+            }
+            try {
+                detector.registerListener(listener);
+                SosState.apply(detector.getSosState());
+                for (Bundle changes : firstConnectChanges) {
+                    detector.syncFirstConnects(changes);
+                }
+                if (retry) {
+                    detector.retryPendingSOS();
+                }
+                Log.i(TAG, "Connected to fall detector");
+            } catch (RemoteException e) {
+                Log.w(TAG, "Fall detector died while connecting", e);
+            }
+        }
+
+        @Override
+        public void onServiceDisconnected(ComponentName name) {
+            // The binding stays; onServiceConnected fires again if the service restarts
+            remote = null;
+            Log.w(TAG, "Fall detector disconnected");
+        }
+
+        @Override
+        public void onBindingDied(ComponentName name) {
+            synchronized (FallDetectorClient.this) {
+                remote = null;
+                bound = false;
+                if (appContext != null) {
+                    appContext.unbindService(this);
+                }
+            }
+            connect(appContext);
+        }
+    };
+
+    private FallDetectorClient() {}
+
+    static FallDetectorClient getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Binds without BIND_AUTO_CREATE, so the binding never keeps the service alive by itself.
+     */
+    synchronized void connect(Context context) {
+        if (bound || context == null) return;
+        appContext = context.getApplicationContext();
+        Intent intent = new Intent(appContext, FallDetectionService.class);
+        bound = appContext.bindService(intent, connection, 0);
+        if (!bound) {
+            Log.e(TAG, "Could not bind to FallDetectionService");
+        }
+    }
+
+    @Nullable
+    IFallDetector get() {
+        return remote;
+    }
+
+    /**
+     * Retries a pending SOS now, or as soon as the service is connected.
+     */
+    synchronized void retryPendingSOS() {
+        IFallDetector detector = remote;
+        if (detector == null) {
+            retryPendingOnConnect = true;
+            return;
+        }
+        try {
+            detector.retryPendingSOS();
+        } catch (RemoteException e) {
+            retryPendingOnConnect = true;
+        }
+    }
+
+    /**
+     * Hands a FirstConnect change set to the service now, or queues it until it is connected.
+     * A full replacement makes the changes queued before it moot.
+     */
+    synchronized void syncFirstConnects(Bundle changes) {
+        IFallDetector detector = remote;
+        if (detector != null) {
+            try {
+                detector.syncFirstConnects(changes);
+                return;
+            } catch (RemoteException e) {
+                Log.w(TAG, "syncFirstConnects failed; queued for reconnect", e);
+            }
+        }
+        if (changes.getBoolean("replaceAll", false)) {
+            firstConnectChangesOnConnect.clear();
+        }
+        firstConnectChangesOnConnect.add(changes);
+    }
+}
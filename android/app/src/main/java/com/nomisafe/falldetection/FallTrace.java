@@ -0,0 +1,96 @@
+package com.nomisafe.falldetection;
+
+import android.os.Build;
+import android.os.Trace;
+
+import com.nomisafe.BuildConfig;
+
+/**
+ * android.os.Trace sections for the detection-to-SOS pipeline, so a system trace (Perfetto or
+ * systrace) of a real alert shows where the time went.
+ *
+ * The calls are always compiled in. When the flag is off, or no trace is being captured, each
+ * call is a volatile read and a branch. Sections are opened with {@link #begin} and must be
+ * closed with {@link #end} passing the returned token, so toggling the flag mid-section can
+ * never unbalance the trace.
+ */
+public final class FallTrace {
+    // Async slice names - each has one open instance per alert, keyed by the alert cookie
+    public static final String SLICE_ALERT = "SOS alert";
+    // Opened per fall candidate, most of which never become alerts; keyed by a candidate cookie
+    public static final String SLICE_STILLNESS = "Stillness confirmation";
+    public static final String SLICE_COUNTDOWN = "SOS countdown";
+    public static final String SLICE_SEND = "SOS send";
+    public static final String SLICE_ACTIVITY_LAUNCH = "SOSAlertActivity launch";
+
+    private static volatile boolean enabled = BuildConfig.DEBUG;
+    private static int alertCookie = 0;
+    private static int candidateCookie = 0;
+
+    private FallTrace() {}
+
+    public static void setEnabled(boolean enable) {
+        enabled = enable;
+    }
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    private static boolean isActive() {
+        if (!enabled) return false;
+        return Build.VERSION.SDK_INT < Build.VERSION_CODES.Q || Trace.isEnabled();
+    }
+
+    /**
+     * Opens a synchronous section on the current thread. Returns the token to pass to {@link #end}.
+     */
+    public static boolean begin(String name) {
+        if (!isActive()) return false;
+        Trace.beginSection(name);
+        return true;
+    }
+
+    public static void end(boolean token) {
+        if (token) {
+            Trace.endSection();
+        }
+    }
+
+    /**
+     * Starts a new alert and returns the cookie its async slices are keyed by.
+     */
+    public static synchronized int newAlertCookie() {
+        return ++alertCookie;
+    }
+
+    public static synchronized int currentAlertCookie() {
+        return alertCookie;
+    }
+
+    /**
+     * Returns a fresh cookie for one stillness check of a fall candidate.
+     */
+    public static synchronized int newCandidateCookie() {
+        return ++candidateCookie;
+    }
+
+    public static void beginAsync(String name, int cookie) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q && isActive()) {
+            Trace.beginAsyncSection(name, cookie);
+        }
+    }
+
+    public static void endAsync(String name, int cookie) {
+        // Not gated on isActive(): an async end without a matching begin is ignored by the trace
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q && enabled) {
+            Trace.endAsyncSection(name, cookie);
+        }
+    }
+
+    public static void counter(String name, long value) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q && isActive()) {
+            Trace.setCounter(name, value);
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package com.nomisafe.falldetection;
+
+/**
+ * Computes the classifier's feature vector for a fall candidate from a {@link SampleWindow}.
+ *
+ * Runs only once a candidate has a marked free-fall and impact, never per sample. The output
+ * array is owned by the extractor and reused, so extraction does not allocate.
+ */
+final class FeatureExtractor {
+    static final int PEAK_SMV_G = 0;          // highest magnitude around the impact
+    static final int MIN_SMV_G = 1;           // depth of the free-fall
+    static final int MAX_JERK_G_S = 2;        // steepest magnitude change
+    static final int PEAK_TO_PEAK_G = 3;      // swing from free-fall to impact
+    static final int ORIENTATION_DELTA_RAD = 4; // gravity direction before vs after
+    static final int POST_IMPACT_VARIANCE = 5;  // (m/s²)² while lying after the impact
+    static final int FREE_FALL_MS = 6;
+    static final int FEATURE_COUNT = 7;
+
+    private static final float GRAVITY = 9.81f;
+    private static final long MS = 1_000_000L;
+    private static final long BASELINE_MS = SampleWindow.PRE_ROLL_MS;  // before free-fall
+    private static final long IMPACT_MARGIN_MS = 200;
+    private static final long SETTLE_MS = 1000;    // after impact, before "lying still"
+
+    private final float[] features = new float[FEATURE_COUNT];
+
+    /**
+     * Fills and returns the feature vector, or null if the window has no complete candidate.
+     */
+    float[] extract(SampleWindow w) {
+        long freeFall = w.freeFallStartNanos;
+        long impact = w.impactNanos;
+        if (freeFall == 0 || impact == 0 || w.size() == 0) return null;
+
+        // Fall segment: free-fall start to shortly after the impact
+        int fallStart = w.firstAtOrAfter(freeFall - IMPACT_MARGIN_MS * MS);
+        int fallEnd = w.firstAtOrAfter(impact + IMPACT_MARGIN_MS * MS);
+        float peak = 0;
+        float min = Float.MAX_VALUE;
+        float maxJerk = 0;
+        for (int i = fallStart; i < fallEnd; i++) {
+            int idx = w.index(i);
+            float m = w.magnitude[idx];
+            if (m > peak) peak = m;
+            if (m < min) min = m;
+            if (i > fallStart) {
+                int prev = w.index(i - 1);
+                long dt = w.timestampNanos[idx] - w.timestampNanos[prev];
+                if (dt > 0) {
+                    float jerk = Math.abs(m - w.magnitude[prev]) * 1e9f / dt;
+                    if (jerk > maxJerk) maxJerk = jerk;
+                }
+            }
+        }
+        if (min == Float.MAX_VALUE) return null;
+
+        // Gravity direction before the fall vs. while lying afterwards
+        int baseStart = w.firstAtOrAfter(freeFall - BASELINE_MS * MS);
+        int baseEnd = w.firstAtOrAfter(freeFall);
+        int postStart = w.firstAtOrAfter(impact + SETTLE_MS * MS);
+        int postEnd = w.size();
+        float orientationDelta = angleBetweenMeans(w, baseStart, baseEnd, postStart, postEnd);
+
+        float mean = 0;
+        for (int i = postStart; i < postEnd; i++) mean += w.magnitude[w.index(i)];
+        int postCount = postEnd - postStart;
+        float variance = 0;
+        if (postCount > 0) {
+            mean /= postCount;
+            for (int i = postStart; i < postEnd; i++) {
+                float d = w.magnitude[w.index(i)] - mean;
+                variance += d * d;
+            }
+            variance /= postCount;
+        }
+
+        features[PEAK_SMV_G] = peak / GRAVITY;
+        features[MIN_SMV_G] = min / GRAVITY;
+        features[MAX_JERK_G_S] = maxJerk / GRAVITY;
+        features[PEAK_TO_PEAK_G] = (peak - min) / GRAVITY;
+        features[ORIENTATION_DELTA_RAD] = orientationDelta;
+        features[POST_IMPACT_VARIANCE] = variance;
+        features[FREE_FALL_MS] = (impact - freeFall) / (float) MS;
+        return features;
+    }
+
+    private static float angleBetweenMeans(SampleWindow w, int aStart, int aEnd, int bStart, int bEnd) {
+        if (aEnd <= aStart || bEnd <= bStart) return 0;
+        float ax = 0, ay = 0, az = 0;
+        for (int i = aStart; i < aEnd; i++) {
+            int idx = w.index(i);
+            ax += w.x[idx];
+            ay += w.y[idx];
+            az += w.z[idx];
+        }
+        float bx = 0, by = 0, bz = 0;
+        for (int i = bStart; i < bEnd; i++) {
+            int idx = w.index(i);
+            bx += w.x[idx];
+            by += w.y[idx];
+            bz += w.z[idx];
+        }
+        double normA = Math.sqrt(ax * ax + ay * ay + az * az);
+        double normB = Math.sqrt(bx * bx + by * by + bz * bz);
+        if (normA == 0 || normB == 0) return 0;
+        double cos = (ax * bx + ay * by + az * bz) / (normA * normB);
+        return (float) Math.acos(Math.max(-1.0, Math.min(1.0, cos)));
+    }
+}
@@ -0,0 +1,247 @@
+package com.nomisafe.falldetection;
+
+import android.content.Context;
+import android.os.Bundle;
+import android.security.keystore.KeyGenParameterSpec;
+import android.security.keystore.KeyProperties;
+import android.util.AtomicFile;
+import android.util.Log;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.KeyStore;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import javax.crypto.Cipher;
+import javax.crypto.KeyGenerator;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.GCMParameterSpec;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * The user's FirstConnect contacts, held in the detector process so the SOS fallback channels
+ * have their recipients without network, JS or a lookup.
+ *
+ * JS syncs changes incrementally (upserts and removals by contact id; the first sync of a JS
+ * session replaces the whole list). Each change builds a new immutable {@link Snapshot} and
+ * publishes it through a volatile field, so the SOS path reads the current recipients in O(1)
+ * with no lock, copy or disk access. The service loads the cache when it starts, well before
+ * any countdown ends.
+ *
+ * At rest the list is encrypted with AES-GCM under a key that never leaves the Android
+ * Keystore, and written atomically off the binder thread:
+ * <pre>
+ * file  u8 version | 12-byte IV | ciphertext of [{id, name, phone}] with 16-byte tag
+ * </pre>
+ * If the key is unusable (wiped, invalidated) the file is discarded and the next sync from JS
+ * restores the list; the cache keeps working in memory meanwhile.
+ */
+final class FirstConnectContacts {
+    private static final String TAG = "FirstConnectContacts";
+    private static final String FILE_NAME = "first_connects.bin";
+    private static final String KEY_ALIAS = "nomisafe_first_connects";
+    private static final String TRANSFORMATION = "AES/GCM/NoPadding";
+    private static final int FORMAT_VERSION = 1;
+    private static final int IV_BYTES = 12;
+    private static final int TAG_BITS = 128;
+
+    /** Immutable view of the list at one point in time; arrays are parallel. */
+    static final class Snapshot {
+        static final Snapshot EMPTY = new Snapshot(new int[0], new String[0], new String[0], 0);
+
+        final int[] ids;
+        final String[] names;
+        final String[] phoneNumbers;
+        final long version;   // bumped by every change
+
+        Snapshot(int[] ids, String[] names, String[] phoneNumbers, long version) {
+            this.ids = ids;
+            this.names = names;
+            this.phoneNumbers = phoneNumbers;
+            this.version = version;
+        }
+    }
+
+    private static final class Contact {
+        final String name;
+        final String phoneNumber;
+
+        Contact(String name, String phoneNumber) {
+            this.name = name;
+            this.phoneNumber = phoneNumber;
+        }
+    }
+
+    private static FirstConnectContacts instance;
+
+    private final AtomicFile file;
+    private final ExecutorService writer = Executors.newSingleThreadExecutor();
+    // Guarded by this; snapshots are rebuilt from it
+    private final LinkedHashMap<Integer, Contact> contacts = new LinkedHashMap<>();
+    private volatile Snapshot snapshot = Snapshot.EMPTY;
+
+    static synchronized FirstConnectContacts get(Context context) {
+        if (instance == null) {
+            instance = new FirstConnectContacts(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    private FirstConnectContacts(Context context) {
+        file = new AtomicFile(new File(context.getFilesDir(), FILE_NAME));
+        synchronized (this) {
+            load();
+            publish();
+        }
+    }
+
+    Snapshot snapshot() {
+        return snapshot;
+    }
+
+    /** The cached numbers; callers must not modify the array. */
+    String[] phoneNumbers() {
+        return snapshot.phoneNumbers;
+    }
+
+    /**
+     * Applies one change set from JS: { replaceAll, ids, names, phoneNumbers, removedIds }, the
+     * first three parallel. Removals are applied before upserts.
+     */
+    void sync(Bundle changes) {
+        int[] ids = changes.getIntArray("ids");
+        String[] names = changes.getStringArray("names");
+        String[] phoneNumbers = changes.getStringArray("phoneNumbers");
+        int[] removedIds = changes.getIntArray("removedIds");
+        Snapshot next;
+        synchronized (this) {
+            if (changes.getBoolean("replaceAll", false)) {
+                contacts.clear();
+            }
+            if (removedIds != null) {
+                for (int id : removedIds) {
+                    contacts.remove(id);
+                }
+            }
+            if (ids != null && names != null && phoneNumbers != null) {
+                int n = Math.min(ids.length, Math.min(names.length, phoneNumbers.length));
+                for (int i = 0; i < n; i++) {
+                    String phoneNumber = phoneNumbers[i] != null ? phoneNumbers[i].trim() : "";
+                    if (phoneNumber.isEmpty()) {
+                        contacts.remove(ids[i]);
+                    } else {
+                        contacts.put(ids[i], new Contact(names[i] != null ? names[i] : "", phoneNumber));
+                    }
+                }
+            }
+            next = publish();
+        }
+        Log.i(TAG, "Synced FirstConnect contacts: " + next.phoneNumbers.length + " cached");
+        writer.execute(() -> persist(next));
+    }
+
+    /** Rebuilds the snapshot from the map. Caller holds the lock. */
+    private Snapshot publish() {
+        int n = contacts.size();
+        int[] ids = new int[n];
+        String[] names = new String[n];
+        String[] phoneNumbers = new String[n];
+        int i = 0;
+        for (Map.Entry<Integer, Contact> entry : contacts.entrySet()) {
+            ids[i] = entry.getKey();
+            names[i] = entry.getValue().name;
+            phoneNumbers[i] = entry.getValue().phoneNumber;
+            i++;
+        }
+        Snapshot next = new Snapshot(ids, names, phoneNumbers, snapshot.version + 1);
+        snapshot = next;
+        return next;
+    }
+
+    private void persist(Snapshot s) {
+        FileOutputStream out = null;
+        try {
+            JSONArray array = new JSONArray();
+            for (int i = 0; i < s.ids.length; i++) {
+                array.put(new JSONObject()
+                    .put("id", s.ids[i])
+                    .put("name", s.names[i])
+                    .put("phone", s.phoneNumbers[i]));
+            }
+            Cipher cipher = Cipher.getInstance(TRANSFORMATION);
+            // The Keystore picks the IV; supplying one is refused for randomized keys
+            cipher.init(Cipher.ENCRYPT_MODE, key());
+            byte[] iv = cipher.getIV();
+            byte[] ciphertext = cipher.doFinal(array.toString().getBytes(StandardCharsets.UTF_8));
+
+            out = file.startWrite();
+            out.write(FORMAT_VERSION);
+            out.write(iv);
+            out.write(ciphertext);
+            file.finishWrite(out);
+        } catch (IOException | GeneralSecurityException | JSONException e) {
+            if (out != null) file.failWrite(out);
+            Log.e(TAG, "Could not persist FirstConnect contacts; keeping them in memory", e);
+        }
+    }
+
+    /** Caller holds the lock. */
+    private void load() {
+        byte[] bytes;
+        try {
+            bytes = file.readFully();
+        } catch (FileNotFoundException e) {
+            return;
+        } catch (IOException e) {
+            Log.e(TAG, "Could not read FirstConnect contacts", e);
+            return;
+        }
+        try {
+            if (bytes.length < 1 + IV_BYTES || bytes[0] != FORMAT_VERSION) {
+                throw new GeneralSecurityException("Unknown contact cache format");
+            }
+            Cipher cipher = Cipher.getInstance(TRANSFORMATION);
+            cipher.init(Cipher.DECRYPT_MODE, key(),
+                new GCMParameterSpec(TAG_BITS, Arrays.copyOfRange(bytes, 1, 1 + IV_BYTES)));
+            byte[] plaintext = cipher.doFinal(bytes, 1 + IV_BYTES, bytes.length - 1 - IV_BYTES);
+            JSONArray array = new JSONArray(new String(plaintext, StandardCharsets.UTF_8));
+            for (int i = 0; i < array.length(); i++) {
+                JSONObject o = array.getJSONObject(i);
+                contacts.put(o.getInt("id"), new Contact(o.optString("name"), o.getString("phone")));
+            }
+        } catch (GeneralSecurityException | JSONException e) {
+            // Key gone or file damaged; JS resyncs the list when the app next loads it
+            Log.w(TAG, "Discarding unreadable FirstConnect contacts", e);
+            contacts.clear();
+            file.delete();
+        }
+    }
+
+    private static SecretKey key() throws GeneralSecurityException, IOException {
+        KeyStore keyStore = KeyStore.getInstance("AndroidKeyStore");
+        keyStore.load(null);
+        KeyStore.Entry entry = keyStore.getEntry(KEY_ALIAS, null);
+        if (entry instanceof KeyStore.SecretKeyEntry) {
+            return ((KeyStore.SecretKeyEntry) entry).getSecretKey();
+        }
+        KeyGenerator generator = KeyGenerator.getInstance(KeyProperties.KEY_ALGORITHM_AES, "AndroidKeyStore");
+        generator.init(new KeyGenParameterSpec.Builder(KEY_ALIAS,
+                KeyProperties.PURPOSE_ENCRYPT | KeyProperties.PURPOSE_DECRYPT)
+            .setBlockModes(KeyProperties.BLOCK_MODE_GCM)
+            .setEncryptionPaddings(KeyProperties.ENCRYPTION_PADDING_NONE)
+            .setKeySize(256)
+            .build());
+        return generator.generateKey();
+    }
+}
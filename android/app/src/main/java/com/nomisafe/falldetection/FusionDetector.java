@@ -0,0 +1,203 @@
+package com.nomisafe.falldetection;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.hardware.Sensor;
+import android.hardware.SensorEvent;
+import android.hardware.SensorEventListener;
+import android.hardware.SensorManager;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
+
+/**
+ * Optional second opinion on an accelerometer fall candidate from the gyroscope and barometer.
+ *
+ * A phone dropped from the hand tumbles freely - several revolutions at high angular rate -
+ * while a phone carried by a falling person turns roughly a quarter to a half turn with the
+ * body and ends up measurably lower. The extra sensors are registered only from free-fall
+ * entry until the candidate is confirmed, rejected or times out, so steady-state cost is the
+ * accelerometer alone.
+ *
+ * All methods and sensor callbacks run on the main thread.
+ */
+class FusionDetector implements SensorEventListener {
+    private static final String TAG = "FusionDetector";
+    private static final String PREFS = "nomisafe_detector";
+    private static final String KEY_ENABLED = "fusion_enabled";
+
+    static final int VERDICT_UNKNOWN = 0;  // fusion off, no gyroscope or no clear evidence: accelerometer decides alone
+    static final int VERDICT_CONFIRM = 1;
+    static final int VERDICT_REJECT = 2;
+
+    // Longest a window can stay open: impact window + stillness check + margin
+    private static final long WINDOW_TIMEOUT_MS = 8000;
+    // Tumbling device: more than two revolutions or a spin rate a body does not reach
+    private static final float TUMBLE_ROTATION_RAD = (float) (4 * Math.PI);
+    private static final float TUMBLE_RATE_RAD_S = 20f;
+    // A body fall turns the phone by at least ~35 degrees
+    private static final float MIN_BODY_ROTATION_RAD = 0.6f;
+    // Pressure rises ~0.12 hPa per metre near sea level
+    private static final float METRES_PER_HPA = 8.3f;
+    private static final float MIN_ALTITUDE_DROP_M = 0.4f;
+    private static final long BARO_SETTLE_MS = 500;
+
+    private final SharedPreferences prefs;
+    private final SensorManager sensorManager;
+    private final Sensor gyroscope;
+    private final Sensor barometer;
+    private final Handler handler = new CountingHandler(Looper.getMainLooper(), EnergyAccounting.FALL);
+    private boolean enabled;
+    private boolean open = false;
+    private long openedAtMs;
+
+    // Accumulated over the window
+    private long lastGyroNanos;
+    private float rotationRad;
+    private float peakRateRadS;
+    private float basePressure;
+    private long impactElapsedMs;
+    private float afterPressureSum;
+    private int afterPressureCount;
+
+    private final Runnable timeout = () -> {
+        Log.i(TAG, "Fusion window timed out");
+        close();
+    };
+
+    FusionDetector(Context context) {
+        prefs = context.getSharedPreferences(PREFS, Context.MODE_PRIVATE);
+        enabled = prefs.getBoolean(KEY_ENABLED, false);
+        sensorManager = (SensorManager) context.getSystemService(Context.SENSOR_SERVICE);
+        gyroscope = sensorManager != null ? sensorManager.getDefaultSensor(Sensor.TYPE_GYROSCOPE) : null;
+        barometer = sensorManager != null ? sensorManager.getDefaultSensor(Sensor.TYPE_PRESSURE) : null;
+    }
+
+    boolean isEnabled() {
+        return enabled && gyroscope != null;
+    }
+
+    boolean hasBarometer() {
+        return barometer != null;
+    }
+
+    void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+        prefs.edit().putBoolean(KEY_ENABLED, enabled).apply();
+        if (!enabled) {
+            close();
+        }
+        Log.i(TAG, "Fusion " + (enabled ? "enabled" : "disabled")
+            + " (gyroscope=" + (gyroscope != null) + ", barometer=" + (barometer != null) + ")");
+    }
+
+    /**
+     * Free-fall started with no impact pending: start collecting from the extra sensors.
+     */
+    void open() {
+        if (!isEnabled()) return;
+        rotationRad = 0;
+        peakRateRadS = 0;
+        lastGyroNanos = 0;
+        basePressure = 0;
+        impactElapsedMs = 0;
+        afterPressureSum = 0;
+        afterPressureCount = 0;
+        handler.removeCallbacks(timeout);
+        handler.postDelayed(timeout, WINDOW_TIMEOUT_MS);
+        if (open) return;
+        open = true;
+        openedAtMs = SystemClock.elapsedRealtime();
+        sensorManager.registerListener(this, gyroscope, SensorManager.SENSOR_DELAY_GAME);
+        if (barometer != null) {
+            sensorManager.registerListener(this, barometer, SensorManager.SENSOR_DELAY_GAME);
+        }
+        FallDetectionMetrics.FUSION_WINDOWS.increment();
+    }
+
+    /**
+     * @param sampleTimeMs sensor time of the impact sample (elapsedRealtime clock), which the
+     *                     barometer's timestamps are compared against
+     */
+    void onImpact(long sampleTimeMs) {
+        if (open) {
+            impactElapsedMs = sampleTimeMs;
+        }
+    }
+
+    void close() {
+        handler.removeCallbacks(timeout);
+        if (!open) return;
+        open = false;
+        sensorManager.unregisterListener(this);
+        FallDetectionMetrics.FUSION_WINDOW_MS.record(SystemClock.elapsedRealtime() - openedAtMs);
+    }
+
+    /**
+     * Judges the candidate from what the window collected and closes the window. Only a tumble
+     * rejects: a slow slide to the floor, a fall the gyroscope joined late or a barometer
+     * blurred by wind can all look like no evidence, and missing a real fall costs far more
+     * than the countdown the user can cancel.
+     */
+    int verdict() {
+        if (!open) return VERDICT_UNKNOWN;
+        long start = SystemClock.elapsedRealtimeNanos();
+        int verdict;
+        float altitudeDropM = afterPressureCount > 0 && basePressure > 0
+            ? (afterPressureSum / afterPressureCount - basePressure) * METRES_PER_HPA
+            : Float.NaN;
+        if (rotationRad > TUMBLE_ROTATION_RAD || peakRateRadS > TUMBLE_RATE_RAD_S) {
+            verdict = VERDICT_REJECT;
+        } else if (rotationRad >= MIN_BODY_ROTATION_RAD) {
+            verdict = VERDICT_CONFIRM;
+        } else if (!Float.isNaN(altitudeDropM) && altitudeDropM >= MIN_ALTITUDE_DROP_M) {
+            verdict = VERDICT_CONFIRM;
+        } else {
+            verdict = VERDICT_UNKNOWN;
+        }
+        FallDetectionMetrics.FUSION_VERDICT_US.record((SystemClock.elapsedRealtimeNanos() - start) / 1000);
+        if (verdict == VERDICT_CONFIRM) {
+            FallDetectionMetrics.FUSION_CONFIRMED.increment();
+        } else if (verdict == VERDICT_REJECT) {
+            FallDetectionMetrics.FUSION_REJECTED.increment();
+        } else {
+            FallDetectionMetrics.FUSION_INCONCLUSIVE.increment();
+        }
+        Log.i(TAG, "Fusion verdict "
+            + (verdict == VERDICT_CONFIRM ? "confirm" : verdict == VERDICT_REJECT ? "reject" : "inconclusive")
+            + ": rotation=" + rotationRad + "rad peak=" + peakRateRadS + "rad/s altitudeDrop=" + altitudeDropM + "m");
+        close();
+        return verdict;
+    }
+
+    @Override
+    public void onSensorChanged(SensorEvent event) {
+        if (!open) return;
+        long start = SystemClock.elapsedRealtimeNanos();
+        EnergyAccounting.FALL.onSensorEvent();
+        if (event.sensor.getType() == Sensor.TYPE_GYROSCOPE) {
+            float x = event.values[0];
+            float y = event.values[1];
+            float z = event.values[2];
+            float rate = (float) Math.sqrt(x * x + y * y + z * z);
+            if (rate > peakRateRadS) peakRateRadS = rate;
+            if (lastGyroNanos != 0) {
+                rotationRad += rate * (event.timestamp - lastGyroNanos) / 1e9f;
+            }
+            lastGyroNanos = event.timestamp;
+        } else {
+            float pressure = event.values[0];
+            if (basePressure == 0) {
+                basePressure = pressure;
+            } else if (impactElapsedMs != 0 && event.timestamp / 1_000_000 - impactElapsedMs >= BARO_SETTLE_MS) {
+                afterPressureSum += pressure;
+                afterPressureCount++;
+            }
+        }
+        FallDetectionMetrics.FUSION_SENSOR_US.record((SystemClock.elapsedRealtimeNanos() - start) / 1000);
+    }
+
+    @Override
+    public void onAccuracyChanged(Sensor sensor, int accuracy) {}
+}
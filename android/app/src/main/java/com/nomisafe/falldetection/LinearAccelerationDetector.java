@@ -0,0 +1,59 @@
+package com.nomisafe.falldetection;
+
+/**
+ * The shake detector's logic as an ensemble member: a spike of linear acceleration (gravity
+ * removed) followed, after a short delay, by near-zero linear acceleration.
+ *
+ * Uses the linear magnitude the shared {@link SampleWindow} already computes, and the same
+ * shake thresholds of {@link DetectorConfig} as ShakeDetectionService. The delayed check is
+ * evaluated on the first sample past the deadline rather than with a posted runnable.
+ */
+final class LinearAccelerationDetector implements Detector {
+    private volatile DetectorConfig config = DetectorConfig.DEFAULT;
+
+    private long checkAtMs = 0;
+
+    @Override
+    public String getName() {
+        return "linear";
+    }
+
+    @Override
+    public void applyConfig(DetectorConfig config, DetectionProfile profile) {
+        this.config = config;
+    }
+
+    @Override
+    public int onSample(SampleWindow window, long now, float magnitude) {
+        DetectorConfig c = config;
+        float linear = window.linearMagnitude[window.newest()];
+
+        // Low movement once the delay after the latest spike has passed
+        if (checkAtMs != 0 && now >= checkAtMs) {
+            checkAtMs = 0;
+            if (linear < c.shakeStillThreshold) {
+                return RESULT_FALL;
+            }
+        }
+
+        if (linear > c.shakeImpactThreshold) {
+            checkAtMs = now + c.shakeCheckDelayMs;
+        }
+        return RESULT_NONE;
+    }
+
+    @Override
+    public boolean isIdle() {
+        return checkAtMs == 0;
+    }
+
+    @Override
+    public int getPhase() {
+        return checkAtMs != 0 ? SensorStreamer.PHASE_IMPACT : SensorStreamer.PHASE_IDLE;
+    }
+
+    @Override
+    public void reset() {
+        checkAtMs = 0;
+    }
+}
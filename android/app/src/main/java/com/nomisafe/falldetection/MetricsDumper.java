@@ -0,0 +1,66 @@
+package com.nomisafe.falldetection;
+
+import android.content.Context;
+import android.util.Log;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Appends a compact line of {@link FallDetectionMetrics} to a local file at a fixed interval.
+ * The file is rotated once it grows past a size limit, keeping one previous generation.
+ */
+class MetricsDumper {
+    private static final String TAG = "MetricsDumper";
+    private static final String FILE_NAME = "falldetection_metrics.log";
+    private static final long DUMP_INTERVAL_MINUTES = 15;
+    private static final long MAX_FILE_BYTES = 256 * 1024;
+
+    private final File file;
+    private final File rotatedFile;
+    private ScheduledExecutorService executor;
+
+    MetricsDumper(Context context) {
+        file = new File(context.getFilesDir(), FILE_NAME);
+        rotatedFile = new File(context.getFilesDir(), FILE_NAME + ".1");
+    }
+
+    void start() {
+        if (executor != null) return;
+        executor = Executors.newSingleThreadScheduledExecutor(r -> new Thread(r, "MetricsDumper"));
+        executor.scheduleWithFixedDelay(this::dump, DUMP_INTERVAL_MINUTES, DUMP_INTERVAL_MINUTES, TimeUnit.MINUTES);
+    }
+
+    /**
+     * Stops the schedule and writes one last line.
+     */
+    void stop() {
+        if (executor == null) return;
+        executor.shutdownNow();
+        executor = null;
+        new Thread(this::dump, "MetricsDumper").start();
+    }
+
+    private synchronized void dump() {
+        try {
+            if (file.length() > MAX_FILE_BYTES) {
+                if (rotatedFile.exists() && !rotatedFile.delete()) {
+                    Log.w(TAG, "Could not delete old metrics file");
+                }
+                if (!file.renameTo(rotatedFile)) {
+                    Log.w(TAG, "Could not rotate metrics file");
+                }
+            }
+            try (FileWriter writer = new FileWriter(file, true)) {
+                writer.write(FallDetectionMetrics.compactLine(System.currentTimeMillis()));
+                writer.write('\n');
+            }
+        } catch (IOException e) {
+            Log.e(TAG, "Failed to dump metrics", e);
+        }
+    }
+}
@@ -0,0 +1,312 @@
+package com.nomisafe.falldetection;
+
+import android.app.job.JobInfo;
+import android.app.job.JobScheduler;
+import android.content.ComponentName;
+import android.content.Context;
+import android.util.Base64;
+import android.util.Log;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Local append-only journal of near misses: impacts that never reached a confirmed fall.
+ *
+ * Each entry is one JSON line with the candidate's feature vector, classifier score and
+ * profile, and the name of an optional raw snippet file (the window's samples from shortly
+ * before free-fall to the drop, in the {@link SensorTraceWriter} format). Entries go to segment files of a few tens of KB; when the
+ * journal directory grows past its bound, the oldest files are deleted first.
+ *
+ * Uploads happen from {@link NearMissUploadJob}, which JobScheduler runs only on an unmetered
+ * network while charging. A batch is the segments gzip-compressed as one newline-delimited
+ * JSON body, snippets inlined as base64; uploaded files are deleted only after a 2xx.
+ *
+ * Writes, eviction and uploads all run on one background thread, so the sensor thread only
+ * copies the candidate out of the window and the three never race.
+ */
+final class NearMissJournal {
+    private static final String TAG = "NearMissJournal";
+    private static final String DIR_NAME = "near_miss";
+    private static final String SEGMENT_PREFIX = "seg-";
+    private static final String SNIPPET_PREFIX = "snip-";
+    // Same backend as the SOS endpoint
+    private static final String UPLOAD_URL = "http://15.207.247.24/api/telemetry/near-misses/";
+    private static final int JOB_ID = 4501;
+
+    private static final long MAX_SEGMENT_BYTES = 32 * 1024;
+    private static final long MAX_TOTAL_BYTES = 1024 * 1024;
+    private static final long MAX_BATCH_BYTES = 256 * 1024;
+    // Raw snippet starts this long before free-fall
+    private static final long SNIPPET_PRE_ROLL_NANOS = SampleWindow.PRE_ROLL_MS * 1_000_000L;
+    private static final long SNIPPET_DEFAULT_NANOS = 3_000_000_000L;
+
+    private static NearMissJournal instance;
+
+    private final Context context;
+    private final File dir;
+    private final ExecutorService executor =
+        Executors.newSingleThreadExecutor(r -> new Thread(r, "NearMissJournal"));
+    private File currentSegment;
+
+    static synchronized NearMissJournal get(Context context) {
+        if (instance == null) {
+            instance = new NearMissJournal(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    private NearMissJournal(Context context) {
+        this.context = context;
+        this.dir = new File(context.getFilesDir(), DIR_NAME);
+    }
+
+    /**
+     * Copies a dropped candidate out of the window and appends it in the background.
+     * Called on the sensor thread before the window's marks are cleared.
+     */
+    void record(SampleWindow window, float[] features, float score, String profile, int configVersion) {
+        long timestamp = System.currentTimeMillis();
+        float[] featureCopy = Arrays.copyOf(features, features.length);
+
+        // Raw snippet, copied now since the window keeps moving
+        long end = window.latestTimestampNanos();
+        long start = window.freeFallStartNanos != 0
+            ? window.freeFallStartNanos - SNIPPET_PRE_ROLL_NANOS
+            : end - SNIPPET_DEFAULT_NANOS;
+        int first = window.firstAtOrAfter(start);
+        int count = window.size() - first;
+        long[] t = new long[count];
+        float[] x = new float[count];
+        float[] y = new float[count];
+        float[] z = new float[count];
+        for (int i = 0; i < count; i++) {
+            int index = window.index(first + i);
+            t[i] = window.timestampNanos[index];
+            x[i] = window.x[index];
+            y[i] = window.y[index];
+            z[i] = window.z[index];
+        }
+
+        FallDetectionMetrics.NEAR_MISSES.increment();
+        executor.execute(() -> {
+            try {
+                String snippet = count > 0 ? writeSnippet(timestamp, t, x, y, z) : null;
+                JSONObject entry = new JSONObject();
+                entry.put("timestamp", timestamp);
+                entry.put("profile", profile);
+                entry.put("configVersion", configVersion);
+                entry.put("score", score);
+                JSONArray featureArray = new JSONArray();
+                for (float f : featureCopy) featureArray.put(f);
+                entry.put("features", featureArray);
+                if (snippet != null) entry.put("snippet", snippet);
+                append(timestamp, entry.toString());
+                evict();
+            } catch (IOException | JSONException e) {
+                Log.e(TAG, "Failed to record near miss", e);
+            }
+        });
+        scheduleUpload();
+    }
+
+    private String writeSnippet(long timestamp, long[] t, float[] x, float[] y, float[] z) throws IOException {
+        ensureDir();
+        String name = SNIPPET_PREFIX + timestamp + ".trace";
+        try (SensorTraceWriter writer = new SensorTraceWriter(new BufferedOutputStream(
+                new FileOutputStream(new File(dir, name))), SensorTraceWriter.DEFAULT_RANGE)) {
+            for (int i = 0; i < t.length; i++) {
+                writer.append(t[i], x[i], y[i], z[i]);
+            }
+        }
+        return name;
+    }
+
+    private void append(long timestamp, String line) throws IOException {
+        ensureDir();
+        if (currentSegment == null || !currentSegment.exists() || currentSegment.length() > MAX_SEGMENT_BYTES) {
+            currentSegment = new File(dir, SEGMENT_PREFIX + timestamp + ".jsonl");
+        }
+        try (FileWriter writer = new FileWriter(currentSegment, true)) {
+            writer.write(line);
+            writer.write('\n');
+        }
+    }
+
+    /** Deletes the oldest files until the journal fits its bound. */
+    private void evict() {
+        File[] files = sortedFiles();
+        long total = 0;
+        for (File file : files) total += file.length();
+        for (int i = 0; i < files.length && total > MAX_TOTAL_BYTES; i++) {
+            total -= files[i].length();
+            if (files[i].delete()) {
+                FallDetectionMetrics.NEAR_MISS_FILES_EVICTED.increment();
+            }
+            if (files[i].equals(currentSegment)) currentSegment = null;
+        }
+    }
+
+    /** Journal files, oldest first by the timestamp in their name. */
+    private File[] sortedFiles() {
+        File[] files = dir.listFiles();
+        if (files == null) return new File[0];
+        Arrays.sort(files, (a, b) -> Long.compare(timestampOf(a), timestampOf(b)));
+        return files;
+    }
+
+    private static long timestampOf(File file) {
+        String name = file.getName();
+        int start = name.indexOf('-') + 1;
+        int end = name.indexOf('.');
+        try {
+            return Long.parseLong(name.substring(start, end < 0 ? name.length() : end));
+        } catch (RuntimeException e) {
+            return 0;
+        }
+    }
+
+    private void ensureDir() throws IOException {
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("Cannot create " + dir);
+        }
+    }
+
+    private void scheduleUpload() {
+        JobScheduler scheduler = (JobScheduler) context.getSystemService(Context.JOB_SCHEDULER_SERVICE);
+        if (scheduler == null || scheduler.getPendingJob(JOB_ID) != null) return;
+        JobInfo job = new JobInfo.Builder(JOB_ID, new ComponentName(context, NearMissUploadJob.class))
+            .setRequiredNetworkType(JobInfo.NETWORK_TYPE_UNMETERED)
+            .setRequiresCharging(true)
+            .setPersisted(true)
+            .setBackoffCriteria(30 * 60 * 1000, JobInfo.BACKOFF_POLICY_EXPONENTIAL)
+            .build();
+        scheduler.schedule(job);
+    }
+
+    interface UploadCallback {
+        void onDone(boolean success);
+    }
+
+    /**
+     * Uploads every closed and open segment in batches on the journal thread.
+     */
+    void upload(String accessToken, UploadCallback callback) {
+        executor.execute(() -> {
+            boolean success = true;
+            try {
+                // Appends after this go to a new segment
+                currentSegment = null;
+                List<File> batch = new ArrayList<>();
+                long batchBytes = 0;
+                for (File file : sortedFiles()) {
+                    if (!file.getName().startsWith(SEGMENT_PREFIX)) continue;
+                    batch.add(file);
+                    batchBytes += file.length();
+                    if (batchBytes >= MAX_BATCH_BYTES) {
+                        uploadBatch(batch, accessToken);
+                        batch.clear();
+                        batchBytes = 0;
+                    }
+                }
+                if (!batch.isEmpty()) {
+                    uploadBatch(batch, accessToken);
+                }
+            } catch (IOException | JSONException e) {
+                Log.w(TAG, "Near-miss upload failed", e);
+                success = false;
+            }
+            callback.onDone(success);
+        });
+    }
+
+    private void uploadBatch(List<File> segments, String accessToken) throws IOException, JSONException {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        List<File> snippets = new ArrayList<>();
+        int entries = 0;
+        try (GZIPOutputStream gzip = new GZIPOutputStream(compressed)) {
+            for (File segment : segments) {
+                try (BufferedReader reader = new BufferedReader(new FileReader(segment))) {
+                    String line;
+                    while ((line = reader.readLine()) != null) {
+                        JSONObject entry = new JSONObject(line);
+                        String snippetName = entry.optString("snippet", null);
+                        if (snippetName != null) {
+                            File snippet = new File(dir, snippetName);
+                            if (snippet.exists()) {
+                                entry.put("snippetData", Base64.encodeToString(readFile(snippet), Base64.NO_WRAP));
+                                snippets.add(snippet);
+                            }
+                        }
+                        gzip.write(entry.toString().getBytes("UTF-8"));
+                        gzip.write('\n');
+                        entries++;
+                    }
+                }
+            }
+        }
+
+        byte[] body = compressed.toByteArray();
+        HttpURLConnection conn = (HttpURLConnection) new URL(UPLOAD_URL).openConnection();
+        try {
+            conn.setRequestMethod("POST");
+            conn.setRequestProperty("Content-Type", "application/x-ndjson");
+            conn.setRequestProperty("Content-Encoding", "gzip");
+            if (accessToken != null) {
+                conn.setRequestProperty("Authorization", "Bearer " + accessToken);
+            }
+            conn.setDoOutput(true);
+            conn.setConnectTimeout(30000);
+            conn.setReadTimeout(30000);
+            conn.setFixedLengthStreamingMode(body.length);
+            try (OutputStream os = conn.getOutputStream()) {
+                os.write(body);
+            }
+            EnergyAccounting.FALL.networkBytes(body.length, 0);
+            int responseCode = conn.getResponseCode();
+            if (responseCode / 100 != 2) {
+                throw new IOException("Near-miss upload rejected: HTTP " + responseCode);
+            }
+        } finally {
+            conn.disconnect();
+        }
+
+        for (File file : segments) file.delete();
+        for (File file : snippets) file.delete();
+        FallDetectionMetrics.NEAR_MISS_UPLOADED.add(entries);
+        Log.i(TAG, "Uploaded " + entries + " near misses in " + body.length + " bytes");
+    }
+
+    private static byte[] readFile(File file) throws IOException {
+        byte[] data = new byte[(int) file.length()];
+        try (FileInputStream in = new FileInputStream(file)) {
+            int read = 0;
+            while (read < data.length) {
+                int n = in.read(data, read, data.length - read);
+                if (n < 0) break;
+                read += n;
+            }
+        }
+        return data;
+    }
+}
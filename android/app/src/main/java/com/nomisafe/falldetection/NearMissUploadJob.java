@@ -0,0 +1,29 @@
+package com.nomisafe.falldetection;
+
+import android.app.job.JobParameters;
+import android.app.job.JobService;
+import android.util.Log;
+
+/**
+ * Uploads the {@link NearMissJournal}. Scheduled by the journal with unmetered-network and
+ * charging constraints, so uploads never cost mobile data or battery.
+ */
+public class NearMissUploadJob extends JobService {
+    private static final String TAG = "NearMissUploadJob";
+
+    @Override
+    public boolean onStartJob(JobParameters params) {
+        String accessToken = FallDetectionService.readAccessToken(this);
+        NearMissJournal.get(this).upload(accessToken, success -> {
+            Log.i(TAG, "Near-miss upload " + (success ? "done" : "failed, will retry"));
+            jobFinished(params, !success);
+        });
+        return true;
+    }
+
+    @Override
+    public boolean onStopJob(JobParameters params) {
+        // Constraints lost (unplugged, left Wi-Fi); files are deleted only after a 2xx, so retry later
+        return true;
+    }
+}
@@ -0,0 +1,255 @@
+package com.nomisafe.falldetection;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.os.BatteryManager;
+import android.os.Build;
+import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.PowerManager;
+import android.util.Log;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Picks how hard the detector works from battery level, charging state, power-save mode and
+ * thermal status, so fall detection outlives a dying or overheating phone.
+ *
+ * The inputs are event driven (power connected/disconnected, battery low/okay, power-save and
+ * thermal changes) with a slow re-poll for the battery level in between. Each change of
+ * {@link Decision} is logged and appended to a small local file with the inputs that caused it.
+ */
+final class PowerPolicy {
+    private static final String TAG = "PowerPolicy";
+    private static final String FILE_NAME = "power_policy.log";
+    private static final long MAX_FILE_BYTES = 64 * 1024;
+    private static final long REPOLL_INTERVAL_MS = 10 * 60 * 1000;
+
+    private static final int LOW_BATTERY_PCT = 15;
+    private static final int CRITICAL_BATTERY_PCT = 5;
+
+    // Location strategies, from most to least eager
+    static final int LOCATION_WARM_ON_IMPACT = 0; // start at impact, before the fall is confirmed
+    static final int LOCATION_ON_ALERT = 1;       // GPS + network when the countdown starts
+    static final int LOCATION_NETWORK_ONLY = 2;   // network provider only, slower updates
+
+    /**
+     * What the service should do under the current conditions. Zero sampling period and
+     * latency mean "as the detection profile asks".
+     */
+    static final class Decision {
+        final String tier;
+        final int minSamplingPeriodUs;
+        final int maxReportLatencyUs;
+        final int locationStrategy;
+        final long locationIntervalMs;
+        final long sendRetryDelayMs;     // between attempts of one SOS send
+        final long outboxRetryIntervalMs; // between retries of a saved, unsent SOS
+
+        Decision(String tier, int minSamplingPeriodUs, int maxReportLatencyUs, int locationStrategy,
+                 long locationIntervalMs, long sendRetryDelayMs, long outboxRetryIntervalMs) {
+            this.tier = tier;
+            this.minSamplingPeriodUs = minSamplingPeriodUs;
+            this.maxReportLatencyUs = maxReportLatencyUs;
+            this.locationStrategy = locationStrategy;
+            this.locationIntervalMs = locationIntervalMs;
+            this.sendRetryDelayMs = sendRetryDelayMs;
+            this.outboxRetryIntervalMs = outboxRetryIntervalMs;
+        }
+
+        @Override
+        public String toString() {
+            return tier + " period>=" + minSamplingPeriodUs + "us latency=" + maxReportLatencyUs
+                + "us location=" + locationStrategy + "/" + locationIntervalMs + "ms retry="
+                + sendRetryDelayMs + "ms outbox=" + outboxRetryIntervalMs + "ms";
+        }
+    }
+
+    static final Decision CHARGING = new Decision("charging", 0, 0,
+        LOCATION_WARM_ON_IMPACT, 1000, 2000, 2 * 60 * 1000);
+    static final Decision NORMAL = new Decision("normal", 0, 0,
+        LOCATION_ON_ALERT, 1000, 2000, 5 * 60 * 1000);
+    // 50 Hz floor, the walking rate, so only the faster running profile slows down. Batched
+    // samples keep their sensor timestamps, which the detector times free-fall from.
+    static final Decision SAVER = new Decision("saver", 20000, 200_000,
+        LOCATION_ON_ALERT, 2000, 5000, 15 * 60 * 1000);
+    // 25 Hz floor: samples 40 ms apart can time a 50 ms free-fall short and miss it. Accepted
+    // only when the battery is nearly gone or the phone is overheating.
+    static final Decision CRITICAL = new Decision("critical", 40000, 1_000_000,
+        LOCATION_NETWORK_ONLY, 5000, 10000, 30 * 60 * 1000);
+
+    interface Listener {
+        /** Called on the main thread when the decision changes. */
+        void onPolicyChanged(Decision decision);
+    }
+
+    private final Context context;
+    private final Listener listener;
+    private final Handler handler = new CountingHandler(Looper.getMainLooper(), EnergyAccounting.FALL);
+    private final ExecutorService logExecutor = Executors.newSingleThreadExecutor(r -> new Thread(r, "PowerPolicy"));
+    private final File logFile;
+    private PowerManager powerManager;
+    private boolean started = false;
+
+    // Last inputs, read on the main thread
+    private int batteryPct = 100;
+    private boolean charging = false;
+    private boolean powerSave = false;
+    private int thermalStatus = 0;
+    private volatile Decision decision = NORMAL;
+    private volatile String reason = "default";
+    private int changes = 0;
+
+    private final BroadcastReceiver receiver = new BroadcastReceiver() {
+        @Override
+        public void onReceive(Context context, Intent intent) {
+            evaluate(intent.getAction());
+        }
+    };
+
+    private final Runnable repoll = new Runnable() {
+        @Override
+        public void run() {
+            evaluate("repoll");
+            handler.postDelayed(this, REPOLL_INTERVAL_MS);
+        }
+    };
+
+    private PowerManager.OnThermalStatusChangedListener thermalListener;
+
+    PowerPolicy(Context context, Listener listener) {
+        this.context = context;
+        this.listener = listener;
+        this.logFile = new File(context.getFilesDir(), FILE_NAME);
+    }
+
+    Decision getDecision() {
+        return decision;
+    }
+
+    void start() {
+        if (started) return;
+        started = true;
+        powerManager = (PowerManager) context.getSystemService(Context.POWER_SERVICE);
+        IntentFilter filter = new IntentFilter();
+        filter.addAction(Intent.ACTION_POWER_CONNECTED);
+        filter.addAction(Intent.ACTION_POWER_DISCONNECTED);
+        filter.addAction(Intent.ACTION_BATTERY_LOW);
+        filter.addAction(Intent.ACTION_BATTERY_OKAY);
+        filter.addAction(PowerManager.ACTION_POWER_SAVE_MODE_CHANGED);
+        context.registerReceiver(receiver, filter);
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q && powerManager != null) {
+            thermalListener = status -> evaluate("thermal");
+            powerManager.addThermalStatusListener(thermalListener);
+        }
+        evaluate("start");
+        handler.postDelayed(repoll, REPOLL_INTERVAL_MS);
+    }
+
+    void stop() {
+        if (!started) return;
+        started = false;
+        handler.removeCallbacks(repoll);
+        try {
+            context.unregisterReceiver(receiver);
+        } catch (IllegalArgumentException e) {
+            // Not registered
+        }
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q && powerManager != null && thermalListener != null) {
+            powerManager.removeThermalStatusListener(thermalListener);
+        }
+        logExecutor.shutdown();
+    }
+
+    private void readInputs() {
+        // Sticky broadcast: returns the last battery state without registering a receiver
+        Intent battery = context.registerReceiver(null, new IntentFilter(Intent.ACTION_BATTERY_CHANGED));
+        if (battery != null) {
+            int level = battery.getIntExtra(BatteryManager.EXTRA_LEVEL, -1);
+            int scale = battery.getIntExtra(BatteryManager.EXTRA_SCALE, -1);
+            if (level >= 0 && scale > 0) {
+                batteryPct = level * 100 / scale;
+            }
+            int status = battery.getIntExtra(BatteryManager.EXTRA_STATUS, -1);
+            charging = status == BatteryManager.BATTERY_STATUS_CHARGING
+                || status == BatteryManager.BATTERY_STATUS_FULL;
+        }
+        if (powerManager != null) {
+            powerSave = powerManager.isPowerSaveMode();
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
+                thermalStatus = powerManager.getCurrentThermalStatus();
+            }
+        }
+    }
+
+    private Decision decide() {
+        boolean hot = thermalStatus >= PowerManager.THERMAL_STATUS_MODERATE;
+        boolean veryHot = thermalStatus >= PowerManager.THERMAL_STATUS_SEVERE;
+        if (veryHot || (!charging && batteryPct <= CRITICAL_BATTERY_PCT)) {
+            return CRITICAL;
+        }
+        if (charging && !hot) {
+            return CHARGING;
+        }
+        if (hot || powerSave || (!charging && batteryPct <= LOW_BATTERY_PCT)) {
+            return SAVER;
+        }
+        return NORMAL;
+    }
+
+    private void evaluate(String trigger) {
+        if (!started) return;
+        readInputs();
+        Decision next = decide();
+        if (next == decision) return;
+
+        Decision previous = decision;
+        decision = next;
+        reason = trigger + " battery=" + batteryPct + "% charging=" + charging
+            + " powerSave=" + powerSave + " thermal=" + thermalStatus;
+        changes++;
+        FallDetectionMetrics.POLICY_CHANGES.increment();
+        String line = System.currentTimeMillis() + " " + previous.tier + " -> " + next + " (" + reason + ")";
+        Log.i(TAG, line);
+        logExecutor.execute(() -> append(line));
+        listener.onPolicyChanged(next);
+    }
+
+    private void append(String line) {
+        try {
+            if (logFile.length() > MAX_FILE_BYTES && !logFile.delete()) {
+                Log.w(TAG, "Could not truncate policy log");
+            }
+            try (FileWriter writer = new FileWriter(logFile, true)) {
+                writer.write(line);
+                writer.write('\n');
+            }
+        } catch (IOException e) {
+            Log.e(TAG, "Failed to write policy decision", e);
+        }
+    }
+
+    Bundle snapshot() {
+        Decision current = decision;
+        Bundle bundle = new Bundle();
+        bundle.putString("tier", current.tier);
+        bundle.putString("reason", reason);
+        bundle.putDouble("batteryPct", batteryPct);
+        bundle.putBoolean("charging", charging);
+        bundle.putBoolean("powerSave", powerSave);
+        bundle.putDouble("thermalStatus", thermalStatus);
+        bundle.putDouble("minSamplingPeriodUs", current.minSamplingPeriodUs);
+        bundle.putDouble("maxReportLatencyUs", current.maxReportLatencyUs);
+        bundle.putDouble("locationStrategy", current.locationStrategy);
+        bundle.putDouble("outboxRetryIntervalMs", current.outboxRetryIntervalMs);
+        bundle.putDouble("changes", changes);
+        return bundle;
+    }
+}
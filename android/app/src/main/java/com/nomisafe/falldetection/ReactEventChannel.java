@@ -0,0 +1,286 @@
+package com.nomisafe.falldetection;
+
+import android.os.Bundle;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.annotation.Nullable;
+
+import com.facebook.react.bridge.Arguments;
+import com.facebook.react.bridge.ReactContext;
+import com.facebook.react.bridge.WritableMap;
+import com.facebook.react.modules.core.DeviceEventManagerModule;
+
+import java.lang.ref.WeakReference;
+
+/**
+ * Event channel from the native fall detection code to JS.
+ *
+ * While the target is not ready, events are kept in a bounded ring (oldest dropped first) and
+ * replayed in order when it becomes ready. High-frequency ticks such as SOSCountdown are
+ * coalesced: a tick that follows a tick of the same event overwrites it in place, so only the
+ * latest value is kept.
+ *
+ * In the UI process the target is JS itself; only a weak reference to the React context is
+ * held. In the :detector process the target is the UI process ({@link FallDetectorBinder}),
+ * whose own channel buffers again until JS is attached.
+ *
+ * Payloads are plain Bundles so callers never touch React Native classes themselves.
+ */
+public final class ReactEventChannel {
+    private static final String TAG = "ReactEventChannel";
+    private static final int RING_CAPACITY = 32;
+    private static final long MAX_REPLAY_AGE_MS = 5 * 60 * 1000;
+
+    /**
+     * Where events are delivered.
+     */
+    interface Target {
+        boolean isReady();
+
+        boolean deliver(String eventName, Bundle payload, @Nullable String coalesceKey, boolean isTransient);
+    }
+
+    private static final ReactEventChannel INSTANCE = new ReactEventChannel();
+
+    private final ReactTarget reactTarget = new ReactTarget();
+    private Target target = reactTarget;
+
+    // Pending events while the target is not ready
+    private final String[] ringNames = new String[RING_CAPACITY];
+    private final Bundle[] ringParams = new Bundle[RING_CAPACITY];
+    private final long[] ringQueuedAt = new long[RING_CAPACITY];
+    private final String[] ringCoalesceKeys = new String[RING_CAPACITY];
+    private int ringHead = 0;
+    private int ringSize = 0;
+
+    // Delivery statistics
+    private long deliveredCount = 0;
+    private long droppedCount = 0;
+    private long coalescedCount = 0;
+    private long lastDeliveryLatencyMs = 0;
+    private long maxDeliveryLatencyMs = 0;
+
+    private ReactEventChannel() {}
+
+    public static ReactEventChannel getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Replaces the JS target, used by the :detector process where React Native is not loaded.
+     */
+    synchronized void setTarget(Target newTarget) {
+        target = newTarget;
+    }
+
+    /**
+     * Remembers the React context. Events keep being buffered until JS signals with
+     * {@link #markJsReady()} that its listeners are registered.
+     */
+    public synchronized void attach(ReactContext context) {
+        if (reactTarget.contextRef.get() != context) {
+            reactTarget.contextRef = new WeakReference<>(context);
+            reactTarget.jsReady = false;
+        }
+    }
+
+    /**
+     * Called from JS once its listeners are in place. Replays everything buffered so far.
+     */
+    public synchronized void markJsReady() {
+        reactTarget.jsReady = true;
+        replayPending();
+    }
+
+    /**
+     * Called when a non-JS target becomes ready. Replays everything buffered so far.
+     */
+    synchronized void onTargetReady() {
+        replayPending();
+    }
+
+    /**
+     * Sends a lifecycle event, or buffers it if the target is not there to receive it.
+     */
+    public synchronized void emit(String eventName, Bundle params) {
+        params.putDouble("nativeTimestamp", System.currentTimeMillis());
+        post(eventName, params, null);
+    }
+
+    /**
+     * Sends a high-frequency tick carrying a single int. If it has to be buffered and the newest
+     * buffered event is the same tick, that entry is updated in place.
+     */
+    public synchronized void emitCoalesced(String eventName, String key, int value) {
+        long now = SystemClock.elapsedRealtime();
+        if (!target.isReady() && ringSize > 0) {
+            int tail = (ringHead + ringSize - 1) % RING_CAPACITY;
+            if (key.equals(ringCoalesceKeys[tail]) && eventName.equals(ringNames[tail])) {
+                ringParams[tail].putInt(key, value);
+                ringParams[tail].putDouble("nativeTimestamp", System.currentTimeMillis());
+                ringQueuedAt[tail] = now;
+                coalescedCount++;
+                return;
+            }
+        }
+        Bundle params = new Bundle(2);
+        params.putInt(key, value);
+        params.putDouble("nativeTimestamp", System.currentTimeMillis());
+        post(eventName, params, key);
+    }
+
+    /**
+     * Sends a best-effort event that is never buffered (e.g. live sensor data).
+     * Returns false if the target was not there to receive it.
+     */
+    public synchronized boolean emitTransient(String eventName, Bundle params) {
+        if (!target.isReady() || ringSize > 0) {
+            return false;
+        }
+        return deliverNow(eventName, params, null, true, SystemClock.elapsedRealtime(), false);
+    }
+
+    /**
+     * Re-emits an event received from the :detector process, keeping its original timestamp.
+     */
+    synchronized void forward(String eventName, Bundle payload, @Nullable String coalesceKey, boolean isTransient) {
+        if (isTransient) {
+            emitTransient(eventName, payload);
+            return;
+        }
+        if (coalesceKey != null && !target.isReady() && ringSize > 0) {
+            int tail = (ringHead + ringSize - 1) % RING_CAPACITY;
+            if (coalesceKey.equals(ringCoalesceKeys[tail]) && eventName.equals(ringNames[tail])) {
+                ringParams[tail] = payload;
+                ringQueuedAt[tail] = SystemClock.elapsedRealtime();
+                coalescedCount++;
+                return;
+            }
+        }
+        post(eventName, payload, coalesceKey);
+    }
+
+    /**
+     * Delivery statistics for diagnostics.
+     */
+    public synchronized Bundle getStats() {
+        Bundle stats = new Bundle();
+        stats.putLong("delivered", deliveredCount);
+        stats.putLong("dropped", droppedCount);
+        stats.putLong("coalesced", coalescedCount);
+        stats.putInt("pending", ringSize);
+        stats.putLong("lastDeliveryLatencyMs", lastDeliveryLatencyMs);
+        stats.putLong("maxDeliveryLatencyMs", maxDeliveryLatencyMs);
+        return stats;
+    }
+
+    private void post(String eventName, Bundle params, @Nullable String coalesceKey) {
+        long now = SystemClock.elapsedRealtime();
+        if (deliverNow(eventName, params, coalesceKey, false, now, false)) {
+            return;
+        }
+        enqueue(eventName, params, coalesceKey, now);
+    }
+
+    private boolean deliverNow(String eventName, Bundle params, @Nullable String coalesceKey,
+                               boolean isTransient, long queuedAt, boolean replayed) {
+        if (!target.isReady()) {
+            return false;
+        }
+        // Anything still buffered must go out first to keep the order
+        if (ringSize > 0 && !replayed) {
+            replayPending();
+            if (ringSize > 0) {
+                return false;
+            }
+        }
+        long latencyMs = SystemClock.elapsedRealtime() - queuedAt;
+        Bundle payload = params;
+        if (replayed) {
+            payload = new Bundle(params);
+            payload.putBoolean("replayed", true);
+            payload.putDouble("queuedMs", latencyMs);
+        }
+        if (!target.deliver(eventName, payload, coalesceKey, isTransient)) {
+            return false;
+        }
+        deliveredCount++;
+        lastDeliveryLatencyMs = latencyMs;
+        if (latencyMs > maxDeliveryLatencyMs) maxDeliveryLatencyMs = latencyMs;
+        return true;
+    }
+
+    private void enqueue(String eventName, Bundle params, @Nullable String coalesceKey, long now) {
+        if (ringSize == RING_CAPACITY) {
+            Log.w(TAG, "Event ring full, dropping " + ringNames[ringHead]);
+            ringNames[ringHead] = null;
+            ringParams[ringHead] = null;
+            ringHead = (ringHead + 1) % RING_CAPACITY;
+            ringSize--;
+            droppedCount++;
+        }
+        int tail = (ringHead + ringSize) % RING_CAPACITY;
+        ringNames[tail] = eventName;
+        ringParams[tail] = params;
+        ringQueuedAt[tail] = now;
+        ringCoalesceKeys[tail] = coalesceKey;
+        ringSize++;
+        Log.i(TAG, "Target not ready, buffered " + eventName + " (" + ringSize + " pending)");
+    }
+
+    private void replayPending() {
+        if (ringSize == 0) return;
+        Log.i(TAG, "Replaying " + ringSize + " buffered event(s)");
+        long now = SystemClock.elapsedRealtime();
+        while (ringSize > 0) {
+            String name = ringNames[ringHead];
+            Bundle params = ringParams[ringHead];
+            long queuedAt = ringQueuedAt[ringHead];
+            if (now - queuedAt <= MAX_REPLAY_AGE_MS) {
+                if (!deliverNow(name, params, ringCoalesceKeys[ringHead], false, queuedAt, true)) {
+                    return;
+                }
+            } else {
+                droppedCount++;
+            }
+            ringNames[ringHead] = null;
+            ringParams[ringHead] = null;
+            ringCoalesceKeys[ringHead] = null;
+            ringHead = (ringHead + 1) % RING_CAPACITY;
+            ringSize--;
+        }
+    }
+
+    /**
+     * Delivers to JS through the device event emitter of the attached React context.
+     */
+    private static final class ReactTarget implements Target {
+        WeakReference<ReactContext> contextRef = new WeakReference<>(null);
+        boolean jsReady = false;
+
+        @Override
+        public boolean isReady() {
+            ReactContext context = contextRef.get();
+            return jsReady && context != null && context.hasActiveReactInstance();
+        }
+
+        @Override
+        public boolean deliver(String eventName, Bundle payload, @Nullable String coalesceKey, boolean isTransient) {
+            ReactContext context = contextRef.get();
+            if (context == null) {
+                return false;
+            }
+            try {
+                WritableMap map = Arguments.fromBundle(payload);
+                context
+                    .getJSModule(DeviceEventManagerModule.RCTDeviceEventEmitter.class)
+                    .emit(eventName, map);
+                return true;
+            } catch (Exception e) {
+                Log.e(TAG, "Failed to send event: " + eventName, e);
+                return false;
+            }
+        }
+    }
+}
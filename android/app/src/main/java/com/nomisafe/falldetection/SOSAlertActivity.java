@@ -5,25 +5,21 @@ import android.app.KeyguardManager;
 import android.app.NotificationManager;
 import android.content.Context;
 import android.content.Intent;
-import android.media.AudioAttributes;
-import android.media.AudioManager;
-import android.media.MediaPlayer;
-import android.media.RingtoneManager;
-import android.media.ToneGenerator;
-import android.net.Uri;
 import android.os.Build;
 import android.os.Bundle;
 import android.os.Handler;
 import android.os.PowerManager;
-import android.os.VibrationEffect;
-import android.os.Vibrator;
+import android.os.SystemClock;
 import android.view.View;
+import android.view.ViewTreeObserver;
 import android.view.WindowManager;
 import android.widget.Button;
 import android.widget.ProgressBar;
 import android.widget.TextView;
 import android.util.Log;
 
+import com.nomisafe.R;
+
 /**
  * Full-screen SOS Alert Activity that appears over lock screen
  * Similar to incoming call or alarm behavior
@@ -31,47 +27,91 @@ import android.util.Log;
 public class SOSAlertActivity extends Activity {
     private static final String TAG = "SOSAlertActivity";
     private static final int COUNTDOWN_SECONDS = 30;
+    private static final long WAKE_LOCK_TIMEOUT_MS = 60000; // 60 seconds max
+    public static final String EXTRA_DETECTED_AT_NANOS = "com.nomisafe.falldetection.EXTRA_DETECTED_AT_NANOS";
+    // The service's countdown deadline (elapsedRealtime), so a late or relaunched activity
+    // shows the time actually left instead of starting a fresh 30 s
+    public static final String EXTRA_COUNTDOWN_DEADLINE_MS = "com.nomisafe.falldetection.EXTRA_COUNTDOWN_DEADLINE_MS";
     
+    private TextView titleText;
+    private TextView subtitleText;
     private TextView countdownText;
     private ProgressBar progressBar;
     private Button cancelButton;
     private Handler handler = new Handler();
-    private int secondsRemaining = COUNTDOWN_SECONDS;
-    private Vibrator vibrator;
+    private long countdownDeadlineMs;
     private PowerManager.WakeLock wakeLock;
+    private long wakeLockAcquiredAt;
     private boolean isCancelled = false;
-    private MediaPlayer mediaPlayer;  // For continuous alarm sound
-    private ToneGenerator toneGenerator;  // Fallback tone generator
     
     @Override
     protected void onCreate(Bundle savedInstanceState) {
+        boolean trace = FallTrace.begin("SOSAlertActivity.onCreate");
+        FallTrace.beginAsync(FallTrace.SLICE_ACTIVITY_LAUNCH, FallTrace.currentAlertCookie());
         super.onCreate(savedInstanceState);
+        AlertLatency.markActivityCreated(getIntent().getLongExtra(EXTRA_DETECTED_AT_NANOS, 0));
         Log.i(TAG, "SOSAlertActivity onCreate");
+        SosJournal.get(this).log(SosJournal.ACTIVITY_SHOWN);
         
-        // Make activity show over lock screen
+        // Make activity show over lock screen - must be set before the first frame
         setupWindowFlags();
         
-        // Acquire wake lock to keep screen on
-        acquireWakeLock();
+        // Set up the UI from the precompiled layout and keep direct references to the views we update
+        boolean inflateTrace = FallTrace.begin("setContentView");
+        setContentView(R.layout.activity_sos_alert);
+        FallTrace.end(inflateTrace);
+        titleText = findViewById(R.id.sosTitle);
+        subtitleText = findViewById(R.id.sosSubtitle);
+        countdownText = findViewById(R.id.sosCountdown);
+        progressBar = findViewById(R.id.sosProgress);
+        cancelButton = findViewById(R.id.sosCancelButton);
+        cancelButton.setOnClickListener(v -> cancelSOS());
         
-        // Set up the UI
-        setContentView(createContentView());
+        // Keyguard dismissal and the wake lock are not needed to draw the cancel button,
+        // so they run after the first frame instead of in front of it
+        watchFirstFrame();
         
         // Note: Sound and vibration are started in FallDetectionService immediately when fall is detected
-        // We don't start them here to avoid duplicates
+        // (the alarm is preloaded there), so the activity never touches audio
         
         // Start countdown
+        countdownDeadlineMs = deadlineFrom(getIntent());
         startCountdown();
+        FallTrace.end(trace);
+    }
+    
+    @Override
+    protected void onResume() {
+        boolean trace = FallTrace.begin("SOSAlertActivity.onResume");
+        super.onResume();
+        FallTrace.end(trace);
+    }
+    
+    private void watchFirstFrame() {
+        final View decorView = getWindow().getDecorView();
+        decorView.getViewTreeObserver().addOnPreDrawListener(new ViewTreeObserver.OnPreDrawListener() {
+            @Override
+            public boolean onPreDraw() {
+                decorView.getViewTreeObserver().removeOnPreDrawListener(this);
+                // Posted work runs once the frame being drawn has been handed off
+                decorView.post(() -> onFirstFrame());
+                return true;
+            }
+        });
+    }
+    
+    private void onFirstFrame() {
+        FallTrace.endAsync(FallTrace.SLICE_ACTIVITY_LAUNCH, FallTrace.currentAlertCookie());
+        AlertLatency.markFirstFrame();
+        reportFullyDrawn();
+        dismissKeyguard();
+        acquireWakeLock();
     }
     
     private void setupWindowFlags() {
         if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O_MR1) {
             setShowWhenLocked(true);
             setTurnScreenOn(true);
-            KeyguardManager keyguardManager = (KeyguardManager) getSystemService(Context.KEYGUARD_SERVICE);
-            if (keyguardManager != null) {
-                keyguardManager.requestDismissKeyguard(this, null);
-            }
         } else {
             getWindow().addFlags(
                 WindowManager.LayoutParams.FLAG_SHOW_WHEN_LOCKED |
@@ -84,7 +124,17 @@ public class SOSAlertActivity extends Activity {
         getWindow().addFlags(WindowManager.LayoutParams.FLAG_KEEP_SCREEN_ON);
     }
     
+    private void dismissKeyguard() {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O_MR1) {
+            KeyguardManager keyguardManager = (KeyguardManager) getSystemService(Context.KEYGUARD_SERVICE);
+            if (keyguardManager != null) {
+                keyguardManager.requestDismissKeyguard(this, null);
+            }
+        }
+    }
+    
     private void acquireWakeLock() {
+        if (isFinishing() || isDestroyed()) return;
         PowerManager powerManager = (PowerManager) getSystemService(Context.POWER_SERVICE);
         if (powerManager != null) {
             wakeLock = powerManager.newWakeLock(
@@ -93,242 +143,22 @@ public class SOSAlertActivity extends Activity {
                 PowerManager.ON_AFTER_RELEASE,
                 "nomisafe:sosalert"
             );
-            wakeLock.acquire(60000); // 60 seconds max
+            wakeLock.acquire(WAKE_LOCK_TIMEOUT_MS);
+            wakeLockAcquiredAt = SystemClock.elapsedRealtime();
         }
     }
     
-    private View createContentView() {
-        // Create a full-screen red layout programmatically
-        android.widget.LinearLayout layout = new android.widget.LinearLayout(this);
-        layout.setOrientation(android.widget.LinearLayout.VERTICAL);
-        layout.setGravity(android.view.Gravity.CENTER);
-        layout.setBackgroundColor(0xFFDC2626); // Red background
-        layout.setPadding(60, 60, 60, 60);
-        
-        // Warning icon
-        TextView warningIcon = new TextView(this);
-        warningIcon.setText("⚠️");
-        warningIcon.setTextSize(80);
-        warningIcon.setGravity(android.view.Gravity.CENTER);
-        layout.addView(warningIcon);
-        
-        // Spacer
-        View spacer1 = new View(this);
-        spacer1.setLayoutParams(new android.widget.LinearLayout.LayoutParams(
-            android.widget.LinearLayout.LayoutParams.MATCH_PARENT, 40));
-        layout.addView(spacer1);
-        
-        // Title
-        TextView title = new TextView(this);
-        title.setText("Fall Detected!");
-        title.setTextSize(36);
-        title.setTextColor(0xFFFFFFFF);
-        title.setTypeface(null, android.graphics.Typeface.BOLD);
-        title.setGravity(android.view.Gravity.CENTER);
-        layout.addView(title);
-        
-        // Subtitle
-        TextView subtitle = new TextView(this);
-        subtitle.setText("Are you okay?");
-        subtitle.setTextSize(24);
-        subtitle.setTextColor(0xFFFEE2E2);
-        subtitle.setGravity(android.view.Gravity.CENTER);
-        layout.addView(subtitle);
-        
-        // Spacer
-        View spacer2 = new View(this);
-        spacer2.setLayoutParams(new android.widget.LinearLayout.LayoutParams(
-            android.widget.LinearLayout.LayoutParams.MATCH_PARENT, 60));
-        layout.addView(spacer2);
-        
-        // Countdown circle container
-        android.widget.FrameLayout circleContainer = new android.widget.FrameLayout(this);
-        android.widget.LinearLayout.LayoutParams circleParams = new android.widget.LinearLayout.LayoutParams(300, 300);
-        circleParams.gravity = android.view.Gravity.CENTER;
-        circleContainer.setLayoutParams(circleParams);
-        
-        // Progress bar (circular)
-        progressBar = new ProgressBar(this, null, android.R.attr.progressBarStyleHorizontal);
-        progressBar.setIndeterminate(false);
-        progressBar.setMax(COUNTDOWN_SECONDS);
-        progressBar.setProgress(COUNTDOWN_SECONDS);
-        android.widget.FrameLayout.LayoutParams progressParams = new android.widget.FrameLayout.LayoutParams(
-            android.widget.FrameLayout.LayoutParams.MATCH_PARENT,
-            android.widget.FrameLayout.LayoutParams.MATCH_PARENT
-        );
-        progressBar.setLayoutParams(progressParams);
-        circleContainer.addView(progressBar);
-        
-        // Countdown text
-        countdownText = new TextView(this);
-        countdownText.setText(String.valueOf(COUNTDOWN_SECONDS));
-        countdownText.setTextSize(72);
-        countdownText.setTextColor(0xFFFFFFFF);
-        countdownText.setTypeface(null, android.graphics.Typeface.BOLD);
-        countdownText.setGravity(android.view.Gravity.CENTER);
-        android.widget.FrameLayout.LayoutParams textParams = new android.widget.FrameLayout.LayoutParams(
-            android.widget.FrameLayout.LayoutParams.MATCH_PARENT,
-            android.widget.FrameLayout.LayoutParams.MATCH_PARENT
-        );
-        countdownText.setLayoutParams(textParams);
-        circleContainer.addView(countdownText);
-        
-        layout.addView(circleContainer);
-        
-        // Spacer
-        View spacer3 = new View(this);
-        spacer3.setLayoutParams(new android.widget.LinearLayout.LayoutParams(
-            android.widget.LinearLayout.LayoutParams.MATCH_PARENT, 40));
-        layout.addView(spacer3);
-        
-        // Message
-        TextView message = new TextView(this);
-        message.setText("If you don't respond, we'll notify your emergency contacts.");
-        message.setTextSize(18);
-        message.setTextColor(0xFFFEE2E2);
-        message.setGravity(android.view.Gravity.CENTER);
-        message.setPadding(20, 0, 20, 0);
-        layout.addView(message);
-        
-        // Spacer
-        View spacer4 = new View(this);
-        spacer4.setLayoutParams(new android.widget.LinearLayout.LayoutParams(
-            android.widget.LinearLayout.LayoutParams.MATCH_PARENT, 60));
-        layout.addView(spacer4);
-        
-        // Cancel button
-        cancelButton = new Button(this);
-        cancelButton.setText("I'm Okay - Cancel SOS");
-        cancelButton.setTextSize(20);
-        cancelButton.setTextColor(0xFFDC2626);
-        cancelButton.setBackgroundColor(0xFFFFFFFF);
-        cancelButton.setPadding(80, 40, 80, 40);
-        cancelButton.setOnClickListener(v -> cancelSOS());
-        android.widget.LinearLayout.LayoutParams buttonParams = new android.widget.LinearLayout.LayoutParams(
-            android.widget.LinearLayout.LayoutParams.WRAP_CONTENT,
-            android.widget.LinearLayout.LayoutParams.WRAP_CONTENT
-        );
-        buttonParams.gravity = android.view.Gravity.CENTER;
-        cancelButton.setLayoutParams(buttonParams);
-        layout.addView(cancelButton);
-        
-        // Secondary text
-        View spacer5 = new View(this);
-        spacer5.setLayoutParams(new android.widget.LinearLayout.LayoutParams(
-            android.widget.LinearLayout.LayoutParams.MATCH_PARENT, 30));
-        layout.addView(spacer5);
-        
-        TextView secondary = new TextView(this);
-        secondary.setText("Tap the button above if this was a false alarm");
-        secondary.setTextSize(14);
-        secondary.setTextColor(0xFFFCA5A5);
-        secondary.setGravity(android.view.Gravity.CENTER);
-        layout.addView(secondary);
-        
-        return layout;
-    }
-    
-    private void startVibration() {
-        vibrator = (Vibrator) getSystemService(Context.VIBRATOR_SERVICE);
-        if (vibrator != null) {
-            long[] pattern = {0, 500, 200, 500, 200, 500};
-            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
-                vibrator.vibrate(VibrationEffect.createWaveform(pattern, 0)); // 0 = repeat from start
-            } else {
-                vibrator.vibrate(pattern, 0);
-            }
-        }
-    }
-    
-    private void playAlertSound() {
-        // Try to use MediaPlayer with alarm sound for continuous looping
-        try {
-            // Get the default alarm sound URI
-            Uri alarmUri = RingtoneManager.getDefaultUri(RingtoneManager.TYPE_ALARM);
-            if (alarmUri == null) {
-                alarmUri = RingtoneManager.getDefaultUri(RingtoneManager.TYPE_RINGTONE);
-            }
-            if (alarmUri == null) {
-                alarmUri = RingtoneManager.getDefaultUri(RingtoneManager.TYPE_NOTIFICATION);
-            }
-            
-            if (alarmUri != null) {
-                mediaPlayer = new MediaPlayer();
-                mediaPlayer.setDataSource(this, alarmUri);
-                
-                // Set audio attributes for alarm stream
-                if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
-                    AudioAttributes audioAttributes = new AudioAttributes.Builder()
-                        .setUsage(AudioAttributes.USAGE_ALARM)
-                        .setContentType(AudioAttributes.CONTENT_TYPE_SONIFICATION)
-                        .build();
-                    mediaPlayer.setAudioAttributes(audioAttributes);
-                } else {
-                    mediaPlayer.setAudioStreamType(AudioManager.STREAM_ALARM);
-                }
-                
-                // Set to loop continuously
-                mediaPlayer.setLooping(true);
-                mediaPlayer.setVolume(1.0f, 1.0f);  // Max volume
-                mediaPlayer.prepare();
-                mediaPlayer.start();
-                Log.i(TAG, "Started continuous alarm sound with MediaPlayer");
-            } else {
-                // Fallback to ToneGenerator if no alarm URI available
-                startToneGeneratorLoop();
-            }
-        } catch (Exception e) {
-            Log.e(TAG, "Failed to start MediaPlayer alarm, falling back to ToneGenerator", e);
-            startToneGeneratorLoop();
-        }
-    }
-    
-    private void startToneGeneratorLoop() {
-        // Fallback: Use ToneGenerator in a loop
-        try {
-            toneGenerator = new ToneGenerator(AudioManager.STREAM_ALARM, 100);
-            // Start a repeating tone using handler
-            handler.post(new Runnable() {
-                @Override
-                public void run() {
-                    if (!isCancelled && toneGenerator != null) {
-                        toneGenerator.startTone(ToneGenerator.TONE_CDMA_EMERGENCY_RINGBACK, 1000);
-                        handler.postDelayed(this, 1500); // Repeat every 1.5 seconds
-                    }
-                }
-            });
-            Log.i(TAG, "Started ToneGenerator loop as fallback");
-        } catch (Exception e) {
-            Log.e(TAG, "Failed to start ToneGenerator", e);
-        }
+    @Override
+    protected void onNewIntent(Intent intent) {
+        super.onNewIntent(intent);
+        setIntent(intent);
+        countdownDeadlineMs = deadlineFrom(intent);
     }
     
-    private void stopAlertSound() {
-        // Stop MediaPlayer
-        if (mediaPlayer != null) {
-            try {
-                if (mediaPlayer.isPlaying()) {
-                    mediaPlayer.stop();
-                }
-                mediaPlayer.release();
-                mediaPlayer = null;
-                Log.i(TAG, "Stopped MediaPlayer alarm");
-            } catch (Exception e) {
-                Log.e(TAG, "Error stopping MediaPlayer", e);
-            }
-        }
-        
-        // Stop ToneGenerator
-        if (toneGenerator != null) {
-            try {
-                toneGenerator.stopTone();
-                toneGenerator.release();
-                toneGenerator = null;
-                Log.i(TAG, "Stopped ToneGenerator");
-            } catch (Exception e) {
-                Log.e(TAG, "Error stopping ToneGenerator", e);
-            }
-        }
+    private static long deadlineFrom(Intent intent) {
+        long deadline = intent.getLongExtra(EXTRA_COUNTDOWN_DEADLINE_MS, 0);
+        if (deadline == 0) deadline = SosState.getCountdownDeadlineMs();
+        return deadline != 0 ? deadline : SystemClock.elapsedRealtime() + COUNTDOWN_SECONDS * 1000L;
     }
     
     private void startCountdown() {
@@ -337,11 +167,13 @@ public class SOSAlertActivity extends Activity {
             public void run() {
                 if (isCancelled) return;
                 
-                if (secondsRemaining > 0) {
+                long remainingMs = countdownDeadlineMs - SystemClock.elapsedRealtime();
+                if (remainingMs > 0) {
+                    int secondsRemaining = (int) ((remainingMs + 999) / 1000);
                     countdownText.setText(String.valueOf(secondsRemaining));
                     progressBar.setProgress(secondsRemaining);
-                    secondsRemaining--;
-                    handler.postDelayed(this, 1000);
+                    // Tick on the second boundary of the deadline
+                    handler.postDelayed(this, (remainingMs - 1) % 1000 + 1);
                 } else {
                     // Time's up - send SOS
                     sendSOS();
@@ -367,13 +199,14 @@ public class SOSAlertActivity extends Activity {
         // Broadcast cancel intent to stop sound/vibration in the service
         Intent cancelIntent = new Intent(FallDetectionService.ACTION_CANCEL_SOS);
         cancelIntent.setPackage(getPackageName());
+        cancelIntent.putExtra(FallDetectionService.EXTRA_CANCEL_SOURCE, SosJournal.SOURCE_ACTIVITY);
         sendBroadcast(cancelIntent);
         
         // Show confirmation briefly then close
         countdownText.setText("✓");
         countdownText.setTextSize(60);
-        ((TextView) ((android.widget.LinearLayout) countdownText.getParent().getParent()).getChildAt(2)).setText("SOS Cancelled");
-        ((TextView) ((android.widget.LinearLayout) countdownText.getParent().getParent()).getChildAt(3)).setText("Glad you're okay!");
+        titleText.setText("SOS Cancelled");
+        subtitleText.setText("Glad you're okay!");
         cancelButton.setVisibility(View.GONE);
         
         handler.postDelayed(() -> finish(), 2000);
@@ -395,8 +228,8 @@ public class SOSAlertActivity extends Activity {
         // Update UI to show SOS was sent
         countdownText.setText("📤");
         countdownText.setTextSize(60);
-        ((TextView) ((android.widget.LinearLayout) countdownText.getParent().getParent()).getChildAt(2)).setText("SOS Alert Sent");
-        ((TextView) ((android.widget.LinearLayout) countdownText.getParent().getParent()).getChildAt(3)).setText("Your emergency contacts have been notified.");
+        titleText.setText("SOS Alert Sent");
+        subtitleText.setText("Your emergency contacts have been notified.");
         cancelButton.setVisibility(View.GONE);
         
         handler.postDelayed(() -> finish(), 3000);
@@ -410,8 +243,12 @@ public class SOSAlertActivity extends Activity {
         
         // Note: Sound and vibration are managed by FallDetectionService
         
-        if (wakeLock != null && wakeLock.isHeld()) {
-            wakeLock.release();
+        if (wakeLock != null) {
+            // Counted even if the timeout already released it - it was then held for the full timeout
+            EnergyAccounting.FALL.wakeLockReleased(wakeLockAcquiredAt, WAKE_LOCK_TIMEOUT_MS);
+            if (wakeLock.isHeld()) {
+                wakeLock.release();
+            }
         }
         
         // Reset the timer active flag
@@ -15,7 +15,8 @@ public class SOSCancelReceiver extends BroadcastReceiver {
         // Call cancelSOS on the service instance to stop sound/vibration
         FallDetectionService service = FallDetectionService.getInstance();
         if (service != null) {
-            service.cancelSOS();
+            service.cancelSOS(intent.getIntExtra(FallDetectionService.EXTRA_CANCEL_SOURCE,
+                SosJournal.SOURCE_NOTIFICATION));
         } else {
             // Fallback: Set the cancel flag if service instance not available
             FallDetectionService.sosCancelled = true;
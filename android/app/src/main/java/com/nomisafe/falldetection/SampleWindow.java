@@ -0,0 +1,120 @@
+package com.nomisafe.falldetection;
+
+/**
+ * Recent accelerometer samples in preallocated primitive ring buffers, shared by every
+ * detector of the ensemble. It holds a whole candidate, from before its free-fall to its
+ * impact timeout, at the fastest rate and longest timeout the config allows, so the marked
+ * segment is still there when the candidate is decided.
+ *
+ * {@link #add} is the only per-sample call: a low-pass gravity update, six array stores and an
+ * index increment, no allocation. Besides the raw axes and magnitude it keeps the magnitude of
+ * linear acceleration (gravity removed) for detectors that work on that. Readers walk the
+ * buffers by sample timestamp, so the window works at any sampling rate the detection profile
+ * or power policy picks.
+ *
+ * Single-threaded: written and read on the sensor (main) thread.
+ */
+final class SampleWindow {
+    // History kept before free-fall, for the feature baseline and near-miss snippets
+    static final long PRE_ROLL_MS = 1000;
+    // Free-fall start to the end of the longest candidate
+    private static final long MAX_SPAN_MS = PRE_ROLL_MS + DetectorConfig.MAX_FREE_FALL_DURATION_MS
+        + DetectorConfig.MAX_IMPACT_WINDOW_MS + DetectorConfig.MAX_IMPACT_TIMEOUT_MS;
+    private static final int MAX_SAMPLES = (int) (MAX_SPAN_MS * 1000 / DetectorConfig.MIN_SAMPLING_PERIOD_US);
+    // Next power of two, for the index mask: 8192, ~41 s at 200 Hz
+    static final int CAPACITY = Integer.highestOneBit(MAX_SAMPLES - 1) << 1;
+
+    final long[] timestampNanos = new long[CAPACITY];
+    final float[] x = new float[CAPACITY];
+    final float[] y = new float[CAPACITY];
+    final float[] z = new float[CAPACITY];
+    final float[] magnitude = new float[CAPACITY];
+    final float[] linearMagnitude = new float[CAPACITY];
+
+    // Low-pass gravity estimate
+    private float lowPassAlpha = DetectorConfig.DEFAULT.shakeLowPassAlpha;
+    private float gravityX, gravityY, gravityZ;
+
+    private int next = 0;     // slot the next sample goes to
+    private int size = 0;
+
+    // Timestamps of the current candidate's phases, 0 when unset
+    long freeFallStartNanos = 0;
+    long impactNanos = 0;
+
+    void add(long timestampNanos, float x, float y, float z, float magnitude) {
+        int i = next;
+        this.timestampNanos[i] = timestampNanos;
+        this.x[i] = x;
+        this.y[i] = y;
+        this.z[i] = z;
+        this.magnitude[i] = magnitude;
+        float a = lowPassAlpha;
+        gravityX = a * gravityX + (1 - a) * x;
+        gravityY = a * gravityY + (1 - a) * y;
+        gravityZ = a * gravityZ + (1 - a) * z;
+        float lx = x - gravityX;
+        float ly = y - gravityY;
+        float lz = z - gravityZ;
+        linearMagnitude[i] = (float) Math.sqrt(lx * lx + ly * ly + lz * lz);
+        next = (i + 1) & (CAPACITY - 1);
+        if (size < CAPACITY) size++;
+    }
+
+    void setLowPassAlpha(float alpha) {
+        lowPassAlpha = alpha;
+    }
+
+    /** Ring index of the newest sample; only valid when size() > 0. */
+    int newest() {
+        return (next - 1) & (CAPACITY - 1);
+    }
+
+    void markFreeFall() {
+        freeFallStartNanos = latestTimestampNanos();
+        impactNanos = 0;
+    }
+
+    void markImpact() {
+        impactNanos = latestTimestampNanos();
+    }
+
+    void clearMarks() {
+        freeFallStartNanos = 0;
+        impactNanos = 0;
+    }
+
+    void clear() {
+        next = 0;
+        size = 0;
+        clearMarks();
+    }
+
+    int size() {
+        return size;
+    }
+
+    /** Ring index of the i-th oldest sample, 0 <= i < size(). */
+    int index(int i) {
+        return (next - size + i) & (CAPACITY - 1);
+    }
+
+    long latestTimestampNanos() {
+        return size == 0 ? 0 : timestampNanos[(next - 1) & (CAPACITY - 1)];
+    }
+
+    /** Position (0..size) of the first sample at or after the timestamp. */
+    int firstAtOrAfter(long timestamp) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (timestampNanos[index(mid)] < timestamp) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+}
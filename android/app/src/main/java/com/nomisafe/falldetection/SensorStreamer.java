@@ -0,0 +1,175 @@
+package com.nomisafe.falldetection;
+
+import android.os.Bundle;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.util.Log;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Opt-in live stream of decimated accelerometer samples to JS, for tuning thresholds on a device.
+ *
+ * When disabled the sensor path pays a single volatile read. When enabled, the sensor thread
+ * only copies every Nth sample into preallocated primitive arrays; full batches are handed to a
+ * background thread that builds the event. If JS has not acknowledged the previous batch, the
+ * new batch is dropped instead of queued. Batches carry a sequence number and only the ack of
+ * the batch in flight releases it, so a late ack of a timed-out batch cannot release the next.
+ */
+class SensorStreamer {
+    private static final String TAG = "SensorStreamer";
+    private static final long ACK_TIMEOUT_MS = 1000;
+
+    static final int PHASE_IDLE = 0;
+    static final int PHASE_FREE_FALL = 1;
+    static final int PHASE_IMPACT = 2;
+    static final int PHASE_STILLNESS = 3;
+
+    private volatile boolean enabled = false;
+
+    // Written only by the sensor thread
+    private int decimation = 1;
+    private int batchSize = 0;
+    private int skipCounter = 0;
+    private int frontCount = 0;
+    private long frontBaseMs = 0;
+    private int lastSeq = 0;
+    private Batch front;
+    private Batch back;
+
+    // Sequence number of the batch on its way to JS and not yet acknowledged, or 0
+    private final AtomicInteger inFlight = new AtomicInteger(0);
+    private volatile long droppedFrames = 0;
+
+    private HandlerThread drainThread;
+    private Handler drainHandler;
+
+    private static final class Batch {
+        final int[] offsetMs;
+        final float[] x;
+        final float[] y;
+        final float[] z;
+        final float[] magnitude;
+        final int[] phase;
+        long baseMs;
+        int count;
+        int seq;
+
+        Batch(int size) {
+            offsetMs = new int[size];
+            x = new float[size];
+            y = new float[size];
+            z = new float[size];
+            magnitude = new float[size];
+            phase = new int[size];
+        }
+    }
+
+    boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Starts streaming every {@code decimation}-th sample in batches of {@code batchSize}.
+     * Must be called on the sensor thread, like {@link #offer}.
+     */
+    void enable(int decimation, int batchSize) {
+        if (enabled) disable();
+        this.decimation = Math.max(1, decimation);
+        this.batchSize = Math.max(1, Math.min(batchSize, 500));
+        front = new Batch(this.batchSize);
+        back = new Batch(this.batchSize);
+        skipCounter = 0;
+        frontCount = 0;
+        droppedFrames = 0;
+        inFlight.set(0);
+        drainThread = new HandlerThread("SensorStreamDrain");
+        drainThread.start();
+        drainHandler = new Handler(drainThread.getLooper());
+        enabled = true;
+        Log.i(TAG, "Sensor stream enabled: decimation=" + this.decimation + ", batch=" + this.batchSize);
+    }
+
+    void disable() {
+        if (!enabled) return;
+        enabled = false;
+        if (drainThread != null) {
+            drainThread.quitSafely();
+            drainThread = null;
+            drainHandler = null;
+        }
+        front = null;
+        back = null;
+        Log.i(TAG, "Sensor stream disabled, dropped " + droppedFrames + " frame(s)");
+    }
+
+    /**
+     * Called by JS after it has processed batch {@code seq}; acks of any other batch are ignored.
+     */
+    void acknowledge(int seq) {
+        if (seq != 0) {
+            inFlight.compareAndSet(seq, 0);
+        }
+    }
+
+    /**
+     * Records one sample. Only called when {@link #isEnabled()} is true.
+     */
+    void offer(long timestampMs, float x, float y, float z, float magnitude, int phase) {
+        if (++skipCounter < decimation) return;
+        skipCounter = 0;
+
+        Batch batch = front;
+        if (frontCount == 0) {
+            frontBaseMs = timestampMs;
+        }
+        batch.offsetMs[frontCount] = (int) (timestampMs - frontBaseMs);
+        batch.x[frontCount] = x;
+        batch.y[frontCount] = y;
+        batch.z[frontCount] = z;
+        batch.magnitude[frontCount] = magnitude;
+        batch.phase[frontCount] = phase;
+        if (++frontCount < batchSize) return;
+
+        // Batch full - hand it off, or drop it if JS is still busy with the previous one
+        int seq = lastSeq == Integer.MAX_VALUE ? 1 : lastSeq + 1;  // 0 means none in flight
+        if (!inFlight.compareAndSet(0, seq)) {
+            droppedFrames += frontCount;
+            frontCount = 0;
+            return;
+        }
+        lastSeq = seq;
+        batch.baseMs = frontBaseMs;
+        batch.count = frontCount;
+        batch.seq = seq;
+        front = back;
+        back = batch;
+        frontCount = 0;
+        Handler handler = drainHandler;
+        if (handler != null) {
+            handler.post(() -> drain(batch));
+            // Releases only this batch; a later one has its own timeout
+            handler.postDelayed(() -> inFlight.compareAndSet(seq, 0), ACK_TIMEOUT_MS);
+        }
+    }
+
+    private void drain(Batch batch) {
+        int n = batch.count;
+        int seq = batch.seq;
+        Bundle params = new Bundle();
+        params.putInt("seq", seq);
+        params.putDouble("baseTimestamp", batch.baseMs);
+        params.putIntArray("offsetMs", Arrays.copyOf(batch.offsetMs, n));
+        params.putFloatArray("x", Arrays.copyOf(batch.x, n));
+        params.putFloatArray("y", Arrays.copyOf(batch.y, n));
+        params.putFloatArray("z", Arrays.copyOf(batch.z, n));
+        params.putFloatArray("magnitude", Arrays.copyOf(batch.magnitude, n));
+        params.putIntArray("phase", Arrays.copyOf(batch.phase, n));
+        params.putDouble("droppedFrames", droppedFrames);
+        if (!ReactEventChannel.getInstance().emitTransient("SensorStream", params)) {
+            // Nobody listening - do not wait for an ack that will never come
+            inFlight.compareAndSet(seq, 0);
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package com.nomisafe.falldetection;
+
+import android.os.Bundle;
+import android.os.Debug;
+import android.os.SystemClock;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+/**
+ * Encode and decode throughput of the sensor trace format on a synthetic 50 Hz recording,
+ * written to and memory-mapped from the cache directory.
+ *
+ * Samples are generated into arrays before timing, so the encode figure is the codec and the
+ * buffered file write alone. Allocation is read from ART's process-wide counter around each
+ * loop, like {@link ClassifierBenchmark}, and should stay near zero per sample.
+ */
+final class SensorTraceBenchmark {
+    private static final int SAMPLE_RATE_HZ = 50;
+
+    private SensorTraceBenchmark() {}
+
+    static Bundle run(File cacheDir, int samples) throws IOException {
+        if (samples <= 0) samples = 500_000;
+        long[] t = new long[samples];
+        float[] x = new float[samples];
+        float[] y = new float[samples];
+        float[] z = new float[samples];
+        long periodNanos = 1_000_000_000L / SAMPLE_RATE_HZ;
+        long timestamp = SystemClock.elapsedRealtimeNanos();
+        for (int i = 0; i < samples; i++) {
+            // Walking-like motion with sensor jitter on the timestamps
+            timestamp += periodNanos + (i % 7 - 3) * 150_000L;
+            double phase = i * 2 * Math.PI / SAMPLE_RATE_HZ;
+            t[i] = timestamp;
+            x[i] = (float) (0.8 * Math.sin(phase * 1.9));
+            y[i] = (float) (9.8 + 2.5 * Math.sin(phase * 1.9 * 2));
+            z[i] = (float) (1.2 * Math.cos(phase * 1.9));
+        }
+
+        File file = new File(cacheDir, "trace-benchmark.trace");
+        long allocatedBefore = allocatedBytes();
+        long start = SystemClock.elapsedRealtimeNanos();
+        try (SensorTraceWriter writer = new SensorTraceWriter(
+                new BufferedOutputStream(new FileOutputStream(file), 64 * 1024), SensorTraceWriter.DEFAULT_RANGE)) {
+            for (int i = 0; i < samples; i++) {
+                writer.append(t[i], x[i], y[i], z[i]);
+            }
+        }
+        long encodeNanos = SystemClock.elapsedRealtimeNanos() - start;
+        long encodeAllocated = allocatedBytes() - allocatedBefore;
+
+        float maxError = 0;
+        long maxTimeErrorNanos = 0;
+        int decoded = 0;
+        allocatedBefore = allocatedBytes();
+        start = SystemClock.elapsedRealtimeNanos();
+        try (SensorTraceReader reader = new SensorTraceReader(file)) {
+            while (reader.next()) {
+                maxError = Math.max(maxError, Math.abs(reader.x - x[decoded]));
+                maxTimeErrorNanos = Math.max(maxTimeErrorNanos, Math.abs(reader.timestampNanos - t[decoded]));
+                decoded++;
+            }
+        }
+        long decodeNanos = SystemClock.elapsedRealtimeNanos() - start;
+        long decodeAllocated = allocatedBytes() - allocatedBefore;
+        long fileBytes = file.length();
+        file.delete();
+
+        Bundle result = new Bundle();
+        result.putDouble("samples", samples);
+        result.putDouble("decodedSamples", decoded);
+        result.putDouble("bytesPerSample", (double) fileBytes / samples);
+        result.putDouble("encodeSamplesPerSec", samples * 1e9 / encodeNanos);
+        result.putDouble("decodeSamplesPerSec", decoded * 1e9 / decodeNanos);
+        result.putDouble("encodeMBPerSec", fileBytes * 1e3 / encodeNanos);
+        result.putDouble("decodeMBPerSec", fileBytes * 1e3 / decodeNanos);
+        result.putDouble("maxAxisError", maxError);
+        result.putDouble("maxTimestampErrorNs", maxTimeErrorNanos);
+        result.putDouble("encodeAllocatedBytesPerSample",
+            allocatedBefore < 0 ? -1 : (double) encodeAllocated / samples);
+        result.putDouble("decodeAllocatedBytesPerSample",
+            allocatedBefore < 0 ? -1 : (double) decodeAllocated / samples);
+        return result;
+    }
+
+    private static long allocatedBytes() {
+        String value = Debug.getRuntimeStat("art.gc.bytes-allocated");
+        try {
+            return value != null ? Long.parseLong(value) : -1;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,235 @@
+package com.nomisafe.falldetection;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+
+/**
+ * Streaming decoder of the trace format written by {@link SensorTraceWriter}, over a
+ * read-only memory-mapped file.
+ *
+ * {@link #next} decodes one sample into the public fields, so reading allocates nothing per
+ * sample; each block is copied once into a preallocated buffer and its checksum verified
+ * before any of its samples is returned. {@link #seek} finds a block through the index by
+ * binary search. A file whose writer never closed it has no index; the index is then rebuilt
+ * by walking the block headers, up to the first truncated or corrupt block.
+ *
+ * Not thread-safe.
+ */
+final class SensorTraceReader implements Closeable {
+    private final RandomAccessFile file;
+    private final MappedByteBuffer map;
+    private final float scale;
+    private final CRC32 crc = new CRC32();
+
+    private long[] indexTimestamps;
+    private long[] indexOffsets;
+    private int blockCount;
+    private long sampleCount;
+
+    // Current block
+    private final byte[] payload = new byte[SensorTraceWriter.BLOCK_SAMPLES * SensorTraceWriter.MAX_SAMPLE_BYTES];
+    private int nextBlock = 0;
+    private int remaining = 0;
+    private int position;
+    private long previousNanos;
+
+    // Current sample, valid after next() returned true
+    long timestampNanos;
+    float x;
+    float y;
+    float z;
+
+    SensorTraceReader(File path) throws IOException {
+        file = new RandomAccessFile(path, "r");
+        try {
+            FileChannel channel = file.getChannel();
+            map = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            map.order(ByteOrder.LITTLE_ENDIAN);
+            if (map.limit() < SensorTraceWriter.HEADER_BYTES || map.getInt(0) != SensorTraceWriter.MAGIC) {
+                throw new IOException("Not a sensor trace: " + path);
+            }
+            int version = map.getShort(4) & 0xFFFF;
+            if (version != SensorTraceWriter.VERSION) {
+                throw new IOException("Unsupported trace version " + version);
+            }
+            scale = map.getFloat(8);
+            if (!readIndex()) {
+                rebuildIndex();
+            }
+        } catch (IOException | RuntimeException e) {
+            file.close();
+            throw e;
+        }
+    }
+
+    private boolean readIndex() {
+        int limit = map.limit();
+        if (limit < SensorTraceWriter.HEADER_BYTES + SensorTraceWriter.FOOTER_BYTES) return false;
+        int footer = limit - SensorTraceWriter.FOOTER_BYTES;
+        if (map.getInt(footer + 20) != SensorTraceWriter.INDEX_MAGIC) return false;
+        int blocks = map.getInt(footer);
+        long indexOffset = map.getLong(footer + 12);
+        if (blocks < 0 || indexOffset < SensorTraceWriter.HEADER_BYTES
+                || indexOffset + 16L * blocks != footer) {
+            return false;
+        }
+        blockCount = blocks;
+        sampleCount = map.getLong(footer + 4);
+        indexTimestamps = new long[blocks];
+        indexOffsets = new long[blocks];
+        for (int i = 0; i < blocks; i++) {
+            int entry = (int) indexOffset + 16 * i;
+            indexTimestamps[i] = map.getLong(entry);
+            indexOffsets[i] = map.getLong(entry + 8);
+        }
+        return true;
+    }
+
+    private void rebuildIndex() {
+        indexTimestamps = new long[16];
+        indexOffsets = new long[16];
+        blockCount = 0;
+        sampleCount = 0;
+        int limit = map.limit();
+        int offset = SensorTraceWriter.HEADER_BYTES;
+        while (offset + SensorTraceWriter.BLOCK_HEADER_BYTES <= limit) {
+            int samples = map.getShort(offset + 8) & 0xFFFF;
+            int bytes = map.getShort(offset + 10) & 0xFFFF;
+            if (samples == 0 || samples > SensorTraceWriter.BLOCK_SAMPLES
+                    || bytes < samples * SensorTraceWriter.MIN_SAMPLE_BYTES || bytes > payload.length
+                    || offset + SensorTraceWriter.BLOCK_HEADER_BYTES + bytes > limit) {
+                break;
+            }
+            // A torn last block, or the start of a partly written index, ends the trace
+            map.position(offset + SensorTraceWriter.BLOCK_HEADER_BYTES);
+            map.get(payload, 0, bytes);
+            crc.reset();
+            crc.update(payload, 0, bytes);
+            if ((int) crc.getValue() != map.getInt(offset + 12)) break;
+            if (blockCount == indexOffsets.length) {
+                indexTimestamps = Arrays.copyOf(indexTimestamps, blockCount * 2);
+                indexOffsets = Arrays.copyOf(indexOffsets, blockCount * 2);
+            }
+            indexTimestamps[blockCount] = map.getLong(offset);
+            indexOffsets[blockCount] = offset;
+            blockCount++;
+            sampleCount += samples;
+            offset += SensorTraceWriter.BLOCK_HEADER_BYTES + bytes;
+        }
+    }
+
+    float scale() {
+        return scale;
+    }
+
+    int blockCount() {
+        return blockCount;
+    }
+
+    long sampleCount() {
+        return sampleCount;
+    }
+
+    /**
+     * Decodes the next sample into {@link #timestampNanos}, {@link #x}, {@link #y}, {@link #z}.
+     *
+     * @return false at the end of the trace
+     * @throws IOException if a block fails its checksum
+     */
+    boolean next() throws IOException {
+        if (remaining == 0) {
+            if (nextBlock >= blockCount) return false;
+            loadBlock(nextBlock++);
+        }
+        byte[] b = payload;
+        int p = position;
+        long v = 0;
+        int shift = 0;
+        byte read;
+        do {
+            read = b[p++];
+            v |= (long) (read & 0x7F) << shift;
+            shift += 7;
+        } while (read < 0);
+        long deltaUs = (v >>> 1) ^ -(v & 1);
+        previousNanos += deltaUs * 1000;
+        timestampNanos = previousNanos;
+        x = (short) ((b[p] & 0xFF) | (b[p + 1] << 8)) * scale;
+        y = (short) ((b[p + 2] & 0xFF) | (b[p + 3] << 8)) * scale;
+        z = (short) ((b[p + 4] & 0xFF) | (b[p + 5] << 8)) * scale;
+        position = p + 6;
+        remaining--;
+        return true;
+    }
+
+    private void loadBlock(int index) throws IOException {
+        int offset = (int) indexOffsets[index];
+        int samples = map.getShort(offset + 8) & 0xFFFF;
+        int bytes = map.getShort(offset + 10) & 0xFFFF;
+        int expected = map.getInt(offset + 12);
+        if (bytes > payload.length) {
+            throw new IOException("Block " + index + " too large: " + bytes + " bytes");
+        }
+        map.position(offset + SensorTraceWriter.BLOCK_HEADER_BYTES);
+        map.get(payload, 0, bytes);
+        crc.reset();
+        crc.update(payload, 0, bytes);
+        if ((int) crc.getValue() != expected) {
+            throw new IOException("Checksum mismatch in block " + index);
+        }
+        previousNanos = map.getLong(offset);
+        position = 0;
+        remaining = samples;
+    }
+
+    /**
+     * Positions the reader so the next sample is the first at or after the timestamp. Decoded
+     * timestamps are within half a microsecond of the recorded ones.
+     */
+    void seek(long target) throws IOException {
+        // Last block starting at or before the target
+        int low = 0;
+        int high = blockCount - 1;
+        int block = 0;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (indexTimestamps[mid] <= target) {
+                block = mid;
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        nextBlock = block;
+        remaining = 0;
+        while (true) {
+            if (remaining == 0) {
+                if (nextBlock >= blockCount) return;
+                loadBlock(nextBlock++);
+            }
+            // Decode ahead, and step back once the target is reached
+            int savedPosition = position;
+            int savedRemaining = remaining;
+            long savedNanos = previousNanos;
+            next();
+            if (timestampNanos >= target) {
+                position = savedPosition;
+                remaining = savedRemaining;
+                previousNanos = savedNanos;
+                return;
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        file.close();
+    }
+}
@@ -0,0 +1,193 @@
+package com.nomisafe.falldetection;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+
+/**
+ * Streaming encoder of the compact accelerometer trace format read by {@link SensorTraceReader}.
+ *
+ * All integers little-endian:
+ * <pre>
+ * header  "NSTR" | u16 version | u16 blockSamples | f32 scale (m/s² per unit) | u32 0
+ * block   i64 firstTimestampNanos | u16 samples | u16 payloadBytes | u32 crc32(payload) | payload
+ * payload per sample: varint zigzag(time delta, µs) | i16 x | i16 y | i16 z
+ * index   per block: i64 firstTimestampNanos | i64 blockOffset
+ * footer  u32 blocks | i64 samples | i64 indexOffset | "NSTI"
+ * </pre>
+ *
+ * Axes are quantized to int16 with one scale for the file, chosen from the sensor's range.
+ * Time deltas are taken against the previous decoded timestamp, so rounding to microseconds
+ * never drifts; the first sample of each block is exact. At 50 Hz a sample takes 9 bytes
+ * instead of the 20 of float axes and a 64-bit timestamp.
+ *
+ * Samples are encoded into one preallocated block buffer, so {@link #append} allocates
+ * nothing; only the index grows, once per {@link #BLOCK_SAMPLES} samples. Not thread-safe.
+ */
+final class SensorTraceWriter implements Closeable {
+    static final int MAGIC = 0x5254534E;        // "NSTR"
+    static final int INDEX_MAGIC = 0x4954534E;  // "NSTI"
+    static final int VERSION = 1;
+    static final int BLOCK_SAMPLES = 256;
+    static final int HEADER_BYTES = 16;
+    static final int BLOCK_HEADER_BYTES = 16;
+    static final int FOOTER_BYTES = 24;
+    // Varint of one to five bytes plus three axes
+    static final int MIN_SAMPLE_BYTES = 7;
+    static final int MAX_SAMPLE_BYTES = 11;
+    // Largest delta a five-byte zigzag varint holds; a longer gap starts a new block
+    private static final long MAX_DELTA_US = 1L << 34;
+
+    /** Full range of a 16 g accelerometer, the common worst case. */
+    static final float DEFAULT_RANGE = 16 * 9.80665f;
+
+    private final OutputStream out;
+    private final float scale;
+    private final float inverseScale;
+    private final CRC32 crc = new CRC32();
+
+    // Current block: header space followed by the payload
+    private final byte[] block = new byte[BLOCK_HEADER_BYTES + BLOCK_SAMPLES * MAX_SAMPLE_BYTES];
+    private int blockBytes = BLOCK_HEADER_BYTES;
+    private int blockSamples = 0;
+    private long blockFirstNanos;
+    private long previousNanos;
+
+    private long offset;
+    private long sampleCount = 0;
+    private long[] indexTimestamps = new long[16];
+    private long[] indexOffsets = new long[16];
+    private int blockCount = 0;
+    private boolean closed = false;
+
+    /**
+     * @param range largest absolute axis value to represent, usually the sensor's maximum range
+     */
+    SensorTraceWriter(OutputStream out, float range) throws IOException {
+        if (!(range > 0)) {
+            throw new IllegalArgumentException("range must be > 0");
+        }
+        this.out = out;
+        this.scale = range / Short.MAX_VALUE;
+        this.inverseScale = 1f / scale;
+
+        byte[] header = new byte[HEADER_BYTES];
+        putInt(header, 0, MAGIC);
+        putShort(header, 4, VERSION);
+        putShort(header, 6, BLOCK_SAMPLES);
+        putInt(header, 8, Float.floatToIntBits(scale));
+        out.write(header);
+        offset = HEADER_BYTES;
+    }
+
+    float scale() {
+        return scale;
+    }
+
+    void append(long timestampNanos, float x, float y, float z) throws IOException {
+        byte[] b = block;
+        int p = blockBytes;
+        if (blockSamples == 0) {
+            blockFirstNanos = timestampNanos;
+            previousNanos = timestampNanos;
+            b[p++] = 0; // zero delta
+        } else {
+            long deltaUs = Math.round((timestampNanos - previousNanos) / 1000.0);
+            if (deltaUs >= MAX_DELTA_US || deltaUs <= -MAX_DELTA_US) {
+                flushBlock();
+                append(timestampNanos, x, y, z);
+                return;
+            }
+            previousNanos += deltaUs * 1000;
+            // Zigzag keeps small negative deltas (reordered batches) short
+            long v = (deltaUs << 1) ^ (deltaUs >> 63);
+            while ((v & ~0x7FL) != 0) {
+                b[p++] = (byte) ((v & 0x7F) | 0x80);
+                v >>>= 7;
+            }
+            b[p++] = (byte) v;
+        }
+        p = putShort(b, p, quantize(x));
+        p = putShort(b, p, quantize(y));
+        p = putShort(b, p, quantize(z));
+        blockBytes = p;
+        sampleCount++;
+        if (++blockSamples == BLOCK_SAMPLES) {
+            flushBlock();
+        }
+    }
+
+    private int quantize(float value) {
+        int q = Math.round(value * inverseScale);
+        return Math.max(-Short.MAX_VALUE, Math.min(Short.MAX_VALUE, q));
+    }
+
+    private void flushBlock() throws IOException {
+        if (blockSamples == 0) return;
+        int payload = blockBytes - BLOCK_HEADER_BYTES;
+        crc.reset();
+        crc.update(block, BLOCK_HEADER_BYTES, payload);
+        putLong(block, 0, blockFirstNanos);
+        putShort(block, 8, blockSamples);
+        putShort(block, 10, payload);
+        putInt(block, 12, (int) crc.getValue());
+
+        if (blockCount == indexOffsets.length) {
+            indexTimestamps = Arrays.copyOf(indexTimestamps, blockCount * 2);
+            indexOffsets = Arrays.copyOf(indexOffsets, blockCount * 2);
+        }
+        indexTimestamps[blockCount] = blockFirstNanos;
+        indexOffsets[blockCount] = offset;
+        blockCount++;
+
+        out.write(block, 0, blockBytes);
+        offset += blockBytes;
+        blockBytes = BLOCK_HEADER_BYTES;
+        blockSamples = 0;
+    }
+
+    /** Writes the last partial block, the index and the footer, then closes the stream. */
+    @Override
+    public void close() throws IOException {
+        if (closed) return;
+        closed = true;
+        try {
+            flushBlock();
+            long indexOffset = offset;
+            byte[] entry = new byte[16];
+            for (int i = 0; i < blockCount; i++) {
+                putLong(entry, 0, indexTimestamps[i]);
+                putLong(entry, 8, indexOffsets[i]);
+                out.write(entry);
+            }
+            byte[] footer = new byte[FOOTER_BYTES];
+            putInt(footer, 0, blockCount);
+            putLong(footer, 4, sampleCount);
+            putLong(footer, 12, indexOffset);
+            putInt(footer, 20, INDEX_MAGIC);
+            out.write(footer);
+        } finally {
+            out.close();
+        }
+    }
+
+    static int putShort(byte[] b, int p, int v) {
+        b[p] = (byte) v;
+        b[p + 1] = (byte) (v >> 8);
+        return p + 2;
+    }
+
+    static void putInt(byte[] b, int p, int v) {
+        b[p] = (byte) v;
+        b[p + 1] = (byte) (v >> 8);
+        b[p + 2] = (byte) (v >> 16);
+        b[p + 3] = (byte) (v >> 24);
+    }
+
+    static void putLong(byte[] b, int p, long v) {
+        putInt(b, p, (int) v);
+        putInt(b, p + 4, (int) (v >> 32));
+    }
+}
@@ -0,0 +1,114 @@
+package com.nomisafe.falldetection;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
+
+/**
+ * Detects a sensor listener that has silently stopped delivering and asks the service to
+ * recover it: first by re-registering the listener, then by rebuilding the sensor pipeline.
+ *
+ * Gaps are measured on the uptime clock and the checks run on a Handler, which also runs on
+ * uptime. Neither advances while the CPU is suspended, so doze never looks like a stall and
+ * the watchdog needs no wake lock of its own.
+ */
+class SensorWatchdog {
+    private static final String TAG = "SensorWatchdog";
+
+    interface Recovery {
+        /**
+         * Attempt 1 re-registers the listener; later attempts rebuild the sensor pipeline.
+         * Returns false if the listener could not be registered at all.
+         */
+        boolean recover(int attempt);
+    }
+
+    private final Handler handler;
+    private final Recovery recovery;
+    private volatile long stallThresholdMs;
+    private volatile long lastSampleUptimeMs;
+    private long stalledSinceUptimeMs;
+    private int attempts;
+    private boolean running;
+
+    private final Runnable check = new Runnable() {
+        @Override
+        public void run() {
+            checkForStall();
+            if (running) {
+                handler.postDelayed(this, checkIntervalMs());
+            }
+        }
+    };
+
+    SensorWatchdog(long stallThresholdMs, Recovery recovery) {
+        this.stallThresholdMs = stallThresholdMs;
+        this.recovery = recovery;
+        this.handler = new CountingHandler(Looper.getMainLooper(), EnergyAccounting.FALL);
+    }
+
+    /** Must be called on the main thread, like the sensor callbacks. */
+    void start() {
+        if (running) return;
+        running = true;
+        lastSampleUptimeMs = SystemClock.uptimeMillis();
+        handler.postDelayed(check, checkIntervalMs());
+    }
+
+    void stop() {
+        running = false;
+        handler.removeCallbacks(check);
+    }
+
+    void setStallThresholdMs(long thresholdMs) {
+        stallThresholdMs = thresholdMs;
+    }
+
+    long getStallThresholdMs() {
+        return stallThresholdMs;
+    }
+
+    /**
+     * Called for every sample on the sensor thread. A volatile write, plus a branch that only
+     * does work on the first sample after a stall.
+     */
+    void onSample() {
+        lastSampleUptimeMs = SystemClock.uptimeMillis();
+        if (stalledSinceUptimeMs != 0) {
+            long recoveryMs = lastSampleUptimeMs - stalledSinceUptimeMs;
+            FallDetectionMetrics.SENSOR_RECOVERY_MS.record(recoveryMs);
+            Log.i(TAG, "Sensor recovered after " + recoveryMs + "ms and " + attempts + " attempt(s)");
+            stalledSinceUptimeMs = 0;
+            attempts = 0;
+        }
+    }
+
+    private long checkIntervalMs() {
+        return Math.max(500, stallThresholdMs / 2);
+    }
+
+    private void checkForStall() {
+        long now = SystemClock.uptimeMillis();
+        long gap = now - lastSampleUptimeMs;
+        if (gap < stallThresholdMs) return;
+
+        if (stalledSinceUptimeMs == 0) {
+            // Recovery time is measured from the last sample, not from when the check noticed
+            stalledSinceUptimeMs = lastSampleUptimeMs;
+            FallDetectionMetrics.SENSOR_STALLS.increment();
+            Log.w(TAG, "No sensor samples for " + gap + "ms - re-registering listener");
+        } else {
+            Log.w(TAG, "Sensor still stalled after " + gap + "ms - restarting sensor pipeline");
+        }
+        attempts++;
+        if (attempts > 1) {
+            FallDetectionMetrics.SENSOR_PIPELINE_RESTARTS.increment();
+        }
+        if (!recovery.recover(attempts)) {
+            Log.e(TAG, "Sensor listener could not be registered (attempt " + attempts + ")");
+        }
+        // Give the new registration a full threshold before judging it
+        lastSampleUptimeMs = now;
+    }
+}
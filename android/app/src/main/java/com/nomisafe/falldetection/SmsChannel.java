@@ -0,0 +1,26 @@
+package com.nomisafe.falldetection;
+
+/**
+ * Text-message transport used by {@link SosDelivery} as the fallback channel. Kept free of
+ * Android types so the delivery engine runs in JVM unit tests against a fake;
+ * {@link AndroidSmsChannel} is the SmsManager implementation.
+ */
+interface SmsChannel {
+    interface Callback {
+        /**
+         * Called once per {@link #send} that returned true, on any thread. ok means the radio
+         * reported every part sent; errorCode is the transport's failure code otherwise.
+         */
+        void onSent(String destination, boolean ok, int errorCode);
+    }
+
+    /** False when no message can be sent at all (no permission, no telephony). */
+    boolean isAvailable();
+
+    /**
+     * Queues a message for sending.
+     *
+     * @return false if it was not queued; the callback is then never called
+     */
+    boolean send(String destination, String text, Callback callback);
+}
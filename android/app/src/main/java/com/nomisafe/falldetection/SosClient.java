@@ -0,0 +1,205 @@
+package com.nomisafe.falldetection;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Sends an SOS to the backend with retries; plain Java with no Android dependency, so the
+ * same code runs in the service and in the SOS load test against a local stub server.
+ *
+ * A send makes up to 1 + retries attempts. Server errors (5xx), timeouts and network errors
+ * are retried; any other non-200 answer is final. Retry delays are the caller's delay with
+ * ±50 % jitter, so devices that failed together do not retry together, and at least any
+ * Retry-After the server sent. Tracing, metrics and logging hang off the {@link Listener}.
+ */
+final class SosClient {
+    static final String DEFAULT_ENDPOINT = "http://15.207.247.24/api/sos/";
+    // Longest Retry-After honoured
+    private static final long MAX_RETRY_AFTER_MS = 60_000;
+    private static final Pattern CONTACTS_NOTIFIED = Pattern.compile("\"contacts_notified\"\\s*:\\s*(\\d+)");
+
+    interface Listener {
+        void onAttempt(int retriesLeft);
+
+        /** @return token for {@link #endPhase}, like FallTrace.begin */
+        boolean beginPhase(String name);
+
+        void endPhase(boolean token);
+
+        /** After each attempt; status 0 when no response arrived. */
+        void onResponse(int httpStatus, long bytesSent, long bytesReceived, Exception error);
+    }
+
+    interface RetryDelay {
+        long delayMs();
+    }
+
+    interface Sleeper {
+        void sleep(long ms) throws InterruptedException;
+    }
+
+    /** Polled before each attempt; true abandons the send, e.g. once another channel delivered. */
+    interface StopCondition {
+        boolean stopped();
+    }
+
+    static final class Result {
+        final boolean delivered;
+        final int httpStatus;       // of the last attempt, 0 without a response
+        final int attempts;
+        final int contactsNotified;
+        final long retryAfterMs;    // from the last response, 0 if none
+
+        Result(boolean delivered, int httpStatus, int attempts, int contactsNotified, long retryAfterMs) {
+            this.delivered = delivered;
+            this.httpStatus = httpStatus;
+            this.attempts = attempts;
+            this.contactsNotified = contactsNotified;
+            this.retryAfterMs = retryAfterMs;
+        }
+    }
+
+    private final String endpoint;
+    private final int connectTimeoutMs;
+    private final int readTimeoutMs;
+    private final RetryDelay retryDelay;
+    private final Sleeper sleeper;
+    private final Listener listener;
+
+    SosClient(String endpoint, int connectTimeoutMs, int readTimeoutMs,
+              RetryDelay retryDelay, Sleeper sleeper, Listener listener) {
+        this.endpoint = endpoint;
+        this.connectTimeoutMs = connectTimeoutMs;
+        this.readTimeoutMs = readTimeoutMs;
+        this.retryDelay = retryDelay;
+        this.sleeper = sleeper;
+        this.listener = listener;
+    }
+
+    /**
+     * Blocks until the SOS is delivered, rejected or out of retries.
+     */
+    Result send(String accessToken, double latitude, double longitude, float accuracy, int retries)
+            throws InterruptedException {
+        return send(accessToken, latitude, longitude, accuracy, retries, null, null);
+    }
+
+    /**
+     * As above, sending idempotencyKey (when not null) as an Idempotency-Key header on every
+     * attempt so the backend can drop repeats of one SOS, and giving up early when stop says so.
+     * NaN coordinates (no location fix) are sent as JSON nulls.
+     */
+    Result send(String accessToken, double latitude, double longitude, float accuracy, int retries,
+                String idempotencyKey, StopCondition stop) throws InterruptedException {
+        byte[] body = String.format(Locale.US, "{\"latitude\":%s,\"longitude\":%s,\"accuracy\":%s}",
+            json(latitude), json(longitude), json(accuracy))
+            .getBytes(StandardCharsets.UTF_8);
+        int attempts = 0;
+        for (int retriesLeft = retries; ; retriesLeft--) {
+            if (stop != null && stop.stopped()) {
+                return new Result(false, 0, attempts, 0, 0);
+            }
+            attempts++;
+            listener.onAttempt(retriesLeft);
+            int status = 0;
+            long retryAfterMs = 0;
+            String response = null;
+            long received = 0;
+            Exception error = null;
+            HttpURLConnection conn = null;
+            try {
+                conn = (HttpURLConnection) new URL(endpoint).openConnection();
+                conn.setRequestMethod("POST");
+                conn.setRequestProperty("Content-Type", "application/json");
+                conn.setRequestProperty("Authorization", "Bearer " + accessToken);
+                if (idempotencyKey != null) {
+                    conn.setRequestProperty("Idempotency-Key", idempotencyKey);
+                }
+                conn.setDoOutput(true);
+                conn.setConnectTimeout(connectTimeoutMs);
+                conn.setReadTimeout(readTimeoutMs);
+                conn.setFixedLengthStreamingMode(body.length);
+
+                // Writing the body is where the connection is opened
+                boolean trace = listener.beginPhase("httpConnectAndWrite");
+                try (OutputStream os = conn.getOutputStream()) {
+                    os.write(body);
+                } finally {
+                    listener.endPhase(trace);
+                }
+
+                trace = listener.beginPhase("httpAwaitResponse");
+                try {
+                    status = conn.getResponseCode();
+                } finally {
+                    listener.endPhase(trace);
+                }
+                retryAfterMs = parseRetryAfter(conn.getHeaderField("Retry-After"));
+                InputStream in = status == HttpURLConnection.HTTP_OK ? conn.getInputStream() : conn.getErrorStream();
+                response = in != null ? readFully(in) : "";
+                received = response.length();
+            } catch (IOException e) {
+                error = e;
+            } finally {
+                if (conn != null) conn.disconnect();
+            }
+            listener.onResponse(status, error == null || status != 0 ? body.length : 0, received, error);
+
+            if (status == HttpURLConnection.HTTP_OK) {
+                // Accepted even if the body was cut off; only the count is lost
+                Matcher m = CONTACTS_NOTIFIED.matcher(response != null ? response : "");
+                int contacts = m.find() ? Integer.parseInt(m.group(1)) : 0;
+                return new Result(true, status, attempts, contacts, 0);
+            }
+            boolean retryable = status == 0 || status >= 500;
+            if (!retryable || retriesLeft <= 0) {
+                return new Result(false, status, attempts, 0, retryAfterMs);
+            }
+            sleeper.sleep(Math.max(jittered(retryDelay.delayMs()), retryAfterMs));
+        }
+    }
+
+    /** The delay scaled by a random factor in [0.5, 1.5). */
+    static long jittered(long delayMs) {
+        return delayMs / 2 + (long) (ThreadLocalRandom.current().nextDouble() * delayMs);
+    }
+
+    private static String json(double value) {
+        return Double.isNaN(value) ? "null" : Double.toString(value);
+    }
+
+    private static String json(float value) {
+        return Float.isNaN(value) ? "null" : Float.toString(value);
+    }
+
+    private static long parseRetryAfter(String value) {
+        if (value == null) return 0;
+        try {
+            return Math.min(MAX_RETRY_AFTER_MS, Math.max(0, Long.parseLong(value.trim()) * 1000));
+        } catch (NumberFormatException e) {
+            // HTTP-date form: fall back to our own delay
+            return 0;
+        }
+    }
+
+    private static String readFully(InputStream in) throws IOException {
+        try (InputStream input = in) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[1024];
+            int n;
+            while ((n = input.read(buffer)) > 0) {
+                out.write(buffer, 0, n);
+            }
+            return new String(out.toByteArray(), StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -0,0 +1,317 @@
+package com.nomisafe.falldetection;
+
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Delivers one SOS over the backend and, as a fallback, direct SMS to the emergency contacts.
+ *
+ * The HTTP send starts at once. If it has not succeeded by the SMS deadline, or gives up
+ * before it (no token, no network, rejected), a text goes to every contact. The first channel
+ * to confirm wins: an HTTP success cancels the pending fallback, and an SMS confirmation makes
+ * the remaining HTTP retries stop. A send that is already on the wire cannot be recalled, so
+ * both channels can still land; the SMS carries a short reference to the SOS so contacts can
+ * tell a repeat from a second emergency.
+ *
+ * Every SOS has an idempotency key, kept with the pending copy across retries and restarts.
+ * The backend gets it as a header and drops repeats; here it suppresses texting a contact
+ * again for an SOS they were already texted about, and resending an SOS already delivered.
+ * That state goes to a {@link StateStore} whenever a key is delivered or a text confirmed, and
+ * comes back through {@link #restoreState}, so a restarted service does not text again either.
+ * Only confirmed texts are kept: one still in flight at the kill is sent again, since a
+ * duplicate text is cheaper than a contact never told.
+ * Plain Java; runs on a JVM with a fake {@link SmsChannel}.
+ */
+final class SosDelivery {
+    static final int CHANNEL_NONE = 0;
+    static final int CHANNEL_HTTP = 1;
+    static final int CHANNEL_SMS = 2;
+
+    static final long DEFAULT_SMS_DEADLINE_MS = 15_000;
+    // How long to wait for the radio's sent reports once texts are out
+    static final long SMS_CONFIRM_TIMEOUT_MS = 60_000;
+    // Idempotency keys remembered for duplicate suppression
+    private static final int MAX_REMEMBERED_KEYS = 16;
+
+    interface Listener {
+        void onSmsFallback(String reason, int contacts);
+
+        void onSmsResult(String destination, boolean ok, int errorCode);
+    }
+
+    /** Keeps the output of the dedup state across restarts; called on any delivery thread. */
+    interface StateStore {
+        void save(String state);
+    }
+
+    static final class Outcome {
+        final int channel;             // first channel to confirm, CHANNEL_NONE if neither did
+        final SosClient.Result http;   // null when HTTP was not tried
+        final int smsQueued;
+        final int smsConfirmed;
+        final boolean duplicate;       // key already delivered; nothing was sent
+
+        Outcome(int channel, SosClient.Result http, int smsQueued, int smsConfirmed, boolean duplicate) {
+            this.channel = channel;
+            this.http = http;
+            this.smsQueued = smsQueued;
+            this.smsConfirmed = smsConfirmed;
+            this.duplicate = duplicate;
+        }
+
+        boolean delivered() {
+            return channel != CHANNEL_NONE;
+        }
+    }
+
+    /** State of one delivery, shared by the HTTP thread, the fallback timer and SMS callbacks. */
+    private final class Attempt implements SmsChannel.Callback {
+        final String key;
+        final String[] contacts;
+        final String smsText;
+        int winner = CHANNEL_NONE;
+        boolean smsFired = false;
+        boolean smsFiring = false;      // texts still being handed to the channel
+        int smsQueued = 0;
+        int smsOutstanding = 0;
+        int smsConfirmed = 0;
+
+        Attempt(String key, String[] contacts, String smsText) {
+            this.key = key;
+            this.contacts = contacts;
+            this.smsText = smsText;
+        }
+
+        synchronized boolean decided() {
+            return winner != CHANNEL_NONE;
+        }
+
+        synchronized void win(int channel) {
+            if (winner == CHANNEL_NONE) {
+                winner = channel;
+                markDelivered(key);
+            }
+            // Saved before the waiting deliver() can return
+            save();
+            notifyAll();
+        }
+
+        @Override
+        public void onSent(String destination, boolean ok, int errorCode) {
+            listener.onSmsResult(destination, ok, errorCode);
+            synchronized (this) {
+                smsOutstanding--;
+                if (ok) {
+                    smsConfirmed++;
+                    confirmTexted(key, destination);
+                    if (winner == CHANNEL_NONE) {
+                        winner = CHANNEL_SMS;
+                        markDelivered(key);
+                    }
+                } else {
+                    forgetTexted(key, destination);
+                }
+                save();
+                notifyAll();
+            }
+        }
+    }
+
+    private final SosClient client;
+    private final SmsChannel sms;
+    private final ScheduledExecutorService scheduler;
+    private final long smsDeadlineMs;
+    private final Listener listener;
+    private final StateStore store;
+
+    /** What is known about one idempotency key. */
+    private static final class KeyState {
+        boolean delivered;
+        final Set<String> texted = new HashSet<>();     // claimed, in flight or confirmed
+        final Set<String> confirmed = new HashSet<>();  // the radio reported sent
+    }
+
+    // Oldest evicted first; also the lock for the dedup state
+    private final LinkedHashMap<String, KeyState> keys = new LinkedHashMap<String, KeyState>() {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, KeyState> eldest) {
+            return size() > MAX_REMEMBERED_KEYS;
+        }
+    };
+
+    /**
+     * @param store receives the dedup state on every change; null keeps it in memory only
+     */
+    SosDelivery(SosClient client, SmsChannel sms, ScheduledExecutorService scheduler,
+                long smsDeadlineMs, Listener listener, StateStore store) {
+        this.client = client;
+        this.sms = sms;
+        this.scheduler = scheduler;
+        this.smsDeadlineMs = smsDeadlineMs;
+        this.listener = listener;
+        this.store = store;
+    }
+
+    /**
+     * Loads state saved by the {@link StateStore}, before the first {@link #deliver}. A null or
+     * unreadable state leaves nothing remembered.
+     */
+    void restoreState(String state) {
+        if (state == null) return;
+        synchronized (keys) {
+            // One line per key, oldest first: key TAB (D|-) [TAB destination]...
+            for (String line : state.split("\n")) {
+                String[] fields = line.split("\t");
+                if (fields.length < 2 || fields[0].isEmpty()) continue;
+                KeyState k = new KeyState();
+                k.delivered = "D".equals(fields[1]);
+                for (int i = 2; i < fields.length; i++) {
+                    k.texted.add(fields[i]);
+                    k.confirmed.add(fields[i]);
+                }
+                keys.put(fields[0], k);
+            }
+        }
+    }
+
+    /** The dedup state in the form {@link #restoreState} reads. */
+    String exportState() {
+        StringBuilder out = new StringBuilder();
+        synchronized (keys) {
+            for (Map.Entry<String, KeyState> entry : keys.entrySet()) {
+                KeyState k = entry.getValue();
+                if (!k.delivered && k.confirmed.isEmpty()) continue;
+                out.append(entry.getKey()).append('\t').append(k.delivered ? 'D' : '-');
+                for (String destination : k.confirmed) {
+                    out.append('\t').append(destination);
+                }
+                out.append('\n');
+            }
+        }
+        return out.toString();
+    }
+
+    /**
+     * Blocks until a channel confirms, or HTTP has given up and every text has reported or
+     * timed out.
+     *
+     * @param accessToken null or empty skips HTTP and texts at once
+     * @param contacts    phone numbers for the fallback; may be empty
+     */
+    Outcome deliver(String idempotencyKey, String accessToken, double latitude, double longitude,
+                    float accuracy, int retries, String[] contacts, String smsText)
+            throws InterruptedException {
+        synchronized (keys) {
+            KeyState k = keys.get(idempotencyKey);
+            if (k != null && k.delivered) {
+                return new Outcome(CHANNEL_NONE, null, 0, 0, true);
+            }
+        }
+        Attempt attempt = new Attempt(idempotencyKey, contacts, smsText);
+        ScheduledFuture<?> fallback = scheduler.schedule(
+            () -> fireSms(attempt, "deadline"), smsDeadlineMs, TimeUnit.MILLISECONDS);
+
+        SosClient.Result http = null;
+        try {
+            if (accessToken != null && !accessToken.isEmpty()) {
+                http = client.send(accessToken, latitude, longitude, accuracy, retries,
+                    idempotencyKey, attempt::decided);
+                if (http.delivered) {
+                    fallback.cancel(false);
+                    attempt.win(CHANNEL_HTTP);
+                }
+            }
+            if (!attempt.decided()) {
+                // HTTP is out of the running; texting now beats waiting for the deadline
+                fallback.cancel(false);
+                fireSms(attempt, accessToken == null || accessToken.isEmpty() ? "noToken" : "httpFailed");
+            }
+
+            long waitUntil = System.currentTimeMillis() + SMS_CONFIRM_TIMEOUT_MS;
+            synchronized (attempt) {
+                while (attempt.winner == CHANNEL_NONE && (attempt.smsFiring || attempt.smsOutstanding > 0)) {
+                    long left = waitUntil - System.currentTimeMillis();
+                    if (left <= 0) break;
+                    attempt.wait(left);
+                }
+                return new Outcome(attempt.winner, http, attempt.smsQueued, attempt.smsConfirmed, false);
+            }
+        } finally {
+            fallback.cancel(false);
+        }
+    }
+
+    private void fireSms(Attempt attempt, String reason) {
+        synchronized (attempt) {
+            if (attempt.smsFired || attempt.winner != CHANNEL_NONE) return;
+            attempt.smsFired = true;
+            attempt.smsFiring = true;
+        }
+        int queued = 0;
+        for (String destination : sms.isAvailable() ? attempt.contacts : new String[0]) {
+            if (!claimTexted(attempt.key, destination)) continue;
+            synchronized (attempt) {
+                attempt.smsOutstanding++;
+            }
+            if (sms.send(destination, attempt.smsText, attempt)) {
+                queued++;
+            } else {
+                forgetTexted(attempt.key, destination);
+                synchronized (attempt) {
+                    attempt.smsOutstanding--;
+                }
+            }
+        }
+        synchronized (attempt) {
+            attempt.smsQueued = queued;
+            attempt.smsFiring = false;
+            attempt.notifyAll();
+        }
+        listener.onSmsFallback(reason, queued);
+    }
+
+    /** Entry for the key, created if needed. Caller holds the keys lock. */
+    private KeyState keyState(String key) {
+        KeyState k = keys.get(key);
+        if (k == null) {
+            k = new KeyState();
+            keys.put(key, k);
+        }
+        return k;
+    }
+
+    /** @return true if this destination has not been texted for this key yet */
+    private boolean claimTexted(String key, String destination) {
+        synchronized (keys) {
+            return keyState(key).texted.add(destination);
+        }
+    }
+
+    private void forgetTexted(String key, String destination) {
+        synchronized (keys) {
+            KeyState k = keys.get(key);
+            if (k != null) k.texted.remove(destination);
+        }
+    }
+
+    private void confirmTexted(String key, String destination) {
+        synchronized (keys) {
+            keyState(key).confirmed.add(destination);
+        }
+    }
+
+    private void markDelivered(String key) {
+        synchronized (keys) {
+            keyState(key).delivered = true;
+        }
+    }
+
+    private void save() {
+        if (store != null) store.save(exportState());
+    }
+}
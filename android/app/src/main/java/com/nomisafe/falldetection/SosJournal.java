@@ -0,0 +1,209 @@
+package com.nomisafe.falldetection;
+
+import android.content.Context;
+import android.os.Bundle;
+import android.os.SystemClock;
+import android.util.Log;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Fixed-size binary ring journal of SOS lifecycle events, so an incident can be reconstructed
+ * after the fact: detection, alarm, notification, alert screen, cancel and who cancelled, the
+ * location fix, each send attempt and its outcome.
+ *
+ * The file is memory-mapped shared, so writing an event is a handful of stores into the page
+ * cache: no system call, no lock and no wait on the disk, from any thread of the alert path.
+ * A slot is claimed with an atomic sequence number and its sequence field is written last;
+ * readers skip slots whose sequence changes while they copy them. The kernel writes the pages
+ * back, and they survive the process dying mid-incident.
+ *
+ * <pre>
+ * header  "NSOS" | u16 version | u16 recordBytes | u32 capacity | u32 0
+ * record  i64 seq+1 (0 = empty) | i64 elapsedRealtimeNanos | i64 wallTimeMs
+ *         | i32 incident | u8 event | u8 detail | u16 0 | i32 value | u32 0
+ * </pre>
+ */
+final class SosJournal {
+    private static final String TAG = "SosJournal";
+    private static final String FILE_NAME = "sos_journal.bin";
+    private static final int MAGIC = 0x534F534E; // "NSOS"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 16;
+    private static final int RECORD_BYTES = 40;
+    private static final int CAPACITY = 1024;
+
+    // Events
+    static final int FALL_DETECTED = 0;
+    static final int ALARM_AUDIBLE = 1;
+    static final int NOTIFICATION_POSTED = 2;
+    static final int ACTIVITY_SHOWN = 3;
+    static final int CANCELLED = 4;           // detail: who cancelled
+    static final int COUNTDOWN_EXPIRED = 5;   // detail: service or activity timer
+    static final int LOCATION = 6;            // value: accuracy in metres, -1 without a fix
+    static final int SEND_ATTEMPT = 7;        // value: retries left
+    static final int SEND_SUCCEEDED = 8;      // detail: channel; value: contacts notified
+    static final int SEND_FAILED = 9;         // value: HTTP status, 0 without a response
+    static final int SAVED_PENDING = 10;
+    static final int PENDING_RETRY = 11;
+    static final int RESTORED = 12;           // service restarted mid-incident
+    static final int SMS_FALLBACK = 13;       // value: contacts texted
+    static final int SMS_SENT = 14;
+    static final int SMS_FAILED = 15;         // value: transport error code
+    private static final String[] EVENT_NAMES = {
+        "fallDetected", "alarmAudible", "notificationPosted", "activityShown", "cancelled",
+        "countdownExpired", "location", "sendAttempt", "sendSucceeded", "sendFailed",
+        "savedPending", "pendingRetry", "restored", "smsFallback", "smsSent", "smsFailed"
+    };
+
+    // Details
+    static final int DETAIL_NONE = 0;
+    static final int SOURCE_APP = 1;
+    static final int SOURCE_NOTIFICATION = 2;
+    static final int SOURCE_ACTIVITY = 3;
+    static final int SOURCE_SERVICE = 4;
+    static final int CHANNEL_HTTP = 5;        // SEND_SUCCEEDED: which channel delivered
+    static final int CHANNEL_SMS = 6;
+    private static final String[] DETAIL_NAMES = { "", "app", "notification", "activity", "service", "http", "sms" };
+
+    private static SosJournal instance;
+
+    private final MappedByteBuffer map;
+    private final AtomicLong nextSeq;
+    private volatile int incident;
+
+    static synchronized SosJournal get(Context context) {
+        if (instance == null) {
+            instance = new SosJournal(new File(context.getFilesDir(), FILE_NAME));
+        }
+        return instance;
+    }
+
+    private SosJournal(File file) {
+        MappedByteBuffer mapped = null;
+        long maxSeq = 0;
+        int lastIncident = 0;
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            long size = HEADER_BYTES + (long) RECORD_BYTES * CAPACITY;
+            boolean fresh = raf.length() != size;
+            if (fresh) raf.setLength(size);
+            // The mapping stays valid after the file is closed
+            mapped = raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size);
+            mapped.order(ByteOrder.LITTLE_ENDIAN);
+            if (fresh || mapped.getInt(0) != MAGIC || mapped.getShort(4) != VERSION) {
+                for (int i = 0; i < size; i += 8) mapped.putLong(i, 0);
+                mapped.putInt(0, MAGIC);
+                mapped.putShort(4, (short) VERSION);
+                mapped.putShort(6, (short) RECORD_BYTES);
+                mapped.putInt(8, CAPACITY);
+            }
+            for (int slot = 0; slot < CAPACITY; slot++) {
+                int offset = HEADER_BYTES + slot * RECORD_BYTES;
+                long seq = mapped.getLong(offset);
+                if (seq > maxSeq) {
+                    maxSeq = seq;
+                    lastIncident = mapped.getInt(offset + 24);
+                }
+            }
+        } catch (IOException e) {
+            Log.e(TAG, "SOS journal unavailable", e);
+        }
+        map = mapped;
+        nextSeq = new AtomicLong(maxSeq);
+        incident = lastIncident;
+    }
+
+    /** Starts a new incident with its FALL_DETECTED event; later events carry its number. */
+    int startIncident() {
+        int id = ++incident;
+        log(FALL_DETECTED, DETAIL_NONE, 0);
+        return id;
+    }
+
+    void log(int event) {
+        log(event, DETAIL_NONE, 0);
+    }
+
+    void log(int event, int detail, int value) {
+        if (map == null) return;
+        long seq = nextSeq.getAndIncrement();
+        int offset = HEADER_BYTES + (int) (seq % CAPACITY) * RECORD_BYTES;
+        // Invalidate the slot first so a reader never pairs the old seq with new fields
+        map.putLong(offset, 0);
+        map.putLong(offset + 8, SystemClock.elapsedRealtimeNanos());
+        map.putLong(offset + 16, System.currentTimeMillis());
+        map.putInt(offset + 24, incident);
+        map.put(offset + 28, (byte) event);
+        map.put(offset + 29, (byte) detail);
+        map.putInt(offset + 32, value);
+        map.putLong(offset, seq + 1);
+    }
+
+    /**
+     * Events with a sequence number of at least sinceSeq, oldest first, at most limit of the
+     * newest, as parallel arrays: seq, elapsedMs, wallTimeMs, incident, event, detail, value.
+     */
+    Bundle query(long sinceSeq, int limit) {
+        Bundle bundle = new Bundle();
+        bundle.putDouble("nextSeq", nextSeq.get());
+        if (map == null) return bundle;
+        if (limit <= 0 || limit > CAPACITY) limit = CAPACITY;
+
+        long[] order = new long[CAPACITY];
+        int count = 0;
+        for (int slot = 0; slot < CAPACITY; slot++) {
+            long stored = map.getLong(HEADER_BYTES + slot * RECORD_BYTES);
+            if (stored != 0 && stored - 1 >= sinceSeq) {
+                // Sequence in the high bits, slot in the low ones, so one sort orders both
+                order[count++] = ((stored - 1) << 10) | slot;
+            }
+        }
+        Arrays.sort(order, 0, count);
+        int first = Math.max(0, count - limit);
+
+        int n = count - first;
+        double[] seqs = new double[n];
+        double[] elapsedMs = new double[n];
+        double[] wallTimeMs = new double[n];
+        double[] incidents = new double[n];
+        String[] events = new String[n];
+        String[] details = new String[n];
+        double[] values = new double[n];
+        int out = 0;
+        for (int i = first; i < count; i++) {
+            int offset = HEADER_BYTES + (int) (order[i] & (CAPACITY - 1)) * RECORD_BYTES;
+            long seq = map.getLong(offset);
+            long elapsed = map.getLong(offset + 8);
+            long wall = map.getLong(offset + 16);
+            int incidentId = map.getInt(offset + 24);
+            int event = map.get(offset + 28) & 0xFF;
+            int detail = map.get(offset + 29) & 0xFF;
+            int value = map.getInt(offset + 32);
+            // Overwritten while being copied
+            if (seq != (order[i] >> 10) + 1 || map.getLong(offset) != seq) continue;
+            seqs[out] = seq - 1;
+            elapsedMs[out] = elapsed / 1_000_000.0;
+            wallTimeMs[out] = wall;
+            incidents[out] = incidentId;
+            events[out] = event < EVENT_NAMES.length ? EVENT_NAMES[event] : "unknown";
+            details[out] = detail < DETAIL_NAMES.length ? DETAIL_NAMES[detail] : "";
+            values[out] = value;
+            out++;
+        }
+        bundle.putDoubleArray("seq", Arrays.copyOf(seqs, out));
+        bundle.putDoubleArray("elapsedMs", Arrays.copyOf(elapsedMs, out));
+        bundle.putDoubleArray("wallTimeMs", Arrays.copyOf(wallTimeMs, out));
+        bundle.putDoubleArray("incident", Arrays.copyOf(incidents, out));
+        bundle.putStringArray("event", Arrays.copyOf(events, out));
+        bundle.putStringArray("detail", Arrays.copyOf(details, out));
+        bundle.putDoubleArray("value", Arrays.copyOf(values, out));
+        return bundle;
+    }
+}
@@ -0,0 +1,128 @@
+package com.nomisafe.falldetection;
+
+import android.os.Bundle;
+import android.os.SystemClock;
+
+/**
+ * Current phase of the SOS flow, readable from any thread without going through the service.
+ *
+ * The service's process owns the state. The UI process keeps a copy refreshed over the binder
+ * with {@link #toBundle()}/{@link #apply(Bundle)}; elapsedRealtime deadlines are valid in both.
+ */
+public final class SosState {
+    public static final int IDLE = 0;
+    public static final int COUNTDOWN = 1;
+    public static final int SENDING = 2;
+    public static final int SENT = 3;
+    public static final int CANCELLED = 4;
+    public static final int PENDING = 5;  // send failed, saved for retry
+
+    private static volatile int phase = IDLE;
+    private static volatile long countdownDeadlineMs = 0;  // elapsedRealtime
+    private static volatile long cooldownUntilMs = 0;      // elapsedRealtime
+    private static volatile long lastTransitionMs = 0;     // elapsedRealtime
+
+    /**
+     * Notified after every change, on the thread that made it.
+     */
+    interface Listener {
+        void onSosStateChanged();
+    }
+
+    private static volatile Listener listener;
+
+    private SosState() {}
+
+    static void setListener(Listener newListener) {
+        listener = newListener;
+    }
+
+    private static void notifyListener() {
+        Listener current = listener;
+        if (current != null) {
+            current.onSosStateChanged();
+        }
+    }
+
+    /**
+     * Puts back state saved before the service was restarted.
+     */
+    static void restore(int savedPhase, long savedCountdownDeadlineMs, long savedCooldownUntilMs, long savedLastTransitionMs) {
+        countdownDeadlineMs = savedCountdownDeadlineMs;
+        cooldownUntilMs = savedCooldownUntilMs;
+        lastTransitionMs = savedLastTransitionMs;
+        phase = savedPhase;
+    }
+
+    static void startCountdown(int seconds) {
+        countdownDeadlineMs = SystemClock.elapsedRealtime() + seconds * 1000L;
+        transition(COUNTDOWN);
+    }
+
+    static void setCooldown(long durationMs) {
+        cooldownUntilMs = SystemClock.elapsedRealtime() + durationMs;
+        notifyListener();
+    }
+
+    static void transition(int newPhase) {
+        if (newPhase != COUNTDOWN) {
+            countdownDeadlineMs = 0;
+        }
+        phase = newPhase;
+        lastTransitionMs = SystemClock.elapsedRealtime();
+        notifyListener();
+    }
+
+    static Bundle toBundle() {
+        Bundle state = new Bundle(4);
+        state.putInt("phase", phase);
+        state.putLong("countdownDeadlineMs", countdownDeadlineMs);
+        state.putLong("cooldownUntilMs", cooldownUntilMs);
+        state.putLong("lastTransitionMs", lastTransitionMs);
+        return state;
+    }
+
+    static void apply(Bundle state) {
+        restore(state.getInt("phase", IDLE), state.getLong("countdownDeadlineMs"),
+            state.getLong("cooldownUntilMs"), state.getLong("lastTransitionMs"));
+    }
+
+    public static int getPhase() {
+        return phase;
+    }
+
+    public static String getPhaseName() {
+        switch (phase) {
+            case COUNTDOWN: return "countdown";
+            case SENDING: return "sending";
+            case SENT: return "sent";
+            case CANCELLED: return "cancelled";
+            case PENDING: return "pending";
+            default: return "idle";
+        }
+    }
+
+    /**
+     * Seconds left before the SOS is sent, or 0 when no countdown is running.
+     */
+    public static int getCountdownRemainingSeconds() {
+        long deadline = countdownDeadlineMs;
+        if (phase != COUNTDOWN || deadline == 0) {
+            return 0;
+        }
+        long remainingMs = deadline - SystemClock.elapsedRealtime();
+        return remainingMs <= 0 ? 0 : (int) ((remainingMs + 999) / 1000);
+    }
+
+    public static long getCountdownDeadlineMs() {
+        return countdownDeadlineMs;
+    }
+
+    public static long getCooldownUntilMs() {
+        return cooldownUntilMs;
+    }
+
+    public static long getLastTransitionMs() {
+        return lastTransitionMs;
+    }
+}
@@ -0,0 +1,144 @@
+package com.nomisafe.falldetection;
+
+import android.content.Context;
+import android.os.Bundle;
+import android.os.Debug;
+import android.os.Process;
+import android.os.SystemClock;
+import android.util.Log;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+
+/**
+ * Cold-start timing and memory of the current process, to compare eager and lazy React Native
+ * initialisation (and the RN-free :detector process).
+ *
+ * The headline number is process start to the first registered sensor listener. Memory (RSS and
+ * PSS) is sampled at that point on a background thread. Each process start is appended as one
+ * line to a small local log so builds can be compared across many starts.
+ */
+public final class StartupTiming {
+    private static final String TAG = "StartupTiming";
+    private static final String FILE_NAME = "startup_timing.log";
+    private static final long MAX_FILE_BYTES = 64 * 1024;
+
+    public static final String RN_NONE = "none";
+    public static final String RN_EAGER = "eager";
+    public static final String RN_LAZY = "lazy";
+
+    private static volatile String reactNativeMode = RN_NONE;
+    private static volatile long reactNativeLoadedAtMs = 0;  // since process start
+    private static volatile long reactNativeLoadMs = 0;
+    private static volatile long applicationCreatedAtMs = 0; // since process start
+    private static volatile String firstSensorComponent = null;
+    private static volatile long coldStartToSensorMs = 0;
+    private static volatile long rssKb = 0;
+    private static volatile long pssKb = 0;
+
+    private StartupTiming() {}
+
+    private static long sinceProcessStart() {
+        return SystemClock.elapsedRealtime() - Process.getStartElapsedRealtime();
+    }
+
+    public static void markApplicationCreated(String mode) {
+        reactNativeMode = mode;
+        applicationCreatedAtMs = sinceProcessStart();
+    }
+
+    public static void markReactNativeLoaded(long loadDurationMs) {
+        reactNativeLoadMs = loadDurationMs;
+        reactNativeLoadedAtMs = sinceProcessStart();
+        Log.i(TAG, "React Native loaded (" + reactNativeMode + ") in " + loadDurationMs
+            + "ms, " + reactNativeLoadedAtMs + "ms after process start");
+    }
+
+    /**
+     * Records the first sensor registration in this process. Later calls are ignored.
+     */
+    public static void markSensorRegistered(Context context, String component) {
+        if (firstSensorComponent != null) return;
+        synchronized (StartupTiming.class) {
+            if (firstSensorComponent != null) return;
+            firstSensorComponent = component;
+        }
+        coldStartToSensorMs = sinceProcessStart();
+        FallDetectionMetrics.COLD_START_TO_SENSOR_MS.record(coldStartToSensorMs);
+        File file = new File(context.getFilesDir(), FILE_NAME);
+        // Debug.getMemoryInfo takes tens of milliseconds
+        new Thread(() -> {
+            sampleMemory();
+            String line = System.currentTimeMillis()
+                + " process=" + currentProcessName(context)
+                + " rn=" + reactNativeMode
+                + " sensor=" + component
+                + " coldStartToSensorMs=" + coldStartToSensorMs
+                + " appCreatedMs=" + applicationCreatedAtMs
+                + " rssKb=" + rssKb
+                + " pssKb=" + pssKb;
+            Log.i(TAG, line);
+            append(file, line);
+        }, "StartupTiming").start();
+    }
+
+    public static Bundle snapshot() {
+        Bundle bundle = new Bundle();
+        bundle.putString("reactNative", reactNativeMode);
+        bundle.putDouble("applicationCreatedMs", applicationCreatedAtMs);
+        bundle.putDouble("reactNativeLoadMs", reactNativeLoadMs);
+        bundle.putDouble("reactNativeLoadedAtMs", reactNativeLoadedAtMs);
+        bundle.putString("firstSensor", firstSensorComponent);
+        bundle.putDouble("coldStartToSensorMs", coldStartToSensorMs);
+        bundle.putDouble("rssKb", rssKb);
+        bundle.putDouble("pssKb", pssKb);
+        return bundle;
+    }
+
+    private static void sampleMemory() {
+        Debug.MemoryInfo info = new Debug.MemoryInfo();
+        Debug.getMemoryInfo(info);
+        pssKb = info.getTotalPss();
+        try (BufferedReader reader = new BufferedReader(new FileReader("/proc/self/status"))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.startsWith("VmRSS:")) {
+                    rssKb = Long.parseLong(line.replaceAll("[^0-9]", ""));
+                    break;
+                }
+            }
+        } catch (IOException | NumberFormatException e) {
+            Log.w(TAG, "Could not read VmRSS", e);
+        }
+    }
+
+    private static String currentProcessName(Context context) {
+        String name = context.getApplicationInfo().processName;
+        try (BufferedReader reader = new BufferedReader(new FileReader("/proc/self/cmdline"))) {
+            String line = reader.readLine();
+            if (line != null) {
+                name = line.trim().replace("\u0000", "");
+            }
+        } catch (IOException e) {
+            // Keep the default process name
+        }
+        return name;
+    }
+
+    private static synchronized void append(File file, String line) {
+        try {
+            if (file.length() > MAX_FILE_BYTES && !file.delete()) {
+                Log.w(TAG, "Could not truncate startup log");
+            }
+            try (FileWriter writer = new FileWriter(file, true)) {
+                writer.write(line);
+                writer.write('\n');
+            }
+        } catch (IOException e) {
+            Log.e(TAG, "Failed to write startup timing", e);
+        }
+    }
+}
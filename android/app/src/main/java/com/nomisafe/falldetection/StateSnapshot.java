@@ -0,0 +1,243 @@
+package com.nomisafe.falldetection;
+
+import android.location.Location;
+import android.os.SystemClock;
+import android.util.Log;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Fixed-layout snapshot of the SOS state in a small memory-mapped file, so a START_STICKY
+ * restart can resume a countdown, cooldown or unsent SOS exactly where it was.
+ *
+ * Writes go straight to the mapped page and are not msync'd: the page cache outlives the
+ * process, which is the failure being covered. A checksum over the fields rejects a snapshot
+ * torn by a kill mid-write, and the boot count guards the elapsedRealtime deadlines against a
+ * reboot in between. The boot count is immune to wall-clock changes; the boot time derived
+ * from the wall clock is only the fallback where the count is unavailable.
+ */
+final class StateSnapshot {
+    private static final String TAG = "StateSnapshot";
+
+    private static final int MAGIC = 0x4e535331; // "NSS1"
+    private static final int VERSION = 2;
+    // Layout before the boot count; still restored, with the wall-clock boot check
+    private static final int VERSION_WALL_BOOT = 1;
+    private static final long BOOT_TOLERANCE_MS = 5000;
+
+    // Layout (native byte order)
+    private static final int OFF_MAGIC = 0;
+    private static final int OFF_VERSION = 4;
+    private static final int OFF_BOOT_WALL_MS = 8;
+    private static final int OFF_PHASE = 16;
+    private static final int OFF_HAS_LOCATION = 20;
+    private static final int OFF_COUNTDOWN_DEADLINE = 24;
+    private static final int OFF_COOLDOWN_UNTIL = 32;
+    private static final int OFF_LAST_TRANSITION = 40;
+    private static final int OFF_LATITUDE = 48;
+    private static final int OFF_LONGITUDE = 56;
+    private static final int OFF_ACCURACY = 64;
+    private static final int OFF_LOCATION_TIME = 72;
+    private static final int OFF_OUTBOX_HEAD = 80;
+    private static final int OFF_OUTBOX_TAIL = 88;
+    private static final int OFF_CHECKSUM = 96;
+    private static final int OFF_BOOT_COUNT = 104;
+    private static final int SIZE = 128;
+
+    private final MappedByteBuffer buffer;
+    // Settings.Global.BOOT_COUNT of this boot, -1 if unavailable
+    private final int bootCount;
+
+    // Last written (or restored) values
+    int phase;
+    long countdownDeadlineMs;
+    long cooldownUntilMs;
+    long lastTransitionMs;
+    boolean hasLocation;
+    double latitude;
+    double longitude;
+    float accuracy;
+    long locationTimeMs;
+    long outboxHead;
+    long outboxTail;
+
+    private StateSnapshot(MappedByteBuffer buffer, int bootCount) {
+        this.buffer = buffer;
+        this.bootCount = bootCount;
+    }
+
+    /**
+     * Maps the snapshot file, creating it if needed. Returns null if it cannot be mapped.
+     *
+     * @param bootCount Settings.Global.BOOT_COUNT, or -1 if unavailable
+     */
+    static StateSnapshot open(File file, int bootCount) {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            if (raf.length() != SIZE) {
+                raf.setLength(SIZE);
+            }
+            // The mapping stays valid after the channel is closed
+            MappedByteBuffer buffer = raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, SIZE);
+            buffer.order(ByteOrder.nativeOrder());
+            return new StateSnapshot(buffer, bootCount);
+        } catch (IOException e) {
+            Log.e(TAG, "Could not map state snapshot", e);
+            return null;
+        }
+    }
+
+    private static long bootWallMs() {
+        return System.currentTimeMillis() - SystemClock.elapsedRealtime();
+    }
+
+    /**
+     * Loads the fields from the file. Returns false (leaving the fields at defaults) if the file is
+     * empty, torn, from another layout version or from a previous boot.
+     */
+    synchronized boolean restore() {
+        int storedVersion = buffer.getInt(OFF_VERSION);
+        if (buffer.getInt(OFF_MAGIC) != MAGIC
+                || (storedVersion != VERSION && storedVersion != VERSION_WALL_BOOT)) {
+            return false;
+        }
+        long bootWall = buffer.getLong(OFF_BOOT_WALL_MS);
+        int storedBootCount = storedVersion == VERSION ? buffer.getInt(OFF_BOOT_COUNT) : -1;
+        int storedPhase = buffer.getInt(OFF_PHASE);
+        boolean storedHasLocation = buffer.getInt(OFF_HAS_LOCATION) != 0;
+        long storedCountdown = buffer.getLong(OFF_COUNTDOWN_DEADLINE);
+        long storedCooldown = buffer.getLong(OFF_COOLDOWN_UNTIL);
+        long storedTransition = buffer.getLong(OFF_LAST_TRANSITION);
+        double storedLatitude = buffer.getDouble(OFF_LATITUDE);
+        double storedLongitude = buffer.getDouble(OFF_LONGITUDE);
+        float storedAccuracy = buffer.getFloat(OFF_ACCURACY);
+        long storedLocationTime = buffer.getLong(OFF_LOCATION_TIME);
+        long storedHead = buffer.getLong(OFF_OUTBOX_HEAD);
+        long storedTail = buffer.getLong(OFF_OUTBOX_TAIL);
+        long checksum = checksum(storedVersion, bootWall, storedBootCount, storedPhase, storedHasLocation, storedCountdown, storedCooldown,
+            storedTransition, storedLatitude, storedLongitude, storedAccuracy, storedLocationTime,
+            storedHead, storedTail);
+        if (checksum != buffer.getLong(OFF_CHECKSUM)) {
+            Log.w(TAG, "State snapshot checksum mismatch, ignoring");
+            return false;
+        }
+
+        // The outbox and last fix stay meaningful across a reboot; deadlines do not
+        hasLocation = storedHasLocation;
+        latitude = storedLatitude;
+        longitude = storedLongitude;
+        accuracy = storedAccuracy;
+        locationTimeMs = storedLocationTime;
+        outboxHead = storedHead;
+        outboxTail = storedTail;
+        boolean previousBoot = storedBootCount >= 0 && bootCount >= 0
+            ? storedBootCount != bootCount
+            : Math.abs(bootWall - bootWallMs()) > BOOT_TOLERANCE_MS;
+        if (previousBoot) {
+            Log.i(TAG, "State snapshot is from a previous boot, restoring outbox only");
+            return true;
+        }
+        phase = storedPhase;
+        countdownDeadlineMs = storedCountdown;
+        cooldownUntilMs = storedCooldown;
+        lastTransitionMs = storedTransition;
+        return true;
+    }
+
+    /** Forgets the last fix, so a new alert never inherits the position of an earlier one. */
+    synchronized void clearLocation() {
+        hasLocation = false;
+        write();
+    }
+
+    synchronized void setLocation(Location location) {
+        hasLocation = true;
+        latitude = location.getLatitude();
+        longitude = location.getLongitude();
+        accuracy = location.getAccuracy();
+        locationTimeMs = location.getTime();
+        write();
+    }
+
+    /** An unsent SOS was saved for retry. */
+    synchronized void outboxAppended() {
+        outboxTail++;
+        write();
+    }
+
+    /** Every saved SOS has been delivered. */
+    synchronized void outboxDrained() {
+        outboxHead = outboxTail;
+        write();
+    }
+
+    /**
+     * Captures the current {@link SosState} and writes the snapshot. Registered as the
+     * SosState listener, so it runs on every transition.
+     */
+    synchronized void commit() {
+        phase = SosState.getPhase();
+        countdownDeadlineMs = SosState.getCountdownDeadlineMs();
+        cooldownUntilMs = SosState.getCooldownUntilMs();
+        lastTransitionMs = SosState.getLastTransitionMs();
+        write();
+    }
+
+    private void write() {
+        long bootWall = bootWallMs();
+        // Invalidate first so a kill mid-write leaves a snapshot that fails the checksum
+        buffer.putInt(OFF_MAGIC, 0);
+        buffer.putInt(OFF_VERSION, VERSION);
+        buffer.putLong(OFF_BOOT_WALL_MS, bootWall);
+        buffer.putInt(OFF_BOOT_COUNT, bootCount);
+        buffer.putInt(OFF_PHASE, phase);
+        buffer.putInt(OFF_HAS_LOCATION, hasLocation ? 1 : 0);
+        buffer.putLong(OFF_COUNTDOWN_DEADLINE, countdownDeadlineMs);
+        buffer.putLong(OFF_COOLDOWN_UNTIL, cooldownUntilMs);
+        buffer.putLong(OFF_LAST_TRANSITION, lastTransitionMs);
+        buffer.putDouble(OFF_LATITUDE, latitude);
+        buffer.putDouble(OFF_LONGITUDE, longitude);
+        buffer.putFloat(OFF_ACCURACY, accuracy);
+        buffer.putLong(OFF_LOCATION_TIME, locationTimeMs);
+        buffer.putLong(OFF_OUTBOX_HEAD, outboxHead);
+        buffer.putLong(OFF_OUTBOX_TAIL, outboxTail);
+        buffer.putLong(OFF_CHECKSUM, checksum(VERSION, bootWall, bootCount, phase, hasLocation, countdownDeadlineMs,
+            cooldownUntilMs, lastTransitionMs, latitude, longitude, accuracy, locationTimeMs,
+            outboxHead, outboxTail));
+        buffer.putInt(OFF_MAGIC, MAGIC);
+    }
+
+    private static long checksum(int version, long bootWall, int bootCount, int phase, boolean hasLocation, long countdown, long cooldown,
+                                 long transition, double latitude, double longitude, float accuracy,
+                                 long locationTime, long head, long tail) {
+        // FNV-1a over the field values
+        long hash = 0xcbf29ce484222325L;
+        hash = mix(hash, version);
+        hash = mix(hash, bootWall);
+        if (version != VERSION_WALL_BOOT) hash = mix(hash, bootCount);
+        hash = mix(hash, phase);
+        hash = mix(hash, hasLocation ? 1 : 0);
+        hash = mix(hash, countdown);
+        hash = mix(hash, cooldown);
+        hash = mix(hash, transition);
+        hash = mix(hash, Double.doubleToRawLongBits(latitude));
+        hash = mix(hash, Double.doubleToRawLongBits(longitude));
+        hash = mix(hash, Float.floatToRawIntBits(accuracy));
+        hash = mix(hash, locationTime);
+        hash = mix(hash, head);
+        hash = mix(hash, tail);
+        return hash;
+    }
+
+    private static long mix(long hash, long value) {
+        for (int i = 0; i < 8; i++) {
+            hash ^= (value >>> (i * 8)) & 0xff;
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+}
@@ -0,0 +1,191 @@
+package com.nomisafe.falldetection;
+
+/**
+ * The original three-phase detector: free-fall (low g), an impact within a short window,
+ * then sustained stillness near 1 g.
+ *
+ * Key insight: true falls have free-fall followed by a hard impact, while shakes have high
+ * acceleration throughout with no low-g period.
+ */
+final class ThresholdDetector implements Detector {
+    // Stillness is judged over the newest samples of the shared window
+    private static final int STILLNESS_SAMPLES = 20;
+
+    private final Listener listener;
+    private final DeviceCalibration calibration;
+    private volatile DetectorConfig config = DetectorConfig.DEFAULT;
+    private volatile DetectionProfile profile = DetectionProfile.WALKING;
+
+    private long freeFallStartTime = 0;
+    private boolean inFreeFall = false;
+    private long impactTime = 0;
+    private boolean impactDetected = false;
+    private long stillnessStartTime = 0;
+    private boolean checkingStillness = false;
+    private int stillnessCookie = 0;  // FallTrace cookie of the open stillness slice
+    private long lastFreeFallEndTime = 0;  // Track when free-fall ended for impact window
+
+    ThresholdDetector(Listener listener, DeviceCalibration calibration) {
+        this.listener = listener;
+        this.calibration = calibration;
+    }
+
+    @Override
+    public String getName() {
+        return "threshold";
+    }
+
+    @Override
+    public void applyConfig(DetectorConfig config, DetectionProfile profile) {
+        this.config = config;
+        this.profile = profile;
+    }
+
+    @Override
+    public boolean isIdle() {
+        return !inFreeFall && !impactDetected && lastFreeFallEndTime == 0;
+    }
+
+    @Override
+    public int getPhase() {
+        if (inFreeFall) return SensorStreamer.PHASE_FREE_FALL;
+        if (checkingStillness) return SensorStreamer.PHASE_STILLNESS;
+        if (impactDetected) return SensorStreamer.PHASE_IMPACT;
+        return SensorStreamer.PHASE_IDLE;
+    }
+
+    @Override
+    public void reset() {
+        if (checkingStillness) {
+            FallTrace.endAsync(FallTrace.SLICE_STILLNESS, stillnessCookie);
+        }
+        inFreeFall = false;
+        impactDetected = false;
+        checkingStillness = false;
+        stillnessStartTime = 0;
+        lastFreeFallEndTime = 0;
+    }
+
+    @Override
+    public int onSample(SampleWindow window, long now, float acceleration) {
+        DetectionProfile p = profile;
+        DetectorConfig c = config;
+
+        // Phase 1: Detect free-fall (acceleration significantly below gravity)
+        // Normal gravity = ~9.8 m/s², free-fall = near 0
+        // Shaking produces HIGH values (15-30+), not low values
+        if (acceleration < p.freeFallThreshold) {
+            if (!inFreeFall) {
+                freeFallStartTime = now;
+                inFreeFall = true;
+                FallDetectionMetrics.FREE_FALL_ENTERED.increment();
+                if (!impactDetected) {
+                    listener.onFreeFall();
+                }
+            }
+        } else {
+            if (inFreeFall) {
+                long freeFallDuration = now - freeFallStartTime;
+                lastFreeFallEndTime = now;
+                inFreeFall = false;
+
+                // If free-fall was long enough AND we have high impact immediately
+                if (freeFallDuration >= p.freeFallDurationMs && acceleration > p.impactThreshold) {
+                    onImpact(now);
+                }
+            }
+        }
+
+        // Phase 2: Check for impact within window after free-fall ended
+        // (impact may come a few ms after free-fall detection ends)
+        if (!impactDetected && !inFreeFall && lastFreeFallEndTime > 0) {
+            long timeSinceFreeFall = now - lastFreeFallEndTime;
+            if (timeSinceFreeFall < p.impactWindowMs && acceleration > p.impactThreshold) {
+                onImpact(now);
+            } else if (timeSinceFreeFall >= p.impactWindowMs) {
+                // Reset free-fall tracking if window expired
+                lastFreeFallEndTime = 0;
+                listener.onCandidateDropped(false);
+            }
+        }
+
+        // Phase 3: After impact, check for SUSTAINED stillness (person lying on ground)
+        if (impactDetected && (now - impactTime > p.stillnessCheckDelayMs)) {
+            int count = Math.min(STILLNESS_SAMPLES, window.size());
+            int first = window.size() - count;
+            float avgAccel = 0;
+            float minAccel = Float.MAX_VALUE;
+            float maxAccel = Float.MIN_VALUE;
+
+            for (int i = first; i < first + count; i++) {
+                float a = window.magnitude[window.index(i)];
+                avgAccel += a;
+                if (a < minAccel) minAccel = a;
+                if (a > maxAccel) maxAccel = a;
+            }
+            avgAccel /= count;
+
+            // Check variance (stillness = very low variance)
+            float variance = 0;
+            for (int i = first; i < first + count; i++) {
+                float a = window.magnitude[window.index(i)];
+                variance += (a - avgAccel) * (a - avgAccel);
+            }
+            variance /= count;
+
+            // Range should be small for true stillness
+            float range = maxAccel - minAccel;
+
+            // Stillness criteria, normalised to this device's gravity bias and noise floor:
+            // 1. Low variance (< 1.0 in the walking profile)
+            // 2. Average acceleration close to gravity (8.5-11.0 by default)
+            // 3. Reasonable range (< 2.5 in the walking profile)
+            float offset = calibration.gravityOffset();
+            boolean isStill = variance < p.stillnessVarianceMax + calibration.varianceAllowance() &&
+                              avgAccel > c.stillGravityMin + offset && avgAccel < c.stillGravityMax + offset &&
+                              range < p.stillnessRangeMax + calibration.rangeAllowance();
+
+            if (isStill) {
+                if (!checkingStillness) {
+                    // Start tracking stillness duration
+                    checkingStillness = true;
+                    stillnessStartTime = now;
+                    FallDetectionMetrics.STILLNESS_STARTED.increment();
+                    stillnessCookie = FallTrace.newCandidateCookie();
+                    FallTrace.beginAsync(FallTrace.SLICE_STILLNESS, stillnessCookie);
+                } else if (now - stillnessStartTime >= p.stillnessDurationMs) {
+                    // Person has been still for required duration - CONFIRMED FALL
+                    reset();
+                    return RESULT_FALL;
+                }
+            } else {
+                // Movement detected - reset stillness tracking
+                if (checkingStillness) {
+                    checkingStillness = false;
+                    stillnessStartTime = 0;
+                    FallTrace.endAsync(FallTrace.SLICE_STILLNESS, stillnessCookie);
+                }
+            }
+
+            // Timeout: if no confirmed fall soon after the impact, reset
+            if (impactDetected && now - impactTime > c.impactTimeoutMs) {
+                FallDetectionMetrics.IMPACT_WITHOUT_CONFIRMATION.increment();
+                reset();
+                listener.onCandidateDropped(true);
+            }
+        }
+        return RESULT_NONE;
+    }
+
+    private void onImpact(long now) {
+        impactDetected = true;
+        FallDetectionMetrics.IMPACTS.increment();
+        impactTime = now;
+        if (checkingStillness) {
+            FallTrace.endAsync(FallTrace.SLICE_STILLNESS, stillnessCookie);
+        }
+        checkingStillness = false;
+        stillnessStartTime = 0;
+        listener.onImpact();
+    }
+}
@@ -0,0 +1,79 @@
+package com.nomisafe.falldetection;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * In-memory {@link SmsChannel} for exercising {@link SosDelivery} on a JVM: records every
+ * message, and answers each after a fixed delay with success, or with a failure for
+ * destinations marked failing. Thread-safe.
+ */
+final class FakeSmsChannel implements SmsChannel {
+    static final int ERROR_INJECTED = 1;
+
+    static final class Message {
+        final String destination;
+        final String text;
+
+        Message(String destination, String text) {
+            this.destination = destination;
+            this.text = text;
+        }
+    }
+
+    private final ScheduledExecutorService scheduler;
+    private final long sentDelayMs;
+    private final List<Message> sent = new ArrayList<>();
+    private final Set<String> failing = new HashSet<>();
+    private volatile boolean available = true;
+
+    /**
+     * @param scheduler runs the callbacks; null answers synchronously from {@link #send}
+     */
+    FakeSmsChannel(ScheduledExecutorService scheduler, long sentDelayMs) {
+        this.scheduler = scheduler;
+        this.sentDelayMs = sentDelayMs;
+    }
+
+    void setAvailable(boolean available) {
+        this.available = available;
+    }
+
+    synchronized void fail(String destination) {
+        failing.add(destination);
+    }
+
+    synchronized void clearFailures() {
+        failing.clear();
+    }
+
+    synchronized List<Message> sent() {
+        return new ArrayList<>(sent);
+    }
+
+    @Override
+    public boolean isAvailable() {
+        return available;
+    }
+
+    @Override
+    public boolean send(String destination, String text, Callback callback) {
+        if (!available) return false;
+        boolean ok;
+        synchronized (this) {
+            sent.add(new Message(destination, text));
+            ok = !failing.contains(destination);
+        }
+        Runnable answer = () -> callback.onSent(destination, ok, ok ? 0 : ERROR_INJECTED);
+        if (scheduler == null) {
+            answer.run();
+        } else {
+            scheduler.schedule(answer, sentDelayMs, TimeUnit.MILLISECONDS);
+        }
+        return true;
+    }
+}
@@ -0,0 +1,173 @@
+package com.nomisafe.falldetection;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
+/**
+ * Races of {@link SosDelivery}: the HTTP send against a {@link StubSosServer} on a loopback
+ * port, the SMS fallback against a {@link FakeSmsChannel}.
+ */
+public class SosDeliveryTest {
+    private static final String[] CONTACTS = { "+911111111111", "+912222222222" };
+    private static final long DEADLINE_MS = 300;
+
+    private final SosClient.Listener quiet = new SosClient.Listener() {
+        @Override
+        public void onAttempt(int retriesLeft) {
+        }
+
+        @Override
+        public boolean beginPhase(String name) {
+            return false;
+        }
+
+        @Override
+        public void endPhase(boolean token) {
+        }
+
+        @Override
+        public void onResponse(int httpStatus, long bytesSent, long bytesReceived, Exception error) {
+        }
+    };
+
+    private final SosDelivery.Listener listener = new SosDelivery.Listener() {
+        @Override
+        public void onSmsFallback(String reason, int contacts) {
+        }
+
+        @Override
+        public void onSmsResult(String destination, boolean ok, int errorCode) {
+        }
+    };
+
+    private ScheduledExecutorService scheduler;
+    private StubSosServer server;
+    private FakeSmsChannel sms;
+
+    @Before
+    public void setUp() {
+        scheduler = Executors.newScheduledThreadPool(2);
+        sms = new FakeSmsChannel(scheduler, 20);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        if (server != null) server.close();
+        scheduler.shutdownNow();
+    }
+
+    private SosDelivery delivery(StubSosServer.Faults faults, long retryDelayMs) throws IOException {
+        server = new StubSosServer(faults);
+        SosClient client = new SosClient(server.endpoint(), 2000, 5000, () -> retryDelayMs, Thread::sleep, quiet);
+        return new SosDelivery(client, sms, scheduler, DEADLINE_MS, listener, null);
+    }
+
+    private static StubSosServer.Faults faults(long latencyMs, double errorRate) {
+        StubSosServer.Faults faults = new StubSosServer.Faults();
+        faults.baseLatencyMs = latencyMs;
+        faults.meanExtraLatencyMs = 0;
+        faults.errorRate = errorRate;
+        faults.timeoutRate = 0;
+        return faults;
+    }
+
+    private static SosDelivery.Outcome send(SosDelivery delivery, String key, String token, int retries)
+            throws InterruptedException {
+        return delivery.deliver(key, token, 12.97, 77.59, 10f, retries, CONTACTS, "SOS");
+    }
+
+    @Test
+    public void slowHttpFallsBackToSmsAtTheDeadline() throws Exception {
+        SosDelivery delivery = delivery(faults(1500, 0), 100);
+
+        SosDelivery.Outcome outcome = send(delivery, "k1", "token", 0);
+
+        assertEquals(SosDelivery.CHANNEL_SMS, outcome.channel);
+        assertEquals(2, outcome.smsQueued);
+        assertEquals(2, sms.sent().size());
+    }
+
+    @Test
+    public void httpWinCancelsPendingSms() throws Exception {
+        SosDelivery delivery = delivery(faults(10, 0), 100);
+
+        SosDelivery.Outcome outcome = send(delivery, "k1", "token", 0);
+        Thread.sleep(DEADLINE_MS * 2);
+
+        assertEquals(SosDelivery.CHANNEL_HTTP, outcome.channel);
+        assertTrue(outcome.http.delivered);
+        assertEquals(0, outcome.smsQueued);
+        assertTrue(sms.sent().isEmpty());
+    }
+
+    @Test
+    public void smsWinStopsHttpRetries() throws Exception {
+        // Every attempt fails; without the SMS win this would retry for ~10 s
+        SosDelivery delivery = delivery(faults(10, 1.0), 1000);
+
+        SosDelivery.Outcome outcome = send(delivery, "k1", "token", 10);
+
+        assertEquals(SosDelivery.CHANNEL_SMS, outcome.channel);
+        assertFalse(outcome.http.delivered);
+        assertTrue("attempts " + server.requests.get(), server.requests.get() <= 2);
+    }
+
+    @Test
+    public void deliveredKeyIsNotSentAgain() throws Exception {
+        SosDelivery delivery = delivery(faults(10, 0), 100);
+        send(delivery, "k1", "token", 0);
+        long requests = server.requests.get();
+
+        SosDelivery.Outcome repeat = send(delivery, "k1", "token", 0);
+
+        assertTrue(repeat.duplicate);
+        assertFalse(repeat.delivered());
+        assertEquals(requests, server.requests.get());
+        assertTrue(sms.sent().isEmpty());
+    }
+
+    @Test
+    public void failedDestinationIsTextedAgain() throws Exception {
+        SosDelivery delivery = delivery(faults(10, 0), 100);
+        sms.fail(CONTACTS[0]);
+        sms.fail(CONTACTS[1]);
+
+        SosDelivery.Outcome first = send(delivery, "k1", null, 0);
+        assertEquals(SosDelivery.CHANNEL_NONE, first.channel);
+        assertEquals(2, sms.sent().size());
+
+        sms.clearFailures();
+        SosDelivery.Outcome retry = send(delivery, "k1", null, 0);
+
+        assertEquals(SosDelivery.CHANNEL_SMS, retry.channel);
+        assertEquals(2, retry.smsQueued);
+        assertEquals(4, sms.sent().size());
+    }
+
+    @Test
+    public void restoredStateSuppressesRepeats() throws Exception {
+        String[] saved = new String[1];
+        server = new StubSosServer(faults(10, 0));
+        SosClient client = new SosClient(server.endpoint(), 2000, 5000, () -> 100, Thread::sleep, quiet);
+        SosDelivery before = new SosDelivery(client, sms, scheduler, DEADLINE_MS, listener,
+            state -> saved[0] = state);
+        send(before, "k1", null, 0);
+
+        SosDelivery after = new SosDelivery(client, sms, scheduler, DEADLINE_MS, listener, null);
+        after.restoreState(saved[0]);
+        SosDelivery.Outcome repeat = send(after, "k1", "token", 0);
+
+        assertTrue(repeat.duplicate);
+        assertEquals(2, sms.sent().size());
+        assertEquals(0, server.requests.get());
+    }
+}
@@ -0,0 +1,238 @@
+package com.nomisafe.falldetection;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Load generator for the SOS path: thousands of simulated devices, each running the real
+ * {@link SosClient} send-with-retries and outbox drain, against a {@link StubSosServer} that
+ * injects latency, 503s and timeouts.
+ *
+ * Devices fire within a ramp window, like a mass event or a bad threshold rollout, on a
+ * thread pool the size of the wanted concurrency. A device whose send exhausts its retries
+ * queues it in its own bounded outbox (one slot, as in the service, by default) and drains
+ * it on the outbox interval until it gets through or the run ends.
+ *
+ * Reported: end-to-end latency percentiles of delivered SOS (first attempt to delivery, outbox
+ * time included), retry amplification (attempts per device), outbox depth and drops, and
+ * what the server saw. Plain Java; timeouts and delays are in the options so a run takes
+ * seconds rather than the service's 30 s timeouts.
+ *
+ * The unit test runs a small load as a regression check. Full-size runs go through
+ * {@link #main} with key=value overrides of {@link Options}, e.g. from the test classpath:
+ * <pre>
+ * java -cp ... com.nomisafe.falldetection.SosLoadTest devices=5000 concurrency=512 errorRate=0.2
+ * </pre>
+ */
+public final class SosLoadTest {
+    static final class Options {
+        int devices = 2000;
+        int concurrency = 256;
+        long rampMs = 2000;
+        int retries = 3;
+        long retryDelayMs = 200;
+        int outboxCapacity = 1;
+        long outboxIntervalMs = 1000;
+        long durationMs = 30_000;
+        int connectTimeoutMs = 2000;
+        int readTimeoutMs = 2000;
+        final StubSosServer.Faults faults = new StubSosServer.Faults();
+    }
+
+    @Test
+    public void smallLoadDeliversEverySos() throws Exception {
+        Options o = new Options();
+        o.devices = 200;
+        o.concurrency = 64;
+        o.rampMs = 500;
+        o.durationMs = 15_000;
+        o.faults.timeoutRate = 0;
+        Map<String, Object> report = run(o);
+        assertEquals(200.0, report.get("delivered"));
+        // Injected 503s are retried, so attempts exceed devices but stay bounded by the retries
+        double amplification = (Double) report.get("retryAmplification");
+        assertTrue("amplification " + amplification, amplification >= 1 && amplification <= o.retries + 1);
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        Options o = new Options();
+        for (String arg : args) {
+            int eq = arg.indexOf('=');
+            if (eq < 0) throw new IllegalArgumentException("Expected key=value: " + arg);
+            set(o, arg.substring(0, eq), arg.substring(eq + 1));
+        }
+        for (Map.Entry<String, Object> entry : run(o).entrySet()) {
+            System.out.println(entry.getKey() + " = " + entry.getValue());
+        }
+    }
+
+    private static void set(Options o, String key, String value) {
+        switch (key) {
+            case "devices": o.devices = Integer.parseInt(value); break;
+            case "concurrency": o.concurrency = Integer.parseInt(value); break;
+            case "rampMs": o.rampMs = Long.parseLong(value); break;
+            case "retries": o.retries = Integer.parseInt(value); break;
+            case "retryDelayMs": o.retryDelayMs = Long.parseLong(value); break;
+            case "outboxCapacity": o.outboxCapacity = Integer.parseInt(value); break;
+            case "outboxIntervalMs": o.outboxIntervalMs = Long.parseLong(value); break;
+            case "durationMs": o.durationMs = Long.parseLong(value); break;
+            case "connectTimeoutMs": o.connectTimeoutMs = Integer.parseInt(value); break;
+            case "readTimeoutMs": o.readTimeoutMs = Integer.parseInt(value); break;
+            case "baseLatencyMs": o.faults.baseLatencyMs = Long.parseLong(value); break;
+            case "meanExtraLatencyMs": o.faults.meanExtraLatencyMs = Long.parseLong(value); break;
+            case "errorRate": o.faults.errorRate = Double.parseDouble(value); break;
+            case "timeoutRate": o.faults.timeoutRate = Double.parseDouble(value); break;
+            case "holdMs": o.faults.holdMs = Long.parseLong(value); break;
+            case "retryAfterSeconds": o.faults.retryAfterSeconds = Long.parseLong(value); break;
+            case "maxConcurrent": o.faults.maxConcurrent = Integer.parseInt(value); break;
+            default: throw new IllegalArgumentException("Unknown option " + key);
+        }
+        if (o.devices <= 0 || o.concurrency <= 0 || o.outboxCapacity <= 0) {
+            throw new IllegalArgumentException("devices, concurrency and outboxCapacity must be > 0");
+        }
+    }
+
+    static Map<String, Object> run(Options o) throws IOException, InterruptedException {
+        AtomicLong attempts = new AtomicLong();
+        AtomicLong networkErrors = new AtomicLong();
+        SosClient.Listener listener = new SosClient.Listener() {
+            @Override
+            public void onAttempt(int retriesLeft) {
+                attempts.incrementAndGet();
+            }
+
+            @Override
+            public boolean beginPhase(String name) {
+                return false;
+            }
+
+            @Override
+            public void endPhase(boolean token) {
+            }
+
+            @Override
+            public void onResponse(int httpStatus, long bytesSent, long bytesReceived, Exception error) {
+                if (httpStatus == 0) networkErrors.incrementAndGet();
+            }
+        };
+
+        long[] latencyMs = new long[o.devices];
+        AtomicInteger delivered = new AtomicInteger();
+        AtomicInteger deliveredFromOutbox = new AtomicInteger();
+        AtomicInteger outboxDepth = new AtomicInteger();
+        AtomicInteger peakOutboxDepth = new AtomicInteger();
+        AtomicLong outboxDrains = new AtomicLong();
+        AtomicLong outboxDropped = new AtomicLong();
+        CountDownLatch done = new CountDownLatch(o.devices);
+
+        long startNanos = System.nanoTime();
+        long deadlineNanos = startNanos + TimeUnit.MILLISECONDS.toNanos(o.durationMs);
+        ScheduledExecutorService pool = Executors.newScheduledThreadPool(o.concurrency);
+        try (StubSosServer server = new StubSosServer(o.faults)) {
+            SosClient client = new SosClient(server.endpoint(), o.connectTimeoutMs, o.readTimeoutMs,
+                () -> o.retryDelayMs, Thread::sleep, listener);
+
+            for (int i = 0; i < o.devices; i++) {
+                long offset = (long) (ThreadLocalRandom.current().nextDouble() * o.rampMs);
+                pool.schedule(new Runnable() {
+                    final SosOutbox outbox = new SosOutbox(o.outboxCapacity);
+                    long firstAttemptNanos;
+
+                    @Override
+                    public void run() {
+                        try {
+                            if (firstAttemptNanos == 0) {
+                                firstAttemptNanos = System.nanoTime();
+                                SosClient.Result result = client.send("load-test", 12.97, 77.59, 10f, o.retries);
+                                if (result.delivered) {
+                                    finish(false);
+                                    return;
+                                }
+                                outbox.offer(new SosOutbox.Entry(12.97, 77.59, 10f, System.currentTimeMillis()));
+                                peakOutboxDepth.accumulateAndGet(outboxDepth.incrementAndGet(), Math::max);
+                            } else {
+                                outboxDrains.incrementAndGet();
+                                int before = outbox.size();
+                                outbox.drain(client, "load-test", o.retries);
+                                outboxDepth.addAndGet(outbox.size() - before);
+                                if (outbox.size() == 0) {
+                                    finish(true);
+                                    return;
+                                }
+                            }
+                            if (System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(o.outboxIntervalMs) > deadlineNanos) {
+                                outboxDropped.addAndGet(outbox.dropped());
+                                done.countDown();
+                                return;
+                            }
+                            pool.schedule(this, o.outboxIntervalMs, TimeUnit.MILLISECONDS);
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                            done.countDown();
+                        }
+                    }
+
+                    private void finish(boolean fromOutbox) {
+                        latencyMs[delivered.getAndIncrement()] =
+                            TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - firstAttemptNanos);
+                        if (fromOutbox) deliveredFromOutbox.incrementAndGet();
+                        outboxDropped.addAndGet(outbox.dropped());
+                        done.countDown();
+                    }
+                }, offset, TimeUnit.MILLISECONDS);
+            }
+
+            done.await(o.durationMs + o.readTimeoutMs * (o.retries + 2L) + 5000, TimeUnit.MILLISECONDS);
+            long wallMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+
+            int n = delivered.get();
+            long[] sorted = Arrays.copyOf(latencyMs, n);
+            Arrays.sort(sorted);
+            Map<String, Object> report = new LinkedHashMap<>();
+            report.put("devices", (double) o.devices);
+            report.put("delivered", (double) n);
+            report.put("deliveredFromOutbox", (double) deliveredFromOutbox.get());
+            report.put("undelivered", (double) (o.devices - n));
+            report.put("latencyP50Ms", percentile(sorted, 0.50));
+            report.put("latencyP90Ms", percentile(sorted, 0.90));
+            report.put("latencyP99Ms", percentile(sorted, 0.99));
+            report.put("latencyMaxMs", n > 0 ? (double) sorted[n - 1] : -1.0);
+            report.put("attempts", (double) attempts.get());
+            report.put("retryAmplification", (double) attempts.get() / o.devices);
+            report.put("networkErrors", (double) networkErrors.get());
+            report.put("outboxPeakDepth", (double) peakOutboxDepth.get());
+            report.put("outboxDepthAtEnd", (double) outboxDepth.get());
+            report.put("outboxDrains", (double) outboxDrains.get());
+            report.put("outboxDropped", (double) outboxDropped.get());
+            report.put("serverRequests", (double) server.requests.get());
+            report.put("serverOk", (double) server.answeredOk.get());
+            report.put("serverInjectedErrors", (double) server.injectedErrors.get());
+            report.put("serverInjectedTimeouts", (double) server.injectedTimeouts.get());
+            report.put("serverOverloaded", (double) server.overloaded.get());
+            report.put("serverPeakInFlight", (double) server.peakInFlight.get());
+            report.put("wallMs", (double) wallMs);
+            return report;
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private static double percentile(long[] sorted, double p) {
+        if (sorted.length == 0) return -1;
+        return sorted[Math.min(sorted.length - 1, (int) (sorted.length * p))];
+    }
+}
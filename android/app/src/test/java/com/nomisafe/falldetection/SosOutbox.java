@@ -0,0 +1,83 @@
+package com.nomisafe.falldetection;
+
+import java.util.ArrayDeque;
+
+/**
+ * Bounded queue of SOS sends that exhausted their retries, drained oldest first and stopping
+ * at the first failure, so a struggling server sees one send per device per drain rather than
+ * the whole backlog. The service persists its one-slot outbox itself; the load test uses this
+ * class to model it and larger ones.
+ *
+ * When full the oldest entry is dropped: a newer position is worth more than an older one.
+ * Thread-safe.
+ */
+final class SosOutbox {
+    static final class Entry {
+        final double latitude;
+        final double longitude;
+        final float accuracy;
+        final long createdAtMs;
+
+        Entry(double latitude, double longitude, float accuracy, long createdAtMs) {
+            this.latitude = latitude;
+            this.longitude = longitude;
+            this.accuracy = accuracy;
+            this.createdAtMs = createdAtMs;
+        }
+    }
+
+    private final int capacity;
+    private final ArrayDeque<Entry> entries = new ArrayDeque<>();
+    private long dropped = 0;
+
+    SosOutbox(int capacity) {
+        this.capacity = capacity;
+    }
+
+    synchronized void offer(Entry entry) {
+        if (entries.size() == capacity) {
+            entries.pollFirst();
+            dropped++;
+        }
+        entries.addLast(entry);
+    }
+
+    synchronized int size() {
+        return entries.size();
+    }
+
+    synchronized long dropped() {
+        return dropped;
+    }
+
+    private synchronized Entry peek() {
+        return entries.peekFirst();
+    }
+
+    private synchronized void remove(Entry entry) {
+        entries.remove(entry);
+    }
+
+    /**
+     * Sends queued entries oldest first; stops at the first entry that stays undelivered
+     * after its retries and leaves it queued for the next drain.
+     *
+     * @return entries delivered
+     */
+    int drain(SosClient client, String accessToken, int retries) throws InterruptedException {
+        int delivered = 0;
+        Entry entry;
+        while ((entry = peek()) != null) {
+            SosClient.Result result = client.send(accessToken, entry.latitude, entry.longitude, entry.accuracy, retries);
+            if (!result.delivered && result.httpStatus != 0 && result.httpStatus < 500) {
+                // Rejected outright; retrying would not change the answer
+                remove(entry);
+                continue;
+            }
+            if (!result.delivered) break;
+            remove(entry);
+            delivered++;
+        }
+        return delivered;
+    }
+}
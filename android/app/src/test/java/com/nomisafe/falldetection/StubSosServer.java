@@ -0,0 +1,161 @@
+package com.nomisafe.falldetection;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Minimal HTTP/1.1 stand-in for the /sos/ endpoint on a loopback port, for {@link SosLoadTest}.
+ *
+ * Each request is answered after an injected latency (base plus an exponential tail) with
+ * 200 and a contacts_notified count, or with an injected 503 (optionally with Retry-After),
+ * or never: the connection is held past the client's read timeout and then dropped. Above a
+ * concurrency limit requests are refused with an immediate 503, like an overloaded backend.
+ * One connection per request.
+ */
+final class StubSosServer implements Closeable {
+    static final class Faults {
+        long baseLatencyMs = 50;
+        long meanExtraLatencyMs = 100;  // exponential tail on top of the base
+        double errorRate = 0.05;        // 503
+        double timeoutRate = 0.02;      // no answer
+        long holdMs = 5000;             // how long an unanswered request is held
+        long retryAfterSeconds = 0;     // sent with every 503 when > 0
+        int maxConcurrent = 500;
+    }
+
+    private final Faults faults;
+    private final ServerSocket socket;
+    private final ExecutorService handlers = Executors.newCachedThreadPool(r -> {
+        Thread thread = new Thread(r, "StubSosServer");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private volatile boolean closed = false;
+
+    final AtomicLong requests = new AtomicLong();
+    final AtomicLong answeredOk = new AtomicLong();
+    final AtomicLong injectedErrors = new AtomicLong();
+    final AtomicLong injectedTimeouts = new AtomicLong();
+    final AtomicLong overloaded = new AtomicLong();
+    final AtomicInteger peakInFlight = new AtomicInteger();
+
+    StubSosServer(Faults faults) throws IOException {
+        this.faults = faults;
+        socket = new ServerSocket(0, 4096, InetAddress.getLoopbackAddress());
+        Thread acceptor = new Thread(this::acceptLoop, "StubSosServer-accept");
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+
+    String endpoint() {
+        return "http://127.0.0.1:" + socket.getLocalPort() + "/api/sos/";
+    }
+
+    private void acceptLoop() {
+        while (!closed) {
+            try {
+                Socket client = socket.accept();
+                handlers.execute(() -> handle(client));
+            } catch (IOException e) {
+                // Closed
+            }
+        }
+    }
+
+    private void handle(Socket client) {
+        int current = inFlight.incrementAndGet();
+        peakInFlight.accumulateAndGet(current, Math::max);
+        try (Socket s = client) {
+            readRequest(s.getInputStream());
+            requests.incrementAndGet();
+            OutputStream out = s.getOutputStream();
+            if (current > faults.maxConcurrent) {
+                overloaded.incrementAndGet();
+                respond(out, 503, "{\"error\":\"overloaded\"}");
+                return;
+            }
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            double roll = random.nextDouble();
+            if (roll < faults.timeoutRate) {
+                injectedTimeouts.incrementAndGet();
+                Thread.sleep(faults.holdMs);
+                return;
+            }
+            long latency = faults.baseLatencyMs
+                + (long) (-Math.log(1 - random.nextDouble()) * faults.meanExtraLatencyMs);
+            Thread.sleep(latency);
+            if (roll < faults.timeoutRate + faults.errorRate) {
+                injectedErrors.incrementAndGet();
+                respond(out, 503, "{\"error\":\"injected\"}");
+            } else {
+                answeredOk.incrementAndGet();
+                respond(out, 200, "{\"contacts_notified\":2}");
+            }
+        } catch (IOException e) {
+            // Client gave up first
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            inFlight.decrementAndGet();
+        }
+    }
+
+    /** Reads the request line, headers and a Content-Length body. */
+    private static void readRequest(InputStream raw) throws IOException {
+        InputStream in = new BufferedInputStream(raw);
+        StringBuilder line = new StringBuilder();
+        int contentLength = 0;
+        while (true) {
+            line.setLength(0);
+            int c;
+            while ((c = in.read()) != -1 && c != '\n') {
+                if (c != '\r') line.append((char) c);
+            }
+            if (c == -1) throw new IOException("Connection closed mid-request");
+            if (line.length() == 0) break;
+            String header = line.toString();
+            if (header.regionMatches(true, 0, "Content-Length:", 0, 15)) {
+                contentLength = Integer.parseInt(header.substring(15).trim());
+            }
+        }
+        for (int i = 0; i < contentLength; i++) {
+            if (in.read() == -1) throw new IOException("Connection closed mid-body");
+        }
+    }
+
+    private void respond(OutputStream out, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        StringBuilder head = new StringBuilder()
+            .append("HTTP/1.1 ").append(status).append(status == 200 ? " OK" : " Service Unavailable").append("\r\n")
+            .append("Content-Type: application/json\r\n")
+            .append("Content-Length: ").append(bytes.length).append("\r\n")
+            .append("Connection: close\r\n");
+        if (status == 503 && faults.retryAfterSeconds > 0) {
+            head.append("Retry-After: ").append(faults.retryAfterSeconds).append("\r\n");
+        }
+        head.append("\r\n");
+        out.write(head.toString().getBytes(StandardCharsets.US_ASCII));
+        out.write(bytes);
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        socket.close();
+        handlers.shutdownNow();
+    }
+}
@@ -11,7 +11,6 @@ import {
   StyleSheet,
   Modal,
   TouchableOpacity,
-  NativeModules,
   Animated,
   Vibration,
   Dimensions,
@@ -19,17 +18,8 @@ import {
   DeviceEventEmitter,
   PermissionsAndroid,
 } from 'react-native';
-import { sendSOSAlert } from '../services/sos';
+import FallDetectionModule from '../specs/NativeFallDetectionModule';
 
-// Optional: geolocation fallback (install @react-native-community/geolocation if you want JS fallback)
-let Geolocation: any = null;
-try {
-  Geolocation = require('@react-native-community/geolocation').default;
-} catch (e) {
-  // Geolocation package not installed - native service will handle location
-}
-
-const { FallDetectionModule } = NativeModules;
 const { width } = Dimensions.get('window');
 
 interface FallDetectionPopupProps {
@@ -91,6 +81,17 @@ const FallDetectionPopup = forwardRef<
 
     console.log('[FallDetectionPopup] Setting up event listeners');
 
+    // Read the real SOS state synchronously so an alert that started before
+    // this component mounted is shown straight away
+    if (FallDetectionModule?.getSosState() === 'countdown') {
+      const remaining = FallDetectionModule.getCountdownRemaining();
+      setVisible(true);
+      setCountdown(remaining);
+      setStatus('countdown');
+      progressAnim.setValue((30 - remaining) / 30);
+      startPulseAnimation();
+    }
+
     // Use DeviceEventEmitter directly for better compatibility
     const fallDetectedSub = DeviceEventEmitter.addListener(
       'FallDetected',
@@ -132,7 +133,7 @@ const FallDetectionPopup = forwardRef<
     });
 
     // Listen for SOS sent
-    const sentSub = DeviceEventEmitter.addListener('SOSSent', async event => {
+    const sentSub = DeviceEventEmitter.addListener('SOSSent', event => {
       console.log(
         '[FallDetectionPopup] SOSSent event received:',
         JSON.stringify(event),
@@ -140,71 +141,19 @@ const FallDetectionPopup = forwardRef<
       Vibration.cancel();
       setStatus('sent');
 
-      // Send SOS alert to backend API
-      const latitude = event?.latitude;
-      const longitude = event?.longitude;
-      const accuracy = event?.accuracy;
-
-      if (latitude != null && longitude != null) {
-        console.log('=== SOS SENT WITH LOCATION ===');
-        console.log('Latitude:', latitude);
-        console.log('Longitude:', longitude);
-        console.log('Accuracy:', accuracy);
-        console.log('==============================');
-
-        // Call API to notify emergency contacts
-        try {
-          const response = await sendSOSAlert({
-            latitude,
-            longitude,
-            accuracy,
-          });
-          console.log('=== SOS API RESPONSE ===');
-          console.log('Contacts notified:', response.contacts_notified);
-          console.log('Maps link:', response.location?.maps_link);
-          if (response.failed_contacts?.length > 0) {
-            console.log('Failed contacts:', response.failed_contacts);
-          }
-          console.log('========================');
-        } catch (error: any) {
-          console.error('Failed to send SOS to API:', error.message);
-        }
+      // The native service delivers every SOS itself (HTTP with SMS fallback,
+      // under one idempotency key), with or without a location fix, so JS
+      // only reports it; resending here would reach the backend twice
+      if (event?.replayed) {
+        console.log(
+          `[FallDetectionPopup] SOSSent replayed after ${event.queuedMs}ms`,
+        );
+      } else if (event?.latitude != null && event?.longitude != null) {
+        console.log(
+          `[FallDetectionPopup] SOS sent at ${event.latitude}, ${event.longitude} (+/-${event.accuracy} m)`,
+        );
       } else {
-        console.log('=== SOS SENT (NO LOCATION FROM NATIVE) ===');
-        // Try to get location from JS side as fallback
-        if (Geolocation) {
-          Geolocation.getCurrentPosition(
-            async (position: any) => {
-              const lat = position.coords.latitude;
-              const lng = position.coords.longitude;
-              const acc = position.coords.accuracy;
-              console.log('Fallback Location from JS:');
-              console.log('Latitude:', lat);
-              console.log('Longitude:', lng);
-              console.log('Accuracy:', acc);
-
-              // Call API with fallback location
-              try {
-                const response = await sendSOSAlert({
-                  latitude: lat,
-                  longitude: lng,
-                  accuracy: acc,
-                });
-                console.log('SOS API Response (fallback):', response);
-              } catch (error: any) {
-                console.error('Failed to send SOS to API:', error.message);
-              }
-            },
-            (error: any) => {
-              console.log('Could not get location:', error.message);
-            },
-            { enableHighAccuracy: true, timeout: 10000, maximumAge: 5000 },
-          );
-        } else {
-          console.log(
-            'Geolocation package not installed - no JS fallback available',
-          );
-        }
+        console.log('[FallDetectionPopup] SOS sent without a location fix');
       }
 
       setTimeout(() => {
@@ -214,6 +163,9 @@ const FallDetectionPopup = forwardRef<
       }, 3000);
     });
 
+    // Listeners are in place - let native replay anything buffered while JS was away
+    FallDetectionModule?.attachEventChannel();
+
     return () => {
       fallDetectedSub.remove();
       countdownSub.remove();
@@ -224,9 +176,7 @@ const FallDetectionPopup = forwardRef<
 
   const handleCancel = () => {
     // Call native module to cancel SOS
-    if (FallDetectionModule && FallDetectionModule.cancelSOS) {
-      FallDetectionModule.cancelSOS();
-    }
+    FallDetectionModule?.cancelSOS();
     Vibration.cancel();
   };
 
@@ -5,6 +5,10 @@ import {
   clearAuthData,
 } from '../utils/authStorage';
 import { authApi } from '../services/auth';
+import {
+  clearFirstConnects,
+  refreshFirstConnects,
+} from '../services/firstConnect';
 import { useDispatch } from 'react-redux';
 import { setAuthState, setAadhaarVerified } from '../store/authSlice';
 
@@ -73,6 +77,7 @@ export const AuthProvider: React.FC<{ children: React.ReactNode }> = ({
           // requests from the app include the token immediately
           if (storedAuth.accessToken) {
             authApi.defaults.headers.Authorization = `Bearer ${storedAuth.accessToken}`;
+            refreshFirstConnects();
           }
 
           if (storedAuth.user) {
@@ -129,6 +134,7 @@ export const AuthProvider: React.FC<{ children: React.ReactNode }> = ({
     // set axios default header so other services pick it up immediately
     if (authData.accessToken) {
       authApi.defaults.headers.Authorization = `Bearer ${authData.accessToken}`;
+      refreshFirstConnects();
     }
     if (authData.user) {
       setUser(authData.user);
@@ -143,6 +149,7 @@ export const AuthProvider: React.FC<{ children: React.ReactNode }> = ({
 
   const logout = async () => {
     await clearAuthData();
+    clearFirstConnects();
     setIsAuthenticated(false);
     setUserId(null);
     setPhoneNumber(null);
@@ -0,0 +1,136 @@
+import React, { useEffect, useState } from 'react';
+import { View, Text, StyleSheet, DeviceEventEmitter } from 'react-native';
+import { SafeAreaView } from 'react-native-safe-area-context';
+import AppHeader from '../components/AppHeader';
+import FallDetectionModule from '../specs/NativeFallDetectionModule';
+
+// Every 5th accelerometer sample (~10 Hz at SENSOR_DELAY_GAME), 10 per batch
+const DECIMATION = 5;
+const BATCH_SIZE = 10;
+
+const PHASE_NAMES = ['Idle', 'Free-fall', 'Impact', 'Stillness'];
+
+interface SensorBatch {
+  seq: number;
+  baseTimestamp: number;
+  offsetMs: number[];
+  x: number[];
+  y: number[];
+  z: number[];
+  magnitude: number[];
+  phase: number[];
+  droppedFrames: number;
+}
+
+interface StreamStats {
+  magnitude: number;
+  x: number;
+  y: number;
+  z: number;
+  phase: number;
+  peak: number;
+  batches: number;
+  droppedFrames: number;
+}
+
+const DetectorDebugScreen = () => {
+  const [stats, setStats] = useState<StreamStats | null>(null);
+
+  useEffect(() => {
+    if (!FallDetectionModule) return;
+
+    let batches = 0;
+    let peak = 0;
+    const sub = DeviceEventEmitter.addListener(
+      'SensorStream',
+      (batch: SensorBatch) => {
+        const last = batch.magnitude.length - 1;
+        batches += 1;
+        peak = Math.max(peak, ...batch.magnitude);
+        setStats({
+          magnitude: batch.magnitude[last],
+          x: batch.x[last],
+          y: batch.y[last],
+          z: batch.z[last],
+          phase: batch.phase[last],
+          peak,
+          batches,
+          droppedFrames: batch.droppedFrames,
+        });
+        // Ready for the next batch - native drops batches until this arrives
+        FallDetectionModule?.ackSensorBatch(batch.seq);
+      },
+    );
+    FallDetectionModule.startSensorStream(DECIMATION, BATCH_SIZE);
+
+    return () => {
+      FallDetectionModule?.stopSensorStream();
+      sub.remove();
+    };
+  }, []);
+
+  return (
+    <SafeAreaView style={styles.container} edges={['bottom']}>
+      <AppHeader />
+      <View style={styles.content}>
+        <Text style={styles.title}>Detector Debug</Text>
+        {!FallDetectionModule ? (
+          <Text style={styles.label}>Not available on this platform</Text>
+        ) : !stats ? (
+          <Text style={styles.label}>Waiting for samples...</Text>
+        ) : (
+          <>
+            <Text style={styles.phase}>{PHASE_NAMES[stats.phase]}</Text>
+            <Text style={styles.value}>
+              |a| = {stats.magnitude.toFixed(2)} m/s²
+            </Text>
+            <Text style={styles.label}>
+              x {stats.x.toFixed(2)} y {stats.y.toFixed(2)} z{' '}
+              {stats.z.toFixed(2)}
+            </Text>
+            <Text style={styles.label}>Peak {stats.peak.toFixed(2)} m/s²</Text>
+            <Text style={styles.label}>
+              Batches {stats.batches} · dropped frames {stats.droppedFrames}
+            </Text>
+          </>
+        )}
+      </View>
+    </SafeAreaView>
+  );
+};
+
+const styles = StyleSheet.create({
+  container: {
+    flex: 1,
+    backgroundColor: '#fff',
+  },
+  content: {
+    flex: 1,
+    justifyContent: 'center',
+    alignItems: 'center',
+    padding: 24,
+  },
+  title: {
+    fontSize: 28,
+    fontWeight: 'bold',
+    marginBottom: 24,
+  },
+  phase: {
+    fontSize: 24,
+    fontWeight: '600',
+    color: '#4DB6AC',
+    marginBottom: 12,
+  },
+  value: {
+    fontSize: 32,
+    fontWeight: 'bold',
+    marginBottom: 12,
+  },
+  label: {
+    fontSize: 16,
+    color: '#555',
+    marginBottom: 6,
+  },
+});
+
+export default DetectorDebugScreen;
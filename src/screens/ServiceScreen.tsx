@@ -1,16 +1,30 @@
 import React from 'react';
-import { View, Text, StyleSheet } from 'react-native';
+import { View, Text, StyleSheet, TouchableOpacity } from 'react-native';
 import { SafeAreaView } from 'react-native-safe-area-context';
+import { StackNavigationProp } from '@react-navigation/stack';
+import { RootStackParamList } from '../types/navigation';
 import AppHeader from '../components/AppHeader';
 import BottomNavigation from '../components/BottomNavigation';
 
-const ServiceScreen = () => {
+type ServiceScreenProps = {
+  navigation: StackNavigationProp<RootStackParamList, 'Service'>;
+};
+
+const ServiceScreen = ({ navigation }: ServiceScreenProps) => {
   return (
     <SafeAreaView style={styles.container} edges={['bottom']}>
       <AppHeader />
       <View style={styles.content}>
         <Text style={styles.title}>Service</Text>
         <Text style={styles.banner}>COMING SOON</Text>
+        {__DEV__ && (
+          <TouchableOpacity
+            style={styles.debugLink}
+            onPress={() => navigation.navigate('DetectorDebug')}
+          >
+            <Text style={styles.debugLinkText}>Fall detector debug</Text>
+          </TouchableOpacity>
+        )}
       </View>
       <BottomNavigation />
     </SafeAreaView>
@@ -41,6 +55,14 @@ const styles = StyleSheet.create({
     color: '#4DB6AC',
     fontWeight: '600',
   },
+  debugLink: {
+    marginTop: 32,
+  },
+  debugLinkText: {
+    fontSize: 14,
+    color: '#888',
+    textDecorationLine: 'underline',
+  },
 });
 
 export default ServiceScreen;
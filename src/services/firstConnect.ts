@@ -1,4 +1,5 @@
 import { authApi } from './auth';
+import FallDetectionModule from '../specs/NativeFallDetectionModule';
 
 export interface FirstConnectItem {
   id: number;
@@ -27,13 +28,84 @@ export interface FirstConnectDeleteResponse {
   remaining: number;
 }
 
+// The SOS fallback channels text these contacts from a native copy when the
+// backend is unreachable. Only changes cross the bridge: `synced` is what
+// native was last sent, and the first full list of a JS session replaces the
+// native copy outright.
+let synced: Map<number, string> | null = null;
+
+const signature = (item: FirstConnectItem) =>
+  `${item.name}\u0000${item.phone_number}`;
+
+// The texts need SEND_SMS. Asked once per session, as soon as there is a
+// contact to text; a request that could not be shown (no activity yet) is
+// retried on the next sync.
+let smsPermissionRequested = false;
+
+const requestSmsPermissionOnce = () => {
+  if (smsPermissionRequested || !FallDetectionModule) return;
+  smsPermissionRequested = true;
+  FallDetectionModule.requestSmsPermission().catch(() => {
+    smsPermissionRequested = false;
+  });
+};
+
+const syncFullList = (items: FirstConnectItem[]) => {
+  if (!FallDetectionModule) return;
+  if (items.length > 0) requestSmsPermissionOnce();
+  const next = new Map(items.map(item => [item.id, signature(item)]));
+  if (synced === null) {
+    FallDetectionModule.syncFirstConnects({ replaceAll: true, upserts: items });
+  } else {
+    const previous = synced;
+    const upserts = items.filter(
+      item => previous.get(item.id) !== signature(item),
+    );
+    const removedIds = [...previous.keys()].filter(id => !next.has(id));
+    if (upserts.length > 0 || removedIds.length > 0) {
+      FallDetectionModule.syncFirstConnects({ upserts, removedIds });
+    }
+  }
+  synced = next;
+};
+
+// On logout, so an SOS raised by the next account on this phone never texts
+// the previous account's contacts. The next full list replaces outright again.
+export const clearFirstConnects = () => {
+  FallDetectionModule?.syncFirstConnects({ replaceAll: true, upserts: [] });
+  synced = null;
+};
+
+const syncUpsert = (item: FirstConnectItem) => {
+  FallDetectionModule?.syncFirstConnects({ upserts: [item] });
+  requestSmsPermissionOnce();
+  synced?.set(item.id, signature(item));
+};
+
+const syncRemoval = (id: number) => {
+  FallDetectionModule?.syncFirstConnects({ removedIds: [id] });
+  synced?.delete(id);
+};
+
 export const getFirstConnects = async (): Promise<FirstConnectListResponse> => {
   const response = await authApi.get<FirstConnectListResponse>(
     '/first-connects/',
   );
+  syncFullList(response.data.first_connects);
   return response.data;
 };
 
+// Brings the native copy up to date without the FirstConnect screen being
+// opened; called at app start and login. Offline, the copy native already has
+// stays in use.
+export const refreshFirstConnects = async (): Promise<void> => {
+  try {
+    await getFirstConnects();
+  } catch (error) {
+    console.log('[FirstConnect] Could not refresh contacts for SOS', error);
+  }
+};
+
 export const createFirstConnect = async (
   name: string,
   phone_number: string,
@@ -42,6 +114,7 @@ export const createFirstConnect = async (
     '/first-connects/',
     { name, phone_number },
   );
+  syncUpsert(response.data.first_connect);
   return response.data;
 };
 
@@ -54,6 +127,7 @@ export const updateFirstConnect = async (
     `/first-connects/${id}/`,
     { name, phone_number },
   );
+  syncUpsert(response.data.first_connect);
   return response.data;
 };
 
@@ -63,5 +137,6 @@ export const deleteFirstConnect = async (
   const response = await authApi.delete<FirstConnectDeleteResponse>(
     `/first-connects/${id}/`,
   );
+  syncRemoval(id);
   return response.data;
 };
@@ -0,0 +1,96 @@
+import type { TurboModule } from 'react-native';
+import { TurboModuleRegistry } from 'react-native';
+
+export type SOSState =
+  | 'idle'
+  | 'countdown'
+  | 'sending'
+  | 'sent'
+  | 'cancelled'
+  | 'pending';
+
+export type DetectorHealth = {
+  running: boolean;
+  sensorAvailable: boolean;
+  sensorRegistered: boolean;
+  lastSampleAgeMs: number;
+  inCooldown: boolean;
+  sensorStalls: number;
+  stallThresholdMs: number;
+  profile: string;
+  fusionEnabled: boolean;
+  configVersion: number;
+  configVariant: string;
+};
+
+export interface Spec extends TurboModule {
+  // Commands
+  startService(): void;
+  stopService(): void;
+  cancelSOS(): void;
+  retryPendingSOS(): void;
+  attachEventChannel(): void;
+  requestLocationPermission(): Promise<boolean>;
+  checkLocationPermission(): Promise<boolean>;
+  // SEND_SMS, for texting FirstConnect contacts when the SOS backend is unreachable
+  requestSmsPermission(): Promise<boolean>;
+
+  // Synchronous state queries (JSI, no bridge round trip), answered from the UI
+  // process's copy of the SOS state, which the service pushes on every change
+  getSosState(): string;
+  getCountdownRemaining(): number;
+  // These cross into the detector process, so they are async
+  getDetectorHealth(): Promise<DetectorHealth>;
+  getMetrics(): Promise<Object>;
+  // Per-day energy accounting: { fall|shake: { 'yyyy-MM-dd': { sensorEvents, mainThreadWakeups, ... } } }
+  getEnergyReport(): Object;
+
+  // Live decimated sensor stream ('SensorStream' events) for detector debugging.
+  // Every batch must be acknowledged with its seq; batches arriving while one is unacknowledged are dropped.
+  startSensorStream(decimation: number, batchSize: number): void;
+  stopSensorStream(): void;
+  ackSensorBatch(seq: number): void;
+
+  // Gap without accelerometer samples (uptime, so doze is excluded) before the listener is re-registered
+  setSensorStallThreshold(thresholdMs: number): void;
+
+  // android.os.Trace sections across the detection-to-SOS pipeline (on by default in debug builds)
+  setTracingEnabled(enabled: boolean): void;
+
+  // Gyroscope + barometer confirmation of fall candidates (off by default, persisted).
+  // The extra sensors run only from free-fall entry until the candidate is decided.
+  setFusionEnabled(enabled: boolean): void;
+  // Changes to the native, encrypted copy of the FirstConnect contacts that the SOS fallback
+  // texts when the backend has not confirmed in time:
+  // { replaceAll?: boolean, upserts?: { id, name, phone_number }[], removedIds?: number[] }.
+  // Removals apply before upserts; replaceAll clears the copy first. Kept across restarts.
+  syncFirstConnects(changes: Object): void;
+
+  // Per-inference latency (p50Us/p99Us/maxUs) and allocatedBytesPerInference of feature
+  // extraction + classifier scoring on a synthetic fall window
+  runClassifierBenchmark(iterations: number): Promise<Object>;
+
+  // Encode/decode throughput (samples and MB per second), bytesPerSample, quantization error
+  // and per-sample allocation of the binary sensor trace format on a synthetic 50 Hz recording
+  runTraceBenchmark(samples: number): Promise<Object>;
+
+  // Detector parameters (fall profiles, cooldowns, classifier weights, shake thresholds) as a
+  // versioned JSON document: { schema: 1, version, variant, fall, classifier, shake }. Omitted
+  // fields keep their defaults. Installed between two samples without restarting the sensor
+  // stream; resolves { accepted, version, variant } or { accepted: false, error }.
+  updateDetectorConfig(json: string): Promise<Object>;
+  getDetectorConfig(): Object;
+
+  // SOS lifecycle events (fallDetected, alarmAudible, notificationPosted, activityShown,
+  // cancelled, countdownExpired, location, sendAttempt, sendSucceeded, sendFailed, ...) with a
+  // sequence number >= sinceSeq, oldest first, at most `limit` of the newest. Parallel arrays:
+  // { nextSeq, seq, elapsedMs, wallTimeMs, incident, event, detail, value }.
+  getSosJournal(sinceSeq: number, limit: number): Object;
+
+  // Required for NativeEventEmitter
+  addListener(eventName: string): void;
+  removeListeners(count: number): void;
+}
+
+// Android only - resolves to null on iOS
+export default TurboModuleRegistry.get<Spec>('FallDetectionModule');
@@ -20,6 +20,7 @@ export type RootStackParamList = {
   FirstConnect: undefined;
   Tutorials: undefined;
   Service: undefined;
+  DetectorDebug: undefined;
   SafeVault: undefined;
   NomineeDetails: undefined;
   Profile: undefined;